@@ -1,15 +1,86 @@
 var soket = new SockJS("/ws");
 
+// Segments of the displayed version, see PreviewVersions
+var preview = {version: null, segments: []};
+var messages = Promise.resolve();
+
 function refreshUI(data) {
 
     morphdom(document.documentElement, data, morphdomOptions);
 
 }
 
+function sendMessage(message) {
+    soket.send(JSON.stringify(message));
+}
+
+function decodeMessage(data) {
+    var message = JSON.parse(data);
+    if (message.type !== "gzip") {
+        return message;
+    }
+    var binary = atob(message.data);
+    var bytes = new Uint8Array(binary.length);
+    for (var i = 0; i < binary.length; i++) {
+        bytes[i] = binary.charCodeAt(i);
+    }
+    var stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream("gzip"));
+    return new Response(stream).text().then(JSON.parse);
+}
+
+function shiftSegment(segment, offset) {
+    if (offset === 0) {
+        return segment;
+    }
+    return segment.replace(/(data-line-|data-line=")(\d+)/g, function (match, prefix, line) {
+        return prefix + (parseInt(line) + offset);
+    });
+}
+
+function applyMessage(message) {
+    if (message.type === "snapshot") {
+        preview.segments = message.segments;
+    } else if (message.type === "delta") {
+        if (message.base !== preview.version) {
+            sendMessage({type: "resync"});
+            return;
+        }
+        var segments = [];
+        message.ops.forEach(function (op) {
+            if (typeof op === "string") {
+                segments.push(op);
+                return;
+            }
+            for (var i = op[0]; i < op[0] + op[1]; i++) {
+                segments.push(shiftSegment(preview.segments[i], op[2]));
+            }
+        });
+        preview.segments = segments;
+    } else {
+        return;
+    }
+    preview.version = message.version;
+    refreshUI(preview.segments.join(""));
+}
+
+soket.onopen = function () {
+    sendMessage({type: "hello", compression: typeof DecompressionStream !== "undefined" ? "gzip" : "none"});
+};
+
+// Messages are applied in order, even when some of them are decompressed asynchronously
 soket.onmessage = function (e) {
-    refreshUI(e.data);
+    messages = messages
+        .then(function () {
+            return decodeMessage(e.data);
+        })
+        .then(applyMessage)
+        .catch(function (error) {
+            console.error(error);
+            preview.version = null;
+            sendMessage({type: "resync"});
+        });
 };
 
 soket.onerror = soket.onclose = function (e) {
     $(".row.connection-closed").show();
-};
\ No newline at end of file
+};
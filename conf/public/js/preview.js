@@ -30,9 +30,125 @@ function updateBase64Url(index, base64) {
 function refreshUI(data) {
 
     morphdom(document.documentElement, data, morphdomOptions);
+    requestPendingFragments();
 
 }
 
+function shiftDataLines(element, offset) {
+    $(element).find("[class*='data-line-']").addBack("[class*='data-line-']").each(function () {
+        if (typeof this.className !== "string") {
+            return;
+        }
+        this.className = this.className.replace(/\bdata-line-(\d+)\b/g, function (match, line) {
+            return "data-line-" + (parseInt(line) + offset);
+        });
+    });
+}
+
+// Returns false when the fragments can't be applied, then the whole content is refreshed
+function refreshFragments(data) {
+
+    var container = document.getElementById("afx-fragments");
+    if (!container) {
+        return false;
+    }
+
+    var result = JSON.parse(data);
+    var fragments = result.fragments;
+    // The toc of windowed documents comes with the fragments, the shell has it only after a whole refresh
+    var toc = document.getElementById("toc");
+    if ((result.toc === undefined) !== !toc) {
+        return false;
+    }
+
+    var existing = {};
+    $(container).children(".afx-fragment").each(function () {
+        var key = this.getAttribute("data-fragment");
+        (existing[key] = existing[key] || []).push(this);
+    });
+
+    var elements = [];
+    for (var i = 0; i < fragments.length; i++) {
+        var fragment = fragments[i];
+        var element = (existing[fragment.key] || []).shift();
+        if (fragment.html !== undefined) {
+            var template = document.createElement("div");
+            template.innerHTML = '<div class="afx-fragment"></div>';
+            var created = template.firstChild;
+            created.setAttribute("data-fragment", fragment.key);
+            created.setAttribute("data-line", fragment.line);
+            created.innerHTML = fragment.html;
+            element = created;
+        } else if (!element && fragment.pending !== undefined) {
+            element = createPendingFragment(fragment);
+        } else if (!element) {
+            return false;
+        } else {
+            var line = parseInt(element.getAttribute("data-line"));
+            if (line !== fragment.line) {
+                shiftDataLines(element, fragment.line - line);
+                element.setAttribute("data-line", fragment.line);
+            }
+        }
+        elements.push(element);
+    }
+
+    for (var j = 0; j < elements.length; j++) {
+        var current = container.children[j];
+        if (current !== elements[j]) {
+            container.insertBefore(elements[j], current || null);
+        }
+    }
+
+    while (container.children.length > elements.length) {
+        container.removeChild(container.lastElementChild);
+    }
+
+    if (toc && toc.outerHTML !== result.toc) {
+        toc.outerHTML = result.toc;
+    }
+
+    requestPendingFragments();
+
+    return true;
+}
+
+function createPendingFragment(fragment) {
+    var element = document.createElement("div");
+    element.className = "afx-fragment afx-pending data-line-" + fragment.line;
+    element.setAttribute("data-fragment", fragment.key);
+    element.setAttribute("data-line", fragment.line);
+    element.style.minHeight = fragment.pending + "em";
+    if (fragment.id) {
+        element.id = fragment.id;
+    }
+    return element;
+}
+
+var pendingFragmentsAction = new BufferedAction();
+
+// Large documents are previewed partially, sections near the viewport are converted on demand
+function requestPendingFragments() {
+    if (typeof afx === "undefined") {
+        return;
+    }
+    pendingFragmentsAction.buff(function () {
+        var keys = [];
+        var margin = window.innerHeight;
+        $("#afx-fragments").children(".afx-pending").each(function () {
+            var rect = this.getBoundingClientRect();
+            if (rect.bottom >= -margin && rect.top <= window.innerHeight + margin) {
+                keys.push(this.getAttribute("data-fragment"));
+            }
+        });
+        if (keys.length > 0) {
+            afx.requestFragments(JSON.stringify(keys));
+        }
+    }, 150);
+}
+
+window.addEventListener("scroll", requestPendingFragments);
+
 (function () {
     alert("PREVIEW_LOADED");
 })();
\ No newline at end of file
@@ -3,7 +3,6 @@ package com.kodedu.boot;
 import com.install4j.api.launcher.StartupNotification;
 import com.kodedu.config.ConfigurationService;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.helper.TaskbarHelper;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
@@ -25,9 +24,6 @@ import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
-import javafx.scene.layout.AnchorPane;
-import javafx.scene.text.Font;
-import javafx.stage.Modality;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 import org.apache.commons.lang3.StringUtils;
@@ -41,8 +37,6 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import java.awt.*;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.NotDirectoryException;
@@ -57,7 +51,6 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static java.awt.Taskbar.Feature.ICON_IMAGE;
 import static javafx.scene.input.KeyCombination.SHORTCUT_DOWN;
@@ -84,10 +77,6 @@ public class AppStarter extends Application {
         stage.setTitle("AsciidocFX");
         logoImage = setApplicationIcon(stage);
         Thread.setDefaultUncaughtExceptionHandler((t, e) -> logger.error(e.getMessage(), e));
-        Thread.startVirtualThread(() -> {
-            loadRequiredFonts();
-        });
-
         Thread.startVirtualThread(() -> {
             try {
                 startApp(stage);
@@ -146,31 +135,16 @@ public class AppStarter extends Application {
         });
     }
 
-    public void loadRequiredFonts() {
-        try {
-            Files.walk(IOHelper.getInstallationPath().resolve("conf/fonts"))
-                    .filter(f -> f.toString().endsWith(".ttf"))
-                    .forEach(font -> {
-                        try (var in = new FileInputStream(font.toFile())) {
-                            IntStream.range(8, 32)
-                                    .forEach(size -> {
-                                        Font.loadFont(in, size);
-                                    });
-                        } catch (IOException e) {
-                            logger.error("Error when loading font {}", font, e);
-                        }
-                    });
-        } catch (IOException e) {
-            logger.warn("Couldn't load fonts", e);
-        }
-    }
-
     private void startApp(final Stage stage) throws Throwable {
 
         this.stage = stage;
         SpringApplication app = new SpringApplication(SpringAppConfig.class);
-//        app.setApplicationStartup(new BufferingApplicationStartup(20000));
-        context = app.run(new String[]{});
+        if (Objects.nonNull(config) && config.isProfileStartup()) {
+            app.setApplicationStartup(StartupTrace.profile());
+        }
+        try (StartupTrace.Step step = StartupTrace.step("spring.context")) {
+            context = app.run(new String[]{});
+        }
         logger.debug("Spring context loaded in {} ms.", System.currentTimeMillis() - startTime);
         controller = context.getBean(ApplicationController.class);
         threadService = context.getBean(ThreadService.class);
@@ -181,7 +155,8 @@ public class AppStarter extends Application {
         parentLoader.setControllerFactory(context::getBean);
 
         Parent root;
-        try (InputStream sceneStream = AppStarter.class.getResourceAsStream("/scenes/AsciidocFX_Scene.fxml")) {
+        try (StartupTrace.Step step = StartupTrace.step("fxml.AsciidocFX_Scene");
+             InputStream sceneStream = AppStarter.class.getResourceAsStream("/scenes/AsciidocFX_Scene.fxml")) {
             root = parentLoader.load(sceneStream);
         }
 
@@ -194,7 +169,9 @@ public class AppStarter extends Application {
             controller.setScene(scene);
             controller.setHostServices(getHostServices());
 
-            configurationService.loadConfigurations();
+            try (StartupTrace.Step step = StartupTrace.step("config.loadConfigurations")) {
+                configurationService.loadConfigurations();
+            }
             controller.applyInitialConfigurations();
             controller.checkStageInsideScreens();
         });
@@ -203,6 +180,7 @@ public class AppStarter extends Application {
             controller.bindConfigurations();
             controller.initializeApp();
             controller.showConfigLoaderOnNewInstall();
+            StartupTrace.mark("stage.shown");
             logger.debug("AsciidocFX started in {} ms.", System.currentTimeMillis() - startTime);
         });
 
@@ -221,46 +199,7 @@ public class AppStarter extends Application {
             stage.show();
         });
 
-        final FXMLLoader asciidocTableLoader = new FXMLLoader();
-        final FXMLLoader markdownTableLoader = new FXMLLoader();
-
-        asciidocTableLoader.setControllerFactory(context::getBean);
-        markdownTableLoader.setControllerFactory(context::getBean);
-
-        AnchorPane asciidocTableAnchor;
-        try (InputStream asciidocTableStream = AppStarter.class.getResourceAsStream("/scenes/AsciidocTablePopup.fxml")) {
-            asciidocTableAnchor = asciidocTableLoader.load(asciidocTableStream);
-        }
-
-        AnchorPane markdownTableAnchor;
-        try (InputStream markdownTableStream = AppStarter.class.getResourceAsStream("/scenes/MarkdownTablePopup.fxml")) {
-            markdownTableAnchor = markdownTableLoader.load(markdownTableStream);
-        }
-
-        Stage asciidocTableStage = threadService.supply(Stage::new);
-        threadService.runActionLater(asciidocTableStage::setScene, new Scene(asciidocTableAnchor));
-        asciidocTableStage.setTitle("表格生成器");
-        asciidocTableStage.initModality(Modality.WINDOW_MODAL);
-        asciidocTableStage.initOwner(scene.getWindow());
-        asciidocTableStage.getIcons().add(logoImage);
-
-        Stage markdownTableStage = threadService.supply(Stage::new);
-        threadService.runActionLater(markdownTableStage::setScene, new Scene(markdownTableAnchor));
-        markdownTableStage.setTitle("表格生成器");
-        markdownTableStage.initModality(Modality.WINDOW_MODAL);
-        markdownTableStage.initOwner(scene.getWindow());
-        markdownTableStage.getIcons().add(logoImage);
-
-        controller.setAsciidocTableAnchor(asciidocTableAnchor);
-        controller.setMarkdownTableAnchor(markdownTableAnchor);
-        controller.setAsciidocTableStage(asciidocTableStage);
-        controller.setAsciidocTableScene(asciidocTableStage.getScene());
-        controller.setMarkdownTableStage(markdownTableStage);
-        controller.setMarkdownTableScene(markdownTableStage.getScene());
-
-        controller.applyCurrentTheme(asciidocTableStage, markdownTableStage);
-        controller.applyCurrentFontFamily(asciidocTableStage, markdownTableStage);
-
+        // Table generator stages are created when they are first opened, see ApplicationController#createAsciidocTable
         controller.initializeSaveOnBlur();
 
         scene.getAccelerators().put(new KeyCodeCombination(KeyCode.S, SHORTCUT_DOWN), controller::saveDoc);
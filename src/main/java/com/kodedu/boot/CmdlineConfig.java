@@ -25,6 +25,9 @@ public class CmdlineConfig {
     @CmdOption(names = {"--keep-after", "-K"}, description = "转换完成后保持AsciidocFX运行")
     boolean noQuitAfter = false;
 
+    @CmdOption(names = {"--profile-startup"}, description = "记录启动时间线并输出到日志")
+    boolean profileStartup = false;
+
     public boolean isCmdStart() {
         return !files.isEmpty();
     }
@@ -33,6 +36,10 @@ public class CmdlineConfig {
         return headless;
     }
 
+    public boolean isProfileStartup() {
+        return profileStartup;
+    }
+
     @Override
     public String toString() {
         return "CmdlineConfig{" +
@@ -42,6 +49,7 @@ public class CmdlineConfig {
                 ", backend='" + backend + '\'' +
                 ", headless=" + headless +
                 ", noQuitAfter=" + noQuitAfter +
+                ", profileStartup=" + profileStartup +
                 '}';
     }
 }
@@ -17,7 +17,7 @@
 package com.kodedu.boot;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.kodedu.controller.ApplicationController;
+import com.kodedu.engine.PreviewBroadcaster;
 import com.kodedu.service.AsciidoctorFactory;
 import com.kodedu.service.extension.chart.ChartBlockProcessor;
 import com.kodedu.service.extension.math.block.MathBlockProcessor;
@@ -30,17 +30,24 @@ import com.kodedu.service.extension.processor.XrefIncludeProcessor;
 import com.kodedu.service.extension.tree.FileTreeBlockMacroProcessor;
 import com.kodedu.service.extension.tree.FileTreeBlockProcessor;
 import com.kodedu.service.extension.tree.FileTreeInlineMacroProcessor;
+import io.undertow.websockets.extensions.PerMessageDeflateHandshake;
+import io.undertow.websockets.jsr.WebSocketDeploymentInfo;
 import org.asciidoctor.Asciidoctor;
 import org.asciidoctor.extension.JavaExtensionRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Scope;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.util.ResourceUtils;
@@ -61,11 +68,26 @@ import java.util.concurrent.Executors;
 public class SpringAppConfig extends SpringBootServletInitializer implements WebSocketConfigurer {
 
     @Autowired
-    private ApplicationController applicationController;
+    private PreviewBroadcaster previewBroadcaster;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(applicationController, "/ws", "/ws*", "/ws/*").withSockJS();
+        registry.addHandler(previewBroadcaster, "/ws", "/ws*", "/ws/*").withSockJS();
+    }
+
+    /*
+        Lets the preview viewers negotiate permessage-deflate,
+        runs after the customizer of Spring Boot which creates the WebSocket deployment
+     */
+    @Bean
+    @ConditionalOnProperty(name = "application.preview.deflate", havingValue = "true")
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> permessageDeflateCustomizer() {
+        return factory -> factory.addDeploymentInfoCustomizers(deploymentInfo -> {
+            Object webSocketInfo = deploymentInfo.getServletContextAttributes().get(WebSocketDeploymentInfo.ATTRIBUTE_NAME);
+            if (webSocketInfo instanceof WebSocketDeploymentInfo info) {
+                info.addExtension(new PerMessageDeflateHandshake(false, 6));
+            }
+        });
     }
 
     @Override
@@ -85,10 +107,12 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
     }
 
     /*
-        Used for standard html5 backend
+        Used for standard html5 backend.
+        Runtimes are prototypes, each one is pooled and shut down by AsciidoctorFactory
     */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor htmlDoctor(ChartBlockProcessor fxChartBlockProcessor,
                                   FileTreeBlockProcessor treeBlockProcessor,
                                   MathBlockProcessor[] mathBlockProcessor,
@@ -123,8 +147,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
     /*
         Used for reveal.js backend
     */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor revealDoctor(ChartBlockProcessor fxChartBlockProcessor,
                                   FileTreeBlockProcessor treeBlockProcessor,
                                   MathBlockProcessor[] mathBlockProcessor,
@@ -156,8 +181,12 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
         return asciidoctor;
     }
 
+    /*
+        First runtimes are configured in background at startup,
+        the ones created later for the pools must be ready when they are leased
+     */
     private void runAsyncConditionally(Runnable runnable) {
-        if (AppStarter.config.isCmdStart()) {
+        if (AppStarter.config.isCmdStart() || AsciidoctorFactory.isInitialized()) {
             runnable.run();
         } else {
             Thread.startVirtualThread(runnable);
@@ -167,8 +196,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
     /*
         Used for non-html5 backend like pdf, epub3 etc.
     */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor nonHtmlDoctor(ChartBlockProcessor fxChartBlockProcessor,
                                      FileTreeBlockProcessor treeBlockProcessor,
                                      MathBlockProcessor[] mathBlockProcessor,
@@ -202,8 +232,9 @@ public class SpringAppConfig extends SpringBootServletInitializer implements Web
      Used for plan render of an Asciidoctor document,
      to read attributes, document etc.
      */
-    @Bean(destroyMethod = "shutdown")
+    @Bean
     @Lazy
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
     public Asciidoctor plainDoctor(DocumentAttributeProcessor documentAttributeProcessor) {
         Asciidoctor asciidoctor = AsciidoctorFactory.getAsciidoctor();
         JavaExtensionRegistry registry = asciidoctor.javaExtensionRegistry();
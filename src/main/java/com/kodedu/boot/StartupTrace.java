@@ -0,0 +1,128 @@
+package com.kodedu.boot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.core.metrics.StartupStep;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Timeline of the startup phases, relative to the JVM start.
+ * <p>
+ * Phases are always recorded, the report including the slowest Spring beans
+ * is logged once the first tab is editable when AsciidocFX is started with <code>--profile-startup</code>.
+ */
+public final class StartupTrace {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTrace.class);
+
+    private static final int BEAN_LIMIT = 25;
+
+    public static final String FIRST_EDITABLE_TAB = "firstEditableTab";
+
+    private static final long origin = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final List<Phase> phases = new CopyOnWriteArrayList<>();
+    private static final Map<String, Long> marks = new ConcurrentHashMap<>();
+
+    private static volatile BufferingApplicationStartup applicationStartup;
+
+    public record Phase(String name, long startMs, long durationMs) {
+    }
+
+    public static final class Step implements AutoCloseable {
+
+        private final String name;
+        private final long start;
+
+        private Step(String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            long end = System.currentTimeMillis();
+            phases.add(new Phase(name, start - origin, end - start));
+        }
+    }
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Starts a phase, its duration is recorded when the step is closed
+     */
+    public static Step step(String name) {
+        return new Step(name, System.currentTimeMillis());
+    }
+
+    /**
+     * Records the first time a point of the startup is reached, later calls are ignored
+     */
+    public static void mark(String name) {
+        if (Objects.isNull(marks.putIfAbsent(name, System.currentTimeMillis() - origin))
+                && FIRST_EDITABLE_TAB.equals(name)) {
+            report();
+        }
+    }
+
+    /**
+     * @return milliseconds from the JVM start until the mark, -1 if it isn't reached yet
+     */
+    public static long elapsed(String name) {
+        return marks.getOrDefault(name, -1L);
+    }
+
+    /**
+     * Buffers the Spring startup steps, so that the bean creation times can be reported
+     */
+    public static BufferingApplicationStartup profile() {
+        applicationStartup = new BufferingApplicationStartup(20000);
+        return applicationStartup;
+    }
+
+    public static boolean isProfiling() {
+        return Objects.nonNull(applicationStartup);
+    }
+
+    private static void report() {
+        logger.info("First editable tab after {} ms", elapsed(FIRST_EDITABLE_TAB));
+        if (!isProfiling()) {
+            return;
+        }
+
+        StringBuilder report = new StringBuilder("Startup timeline (ms from JVM start)");
+        List<Phase> timeline = new ArrayList<>(phases);
+        marks.forEach((name, at) -> timeline.add(new Phase(name, at, 0)));
+        timeline.sort(Comparator.comparingLong(Phase::startMs));
+        for (Phase phase : timeline) {
+            report.append(String.format("%n  %7d %7s  %s", phase.startMs(),
+                    phase.durationMs() > 0 ? "+" + phase.durationMs() : "", phase.name()));
+        }
+
+        report.append(String.format("%nSlowest beans (ms)"));
+        StartupTimeline beanTimeline = applicationStartup.getBufferedTimeline();
+        beanTimeline.getEvents().stream()
+                .filter(event -> "spring.beans.instantiate".equals(event.getStartupStep().getName()))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(BEAN_LIMIT)
+                .forEach(event -> report.append(String.format("%n  %7d  %s",
+                        event.getDuration().toMillis(), beanName(event.getStartupStep()))));
+
+        logger.info(report.toString());
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if ("beanName".equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return step.getName();
+    }
+}
@@ -3,6 +3,7 @@ package com.kodedu.component;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kodedu.boot.StartupTrace;
 import com.kodedu.commands.EditorCommand;
 import com.kodedu.config.EditorConfigBean;
 import com.kodedu.config.FoldStyle;
@@ -229,6 +230,7 @@ public class EditorPane extends AnchorPane {
                         setEditorValue(content);
                         resetUndoManager();
                         ready.setValue(true);
+                        StartupTrace.mark(StartupTrace.FIRST_EDITABLE_TAB);
                     });
                 } catch (Exception e) {
                     myTab.closeIt();
@@ -239,6 +241,7 @@ public class EditorPane extends AnchorPane {
                     setEditorValue(initialEditorValue);
                     resetUndoManager();
                     ready.setValue(true);
+                    StartupTrace.mark(StartupTrace.FIRST_EDITABLE_TAB);
                 });
             }
         });
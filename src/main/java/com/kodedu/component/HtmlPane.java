@@ -5,6 +5,7 @@ import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.ClipboardHelper;
 import com.kodedu.other.Current;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -30,6 +31,7 @@ public class HtmlPane extends ViewPanel {
     private String previewUrl;
 
     private final DirectoryService directoryService;
+    private final RenderMetrics renderMetrics;
 
     @Autowired
     public HtmlPane(ThreadService threadService,
@@ -41,7 +43,8 @@ public class HtmlPane extends ViewPanel {
                     EditorConfigBean editorConfigBean,
                     Environment environment,
                     DirectoryService directoryService,
-                    ClipboardHelper clipboardHelper) {
+                    ClipboardHelper clipboardHelper,
+                    RenderMetrics renderMetrics) {
         super(threadService, controller, current, editorConfigBean, clipboardHelper);
         this.previewConfigBean = previewConfigBean;
         this.docbookConfigBean = docbookConfigBean;
@@ -49,6 +52,7 @@ public class HtmlPane extends ViewPanel {
         this.threadService = threadService;
         this.environment = environment;
         this.directoryService = directoryService;
+        this.renderMetrics = renderMetrics;
     }
 
     public void loadInitialUrl() {
@@ -65,8 +69,28 @@ public class HtmlPane extends ViewPanel {
 
     public void refreshUI(String content) {
         threadService.runActionLater(() -> {
-            this.setMember("lastRenderedValue", content);
-            webEngine().executeScript("refreshUI(lastRenderedValue)");
+            try (RenderMetrics.Stage stage = renderMetrics.stage("render.refreshUI")) {
+                this.setMember("lastRenderedValue", content);
+                webEngine().executeScript("refreshUI(lastRenderedValue)");
+            }
+        });
+    }
+
+    /**
+     * Applies only the changed fragments, falls back to a full refresh
+     * if the preview doesn't contain the expected fragments
+     */
+    public void refreshFragments(String fragments, String content) {
+        threadService.runActionLater(() -> {
+            try (RenderMetrics.Stage stage = renderMetrics.stage("render.refreshFragments")) {
+                this.setMember("lastFragmentsValue", fragments);
+                Object applied = webEngine().executeScript("refreshFragments(lastFragmentsValue)");
+                if (!Boolean.TRUE.equals(applied)) {
+                    renderMetrics.increment("render.refreshFragments.fallback");
+                    this.setMember("lastRenderedValue", content);
+                    webEngine().executeScript("refreshUI(lastRenderedValue)");
+                }
+            }
         });
     }
 
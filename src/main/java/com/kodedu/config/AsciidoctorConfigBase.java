@@ -11,6 +11,8 @@ import com.kodedu.config.factory.TableFactory;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.JsonHelper;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
 import com.kodedu.service.ThreadService;
 import jakarta.json.*;
 import javafx.beans.property.*;
@@ -28,7 +30,6 @@ import org.asciidoctor.Attributes;
 import org.asciidoctor.AttributesBuilder;
 import org.asciidoctor.Options;
 import org.asciidoctor.SafeMode;
-import org.asciidoctor.ast.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,7 +41,7 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import static com.kodedu.other.Constants.DOC_FILE_ATTR;
-import static com.kodedu.service.AsciidoctorFactory.getPlainDoctor;
+import static com.kodedu.service.AsciidoctorFactory.lease;
 
 /**
  * Created by usta on 17.07.2015.
@@ -320,13 +321,16 @@ public abstract class AsciidoctorConfigBase<T extends LoadedAttributes> extends
         MyTab currentTab = controller.getCurrent().currentTab();
         Path path = currentTab.getPath();
         String pathText = Objects.nonNull(path) ? path.toString() : null;
-        Document document = getPlainDoctor().load(asciidoc, Options.builder()
+        Options options = Options.builder()
                 .backend(getBackend())
                 .safe(SafeMode.UNSAFE)
                 .sourcemap(true)
                 .baseDir(currentTab.getParentOrWorkdir().toFile())
-                .attributes(Attributes.builder().allowUriRead(true).attribute(DOC_FILE_ATTR, pathText).build()).build());
-        Map<String, Object> defaultAttributes = document.getAttributes();
+                .attributes(Attributes.builder().allowUriRead(true).attribute(DOC_FILE_ATTR, pathText).build()).build();
+        Map<String, Object> defaultAttributes;
+        try (DoctorLease lease = lease(DoctorType.PLAIN)) {
+            defaultAttributes = lease.load(asciidoc, options).getAttributes();
+        }
 
         return getAsciiDocAttributes(defaultAttributes);
     }
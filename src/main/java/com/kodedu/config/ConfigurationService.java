@@ -42,6 +42,7 @@ public class ConfigurationService {
     private final PdfConfigBean pdfConfigBean;
 	private final TemplatesConfigBean templatesConfigBean;
     private final FileHistoryConfigBean fileHistoryConfigBean;
+    private final RenderConfigBean renderConfigBean;
     private VBox configBox;
 
     @Autowired
@@ -52,7 +53,8 @@ public class ConfigurationService {
                                 SpellcheckConfigBean spellcheckConfigBean, TerminalConfigBean terminalConfigBean,
                                 ExtensionConfigBean extensionConfigBean, Epub3ConfigBean epub3ConfigBean,
                                 RevealjsConfigBean revealjsConfigBean, PdfConfigBean pdfConfigBean,
-                                TemplatesConfigBean templatesConfigBean, FileHistoryConfigBean fileHistoryConfigBean) {
+                                TemplatesConfigBean templatesConfigBean, FileHistoryConfigBean fileHistoryConfigBean,
+                                RenderConfigBean renderConfigBean) {
         this.shortCutConfigBean = shortCutConfigBean;
         this.locationConfigBean = locationConfigBean;
         this.editorConfigBean = editorConfigBean;
@@ -70,6 +72,7 @@ public class ConfigurationService {
         this.pdfConfigBean = pdfConfigBean;
         this.templatesConfigBean = templatesConfigBean;
         this.fileHistoryConfigBean = fileHistoryConfigBean;
+        this.renderConfigBean = renderConfigBean;
     }
 
     public void loadConfigurations(Runnable... runnables) {
@@ -89,6 +92,7 @@ public class ConfigurationService {
         epub3ConfigBean.load();
         revealjsConfigBean.load();
         templatesConfigBean.load();
+        renderConfigBean.load();
 
         List<ConfigurationBase> configBeanList = Arrays.asList(
                 shortCutConfigBean,
@@ -104,7 +108,8 @@ public class ConfigurationService {
                 epub3ConfigBean,
                 revealjsConfigBean,
                 templatesConfigBean,
-                fileHistoryConfigBean
+                fileHistoryConfigBean,
+                renderConfigBean
 //                ,spellcheckConfigBean
         );
 
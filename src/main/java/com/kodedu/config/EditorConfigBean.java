@@ -14,6 +14,7 @@ import com.kodedu.config.factory.SpinnerFactory;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.JsonHelper;
+import com.kodedu.service.FontRegistry;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.ui.TabService;
 import javafx.beans.property.*;
@@ -35,9 +36,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import jakarta.json.*;
-import java.awt.*;
-import java.awt.font.FontRenderContext;
-import java.awt.geom.Rectangle2D;
 import java.io.Reader;
 import java.nio.file.Path;
 import java.util.List;
@@ -92,17 +90,20 @@ public class EditorConfigBean extends ConfigurationBase {
     private final ApplicationController controller;
     private final ThreadService threadService;
     private final TabService tabService;
+    private final FontRegistry fontRegistry;
 
     private final Button saveButton = new Button("保存");
     private final Button loadButton = new Button("加载");
     private final Label infoLabel = new Label();
 
     @Autowired
-    public EditorConfigBean(ApplicationController controller, ThreadService threadService, TabService tabService) {
+    public EditorConfigBean(ApplicationController controller, ThreadService threadService, TabService tabService,
+                            FontRegistry fontRegistry) {
         super(controller, threadService);
         this.controller = controller;
         this.threadService = threadService;
         this.tabService = tabService;
+        this.fontRegistry = fontRegistry;
     }
 
     public Boolean getNewInstall() {
@@ -541,8 +542,8 @@ public class EditorConfigBean extends ConfigurationBase {
         try (ExecutorService executors = Executors.newVirtualThreadPerTaskExecutor()) {
             aceFuture = executors.submit(() -> new LinkedList<>(IOHelper.readAllLines(getConfigDirectory().resolve("ace_themes.txt"))));
             languageFeature = executors.submit(() -> this.languageList());
-            systemFontsFeature = executors.submit(() -> Font.getFamilies());
-            detectedMonoFuture = executors.submit(() -> getDetectedMonospacedFonts());
+            systemFontsFeature = executors.submit(() -> fontRegistry.getFamilies());
+            detectedMonoFuture = executors.submit(() -> fontRegistry.getMonospacedFamilies());
         }
         List<String> aceThemeList = getResult(aceFuture);
         List<String> languageList = getResult(languageFeature);
@@ -710,21 +711,6 @@ public class EditorConfigBean extends ConfigurationBase {
                         || f.equals("Monaco") || f.equals("Menlo")).collect(Collectors.toList());
     }
 
-    private List<String> getDetectedMonospacedFonts() {
-        java.awt.Font[] fonts = GraphicsEnvironment.getLocalGraphicsEnvironment().getAllFonts();
-        List<String> detectedFonts = new ArrayList<>();
-
-        FontRenderContext frc = new FontRenderContext(null, RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT, RenderingHints.VALUE_FRACTIONALMETRICS_DEFAULT);
-        for (java.awt.Font font : fonts) {
-            Rectangle2D iBounds = font.getStringBounds("i", frc);
-            Rectangle2D mBounds = font.getStringBounds("m", frc);
-            if (iBounds.getWidth() == mBounds.getWidth()) {
-                detectedFonts.add(font.getFamily());
-            }
-        }
-        return detectedFonts;
-    }
-
     private void setMainStagePositions(JsonObject jsonObject) {
         if (JsonHelper.containsNumber(jsonObject,"screenX")) {
             double screenX = jsonObject.getJsonNumber("screenX").doubleValue();
@@ -0,0 +1,201 @@
+package com.kodedu.config;
+
+import com.dooapp.fxform.FXForm;
+import com.dooapp.fxform.builder.FXFormBuilder;
+import com.dooapp.fxform.view.factory.DefaultFactoryProvider;
+import com.kodedu.controller.ApplicationController;
+import com.kodedu.helper.IOHelper;
+import com.kodedu.service.AsciidoctorFactory;
+import com.kodedu.service.ThreadService;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.event.ActionEvent;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.ResourceBundle;
+
+/**
+ * Settings of the live preview render pipeline
+ */
+@Component
+public class RenderConfigBean extends ConfigurationBase {
+
+    private BooleanProperty singlePassPreview = new SimpleBooleanProperty(true);
+    private BooleanProperty incrementalPreview = new SimpleBooleanProperty(false);
+    private IntegerProperty conversionPoolSize = new SimpleIntegerProperty(2);
+    private IntegerProperty largeDocumentThreshold = new SimpleIntegerProperty(1024);
+
+    public boolean isSinglePassPreview() {
+        return singlePassPreview.get();
+    }
+
+    public BooleanProperty singlePassPreviewProperty() {
+        return singlePassPreview;
+    }
+
+    public void setSinglePassPreview(boolean singlePassPreview) {
+        this.singlePassPreview.set(singlePassPreview);
+    }
+
+    public boolean isIncrementalPreview() {
+        return incrementalPreview.get();
+    }
+
+    public BooleanProperty incrementalPreviewProperty() {
+        return incrementalPreview;
+    }
+
+    public void setIncrementalPreview(boolean incrementalPreview) {
+        this.incrementalPreview.set(incrementalPreview);
+    }
+
+    public int getConversionPoolSize() {
+        return conversionPoolSize.get();
+    }
+
+    public IntegerProperty conversionPoolSizeProperty() {
+        return conversionPoolSize;
+    }
+
+    public void setConversionPoolSize(int conversionPoolSize) {
+        this.conversionPoolSize.set(conversionPoolSize);
+    }
+
+    public int getLargeDocumentThreshold() {
+        return largeDocumentThreshold.get();
+    }
+
+    public IntegerProperty largeDocumentThresholdProperty() {
+        return largeDocumentThreshold;
+    }
+
+    public void setLargeDocumentThreshold(int largeDocumentThreshold) {
+        this.largeDocumentThreshold.set(largeDocumentThreshold);
+    }
+
+    /**
+     * Documents above the threshold (in KB, 0 disables it) are previewed section by section around the cursor
+     */
+    public boolean isLargeDocument(String text) {
+        int threshold = getLargeDocumentThreshold();
+        return threshold > 0 && Objects.nonNull(text) && text.length() > threshold * 1024L;
+    }
+
+    private final Button saveButton = new Button("保存");
+    private final Button loadButton = new Button("加载");
+    private final Label infoLabel = new Label();
+
+    @Autowired
+    public RenderConfigBean(ApplicationController controller, ThreadService threadService) {
+        super(controller, threadService);
+        conversionPoolSize.addListener((observable, oldValue, newValue) -> {
+            AsciidoctorFactory.setPoolSize(newValue.intValue());
+        });
+    }
+
+    @Override
+    public String formName() {
+        return "渲染设置";
+    }
+
+    @Override
+    public VBox createForm() {
+
+        FXForm renderConfigForm = new FXFormBuilder<>()
+                .resourceBundle(ResourceBundle.getBundle("renderConfig"))
+                .includeAndReorder(
+                        "singlePassPreview",
+                        "incrementalPreview",
+                        "conversionPoolSize",
+                        "largeDocumentThreshold")
+                .build();
+
+        DefaultFactoryProvider renderConfigFormProvider = new DefaultFactoryProvider();
+        renderConfigForm.setEditorFactoryProvider(renderConfigFormProvider);
+
+        renderConfigForm.setSource(this);
+
+        VBox vBox = new VBox();
+        vBox.getChildren().add(renderConfigForm);
+
+        saveButton.setOnAction(this::save);
+        loadButton.setOnAction(this::load);
+        HBox box = new HBox(5, saveButton, loadButton, infoLabel);
+        box.setPadding(new Insets(0, 0, 15, 5));
+        vBox.getChildren().add(box);
+
+        return vBox;
+    }
+
+    @Override
+    public Path getConfigPath() {
+        return super.resolveConfigPath("render_config.json");
+    }
+
+    @Override
+    public void load(Path configPath, ActionEvent... actionEvent) {
+
+        fadeOut(infoLabel, "加载中...");
+
+        createConfigFileIfNotExist(configPath);
+
+        Reader fileReader = IOHelper.fileReader(configPath);
+        JsonReader jsonReader = Json.createReader(fileReader);
+
+        JsonObject jsonObject = jsonReader.readObject();
+
+        boolean singlePassPreview = jsonObject.getBoolean("singlePassPreview", this.singlePassPreview.get());
+        boolean incrementalPreview = jsonObject.getBoolean("incrementalPreview", this.incrementalPreview.get());
+        int conversionPoolSize = jsonObject.getInt("conversionPoolSize", this.conversionPoolSize.get());
+        int largeDocumentThreshold = jsonObject.getInt("largeDocumentThreshold", this.largeDocumentThreshold.get());
+
+        IOHelper.close(jsonReader, fileReader);
+
+        threadService.runActionLater(() -> {
+
+            this.setSinglePassPreview(singlePassPreview);
+            this.setIncrementalPreview(incrementalPreview);
+            this.setConversionPoolSize(conversionPoolSize);
+            this.setLargeDocumentThreshold(largeDocumentThreshold);
+
+            fadeOut(infoLabel, "已加载...");
+
+        });
+    }
+
+    @Override
+    public void save(ActionEvent... actionEvent) {
+
+        infoLabel.setText("保存中...");
+        saveJson(getJSON());
+        fadeOut(infoLabel, "已保存...");
+    }
+
+    @Override
+    public JsonObject getJSON() {
+        JsonObjectBuilder objectBuilder = Json.createObjectBuilder();
+
+        objectBuilder
+                .add("singlePassPreview", isSinglePassPreview())
+                .add("incrementalPreview", isIncrementalPreview())
+                .add("conversionPoolSize", getConversionPoolSize())
+                .add("largeDocumentThreshold", getLargeDocumentThreshold());
+
+        return objectBuilder.build();
+    }
+}
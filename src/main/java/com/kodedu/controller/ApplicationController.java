@@ -9,6 +9,8 @@ import com.kodedu.component.*;
 import com.kodedu.config.*;
 import com.kodedu.engine.AsciidocAsciidoctorjConverter;
 import com.kodedu.engine.AsciidocConverterProvider;
+import com.kodedu.engine.IncrementalPreviewRenderer;
+import com.kodedu.engine.PreviewBroadcaster;
 import com.kodedu.helper.*;
 import com.kodedu.keyboard.KeyHelper;
 import com.kodedu.logging.MyLog;
@@ -20,6 +22,7 @@ import com.kodedu.other.Item;
 import com.kodedu.other.RefProps;
 import com.kodedu.outline.Section;
 import com.kodedu.service.*;
+import com.kodedu.service.AsciidoctorConfigResolver.ConfigPrefix;
 import com.kodedu.service.convert.docbook.DocBookConverter;
 import com.kodedu.service.convert.ebook.EpubConverter;
 import com.kodedu.service.convert.html.HtmlBookConverter;
@@ -62,6 +65,7 @@ import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -98,10 +102,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.web.socket.TextMessage;
-import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.imageio.ImageIO;
@@ -111,6 +111,7 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URL;
 import java.net.http.HttpClient;
@@ -136,6 +137,7 @@ import java.util.stream.Stream;
 
 import static com.kodedu.helper.IOHelper.*;
 import static com.kodedu.other.Constants.DOC_FILE_ATTR;
+import static com.kodedu.other.Constants.PREFIX_LINES_ATTR;
 import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOCUMENT_MAP;
 import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOC_UUID;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
@@ -144,7 +146,7 @@ import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 @Component
-public class ApplicationController extends TextWebSocketHandler implements Initializable {
+public class ApplicationController implements Initializable {
 
     private Logger logger = LoggerFactory.getLogger(ApplicationController.class);
     public Label goUpLabel;
@@ -230,6 +232,21 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     @Autowired
     public AsciidocAsciidoctorjConverter asciidoctorjConverter;
 
+    @Autowired
+    private IncrementalPreviewRenderer incrementalPreviewRenderer;
+
+    @Autowired
+    private PreviewBroadcaster previewBroadcaster;
+
+    @Autowired
+    private RenderJobService renderJobService;
+
+    @Autowired
+    private RenderMetrics renderMetrics;
+
+    @Autowired
+    private AsciidoctorConfigResolver asciidoctorConfigResolver;
+
     @Autowired
     private EditorConfigBean editorConfigBean;
 
@@ -242,6 +259,9 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     @Autowired
     private PreviewConfigBean previewConfigBean;
 
+    @Autowired
+    private RenderConfigBean renderConfigBean;
+
     @Autowired
     private ApplicationContext applicationContext;
 
@@ -306,7 +326,13 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     private ShortcutProvider shortcutProvider;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private HttpResourceCache httpResourceCache;
+
+    @Autowired
+    private ReferenceIndexService referenceIndexService;
+
+    // Find usages and broken cross reference reports of the reference panel, kept across renders
+    private final Map<String, TreeItem<RefProps>> referenceReports = Collections.synchronizedMap(new LinkedHashMap<>());
 
     @Autowired
     private Base64.Encoder base64Encoder;
@@ -323,7 +349,6 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     @Autowired
     private EventService eventService;
     private Stage stage;
-    private List<WebSocketSession> sessionList = new ArrayList<>();
     private Scene scene;
     private AnchorPane asciidocTableAnchor;
     private Stage asciidocTableStage;
@@ -383,6 +408,8 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     private String liveUrl;
 
     private ConverterResult lastConverterResult;
+    // Cursor or first visible row of the editor, large documents are previewed around it
+    private volatile int lastEditorRow;
     private HostServices hostServices;
 
     @Value("${application.donation}")
@@ -408,13 +435,46 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     }
 
     public void createAsciidocTable() {
+        if (isNull(asciidocTableStage)) {
+            asciidocTableAnchor = loadTablePopup("/scenes/AsciidocTablePopup.fxml");
+            asciidocTableStage = createTableStage(asciidocTableAnchor);
+            asciidocTableScene = asciidocTableStage.getScene();
+        }
         asciidocTableStage.showAndWait();
     }
 
     public void createMarkdownTable() {
+        if (isNull(markdownTableStage)) {
+            markdownTableAnchor = loadTablePopup("/scenes/MarkdownTablePopup.fxml");
+            markdownTableStage = createTableStage(markdownTableAnchor);
+            markdownTableScene = markdownTableStage.getScene();
+        }
         markdownTableStage.showAndWait();
     }
 
+    // Table generators are rarely used, their stages are created on first use instead of at startup
+    private AnchorPane loadTablePopup(String fxml) {
+        FXMLLoader loader = new FXMLLoader();
+        loader.setControllerFactory(applicationContext::getBean);
+        try (InputStream stream = ApplicationController.class.getResourceAsStream(fxml)) {
+            return loader.load(stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Stage createTableStage(AnchorPane anchor) {
+        Stage tableStage = new Stage();
+        tableStage.setScene(new Scene(anchor));
+        tableStage.setTitle("表格生成器");
+        tableStage.initModality(Modality.WINDOW_MODAL);
+        tableStage.initOwner(scene.getWindow());
+        tableStage.getIcons().addAll(stage.getIcons());
+        applyCurrentTheme(tableStage);
+        applyCurrentFontFamily(tableStage);
+        return tableStage;
+    }
+
     @FXML
     private void fullScreen(ActionEvent event) {
         getStage().setFullScreen(!getStage().isFullScreen());
@@ -532,7 +592,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
         threadService.runTaskLater(() -> {
             try {
-                byte[] imageBuffer = restTemplate.getForObject(url, byte[].class);
+                byte[] imageBuffer = httpResourceCache.get(URI.create(url));
                 String imageBase64 = base64Encoder.encodeToString(imageBuffer);
                 htmlPane.updateBase64Url(index, imageBase64);
             } catch (Exception e) {
@@ -590,6 +650,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         }, true);
 
         initializeLogViewer();
+        initializeReferenceMenu();
         initializeDoctypes();
 
         tooltipTimeFixService.fix();
@@ -1284,7 +1345,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         return null;
     }
 
-    TerminalBuilder terminalBuilder = new TerminalBuilder();
+    private TerminalBuilder terminalBuilder;
 
     @FXML
     public void newTerminal(ActionEvent actionEvent, Path... path) {
@@ -1293,6 +1354,10 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             terminalToggleButton.fire();
         }
 
+        if (isNull(terminalBuilder)) {
+            terminalBuilder = new TerminalBuilder();
+        }
+
         TerminalConfig terminalConfig = terminalConfigBean.createTerminalConfig();
         terminalBuilder.setTerminalConfig(terminalConfig);
 
@@ -1499,9 +1564,6 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             }
         });
 
-        // TODO: Lazy initial ?
-        mathJaxService.reload();
-
         String workingDirectory = storedConfigBean.getWorkingDirectory();
 
         if (nonNull(workingDirectory)) {
@@ -1860,6 +1922,8 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
                         return Objects.nonNull(refId) && Objects.equals(refId, r.origRefId());
                     })
                     .findFirst()
+                    // not rendered yet, e.g. defined in a file which isn't included
+                    .or(() -> referenceIndexService.findDefinition(refId, file))
                     .ifPresent(r -> {
                         threadService.runActionLater(() -> {
                             if (r.hasFileName()) {
@@ -1902,6 +1966,51 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         });
     }
 
+    private void initializeReferenceMenu() {
+        ContextMenu referenceMenu = new ContextMenu();
+        referenceMenu.getItems().add(MenuItemBuilt.item("查找用法").click(event -> {
+            Object selected = refTreeTableView.getSelectionModel().getSelectedItem();
+            if (selected instanceof TreeItem<?> item && item.getValue() instanceof RefProps props
+                    && Objects.nonNull(props.origRefId())) {
+                String refId = props.origRefId();
+                threadService.runTaskLater(() -> {
+                    List<RefProps> usages = referenceIndexService.usages(refId);
+                    showReferenceReport("usages", String.format("#Usages of %s (%d)", refId, usages.size()),
+                            FontAwesome.SEARCH, usages);
+                });
+            }
+        }));
+        referenceMenu.getItems().add(MenuItemBuilt.item("失效的交叉引用").click(event -> {
+            threadService.runTaskLater(() -> {
+                List<RefProps> brokenXrefs = referenceIndexService.brokenXrefs();
+                showReferenceReport("broken", String.format("#Broken Cross Refs (%d)", brokenXrefs.size()),
+                        FontAwesome.CHAIN_BROKEN, brokenXrefs);
+            });
+        }));
+        referenceMenu.getItems().add(MenuItemBuilt.item("清除报告").click(event -> {
+            referenceReports.clear();
+            refTreeTableView.setRoot(null);
+            threadService.runTaskLater(() -> {
+                fillReferences(crossReferenceHistory.getCrossReferences(), crossReferenceHistory.getRefs());
+            });
+        }));
+        refTreeTableView.setContextMenu(referenceMenu);
+    }
+
+    /**
+     * Shows the references found in the reference index of the working directory under their own group,
+     * a report replaces the previous one of the same kind
+     */
+    private void showReferenceReport(String kind, String title, FontAwesome icon, List<RefProps> refs) {
+        TreeItem<RefProps> reportItem = new TreeItem<>(new RefProps(title, -1, null, true), new FontIcon(icon));
+        reportItem.setExpanded(true);
+        for (RefProps ref : refs) {
+            reportItem.getChildren().add(new TreeItem<>(ref));
+        }
+        referenceReports.put(kind, reportItem);
+        fillReferences(crossReferenceHistory.getCrossReferences(), crossReferenceHistory.getRefs());
+    }
+
     private void initializeLogViewer() {
         TableView<MyLog> logViewer = new TableView<>();
         logViewer.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
@@ -2099,7 +2208,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         this.crossReferenceHistory.setCrossReferences(crossReferences);
         this.crossReferenceHistory.setRefs(refs);
 
-        if (crossReferences.isEmpty() && refs.isEmpty()) {
+        if (crossReferences.isEmpty() && refs.isEmpty() && referenceReports.isEmpty()) {
             return;
         }
 
@@ -2118,6 +2227,10 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         xrefRootItem.setExpanded(true);
         rootItem.getChildren().add(refRootItem);
         rootItem.getChildren().add(xrefRootItem);
+        List<TreeItem<RefProps>> reports;
+        synchronized (referenceReports) {
+            reports = new ArrayList<>(referenceReports.values());
+        }
 
         fileColumn.setCellValueFactory(param -> {
             RefProps props = param.getValue().getValue();
@@ -2172,6 +2285,8 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         }
 
         threadService.runActionLater(() -> {
+            // Report items are moved from the displayed tree, so on the FX thread
+            rootItem.getChildren().addAll(reports);
             refTreeTableView.getColumns().setAll(fileColumn, refColumn, lineColumn);
             refTreeTableView.setRoot(rootItem);
             TreeTableView.TreeTableViewSelectionModel<RefProps> selectionModel = refTreeTableView.getSelectionModel();
@@ -2270,16 +2385,6 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         directoryService.askWorkingDir();
     }
 
-    @Override
-    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessionList.add(session);
-
-        Optional
-                .ofNullable(lastConverterResult)
-                .map(ConverterResult::getRendered)
-                .ifPresent(this::sendOverWebSocket);
-    }
-
     @FXML
     public void closeApp(ActionEvent event) {
         try {
@@ -2317,6 +2422,11 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
     @WebkitCall(from = "editor")
     public void scrollByLine(String text) {
+        try {
+            lastEditorRow = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            logger.debug(e.getMessage(), e);
+        }
         threadService.runActionLater(() -> {
             try {
                 rightShowerHider.getShowing().ifPresent(w -> w.scrollByLine(text));
@@ -2326,6 +2436,17 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
         });
     }
 
+    public int getLastEditorRow() {
+        return lastEditorRow;
+    }
+
+    @WebkitCall(from = "preview")
+    public void requestFragments(String keys) {
+        if (incrementalPreviewRenderer.requestFragments(keys)) {
+            Optional.ofNullable(current.currentEditor()).ifPresent(EditorPane::rerender);
+        }
+    }
+
     @WebkitCall(from = "click-binder")
     public void moveCursorTo(int line) {
         current.currentEditor().moveCursorTo(line);
@@ -2340,7 +2461,9 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     public void plantuml(String uml, String type, String imagesDir, String imageTarget, String nodename, String options) throws IOException {
 
         threadService.runTaskLater(() -> {
-            plantUmlService.plantUml(uml, type, imagesDir, imageTarget, nodename, options);
+            try (RenderMetrics.Stage stage = renderMetrics.stage("extension.plantuml")) {
+                plantUmlService.plantUml(uml, type, imagesDir, imageTarget, nodename, options);
+            }
         });
     }
 
@@ -2399,12 +2522,20 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
 
         String mode = textChangeEvent.getMode();
 
+        long renderStart = System.nanoTime();
+        RenderJob renderJob = renderJobService.start();
         try {
 
             if ("asciidoc".equalsIgnoreCase(mode)) {
 
-                prependAsciidoctorConfig(textChangeEvent);
-                Document document = loadDocument(textChangeEvent);
+                try (RenderMetrics.Stage stage = renderMetrics.stage("render.config")) {
+                    prependAsciidoctorConfig(textChangeEvent);
+                }
+                Document document;
+                try (RenderMetrics.Stage stage = renderMetrics.stage("render.load")) {
+                    document = renderConfigBean.isSinglePassPreview() ?
+                            loadDocumentHeader(textChangeEvent) : loadDocument(textChangeEvent);
+                }
 
                 if (Objects.isNull(document)) {
                     return;
@@ -2417,15 +2548,41 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
                     return;
                 }
 
-                ConverterResult converterResult = asciidoctorjConverter.convert(document, editorPane, textChangeEvent);
+                Optional<ConverterResult> incrementalResult = Optional.empty();
+                boolean largeDocument = renderConfigBean.isLargeDocument(textChangeEvent.getText());
+                if (renderConfigBean.isSinglePassPreview() && (renderConfigBean.isIncrementalPreview() || largeDocument)) {
+                    try (RenderMetrics.Stage stage = renderMetrics.stage("render.incremental")) {
+                        incrementalResult = incrementalPreviewRenderer.convert(document, editorPane, textChangeEvent, largeDocument);
+                    }
+                }
+
+                if (renderJob.isCancelled()) {
+                    return;
+                }
+
+                ConverterResult converterResult;
+                if (incrementalResult.isPresent()) {
+                    converterResult = incrementalResult.get();
+                } else {
+                    try (RenderMetrics.Stage stage = renderMetrics.stage("render.convert")) {
+                        converterResult = asciidoctorjConverter.convert(document, editorPane, textChangeEvent);
+                    }
+                }
                 this.lastConverterResult = converterResult;
 
-                if (Objects.nonNull(latestTextChangeEvent.get())) {
+                if (!renderJob.isCancelled()) {
+                    long renderTime = System.nanoTime() - renderStart;
+                    threadService.debouncer(renderKey(textChangeEvent.getPath()))
+                            .record(renderTime, TimeUnit.NANOSECONDS);
+                    renderMetrics.record("render.total", renderTime, TimeUnit.NANOSECONDS);
+                }
+
+                if (Objects.nonNull(latestTextChangeEvent.get()) || renderJob.isCancelled()) {
                     return;
                 }
 
                 if (Objects.equals(backend, "html5")) {
-                    updateRendered(converterResult.getRendered());
+                    updateRendered(converterResult);
                     rightShowerHider.showNode(htmlPane);
                 }
 
@@ -2436,15 +2593,20 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
                 }
 
             } else if ("html".equalsIgnoreCase(mode)) {
-                threadService.buff("htmlEditor")
-                        .schedule(() -> {
+                threadService.debouncer("htmlEditor")
+                        .delay(500, TimeUnit.MILLISECONDS)
+                        .maxWait(500, TimeUnit.MILLISECONDS)
+                        .call(() -> {
                             liveReloadPane.load(String.format(liveUrl, port, directoryService.interPath()));
-                        }, 500, TimeUnit.MILLISECONDS);
+                        });
                 rightShowerHider.showNode(liveReloadPane);
             }
 
         } catch (Exception e) {
+            renderMetrics.increment("render.failed");
             logger.error("Problem occured while rendering content", e);
+        } finally {
+            renderJobService.finish(renderJob);
         }
     }
 
@@ -2454,74 +2616,86 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
             return; // path is not ready
         }
 
-        Path parent = path.getParent();
-        String text = textChangeEvent.getText();
-        Path workingDirectory = directoryService.workingDirectory();
-
-        StringBuffer stringBuffer = new StringBuffer();
-        Path asciidoctorConfigDir = null;
-        while (containsPath(workingDirectory, parent)) {
-            Path[] configPaths = new Path[]{
-                    parent.resolve(".asciidoctorconfig"),
-                    parent.resolve(".asciidoctorconfig.adoc")
-            };
-            for (Path configPath : configPaths) {
-                if (Files.exists(configPath)) {
-                    String configText = IOHelper.readFile(configPath);
-                    stringBuffer.insert(0, "\n");
-                    stringBuffer.insert(0, configText);
-                    stringBuffer.insert(0, "\n");
-                    stringBuffer.insert(0, String.format("// Configuration > %s", configPath));
-                    stringBuffer.insert(0, "\n");
-                    if (Objects.isNull(asciidoctorConfigDir)) {
-                        asciidoctorConfigDir = parent;
-                    }
-                    break;
-                }
-            }
-            parent = parent.getParent();
+        ConfigPrefix configPrefix = asciidoctorConfigResolver.resolve(path.getParent(), directoryService.workingDirectory());
+        if (configPrefix.lineCount() == 0) {
+            return;
         }
 
-        if (Objects.nonNull(asciidoctorConfigDir)) {
-            stringBuffer.insert(0, "\n");
-            stringBuffer.insert(0, String.format(":asciidoctorconfigdir: %s", asciidoctorConfigDir));
-            stringBuffer.insert(0, "\n");
-            stringBuffer.insert(0,"// Asciidoctor Configuration Directory");
-            stringBuffer.append("\n");
-        }
+        textChangeEvent.setText(configPrefix.text() + textChangeEvent.getText());
+        textChangeEvent.setPrefixLines(configPrefix.lineCount());
+    }
 
-        stringBuffer.append(text);
-        textChangeEvent.setText(stringBuffer.toString());
+    /**
+     * Parses only the document header, which is enough to detect the backend and
+     * the header attributes. The body is parsed once by the preview conversion.
+     */
+    public Document loadDocumentHeader(TextChangeEvent textChangeEvent) {
+        MyTab currentTab = current.currentTab();
+        if (Objects.isNull(currentTab)) {
+            return null;
+        }
+        Options options = Options.builder()
+                .safe(SafeMode.UNSAFE)
+                .parseHeaderOnly(true)
+                .baseDir(currentTab.getParentOrWorkdir().toFile())
+                .attributes(Attributes.builder()
+                        .allowUriRead(true)
+                        .attribute(DOC_FILE_ATTR, textChangeEvent.getPathText())
+                        .attribute(PREFIX_LINES_ATTR, textChangeEvent.getPrefixLines())
+                        .build()).build();
+        try (DoctorLease lease = AsciidoctorFactory.lease(DoctorType.PLAIN)) {
+            return lease.load(textChangeEvent.getText(), options);
+        }
     }
 
     public Document loadDocument(TextChangeEvent textChangeEvent) {
-        String uuid = UUID.randomUUID().toString();
         MyTab currentTab = current.currentTab();
         if(Objects.nonNull(currentTab)){
-            Path path = textChangeEvent.getPath();
-            Options options = Options.builder()
-                    .safe(SafeMode.UNSAFE)
-                    .sourcemap(true)
-                    .catalogAssets(true)
-                    .baseDir(currentTab.getParentOrWorkdir().toFile())
-                    .attributes(Attributes.builder()
-                            .allowUriRead(true)
-                            .attribute(DOC_UUID, uuid)
-                            .attribute(DOC_FILE_ATTR, textChangeEvent.getPathText())
-                            .build()).build();
-            String text = textChangeEvent.getText();
-            String content = ExtensionPreprocessor.correctExtensionBlocks(text);
-            AsciidoctorFactory.getPlainDoctor()
-                    .convert(content, options);
-            Document document = (Document) DOCUMENT_MAP.get(uuid);
+            Document document = parseDocument(currentTab, textChangeEvent);
             currentTab.getEditorPane().setLastDocument(document);
-            DOCUMENT_MAP.remove(uuid);
             return document;
         }
 
         return null;
     }
 
+    /**
+     * Full parse of the document without converter extensions, its source lines are those of the editor text
+     */
+    public Document parseDocument(MyTab currentTab, TextChangeEvent textChangeEvent) {
+        String uuid = UUID.randomUUID().toString();
+        Options options = Options.builder()
+                .safe(SafeMode.UNSAFE)
+                .sourcemap(true)
+                .catalogAssets(true)
+                .baseDir(currentTab.getParentOrWorkdir().toFile())
+                .attributes(Attributes.builder()
+                        .allowUriRead(true)
+                        .attribute(DOC_UUID, uuid)
+                        .attribute(DOC_FILE_ATTR, textChangeEvent.getPathText())
+                        .attribute(PREFIX_LINES_ATTR, textChangeEvent.getPrefixLines())
+                        .build()).build();
+        String text = textChangeEvent.getText();
+        String content = ExtensionPreprocessor.correctExtensionBlocks(text);
+        try (DoctorLease lease = AsciidoctorFactory.lease(DoctorType.PLAIN)) {
+            lease.convert(content, options);
+        }
+        Document document = (Document) DOCUMENT_MAP.get(uuid);
+        DOCUMENT_MAP.remove(uuid);
+        return document;
+    }
+
+    private void updateRendered(ConverterResult converterResult) {
+        String fragments = converterResult.getFragments();
+        String rendered = converterResult.getRendered();
+        if (Objects.isNull(fragments) || Objects.isNull(rendered)) {
+            updateRendered(rendered);
+            return;
+        }
+        htmlPane.refreshFragments(fragments, rendered);
+        sendOverWebSocket(rendered);
+    }
+
     private void updateRendered(String rendered) {
 
         Optional.ofNullable(rendered)
@@ -2533,29 +2707,32 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     }
 
     private void sendOverWebSocket(String html) {
-        if (sessionList.size() > 0) {
-            threadService.runTaskLater(() -> {
-                sessionList.stream().filter(WebSocketSession::isOpen).forEach(e -> {
-                    try {
-                        e.sendMessage(new TextMessage(html));
-                    } catch (Exception ex) {
-                        logger.error("Problem occured while sending content over WebSocket", ex);
-                    }
-                });
-            });
+        if (previewBroadcaster.getViewerCount() > 0) {
+            threadService.runTaskLater(() -> previewBroadcaster.broadcast(html));
+        } else {
+            previewBroadcaster.broadcast(html);
         }
     }
 
     @WebkitCall(from = "editor")
     public void textListener(String text, String mode, Path path) {
         latestTextChangeEvent.set(new TextChangeEvent(text, mode, path));
-        threadService.runTaskLater(() -> {
-            try {
-                renderInRow();
-            } catch (InterruptedException e) {
-                logger.error(e.getMessage());
-            }
-        });
+        renderJobService.cancelRunning();
+        threadService.debouncer(renderKey(path))
+                .leading(true)
+                .adaptive(0, 1500, TimeUnit.MILLISECONDS)
+                .call(() -> {
+                    try {
+                        renderInRow();
+                    } catch (InterruptedException e) {
+                        logger.error(e.getMessage());
+                    }
+                });
+    }
+
+    // Render latencies are tracked per document
+    private String renderKey(Path path) {
+        return "render:" + Objects.toString(path, "");
     }
 
     @WebkitCall(from = "editor")
@@ -3042,7 +3219,7 @@ public class ApplicationController extends TextWebSocketHandler implements Initi
     }
 
     @WebkitCall(from = "asciidoctor-image-cache")
-    public Integer readImageCache(String target) {
+    public String readImageCache(String target) {
         return current.getCache().get(target);
     }
 
@@ -18,6 +18,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -101,11 +103,11 @@ public class CacheResource {
 
 //        File file = path.toFile();
 
-        // Prepare some variables. The ETag is an unique identifier of the file.
+        // Prepare some variables. The ETag is computed once from the content.
         String fileName = requestURI;
         long length = cacheData.length();
         long lastModified = cacheData.lastModified();
-        String eTag = fileName + "_" + length + "_" + lastModified;
+        String eTag = cacheData.etag();
         long expires = System.currentTimeMillis() + DEFAULT_EXPIRE_TIME;
 
 
@@ -250,7 +252,7 @@ public class CacheResource {
         OutputStream output = null;
 
         try {
-            // Open streams.
+            // Open streams. Content is written through a channel, no per request state is kept in the cache entry.
             output = response.getOutputStream();
 
             if (ranges.isEmpty() || ranges.get(0) == full) {
@@ -272,7 +274,7 @@ public class CacheResource {
                     }
 
                     // Copy full range.
-                    copy(cacheData, output, r.start, r.length);
+                    cacheData.transferTo(r.start, r.length, Channels.newChannel(output));
                 }
 
             } else if (ranges.size() == 1) {
@@ -286,7 +288,7 @@ public class CacheResource {
 
                 if (content) {
                     // Copy single part range.
-                    copy(cacheData, output, r.start, r.length);
+                    cacheData.transferTo(r.start, r.length, Channels.newChannel(output));
                 }
 
             } else {
@@ -298,6 +300,7 @@ public class CacheResource {
                 if (content) {
                     // Cast back to ServletOutputStream to get the easy println methods.
                     ServletOutputStream sos = (ServletOutputStream) output;
+                    WritableByteChannel channel = Channels.newChannel(sos);
 
                     // Copy multi part range.
                     for (Range r : ranges) {
@@ -308,7 +311,7 @@ public class CacheResource {
                         sos.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
 
                         // Copy single part range of multi part range.
-                        copy(cacheData, output, r.start, r.length);
+                        cacheData.transferTo(r.start, r.length, channel);
                     }
 
                     // End with multipart boundary.
@@ -319,7 +322,6 @@ public class CacheResource {
         } finally {
             // Gently close streams.
             close(output);
-            cacheData.closeStream();
         }
     }
 
@@ -376,41 +378,6 @@ public class CacheResource {
         return (substring.length() > 0) ? Long.parseLong(substring) : -1;
     }
 
-    /**
-     * Copy the given byte range of the given input to the given output.
-     *
-     * @param input  The input to copy the given range to the given output for.
-     * @param output The output to copy the given range from the given input for.
-     * @param start  Start of the byte range.
-     * @param length Length of the byte range.
-     * @throws IOException If something fails at I/O level.
-     */
-    private void copy(CacheData input, OutputStream output, long start, long length)
-            throws IOException {
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        int read;
-
-        if (input.length() == length) {
-            // Write full range.
-            while ((read = input.read(buffer)) > 0) {
-                output.write(buffer, 0, read);
-            }
-        } else {
-            // Write partial range.
-            input.seek(start);
-            long toRead = length;
-
-            while ((read = input.read(buffer)) > 0) {
-                if ((toRead -= read) > 0) {
-                    output.write(buffer, 0, read);
-                } else {
-                    output.write(buffer, 0, (int) toRead + read);
-                    break;
-                }
-            }
-        }
-    }
-
     /**
      * Close the given resource.
      *
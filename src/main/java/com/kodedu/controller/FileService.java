@@ -3,6 +3,7 @@ package com.kodedu.controller;
 import com.kodedu.helper.IOHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import jakarta.servlet.ServletException;
@@ -10,9 +11,12 @@ import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.nio.charset.Charset;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -29,12 +33,20 @@ public class FileService {
 
     private int DEFAULT_BUFFER_SIZE = 10240; // ..bytes = 10KB.
     private long DEFAULT_EXPIRE_TIME = 1; // ..ms = 1 week.
+    private long IMMUTABLE_EXPIRE_TIME = 365L * 24 * 60 * 60 * 1000; // ..ms = 1 year.
     private String MULTIPART_BOUNDARY = "MULTIPART_BYTERANGES";
 
     private List<String> contentMethods = Arrays.asList("GET", "POST", "PUT", "DELETE");
 
     private Logger logger = LoggerFactory.getLogger(FileService.class);
 
+    private final PublicAssets publicAssets;
+
+    @Autowired
+    public FileService(PublicAssets publicAssets) {
+        this.publicAssets = publicAssets;
+    }
+
     public void processFile(HttpServletRequest request, HttpServletResponse response, Path path) {
         try {
             processRequest(request, response, path, hasContent(request));
@@ -85,12 +97,35 @@ public class FileService {
 
         File file = path.toFile();
 
+        // Bundled assets are served with their content hash as ETag. When the request asks for their current
+        // version they are immutable, else they are revalidated.
+        PublicAssets.Asset asset = publicAssets.find(path).orElse(null);
+
         // Prepare some variables. The ETag is an unique identifier of the file.
         String fileName = file.getName();
-        long length = file.length();
-        long lastModified = file.lastModified();
-        String eTag = fileName + "_" + length + "_" + lastModified;
-        long expires = System.currentTimeMillis() + DEFAULT_EXPIRE_TIME;
+        long length;
+        long lastModified;
+        String eTag;
+        long expires;
+        String cacheControl;
+        if (Objects.nonNull(asset)) {
+            length = asset.length();
+            lastModified = asset.lastModified();
+            eTag = asset.etag();
+            if (asset.version().equals(request.getParameter("v"))) {
+                expires = System.currentTimeMillis() + IMMUTABLE_EXPIRE_TIME;
+                cacheControl = String.format("public, max-age=%d, immutable", IMMUTABLE_EXPIRE_TIME / 1000);
+            } else {
+                expires = System.currentTimeMillis();
+                cacheControl = "no-cache";
+            }
+        } else {
+            length = file.length();
+            lastModified = file.lastModified();
+            eTag = fileName + "_" + length + "_" + lastModified;
+            expires = System.currentTimeMillis() + DEFAULT_EXPIRE_TIME;
+            cacheControl = String.format("public, max-age=%d", DEFAULT_EXPIRE_TIME);
+        }
 
 
         // Validate request headers for caching ---------------------------------------------------
@@ -98,7 +133,7 @@ public class FileService {
         // If-None-Match header should contain "*" or ETag. If so, then return 304.
         String ifNoneMatch = request.getHeader("If-None-Match");
         if (ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
-            setNotModified(response, eTag, expires);
+            setNotModified(response, eTag, expires, cacheControl);
             return;
         }
 
@@ -106,7 +141,7 @@ public class FileService {
         // This header is ignored if any If-None-Match header is specified.
         long ifModifiedSince = request.getDateHeader("If-Modified-Since");
         if (ifNoneMatch == null && ifModifiedSince != -1 && ifModifiedSince + 1000 > lastModified) {
-            setNotModified(response, eTag, expires);
+            setNotModified(response, eTag, expires, cacheControl);
             return;
         }
 
@@ -192,9 +227,14 @@ public class FileService {
 
         // Get content type by file name and set default GZIP support and content disposition.
         String contentType = request.getServletContext().getMimeType(fileName);
+        String acceptEncoding = request.getHeader("Accept-Encoding");
         boolean acceptsGzip = false;
         String disposition = "inline";
 
+        // Bundled assets have a gzip variant built once, other text files are compressed for each request.
+        byte[] gzipVariant = Objects.nonNull(asset) && acceptEncoding != null && accepts(acceptEncoding, "gzip")
+                ? asset.gzip() : null;
+
         // If content type is unknown, then set the default value.
         // For all content types, see: http://www.w3schools.com/media/media_mimeref.asp
         // To add new content types, add new mime-mapping entry in web.xml.
@@ -205,8 +245,7 @@ public class FileService {
         // If content type is text, then determine whether GZIP content encoding is supported by
         // the browser and expand content type with the one and right character encoding.
         if (contentType.startsWith("text")) {
-            String acceptEncoding = request.getHeader("Accept-Encoding");
-            acceptsGzip = acceptEncoding != null && accepts(acceptEncoding, "gzip");
+            acceptsGzip = Objects.isNull(asset) && acceptEncoding != null && accepts(acceptEncoding, "gzip");
             contentType += ";charset=UTF-8";
         }
 
@@ -224,8 +263,11 @@ public class FileService {
         response.setHeader("Accept-Ranges", "bytes");
         response.setHeader("ETag", eTag);
         response.setDateHeader("Last-Modified", lastModified);
-        response.setHeader("Cache-Control", String.format("public, max-age=%d", DEFAULT_EXPIRE_TIME));
+        response.setHeader("Cache-Control", cacheControl);
         response.setDateHeader("Expires", expires);
+        if (Objects.nonNull(asset) && Objects.nonNull(asset.gzip())) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
 
 
         // Send requested file (part(s)) to client ------------------------------------------------
@@ -249,6 +291,14 @@ public class FileService {
                 response.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
 
                 if (content) {
+                    if (Objects.nonNull(gzipVariant)) {
+                        // The browser accepts GZIP and the asset is compressed already.
+                        response.setHeader("Content-Encoding", "gzip");
+                        response.setHeader("Content-Length", String.valueOf(gzipVariant.length));
+                        output.write(gzipVariant);
+                        return;
+                    }
+
                     if (acceptsGzip) {
                         // The browser accepts GZIP, so GZIP the content.
                         response.setHeader("Content-Encoding", "gzip");
@@ -260,7 +310,7 @@ public class FileService {
                     }
 
                     // Copy full range.
-                    copy(file, output, r);
+                    copy(file, asset, output, r);
                 }
 
             } else if (ranges.size() == 1) {
@@ -274,7 +324,7 @@ public class FileService {
 
                 if (content) {
                     // Copy single part range.
-                    copy(file, output, r);
+                    copy(file, asset, output, r);
                 }
 
             } else {
@@ -296,7 +346,7 @@ public class FileService {
                         sos.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
 
                         // Copy single part range of multi part range.
-                        copy(file, output, r);
+                        copy(file, asset, output, r);
                     }
 
                     // End with multipart boundary.
@@ -310,11 +360,11 @@ public class FileService {
         }
     }
 
-    private void setNotModified(HttpServletResponse response, String eTag, long expires) {
+    private void setNotModified(HttpServletResponse response, String eTag, long expires, String cacheControl) {
         response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
         response.setHeader("ETag", eTag); // Required in 304.
         response.setDateHeader("Expires", expires); // Postpone cache with 1 week.
-        response.setHeader("Cache-Control", String.format("public, max-age=%d", DEFAULT_EXPIRE_TIME));
+        response.setHeader("Cache-Control", cacheControl);
     }
 
     // Helpers (can be refactored to public utility class) ----------------------------------------
@@ -364,42 +414,31 @@ public class FileService {
 
     /**
      * Copy the given byte range of the given input to the given output.
+     * Files are transferred from a channel at absolute positions, rewritten pages from memory.
      *
      * @throws IOException If something fails at I/O level.
      */
-    private void copy(File file, OutputStream output, Range r) throws IOException {
+    private void copy(File file, PublicAssets.Asset asset, OutputStream output, Range r) throws IOException {
 
         if (isAsciidocFile(file)) {
             String content = IOHelper.readFile(file.toPath());
             String cachedCharset= IOHelper.getCachedCharset(file.toPath());
             output.write(content.getBytes(cachedCharset));
+        } else if (Objects.nonNull(asset) && Objects.nonNull(asset.content())) {
+            output.write(asset.content(), (int) r.start, (int) r.length);
         } else {
-            RandomAccessFile input = new RandomAccessFile(file, "r");
-            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-            int read;
-
-            try {
-                if (input.length() == r.length) {
-                    // Write full range.
-                    while ((read = input.read(buffer)) > 0) {
-                        output.write(buffer, 0, read);
-                    }
-                } else {
-                    // Write partial range.
-                    input.seek(r.start);
-                    long toRead = r.length;
-
-                    while ((read = input.read(buffer)) > 0) {
-                        if ((toRead -= read) > 0) {
-                            output.write(buffer, 0, read);
-                        } else {
-                            output.write(buffer, 0, (int) toRead + read);
-                            break;
-                        }
+            WritableByteChannel target = Channels.newChannel(output);
+            try (FileChannel input = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                long position = r.start;
+                long remaining = r.length;
+                while (remaining > 0) {
+                    long transferred = input.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        throw new EOFException(String.format("%s ended at %d", file, position));
                     }
+                    position += transferred;
+                    remaining -= transferred;
                 }
-            } finally {
-                close(input);
             }
         }
 
@@ -0,0 +1,95 @@
+package com.kodedu.controller;
+
+import com.kodedu.boot.StartupTrace;
+import com.kodedu.engine.PreviewBroadcaster;
+import com.kodedu.engine.PreviewVersions;
+import com.kodedu.service.AsciidoctorFactory;
+import com.kodedu.service.AsciidoctorPool;
+import com.kodedu.service.DiagramCache;
+import com.kodedu.service.DoctorType;
+import com.kodedu.service.HttpResourceCache;
+import com.kodedu.service.ReferenceIndexService;
+import com.kodedu.service.RenderJobService;
+import com.kodedu.service.RenderMetrics;
+import com.kodedu.service.extension.processor.IncludeContentCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+import static org.springframework.web.bind.annotation.RequestMethod.*;
+
+/**
+ * Serves the render pipeline metrics, e.g. <code>curl http://localhost:&lt;port&gt;/afx/metrics</code>
+ */
+@Controller
+public class MetricsResource {
+
+    private final RenderMetrics renderMetrics;
+    private final PreviewBroadcaster previewBroadcaster;
+
+    @Autowired
+    public MetricsResource(RenderMetrics renderMetrics, RenderJobService renderJobService,
+                           HttpResourceCache httpResourceCache, IncludeContentCache includeContentCache,
+                           DiagramCache diagramCache, PublicAssets publicAssets,
+                           ReferenceIndexService referenceIndexService, PreviewVersions previewVersions,
+                           PreviewBroadcaster previewBroadcaster) {
+        this.renderMetrics = renderMetrics;
+        this.previewBroadcaster = previewBroadcaster;
+
+        renderMetrics.gauge("renderJob.started", renderJobService::getStarted);
+        renderMetrics.gauge("renderJob.cancelled", renderJobService::getCancelled);
+        renderMetrics.gauge("renderJob.completed", renderJobService::getCompleted);
+        renderMetrics.gauge("httpCache.entries", httpResourceCache::size);
+        renderMetrics.gauge("httpCache.bytes", httpResourceCache::getBytes);
+        renderMetrics.gauge("diagramCache.entries", diagramCache::size);
+        renderMetrics.gauge("diagramCache.bytes", diagramCache::getBytes);
+        renderMetrics.gauge("publicAssets.entries", publicAssets::size);
+        renderMetrics.gauge("publicAssets.bytes", publicAssets::getBytes);
+        renderMetrics.gauge("includeCache.entries", includeContentCache::size);
+        renderMetrics.gauge("includeCache.bytes", includeContentCache::getBytes);
+        renderMetrics.gauge("referenceIndex.files", referenceIndexService::size);
+        renderMetrics.gauge("preview.ws.version", previewVersions::currentVersion);
+        renderMetrics.gauge("preview.ws.sentBytes", previewVersions::getSentBytes);
+        renderMetrics.gauge("preview.ws.fullBytes", previewVersions::getFullBytes);
+        renderMetrics.gauge("preview.ws.viewers", previewBroadcaster::getViewerCount);
+        renderMetrics.gauge("preview.ws.maxVersionsBehind", previewBroadcaster::getMaxVersionsBehind);
+        renderMetrics.gauge("startup.firstEditableTabMs", () -> StartupTrace.elapsed(StartupTrace.FIRST_EDITABLE_TAB));
+
+        for (DoctorType type : DoctorType.values()) {
+            String name = "pool." + type.name().toLowerCase();
+            renderMetrics.gauge(name + ".size", () -> poolValue(type, AsciidoctorPool::getSize));
+            renderMetrics.gauge(name + ".idle", () -> poolValue(type, AsciidoctorPool::getIdle));
+        }
+    }
+
+    private static Integer poolValue(DoctorType type, ToIntFunction<AsciidoctorPool> value) {
+        AsciidoctorPool pool = AsciidoctorFactory.getPools().get(type);
+        return Objects.nonNull(pool) ? value.applyAsInt(pool) : 0;
+    }
+
+    @RequestMapping(value = "/afx/metrics", method = {GET, HEAD}, produces = "application/json")
+    @ResponseBody
+    public String metrics() {
+        return renderMetrics.toJson().toString();
+    }
+
+    /**
+     * Lag and traffic of each <code>/ws</code> preview viewer
+     */
+    @RequestMapping(value = "/afx/metrics/viewers", method = {GET, HEAD}, produces = "application/json")
+    @ResponseBody
+    public String viewers() {
+        return previewBroadcaster.viewerStats().toString();
+    }
+
+    @RequestMapping(value = "/afx/metrics/reset", method = {POST}, produces = "application/json")
+    @ResponseBody
+    public String reset() {
+        renderMetrics.reset();
+        return renderMetrics.toJson().toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.kodedu.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bundled assets of <code>conf/public</code>, such as Ace, reveal.js, styles and fonts, kept with their content hash
+ * and a gzip variant built once.
+ * <p>
+ * Html pages refer to their scripts and styles with <code>?p=</code>, these references are rewritten with a
+ * <code>v=&lt;hash&gt;</code> parameter. A request with the current version of an asset can be cached as immutable,
+ * other requests are revalidated with the content hash as ETag. An asset is rebuilt when its file changes.
+ */
+@Component
+public class PublicAssets {
+
+    private final Logger logger = LoggerFactory.getLogger(PublicAssets.class);
+
+    private static final Pattern ASSET_REFERENCE = Pattern.compile("\\?p=([^\"'&#\\s]+)(?=[\"'])");
+    private static final Set<String> COMPRESSIBLE = Set.of("html", "js", "mjs", "css", "json", "map", "svg", "xml",
+            "txt", "ttf", "otf", "eot");
+    // Smaller files don't gain from compression, larger ones aren't kept in memory
+    private static final int MIN_GZIP_BYTES = 1024;
+    private static final int MAX_GZIP_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * @param fileSize     size of the file, which differs from the length of a rewritten page
+     * @param lastModified epoch millis
+     * @param version      content hash of the file, used in the asset urls
+     * @param content      the rewritten page, null if the file is served as is
+     * @param gzip         the compressed content, null if it isn't compressible
+     */
+    public record Asset(Path path, long fileSize, long lastModified, long length, String version, String etag,
+                        byte[] content, byte[] gzip) {
+    }
+
+    private final Map<Path, Asset> assets = new ConcurrentHashMap<>();
+    private ApplicationController controller;
+    private Path publicDir;
+
+    @Autowired
+    public PublicAssets(ApplicationController controller) {
+        this.controller = controller;
+    }
+
+    public PublicAssets(Path publicDir) {
+        this.publicDir = publicDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return the asset if the file is in <code>conf/public</code>
+     */
+    public Optional<Asset> find(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        if (!normalized.startsWith(publicDir())) {
+            return Optional.empty();
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(normalized, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Asset asset = assets.get(normalized);
+        if (Objects.isNull(asset) || asset.fileSize() != attributes.size() || asset.lastModified() != lastModified) {
+            asset = build(normalized, attributes.size(), lastModified);
+            if (Objects.isNull(asset)) {
+                return Optional.empty();
+            }
+            assets.put(normalized, asset);
+        }
+        return Optional.of(asset);
+    }
+
+    private Asset build(Path path, long fileSize, long lastModified) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (IOException e) {
+            logger.warn("Couldn't read asset {}", path);
+            return null;
+        }
+        String version = DigestUtils.md5DigestAsHex(bytes);
+
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+
+        byte[] content = null;
+        String etag = version;
+        if ("html".equals(extension)) {
+            content = versionReferences(new String(bytes, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+            bytes = content;
+            etag = DigestUtils.md5DigestAsHex(content);
+        }
+
+        byte[] gzip = null;
+        if (COMPRESSIBLE.contains(extension) && bytes.length >= MIN_GZIP_BYTES && bytes.length <= MAX_GZIP_BYTES) {
+            gzip = gzip(bytes);
+        }
+
+        return new Asset(path, fileSize, lastModified, bytes.length, version, "\"" + etag + "\"", content, gzip);
+    }
+
+    /**
+     * Adds the version to the <code>?p=</code> references of a page, pages themselves aren't versioned
+     */
+    private String versionReferences(String html) {
+        Matcher matcher = ASSET_REFERENCE.matcher(html);
+        StringBuilder builder = new StringBuilder(html.length() + 1024);
+        while (matcher.find()) {
+            String reference = matcher.group();
+            String assetPath = matcher.group(1);
+            if (!assetPath.toLowerCase(Locale.ROOT).endsWith(".html")) {
+                Optional<Asset> asset = find(publicDir().resolve(assetPath));
+                if (asset.isPresent()) {
+                    reference += "&v=" + asset.get().version();
+                }
+            }
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(reference));
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    private byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 3);
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(bytes);
+        } catch (IOException e) {
+            return null;
+        }
+        byte[] compressed = outputStream.toByteArray();
+        return compressed.length < bytes.length ? compressed : null;
+    }
+
+    private Path publicDir() {
+        if (Objects.isNull(publicDir)) {
+            publicDir = controller.getConfigPath().resolve("public").toAbsolutePath().normalize();
+        }
+        return publicDir;
+    }
+
+    public int size() {
+        return assets.size();
+    }
+
+    /**
+     * Bytes of the compressed variants and rewritten pages kept in memory
+     */
+    public long getBytes() {
+        return assets.values().stream()
+                .mapToLong(asset -> (Objects.nonNull(asset.content()) ? asset.content().length : 0)
+                        + (Objects.nonNull(asset.gzip()) ? asset.gzip().length : 0))
+                .sum();
+    }
+}
@@ -7,6 +7,7 @@ public class TextChangeEvent {
     private String text;
     private String mode;
     private Path path;
+    private int prefixLines;
 
     public TextChangeEvent(String text, String mode, Path path) {
         this.text = text;
@@ -38,6 +39,17 @@ public class TextChangeEvent {
         this.path = path;
     }
 
+    /**
+     * @return number of lines prepended to the editor text
+     */
+    public int getPrefixLines() {
+        return prefixLines;
+    }
+
+    public void setPrefixLines(int prefixLines) {
+        this.prefixLines = prefixLines;
+    }
+
     public String getPathText() {
         return Objects.nonNull(path) ? path.toString() : null;
     }
@@ -1,6 +1,7 @@
 package com.kodedu.engine;
 
 import com.kodedu.component.EditorPane;
+import com.kodedu.component.MyTab;
 import com.kodedu.component.ViewPanel;
 import com.kodedu.config.*;
 import com.kodedu.controller.ApplicationController;
@@ -11,10 +12,12 @@ import com.kodedu.other.Current;
 import com.kodedu.other.RefProps;
 import com.kodedu.outline.Outliner;
 import com.kodedu.outline.Section;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.extension.processor.ExtensionPreprocessor;
 import com.kodedu.service.extension.processor.XrefDocumentProcessor;
-import org.asciidoctor.Asciidoctor;
 import org.asciidoctor.Attributes;
 import org.asciidoctor.Options;
 import org.asciidoctor.SafeMode;
@@ -31,9 +34,10 @@ import java.util.Objects;
 import java.util.UUID;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
+import static com.kodedu.helper.AsciidoctorHelper.hasEditorLines;
 import static com.kodedu.other.Constants.DOC_FILE_ATTR;
-import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
-import static com.kodedu.service.AsciidoctorFactory.getRevealDoctor;
+import static com.kodedu.other.Constants.PREFIX_LINES_ATTR;
+import static com.kodedu.service.AsciidoctorFactory.lease;
 import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOCUMENT_MAP;
 import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOC_UUID;
 
@@ -44,21 +48,27 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 	
     private final PreviewConfigBean previewConfigBean;
     private final RevealjsConfigBean revealjsConfigBean;
+    private final RenderConfigBean renderConfigBean;
 	private final ThreadService threadService;
 	private final XrefDocumentProcessor xrefDocumentProcessor;
+	private final RenderMetrics renderMetrics;
 
 	@Autowired
 	public AsciidocAsciidoctorjConverter(ThreadService threadService, ApplicationController controller,
 										 Current current, EditorConfigBean editorConfigBean,
 										 PreviewConfigBean previewConfigBean,
 										 RevealjsConfigBean revealjsConfigBean,
+										 RenderConfigBean renderConfigBean,
 										 XrefDocumentProcessor xrefDocumentProcessor,
-										 ClipboardHelper clipboardHelper) {
+										 ClipboardHelper clipboardHelper,
+										 RenderMetrics renderMetrics) {
 		super(threadService, controller, current, editorConfigBean, clipboardHelper);
 		this.previewConfigBean = previewConfigBean;
 		this.threadService = threadService;
 		this.revealjsConfigBean = revealjsConfigBean;
+		this.renderConfigBean = renderConfigBean;
 		this.xrefDocumentProcessor = xrefDocumentProcessor;
+		this.renderMetrics = renderMetrics;
 	}
 
 	@Override
@@ -87,9 +97,11 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 	public void fillOutlines(Object doc) {
 		if (doc instanceof Document document) {
 			threadService.runTaskLater(() -> {
-				Outliner outliner = new Outliner();
-				List<Section> sections = outliner.getOutlineSections(document);
-				controller.finishOutline(sections);
+				try (RenderMetrics.Stage stage = renderMetrics.stage("render.outline")) {
+					Outliner outliner = new Outliner();
+					List<Section> sections = outliner.getOutlineSections(document);
+					controller.finishOutline(sections);
+				}
 			});
 		}
 
@@ -118,6 +130,7 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 		Attributes attributes = configBean.getAsciiDocAttributes(document.getAttributes());
 		attributes.setAttribute("preview", true);
 		attributes.setAttribute(DOC_FILE_ATTR, textChangeEvent.getPathText());
+		attributes.setAttribute(PREFIX_LINES_ATTR, textChangeEvent.getPrefixLines());
 		String docUUID = UUID.randomUUID().toString();
 		attributes.setAttribute(DOC_UUID, docUUID);
 
@@ -139,10 +152,13 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 		// The generated plantuml images are in the wrong location
 		// See also https://github.com/asciidoctor/asciidoctorj-diagram/issues/25
 		// String converted = doc.convert();
-		Asciidoctor asciidoctor = Objects.equals(backend,"revealjs") ? getRevealDoctor() : getHtmlDoctor();
+		DoctorType doctorType = Objects.equals(backend,"revealjs") ? DoctorType.REVEAL : DoctorType.HTML;
 		String text = textChangeEvent.getText();
 		String content = ExtensionPreprocessor.correctExtensionBlocks(text);
-		String converted = asciidoctor.convert(content, options)  ;
+		String converted;
+		try (DoctorLease lease = lease(doctorType)) {
+			converted = lease.convert(content, options);
+		}
 		Document finalDocument = (Document) DOCUMENT_MAP.get(docUUID);
 		editorPane.setLastDocument(finalDocument);
 		DOCUMENT_MAP.remove(docUUID);
@@ -150,17 +166,41 @@ public class AsciidocAsciidoctorjConverter extends ViewPanel implements Asciidoc
 
         final String taskId = UUID.randomUUID().toString();
 		ConverterResult res = new ConverterResult(taskId, converted, backend, finalDocument);
+
+		// In single pass mode the given document holds only the header, so outline and references are read
+		// from the converted document. Its source lines are checked, since the extensions of the preview
+		// converters may shift them, then the document is parsed again without them.
+		boolean singlePass = renderConfigBean.isSinglePassPreview() && Objects.nonNull(finalDocument);
+		if (singlePass) {
+			editorPane.updateAttributes(finalDocument.getAttributes());
+		}
+
+		MyTab currentTab = controller.getCurrent().currentTab();
 		threadService.runTaskLater(() -> {
-			fillOutlines(document); // Somehow files are not generated with finalDocument ,source lines are negative!!
-			fillReferences(document, content);
+			Document outlineDocument = document;
+			if (singlePass) {
+				outlineDocument = finalDocument;
+				int lineCount = (int) text.lines().count() - textChangeEvent.getPrefixLines();
+				if (!hasEditorLines(finalDocument, lineCount)) {
+					renderMetrics.increment("render.outline.reparse");
+					Document parsed = controller.parseDocument(currentTab, textChangeEvent);
+					if (Objects.nonNull(parsed)) {
+						outlineDocument = parsed;
+					}
+				}
+			}
+			fillOutlines(outlineDocument);
+			fillReferences(outlineDocument, content);
 		});
 		return res;
 	}
 
 	private void fillReferences(Document document, String content) {
-		Map<String, List<RefProps>> crossReferences = xrefDocumentProcessor.getCrossReferences(document, content);
-		Map<String, List<RefProps>> refs = xrefDocumentProcessor.getReferences(document);
-		controller.fillReferences(crossReferences, refs);
+		try (RenderMetrics.Stage stage = renderMetrics.stage("render.references")) {
+			Map<String, List<RefProps>> crossReferences = xrefDocumentProcessor.getCrossReferences(document, content);
+			Map<String, List<RefProps>> refs = xrefDocumentProcessor.getReferences(document);
+			controller.fillReferences(crossReferences, refs);
+		}
 	}
 
 	@Override
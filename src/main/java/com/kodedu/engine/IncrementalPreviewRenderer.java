@@ -0,0 +1,406 @@
+package com.kodedu.engine;
+
+import com.kodedu.component.EditorPane;
+import com.kodedu.config.PreviewConfigBean;
+import com.kodedu.controller.ApplicationController;
+import com.kodedu.controller.TextChangeEvent;
+import com.kodedu.engine.PreviewFragmentCache.Fragment;
+import com.kodedu.engine.PreviewFragments.Chunk;
+import com.kodedu.engine.PreviewFragments.Split;
+import com.kodedu.engine.PreviewToc.Placement;
+import com.kodedu.other.ConverterResult;
+import com.kodedu.other.RefProps;
+import com.kodedu.outline.Outliner;
+import com.kodedu.outline.Section;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
+import com.kodedu.service.RenderJob;
+import com.kodedu.service.RenderMetrics;
+import com.kodedu.service.ThreadService;
+import com.kodedu.service.extension.processor.ExtensionPreprocessor;
+import com.kodedu.service.extension.processor.ProcessorThreadLocal;
+import com.kodedu.service.extension.processor.XrefDocumentProcessor;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import org.asciidoctor.Attributes;
+import org.asciidoctor.Options;
+import org.asciidoctor.ast.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
+import static com.kodedu.other.Constants.DOC_FILE_ATTR;
+import static com.kodedu.other.Constants.PREFIX_LINES_ATTR;
+import static com.kodedu.service.AsciidoctorFactory.lease;
+import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOCUMENT_MAP;
+import static com.kodedu.service.extension.processor.DocumentAttributeProcessor.DOC_UUID;
+
+/**
+ * Converts the html5 preview section by section, only chunks which are not in the
+ * {@link PreviewFragmentCache} are converted and only those are pushed to the preview.
+ * <p>
+ * Fragments are converted as if they start right after the document header,
+ * their <code>data-line-*</code> roles and outline lines are shifted to the real position afterwards,
+ * so that moving a chunk doesn't invalidate it.
+ * <p>
+ * Large documents are converted windowed: only the chunks around the editor row are converted,
+ * the others are sent as empty pending fragments which the preview requests once they are scrolled into view.
+ * The toc and section numbers of windowed documents are built by {@link PreviewToc},
+ * other documents using them are converted whole.
+ */
+@Component
+public class IncrementalPreviewRenderer {
+
+    private final Logger logger = LoggerFactory.getLogger(IncrementalPreviewRenderer.class);
+
+    private static final Pattern DATA_LINE = Pattern.compile("\\bdata-line-(\\d+)\\b");
+    private static final List<String> WHOLE_DOCUMENT_ATTRIBUTES = List.of("toc", "sectnums", "numbered");
+
+    public static final String PENDING_PREFIX = "pending-";
+    // Chunks converted on each side of the one containing the editor row
+    private static final int WINDOW_CHUNKS = 2;
+
+    private final ApplicationController controller;
+    private final ThreadService threadService;
+    private final PreviewConfigBean previewConfigBean;
+    private final XrefDocumentProcessor xrefDocumentProcessor;
+    private final PreviewFragmentCache fragmentCache;
+    private final RenderMetrics renderMetrics;
+    private final Outliner outliner = new Outliner();
+    private final Set<String> requestedKeys = ConcurrentHashMap.newKeySet();
+    private volatile String lastBypass;
+
+    @Autowired
+    public IncrementalPreviewRenderer(ApplicationController controller, ThreadService threadService,
+                                      PreviewConfigBean previewConfigBean,
+                                      XrefDocumentProcessor xrefDocumentProcessor,
+                                      PreviewFragmentCache fragmentCache,
+                                      RenderMetrics renderMetrics) {
+        this.controller = controller;
+        this.threadService = threadService;
+        this.previewConfigBean = previewConfigBean;
+        this.xrefDocumentProcessor = xrefDocumentProcessor;
+        this.fragmentCache = fragmentCache;
+        this.renderMetrics = renderMetrics;
+    }
+
+    /**
+     * @param document header of the document, see {@link ApplicationController#loadDocumentHeader(TextChangeEvent)}
+     * @param windowed  converts only the chunks around the editor row and the ones requested by the preview
+     * @return the result or empty if the document can't be rendered incrementally
+     */
+    public Optional<ConverterResult> convert(Document document, EditorPane editorPane, TextChangeEvent textChangeEvent, boolean windowed) {
+
+        String backend = (String) document.getAttribute("backend", "html5");
+        if (!Objects.equals(backend, "html5")) {
+            return bypass(windowed, "its backend is " + backend);
+        }
+
+        String text = textChangeEvent.getText();
+        Optional<Split> optionalSplit = PreviewFragments.split(text);
+        if (optionalSplit.isEmpty()) {
+            return bypass(windowed, "it uses body attribute entries, parts, footnotes or a toc macro");
+        }
+
+        Map<String, Object> attributes = new LinkedHashMap<>(previewConfigBean.getAsciiDocAttributes(document.getAttributes()).map());
+        if (!windowed && WHOLE_DOCUMENT_ATTRIBUTES.stream().anyMatch(attributes::containsKey)) {
+            return Optional.empty();
+        }
+        Optional<Placement> placement = Optional.empty();
+        if (windowed && attributes.containsKey("toc")) {
+            placement = Placement.of(attributes);
+            if (placement.isEmpty()) {
+                return bypass(true, "its toc is not in the header");
+            }
+        }
+        boolean sectnums = windowed && (attributes.containsKey("sectnums") || attributes.containsKey("numbered"));
+        int sectnumLevels = PreviewToc.intAttribute(attributes, "sectnumlevels", 3);
+        lastBypass = null;
+        attributes.put("preview", true);
+        attributes.put(DOC_FILE_ATTR, textChangeEvent.getPathText());
+        attributes.put(PREFIX_LINES_ATTR, textChangeEvent.getPrefixLines());
+
+        editorPane.updateAttributes(document.getAttributes());
+        editorPane.setLastDocument(document);
+
+        Split split = optionalSplit.get();
+        File baseDir = controller.getCurrent().currentTab().getParentOrWorkdir().toFile();
+        String attributesKey = fragmentCache.attributesKey(split.header(), attributes);
+        int focus = windowed ? focusChunk(split.chunks(), controller.getLastEditorRow() + 1 + textChangeEvent.getPrefixLines()) : 0;
+
+        List<Section> sections = new ArrayList<>();
+        Map<String, List<RefProps>> refs = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>();
+        List<String> htmlList = new ArrayList<>();
+        // Converted again after an included file changed, the preview has an outdated one under the same key
+        Set<String> convertedKeys = new HashSet<>();
+        Map<Integer, String> pendingIds = new HashMap<>();
+        StringBuilder outline = new StringBuilder();
+        int number = 0;
+        int converted = 0;
+        String shell;
+
+        try (DoctorLease lease = lease(DoctorType.HTML)) {
+            shell = fragmentCache.getShell(attributesKey, () ->
+                    convert(lease, baseDir, attributes, split.shellSource(), true).html());
+
+            for (int i = 0; i < split.chunks().size(); i++) {
+                Chunk chunk = split.chunks().get(i);
+                if (RenderJob.isCurrentCancelled()) {
+                    return Optional.empty();
+                }
+                String key = fragmentCache.fragmentKey(attributesKey, chunk.text());
+                boolean numbered = sectnums && PreviewToc.isNumbered(chunk);
+                if (numbered) {
+                    number++;
+                }
+                String sectionNumber = numbered ? number + "." : null;
+                // The number is part of the displayed key, a renumbered fragment is pushed again
+                String displayedKey = key + "@" + chunk.startLine() + (numbered ? "#" + number : "");
+                Fragment fragment = fragmentCache.get(key);
+                if (Objects.isNull(fragment) && windowed && Math.abs(i - focus) > WINDOW_CHUNKS && !requestedKeys.contains(key)) {
+                    Optional<Section> pending = pendingSection(chunk, textChangeEvent.getPrefixLines());
+                    if (pending.isPresent()) {
+                        sections.add(pending.get());
+                        pendingIds.put(i, pending.get().getId());
+                        if (placement.isPresent()) {
+                            PreviewToc.appendOutline(outline, pending.get(), sectionNumber, placement.get().levels(), sectnumLevels);
+                        }
+                    }
+                    keys.add(PENDING_PREFIX + displayedKey);
+                    htmlList.add(null);
+                    continue;
+                }
+                if (Objects.isNull(fragment)) {
+                    fragment = convert(lease, baseDir, attributes, split.source(chunk), false);
+                    fragmentCache.put(key, fragment);
+                    requestedKeys.remove(key);
+                    convertedKeys.add(displayedKey);
+                    converted++;
+                }
+
+                int offset = chunk.startLine() - split.baseLine();
+                String docfile = textChangeEvent.getPathText();
+                for (Section section : fragment.sections()) {
+                    Section shifted = shift(section, offset, docfile, null);
+                    sections.add(shifted);
+                    if (placement.isPresent()) {
+                        PreviewToc.appendOutline(outline, shifted, sectionNumber, placement.get().levels(), sectnumLevels);
+                    }
+                }
+                fragment.refs().forEach((file, refList) -> {
+                    List<RefProps> shifted = refList.stream()
+                            .map(r -> isMainDocument(r.file(), docfile) ?
+                                    new RefProps(r.file(), r.lineNumber() + offset, r.refId(), r.isCross()) : r)
+                            .toList();
+                    refs.computeIfAbsent(file, f -> new ArrayList<>()).addAll(shifted);
+                });
+
+                keys.add(displayedKey);
+                String html = shiftDataLines(fragment.html(), offset);
+                htmlList.add(numbered ? PreviewToc.renumber(html, number) : html);
+            }
+        }
+
+        Set<String> missing = fragmentCache.updateDisplayed(keys);
+
+        StringBuilder content = new StringBuilder();
+        JsonArrayBuilder fragmentArray = Json.createArrayBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            String html = htmlList.get(i);
+            int line = split.chunks().get(i).startLine();
+            String contentKey = key.substring(0, key.indexOf('@'));
+            JsonObjectBuilder fragmentObject = Json.createObjectBuilder()
+                    .add("key", contentKey)
+                    .add("line", line);
+            if (Objects.isNull(html)) {
+                int height = pendingHeight(split.chunks().get(i));
+                // Carries the id of its section, so that toc links scroll to it
+                String id = pendingIds.get(i);
+                content.append(String.format("<div class=\"afx-fragment afx-pending data-line-%d\"%s data-fragment=\"%s\" data-line=\"%d\" style=\"min-height: %dem\"></div>\n",
+                        line, Objects.isNull(id) ? "" : " id=\"" + id + "\"", contentKey, line, height));
+                fragmentObject.add("pending", height);
+                if (Objects.nonNull(id)) {
+                    fragmentObject.add("id", id);
+                }
+            } else {
+                content.append(String.format("<div class=\"afx-fragment\" data-fragment=\"%s\" data-line=\"%d\">", contentKey, line))
+                        .append(html)
+                        .append("</div>\n");
+                if (missing.contains(key) || convertedKeys.contains(key)) {
+                    fragmentObject.add("html", html);
+                }
+            }
+            fragmentArray.add(fragmentObject);
+        }
+
+        JsonObjectBuilder fragments = Json.createObjectBuilder().add("fragments", fragmentArray);
+        if (placement.isPresent()) {
+            String toc = PreviewToc.toc(placement.get(), outline.toString());
+            shell = PreviewToc.insert(shell, placement.get(), toc);
+            fragments.add("toc", toc);
+        }
+
+        String rendered = shell.replace(PreviewFragments.PLACEHOLDER, content);
+        logger.debug("Converted {} of {} preview fragments", converted, keys.size());
+
+        ConverterResult result = new ConverterResult(UUID.randomUUID().toString(), rendered, backend, document);
+        result.setFragments(fragments.build().toString());
+
+        threadService.runTaskLater(() -> {
+            try (RenderMetrics.Stage stage = renderMetrics.stage("render.outline")) {
+                controller.finishOutline(sections);
+            }
+            try (RenderMetrics.Stage stage = renderMetrics.stage("render.references")) {
+                Map<String, List<RefProps>> crossReferences = xrefDocumentProcessor.getCrossReferences(document, text);
+                controller.fillReferences(crossReferences, refs);
+            }
+        });
+
+        return Optional.of(result);
+    }
+
+    /**
+     * Marks pending fragments scrolled into view in the preview for conversion
+     *
+     * @param keys JSON array of <code>data-fragment</code> values
+     * @return true if there are fragments to convert
+     */
+    public boolean requestFragments(String keys) {
+        boolean requested = false;
+        try (JsonReader reader = Json.createReader(new StringReader(keys))) {
+            for (JsonValue value : reader.readArray()) {
+                if (value instanceof JsonString key && key.getString().startsWith(PENDING_PREFIX)) {
+                    requested |= requestedKeys.add(key.getString().substring(PENDING_PREFIX.length()));
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Could not read requested fragments {}", keys, e);
+        }
+        return requested;
+    }
+
+    // Large documents which can't be windowed are converted whole, which is logged once per reason
+    private Optional<ConverterResult> bypass(boolean windowed, String reason) {
+        if (windowed && !Objects.equals(lastBypass, reason)) {
+            lastBypass = reason;
+            logger.info("Large document is previewed whole, {}", reason);
+        }
+        return Optional.empty();
+    }
+
+    // Index of the chunk containing the given line
+    static int focusChunk(List<Chunk> chunks, int line) {
+        int focus = 0;
+        for (int i = 0; i < chunks.size() && chunks.get(i).startLine() <= line; i++) {
+            focus = i;
+        }
+        return focus;
+    }
+
+    // Keeps the outline complete, the section title is taken from the source as is
+    static Optional<Section> pendingSection(Chunk chunk, int prefixLines) {
+        Matcher matcher = PreviewToc.SECTION_TITLE.matcher(chunk.text());
+        if (!matcher.find()) {
+            return Optional.empty();
+        }
+        int lineno = chunk.startLine() + lineCount(chunk.text(), matcher.start()) - prefixLines;
+        String id = PreviewToc.sectionId(chunk.text(), matcher.start(), matcher.group(1));
+        return Optional.of(new Section(1, matcher.group(1), lineno, id, null, null));
+    }
+
+    // Estimated height in em, so that the scroll bar of the preview stays roughly proportional
+    static int pendingHeight(Chunk chunk) {
+        return Math.max(2, lineCount(chunk.text(), chunk.text().length()) * 3 / 2);
+    }
+
+    private static int lineCount(String text, int end) {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Fragment convert(DoctorLease lease, File baseDir, Map<String, Object> attributes, String source, boolean headerFooter) {
+        String docUUID = UUID.randomUUID().toString();
+        Attributes fragmentAttributes = Attributes.builder()
+                .attributes(attributes)
+                .attribute(DOC_UUID, docUUID)
+                .build();
+        if (!headerFooter) {
+            fragmentAttributes.setShowTitle(false);
+        }
+
+        Options options = Options.builder()
+                .backend("html5")
+                .baseDir(baseDir)
+                .safe(convertSafe(previewConfigBean.getSafe()))
+                .sourcemap(true)
+                .catalogAssets(true)
+                .headerFooter(headerFooter)
+                .inPlace(false)
+                .toFile(false)
+                .attributes(fragmentAttributes)
+                .build();
+
+        String content = ExtensionPreprocessor.correctExtensionBlocks(source);
+        Set<Path> includes = ProcessorThreadLocal.getIncludes();
+        includes.clear();
+        String html;
+        Map<Path, String> includeStates;
+        try {
+            html = lease.convert(content, options);
+            includeStates = Fragment.includeStates(includes);
+        } finally {
+            includes.clear();
+        }
+        Document document = (Document) DOCUMENT_MAP.remove(docUUID);
+
+        if (Objects.isNull(document)) {
+            return new Fragment(html, List.of(), Map.of(), includeStates);
+        }
+        return new Fragment(html, outliner.getOutlineSections(document), xrefDocumentProcessor.getReferences(document),
+                includeStates);
+    }
+
+    private String shiftDataLines(String html, int offset) {
+        if (offset == 0) {
+            return html;
+        }
+        Matcher matcher = DATA_LINE.matcher(html);
+        return matcher.replaceAll(m -> "data-line-" + (Integer.parseInt(m.group(1)) + offset));
+    }
+
+    private Section shift(Section section, int offset, String docfile, Section parent) {
+        Path path = section.getPath();
+        int lineno = isMainDocument(Objects.isNull(path) ? null : path.toString(), docfile) ?
+                section.getLineno() + offset : section.getLineno();
+        Section shifted = new Section(section.getLevel(), section.getTitle(), lineno, section.getId(), path, parent);
+        for (Section subsection : section.getSubsections()) {
+            shifted.getSubsections().add(shift(subsection, offset, docfile, shifted));
+        }
+        return shifted;
+    }
+
+    private boolean isMainDocument(String file, String docfile) {
+        return Objects.isNull(file) || Objects.equals(file, docfile);
+    }
+}
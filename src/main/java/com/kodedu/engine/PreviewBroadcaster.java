@@ -0,0 +1,230 @@
+package com.kodedu.engine;
+
+import com.kodedu.service.RenderMetrics;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the preview to the <code>/ws</code> viewers, see {@link PreviewVersions} for the messages.
+ * <p>
+ * Each viewer has its own virtual thread and an outbound queue of one frame. A frame only says that
+ * a newer version is there, the message is built when it is sent, so a frame replacing a waiting one
+ * loses nothing: the latest frame wins and a slow viewer skips versions instead of delaying the others.
+ * <p>
+ * Nothing is sent before the <code>hello</code> message of the viewer, so that the first snapshot, the largest message,
+ * is already compressed. Viewers which don't say hello get it uncompressed after {@value #HELLO_TIMEOUT_MS} ms.
+ */
+@Component
+public class PreviewBroadcaster extends TextWebSocketHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(PreviewBroadcaster.class);
+
+    private static final int QUEUE_CAPACITY = 1;
+    private static final long HELLO_TIMEOUT_MS = 500;
+
+    private final PreviewVersions previewVersions;
+    private final RenderMetrics renderMetrics;
+    private final Map<String, Viewer> viewers = new ConcurrentHashMap<>();
+
+    // Last page, published to PreviewVersions only when there are viewers
+    private volatile String lastPage;
+
+    /**
+     * @param queuedAt when the oldest unsent frame was queued, so that replaced frames still count in the lag
+     */
+    record Frame(long queuedAt) {
+    }
+
+    @Autowired
+    public PreviewBroadcaster(PreviewVersions previewVersions, RenderMetrics renderMetrics) {
+        this.previewVersions = previewVersions;
+        this.renderMetrics = renderMetrics;
+    }
+
+    public void broadcast(String page) {
+        lastPage = page;
+        if (viewers.isEmpty()) {
+            return;
+        }
+        previewVersions.publish(page);
+        viewers.values().forEach(Viewer::offer);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Viewer viewer = new Viewer(session);
+        viewers.put(session.getId(), viewer);
+        viewer.start();
+
+        Optional.ofNullable(lastPage).ifPresent(previewVersions::publish);
+        viewer.offer();
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        Optional.ofNullable(viewers.remove(session.getId())).ifPresent(Viewer::stop);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        logger.debug("Preview viewer {} failed", session.getId(), exception);
+    }
+
+    /**
+     * Viewers say which compression they support, and ask for a snapshot when they can't apply a delta
+     */
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        Viewer viewer = viewers.get(session.getId());
+        if (Objects.isNull(viewer)) {
+            return;
+        }
+        JsonObject jsonObject;
+        try (JsonReader jsonReader = Json.createReader(new StringReader(message.getPayload()))) {
+            jsonObject = jsonReader.readObject();
+        }
+        switch (jsonObject.getString("type", "")) {
+            case "hello" -> {
+                viewer.gzip = "gzip".equals(jsonObject.getString("compression", ""));
+                viewer.hello.countDown();
+            }
+            case "resync" -> {
+                viewer.version = null;
+                viewer.offer();
+            }
+            default -> logger.debug("Unknown preview message {}", message.getPayload());
+        }
+    }
+
+    public int getViewerCount() {
+        return viewers.size();
+    }
+
+    /**
+     * Versions the slowest viewer is behind
+     */
+    public long getMaxVersionsBehind() {
+        long current = previewVersions.currentVersion();
+        return viewers.values().stream().mapToLong(viewer -> viewer.versionsBehind(current)).max().orElse(0);
+    }
+
+    public JsonArray viewerStats() {
+        long current = previewVersions.currentVersion();
+        JsonArrayBuilder stats = Json.createArrayBuilder();
+        for (Viewer viewer : viewers.values()) {
+            stats.add(Json.createObjectBuilder()
+                    .add("id", viewer.session.getId())
+                    .add("version", Objects.nonNull(viewer.version) ? viewer.version : 0)
+                    .add("versionsBehind", viewer.versionsBehind(current))
+                    .add("sent", viewer.sent.get())
+                    .add("dropped", viewer.dropped.get())
+                    .add("sentBytes", viewer.sentBytes.get())
+                    .add("lastLagMs", viewer.lastLagMs)
+                    .add("maxLagMs", viewer.maxLagMs));
+        }
+        return stats.build();
+    }
+
+    private class Viewer {
+
+        private final WebSocketSession session;
+        private final BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong sentBytes = new AtomicLong();
+        private final CountDownLatch hello = new CountDownLatch(1);
+        private Thread thread;
+
+        // Version of the last message sent, the viewer applies messages in order
+        private volatile Long version;
+        private volatile boolean gzip;
+        private volatile long lastLagMs;
+        private volatile long maxLagMs;
+
+        Viewer(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void start() {
+            thread = Thread.ofVirtual().name("preview-viewer-" + session.getId()).start(this::run);
+        }
+
+        void stop() {
+            thread.interrupt();
+        }
+
+        synchronized void offer() {
+            long queuedAt = System.nanoTime();
+            Frame waiting = frames.poll();
+            if (Objects.nonNull(waiting)) {
+                dropped.incrementAndGet();
+                renderMetrics.increment("preview.ws.dropped");
+                queuedAt = waiting.queuedAt();
+            }
+            frames.offer(new Frame(queuedAt));
+        }
+
+        long versionsBehind(long current) {
+            return Objects.nonNull(version) ? current - version : current;
+        }
+
+        private void run() {
+            try {
+                if (!hello.await(HELLO_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    logger.debug("Preview viewer {} didn't say hello, sending uncompressed", session.getId());
+                }
+                while (session.isOpen()) {
+                    send(frames.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void send(Frame frame) {
+            Optional<PreviewVersions.Message> message = previewVersions.message(version, gzip);
+            if (message.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                String payload = message.get().payload();
+                session.sendMessage(new TextMessage(payload));
+                version = message.get().version();
+                sent.incrementAndGet();
+                sentBytes.addAndGet(payload.length());
+                renderMetrics.increment(message.get().snapshot() ? "preview.ws.snapshot" : "preview.ws.delta");
+            } catch (Exception e) {
+                logger.error("Problem occured while sending content over WebSocket", e);
+                return;
+            }
+            long end = System.nanoTime();
+            renderMetrics.record("preview.ws.send", end - start, TimeUnit.NANOSECONDS);
+            renderMetrics.record("preview.ws.lag", end - frame.queuedAt(), TimeUnit.NANOSECONDS);
+            lastLagMs = TimeUnit.NANOSECONDS.toMillis(end - frame.queuedAt());
+            maxLagMs = Math.max(maxLagMs, lastLagMs);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.kodedu.engine;
+
+import com.kodedu.other.RefProps;
+import com.kodedu.outline.Section;
+import com.kodedu.service.IncludeGraph;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Rendered preview fragments keyed by the content hash of a chunk and the effective attributes.
+ * A fragment including files is dropped once one of them changes on disk.
+ */
+@Component
+public class PreviewFragmentCache {
+
+    private static final int MAX_FRAGMENTS = 2000;
+
+    // Attributes that change on every conversion and don't affect the content
+    private static final Set<String> VOLATILE_ATTRIBUTES = Set.of("localdate", "localtime", "localdatetime", "localyear",
+            "docdate", "doctime", "docdatetime", "docyear", "uuid");
+
+    /**
+     * @param includes state of the files included by the chunk, see {@link IncludeGraph#fileState(Path)}
+     */
+    public record Fragment(String html, List<Section> sections, Map<String, List<RefProps>> refs,
+                           Map<Path, String> includes) {
+
+        public static Map<Path, String> includeStates(Collection<Path> paths) {
+            Map<Path, String> states = new LinkedHashMap<>();
+            for (Path path : paths) {
+                states.put(path, IncludeGraph.fileState(path));
+            }
+            return states;
+        }
+
+        boolean includesUnchanged() {
+            return includes.entrySet().stream()
+                    .allMatch(entry -> entry.getValue().equals(IncludeGraph.fileState(entry.getKey())));
+        }
+    }
+
+    private final Map<String, Fragment> fragments = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Fragment> eldest) {
+            return size() > MAX_FRAGMENTS;
+        }
+    };
+
+    private final Map<String, String> shells = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > 16;
+        }
+    };
+
+    private Set<String> displayedKeys = Set.of();
+
+    public String attributesKey(String header, Map<String, Object> attributes) {
+        StringBuilder builder = new StringBuilder(header);
+        new TreeMap<>(attributes).forEach((key, value) -> {
+            if (!VOLATILE_ATTRIBUTES.contains(key)) {
+                builder.append('\n').append(key).append('=').append(value);
+            }
+        });
+        return hash(builder.toString());
+    }
+
+    public String fragmentKey(String attributesKey, String chunkText) {
+        return hash(attributesKey + "\n" + chunkText);
+    }
+
+    public synchronized String getShell(String attributesKey, Supplier<String> supplier) {
+        String shell = shells.get(attributesKey);
+        if (Objects.isNull(shell)) {
+            shell = supplier.get();
+            shells.put(attributesKey, shell);
+        }
+        return shell;
+    }
+
+    /**
+     * @return the fragment or null if it isn't cached or one of its included files has changed
+     */
+    public Fragment get(String key) {
+        Fragment fragment;
+        synchronized (this) {
+            fragment = fragments.get(key);
+        }
+        if (Objects.nonNull(fragment) && !fragment.includesUnchanged()) {
+            synchronized (this) {
+                fragments.remove(key, fragment);
+            }
+            return null;
+        }
+        return fragment;
+    }
+
+    public synchronized void put(String key, Fragment fragment) {
+        fragments.put(key, fragment);
+    }
+
+    /**
+     * Records the fragments sent to the preview and returns the ones it doesn't have yet
+     */
+    public synchronized Set<String> updateDisplayed(List<String> keys) {
+        Set<String> missing = new LinkedHashSet<>(keys);
+        missing.removeAll(displayedKeys);
+        displayedKeys = new HashSet<>(keys);
+        return missing;
+    }
+
+    public synchronized void clear() {
+        fragments.clear();
+        shells.clear();
+        displayedKeys = Set.of();
+    }
+
+    private String hash(String text) {
+        return DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
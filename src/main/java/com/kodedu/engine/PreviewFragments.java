@@ -0,0 +1,161 @@
+package com.kodedu.engine;
+
+import com.kodedu.other.LineIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Splits an Asciidoc document into its header and top level section chunks,
+ * so that the preview can be converted chunk by chunk.
+ * <p>
+ * Documents using features that need the whole document at once
+ * (body attribute entries, parts, footnotes, toc macro) are not split.
+ */
+public class PreviewFragments {
+
+    public static final String PLACEHOLDER = "<div id=\"afx-fragments\"></div>";
+
+    private static final Pattern ATTRIBUTE_ENTRY = Pattern.compile("^:!?\\w[\\w-]*!?:.*$");
+    private static final Pattern DOCUMENT_TITLE = Pattern.compile("^= \\S.*$");
+    private static final Pattern TOP_LEVEL_SECTION = Pattern.compile("^== \\S.*$");
+    private static final Pattern BLOCK_DELIMITER = Pattern.compile("^(-{4,}|\\.{4,}|={4,}|\\*{4,}|_{4,}|\\+{4,}|/{4,}|--|\\|={3,})$");
+    private static final Pattern BLOCK_ATTRIBUTE = Pattern.compile("^(\\[.*]|\\.[^.\\s].*)$");
+
+    public record Chunk(int startLine, String text) {
+    }
+
+    public record Split(String header, int headerLines, List<Chunk> chunks) {
+
+        /**
+         * Line number of the first chunk line in {@link #source(Chunk)}
+         */
+        public int baseLine() {
+            return headerLines == 0 ? 1 : headerLines + 2;
+        }
+
+        public String source(Chunk chunk) {
+            return headerLines == 0 ? chunk.text() : header + "\n\n" + chunk.text();
+        }
+
+        public String shellSource() {
+            return header + "\n\n++++\n" + PLACEHOLDER + "\n++++";
+        }
+    }
+
+    public static Optional<Split> split(String content) {
+
+        if (Objects.isNull(content)) {
+            return Optional.empty();
+        }
+
+        LineIndex lineIndex = LineIndex.of(content);
+        String[] lines = new String[lineIndex.lineCount()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = lineIndex.line(content, i + 1);
+        }
+        int headerLines = headerLines(lines);
+
+        List<Chunk> chunks = new ArrayList<>();
+        int chunkStart = headerLines;
+        String openDelimiter = null;
+
+        for (int i = headerLines; i < lines.length; i++) {
+            String line = lines[i];
+
+            if (line.contains("footnote:")) {
+                return Optional.empty();
+            }
+
+            if (Objects.nonNull(openDelimiter)) {
+                if (isClosing(openDelimiter, line)) {
+                    openDelimiter = null;
+                }
+                continue;
+            }
+
+            if (BLOCK_DELIMITER.matcher(line).matches() || line.startsWith("```")) {
+                openDelimiter = line;
+                continue;
+            }
+
+            if (line.startsWith("//")) {
+                continue;
+            }
+
+            if (ATTRIBUTE_ENTRY.matcher(line).matches()
+                    || DOCUMENT_TITLE.matcher(line).matches()
+                    || line.startsWith("toc::[")) {
+                return Optional.empty();
+            }
+
+            if (TOP_LEVEL_SECTION.matcher(line).matches()) {
+                // anchors, block attributes and titles above the section belong to it
+                int sectionStart = i;
+                while (sectionStart > chunkStart && BLOCK_ATTRIBUTE.matcher(lines[sectionStart - 1]).matches()) {
+                    sectionStart--;
+                }
+                addChunk(chunks, content, lineIndex, chunkStart, sectionStart);
+                chunkStart = sectionStart;
+            }
+        }
+
+        addChunk(chunks, content, lineIndex, chunkStart, lines.length);
+
+        String header = headerLines == 0 ? "" : content.substring(0, lineIndex.lineEnd(headerLines, content));
+        return Optional.of(new Split(header, headerLines, chunks));
+    }
+
+    private static boolean isClosing(String openDelimiter, String line) {
+        if (openDelimiter.startsWith("```")) {
+            return line.equals("```");
+        }
+        return line.equals(openDelimiter);
+    }
+
+    private static void addChunk(List<Chunk> chunks, String content, LineIndex lineIndex, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        String text = content.substring(lineIndex.lineStart(from + 1), lineIndex.lineEnd(to, content));
+        if (text.isBlank()) {
+            return;
+        }
+        chunks.add(new Chunk(from + 1, text));
+    }
+
+    /*
+     Leading comments and attribute entries (e.g. prepended .asciidoctorconfig files)
+     are followed by the document title, the header runs until the first blank line
+     */
+    private static int headerLines(String[] lines) {
+        int index = 0;
+        while (index < lines.length) {
+            String line = lines[index];
+            if (line.startsWith("////")) {
+                index++;
+                while (index < lines.length && !lines[index].equals(line)) {
+                    index++;
+                }
+                index++;
+                continue;
+            }
+            if (line.isBlank() || (line.startsWith("//") && !line.startsWith("///")) || ATTRIBUTE_ENTRY.matcher(line).matches()) {
+                index++;
+                continue;
+            }
+            break;
+        }
+
+        if (index < lines.length && DOCUMENT_TITLE.matcher(lines[index]).matches()) {
+            while (index < lines.length && !lines[index].isBlank()) {
+                index++;
+            }
+        }
+
+        return Math.min(index, lines.length);
+    }
+}
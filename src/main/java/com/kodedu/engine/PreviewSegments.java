@@ -0,0 +1,100 @@
+package com.kodedu.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a rendered preview page into segments, each starting with the opening tag of a block element,
+ * so that two renders of a document can be compared block by block.
+ * <p>
+ * Joining the segments gives back the page. Segments are compared by their content with
+ * the <code>data-line</code> numbers left out, so that a block moved by lines added above it
+ * is sent as a copy with a line shift instead of its html.
+ */
+public final class PreviewSegments {
+
+    private static final Pattern BLOCK_START = Pattern.compile(
+            "<(?:div|p|table|section|pre|ul|ol|dl|h[1-6]|blockquote|header|footer|nav|aside|details|figure|hr)[\\s>/]",
+            Pattern.CASE_INSENSITIVE);
+
+    // Same pattern as shiftSegment in index.js
+    private static final Pattern DATA_LINE = Pattern.compile("(data-line-|data-line=\")(\\d+)");
+
+    /**
+     * @param key   html with the line numbers left out
+     * @param lines line numbers in order of appearance
+     */
+    public record Segment(String html, String key, int[] lines) {
+
+        /**
+         * @return the line offset which turns this segment into the other one, null if there isn't one
+         */
+        public Integer shiftTo(Segment other) {
+            if (!Objects.equals(key, other.key) || lines.length != other.lines.length) {
+                return null;
+            }
+            if (lines.length == 0) {
+                return 0;
+            }
+            int shift = other.lines[0] - lines[0];
+            for (int i = 1; i < lines.length; i++) {
+                if (other.lines[i] - lines[i] != shift) {
+                    return null;
+                }
+            }
+            return shift;
+        }
+    }
+
+    private PreviewSegments() {
+    }
+
+    public static List<Segment> split(String html) {
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = BLOCK_START.matcher(html);
+        int start = 0;
+        while (matcher.find()) {
+            if (matcher.start() > start) {
+                segments.add(segment(html.substring(start, matcher.start())));
+                start = matcher.start();
+            }
+        }
+        if (start < html.length()) {
+            segments.add(segment(html.substring(start)));
+        }
+        return segments;
+    }
+
+    public static Segment segment(String html) {
+        Matcher matcher = DATA_LINE.matcher(html);
+        if (!matcher.find()) {
+            return new Segment(html, html, new int[0]);
+        }
+
+        StringBuilder key = new StringBuilder(html.length());
+        List<Integer> lines = new ArrayList<>();
+        int last = 0;
+        do {
+            key.append(html, last, matcher.end(1)).append('#');
+            lines.add(Integer.parseInt(matcher.group(2)));
+            last = matcher.end();
+        } while (matcher.find());
+        key.append(html, last, html.length());
+
+        return new Segment(html, key.toString(), lines.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Shifts the <code>data-line</code> numbers of the given html
+     */
+    public static String shift(String html, int offset) {
+        if (offset == 0) {
+            return html;
+        }
+        return DATA_LINE.matcher(html).replaceAll(result ->
+                Matcher.quoteReplacement(result.group(1) + (Integer.parseInt(result.group(2)) + offset)));
+    }
+}
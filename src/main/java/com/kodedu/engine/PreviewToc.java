@@ -0,0 +1,179 @@
+package com.kodedu.engine;
+
+import com.kodedu.engine.PreviewFragments.Chunk;
+import com.kodedu.outline.Section;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Table of contents and section numbers of windowed previews.
+ * <p>
+ * Each fragment is converted alone after the document header, so Asciidoctor numbers its section as the first one
+ * and the shell has no section to build the toc from. Section numbers are fixed up chunk by chunk, and the toc
+ * is built from the sections of the converted chunks and the titles of the pending ones.
+ */
+public class PreviewToc {
+
+    static final Pattern SECTION_TITLE = Pattern.compile("^== (\\S.*)$", Pattern.MULTILINE);
+
+    private static final Pattern SPECIAL_SECTION = Pattern.compile(
+            "^\\[(appendix|abstract|bibliography|glossary|index|colophon|dedication|preface|acknowledgments)\\b.*]$", Pattern.MULTILINE);
+    private static final Pattern EXPLICIT_ID = Pattern.compile(
+            "^(?:\\[\\[([^\\],\\s]+)[^\\]]*]]|\\[[^\\[\\]#]*#([^\\].%,\\s]+)[^\\]]*])$", Pattern.MULTILINE);
+    private static final Pattern INVALID_ID_CHARS = Pattern.compile(
+            "<[^>]+>|&(?:[a-z][a-z]+\\d{0,2}|#\\d{2,5}|#x[\\da-f]{2,4});|[^ \\w\\-.]+", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern NUMBERED_HEADING = Pattern.compile(
+            "(<h[2-6] id=\"[^\"]*\">(?:<a class=\"anchor\"[^>]*></a>)?(?:<a class=\"link\"[^>]*>)?)1\\.(?=(?:\\d+\\.)* )");
+    private static final Pattern BODY_CLASS = Pattern.compile("(<body[^>]* class=\"[^\"]*)\"");
+
+    /**
+     * @param tocClass    class of the toc element
+     * @param bodyClasses classes added to the body, e.g. for a toc on the left
+     * @param title       title of the toc
+     * @param levels      section levels in the toc
+     */
+    public record Placement(String tocClass, String bodyClasses, String title, int levels) {
+
+        /**
+         * @return empty if the toc isn't rendered in the header, e.g. <code>toc=preamble</code> or <code>toc=macro</code>
+         */
+        public static Optional<Placement> of(Map<String, Object> attributes) {
+            if (!"auto".equals(Objects.toString(attributes.get("toc-placement"), "auto"))) {
+                return Optional.empty();
+            }
+            String position = Objects.toString(attributes.get("toc-position"), "");
+            if (position.isEmpty()) {
+                position = Objects.toString(attributes.get("toc"), "");
+            }
+            String tocClass = Objects.toString(attributes.get("toc-class"), null);
+            String bodyClasses = "";
+            switch (position) {
+                case "preamble", "macro", "content" -> {
+                    return Optional.empty();
+                }
+                case "left", "right", "top", "bottom" -> {
+                    tocClass = Objects.requireNonNullElse(tocClass, "toc2");
+                    bodyClasses = tocClass + " toc-" + position;
+                }
+                default -> {
+                    if (Objects.nonNull(tocClass)) {
+                        bodyClasses = tocClass + " toc-header";
+                    }
+                    tocClass = Objects.requireNonNullElse(tocClass, "toc");
+                }
+            }
+            String title = Objects.toString(attributes.get("toc-title"), "Table of Contents");
+            return Optional.of(new Placement(tocClass, bodyClasses, title, intAttribute(attributes, "toclevels", 2)));
+        }
+    }
+
+    static int intAttribute(Map<String, Object> attributes, String name, int defaultValue) {
+        try {
+            return Integer.parseInt(Objects.toString(attributes.get(name), "").trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Whether the chunk has a top level section which is numbered, special sections like appendices are not
+     */
+    static boolean isNumbered(Chunk chunk) {
+        Matcher title = SECTION_TITLE.matcher(chunk.text());
+        if (!title.find()) {
+            return false;
+        }
+        return !SPECIAL_SECTION.matcher(chunk.text()).region(0, title.start()).find();
+    }
+
+    /**
+     * Gives the given number to the top level section of a fragment, which was numbered as the first one
+     */
+    static String renumber(String html, int number) {
+        if (number == 1) {
+            return html;
+        }
+        return NUMBERED_HEADING.matcher(html).replaceAll(m -> Matcher.quoteReplacement(m.group(1) + number + "."));
+    }
+
+    /**
+     * Id of a section which is not converted yet, its explicit id or the one Asciidoctor generates
+     * with the default <code>idprefix</code> and <code>idseparator</code>
+     *
+     * @param titleStart offset of the section title in the text
+     */
+    static String sectionId(String text, int titleStart, String title) {
+        String id = null;
+        Matcher explicit = EXPLICIT_ID.matcher(text).region(0, titleStart);
+        while (explicit.find()) {
+            id = Objects.requireNonNullElse(explicit.group(1), explicit.group(2));
+        }
+        if (Objects.nonNull(id)) {
+            return id;
+        }
+        String generated = INVALID_ID_CHARS.matcher(title.toLowerCase(Locale.ROOT)).replaceAll("")
+                .replaceAll("[ .\\-]+", "_");
+        if (generated.endsWith("_")) {
+            generated = generated.substring(0, generated.length() - 1);
+        }
+        return "_" + generated;
+    }
+
+    /**
+     * Appends the toc entry of a section and its subsections
+     *
+     * @param number        number of the section, e.g. <code>2.1.</code>, or null if it isn't numbered
+     * @param sectnumLevels numbered section levels
+     */
+    static void appendOutline(StringBuilder outline, Section section, String number, int levels, int sectnumLevels) {
+        if (section.getLevel() > levels) {
+            return;
+        }
+        outline.append("<li><a href=\"#").append(Objects.toString(section.getId(), "")).append("\">");
+        if (Objects.nonNull(number) && section.getLevel() <= sectnumLevels) {
+            outline.append(number).append(' ');
+        }
+        outline.append(section.getTitle()).append("</a>");
+        List<Section> subsections = section.getSubsections().stream()
+                .filter(subsection -> subsection.getLevel() <= levels)
+                .toList();
+        if (!subsections.isEmpty()) {
+            outline.append("\n<ul class=\"sectlevel").append(section.getLevel() + 1).append("\">\n");
+            for (int i = 0; i < subsections.size(); i++) {
+                appendOutline(outline, subsections.get(i), Objects.isNull(number) ? null : number + (i + 1) + ".", levels, sectnumLevels);
+            }
+            outline.append("</ul>\n");
+        }
+        outline.append("</li>\n");
+    }
+
+    static String toc(Placement placement, String outline) {
+        return "<div id=\"toc\" class=\"" + placement.tocClass() + "\">\n"
+                + "<div id=\"toctitle\">" + placement.title() + "</div>\n"
+                + "<ul class=\"sectlevel1\">\n" + outline + "</ul>\n"
+                + "</div>";
+    }
+
+    /**
+     * Puts the toc at the end of the header of the shell, as Asciidoctor does for sectioned documents
+     */
+    static String insert(String shell, Placement placement, String toc) {
+        int header = shell.indexOf("<div id=\"header\">");
+        int content = shell.indexOf("<div id=\"content\">");
+        int close = content < 0 ? -1 : shell.lastIndexOf("</div>", content);
+        if (header < 0 || close < header) {
+            return shell;
+        }
+        String result = shell.substring(0, close) + toc + "\n" + shell.substring(close);
+        if (placement.bodyClasses().isEmpty()) {
+            return result;
+        }
+        return BODY_CLASS.matcher(result).replaceFirst(m -> Matcher.quoteReplacement(m.group(1) + " " + placement.bodyClasses() + "\""));
+    }
+}
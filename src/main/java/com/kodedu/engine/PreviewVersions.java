@@ -0,0 +1,222 @@
+package com.kodedu.engine;
+
+import com.kodedu.engine.PreviewSegments.Segment;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Versioned preview pages pushed to the <code>/ws</code> viewers.
+ * <p>
+ * A viewer gets a snapshot of the segments of the current page, after that only a delta against
+ * the version it has: ranges of its own segments to copy, shifted by a line offset, and the html of the new ones.
+ * A viewer whose version is no longer kept, or for which a delta wouldn't be smaller, gets a new snapshot.
+ * <pre>
+ * {"type":"snapshot","version":7,"segments":["&lt;html&gt;...", ...]}
+ * {"type":"delta","base":6,"version":7,"ops":[[0,12,0],"&lt;div ...",[13,40,2]]}
+ * {"type":"gzip","data":"&lt;base64 of one of the above&gt;"}
+ * </pre>
+ */
+@Component
+public class PreviewVersions {
+
+    // Versions kept for viewers which are behind
+    private static final int MAX_VERSIONS = 16;
+    // Messages larger than this are compressed for viewers supporting it
+    private static final int COMPRESS_THRESHOLD = 8 * 1024;
+
+    record Version(long number, List<Segment> segments, Map<String, Integer> index, String html) {
+    }
+
+    public record Message(long version, boolean snapshot, String payload) {
+    }
+
+    private final Deque<Version> versions = new ArrayDeque<>();
+    // Messages of the current version by the version of the viewer, most viewers share the same one
+    private final Map<String, Message> messages = new HashMap<>();
+    private long nextVersion = 1;
+
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong fullBytes = new AtomicLong();
+
+    /**
+     * Makes the given page the current version, an unchanged page doesn't make a new version
+     */
+    public synchronized void publish(String html) {
+        Version current = versions.peekLast();
+        if (Objects.nonNull(current) && current.html().equals(html)) {
+            return;
+        }
+
+        // Unchanged segments are shared with the previous version
+        List<Segment> segments = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        for (Segment segment : PreviewSegments.split(html)) {
+            if (Objects.nonNull(current)) {
+                Integer previous = current.index().get(segment.key());
+                if (Objects.nonNull(previous) && current.segments().get(previous).html().equals(segment.html())) {
+                    segment = current.segments().get(previous);
+                }
+            }
+            index.putIfAbsent(segment.key(), segments.size());
+            segments.add(segment);
+        }
+
+        versions.addLast(new Version(nextVersion++, segments, index, html));
+        while (versions.size() > MAX_VERSIONS) {
+            versions.removeFirst();
+        }
+        messages.clear();
+    }
+
+    public synchronized long currentVersion() {
+        Version current = versions.peekLast();
+        return Objects.nonNull(current) ? current.number() : 0;
+    }
+
+    /**
+     * @param viewerVersion version the viewer has, null if it has none
+     * @param gzip          whether the viewer can decompress gzip messages
+     * @return the message bringing the viewer to the current version, empty if it is up to date
+     */
+    public synchronized Optional<Message> message(Long viewerVersion, boolean gzip) {
+        Version current = versions.peekLast();
+        if (Objects.isNull(current) || Objects.equals(viewerVersion, current.number())) {
+            return Optional.empty();
+        }
+
+        String cacheKey = viewerVersion + (gzip ? "-gzip" : "");
+        Message message = messages.get(cacheKey);
+        if (Objects.isNull(message)) {
+            message = createMessage(findVersion(viewerVersion), current, gzip);
+            messages.put(cacheKey, message);
+        }
+
+        sentBytes.addAndGet(message.payload().length());
+        fullBytes.addAndGet(current.html().length());
+        return Optional.of(message);
+    }
+
+    private Version findVersion(Long number) {
+        if (Objects.isNull(number)) {
+            return null;
+        }
+        for (Version version : versions) {
+            if (version.number() == number) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    private Message createMessage(Version base, Version current, boolean gzip) {
+        String payload = Objects.nonNull(base) ? delta(base, current) : null;
+        boolean snapshot = Objects.isNull(payload);
+        if (snapshot) {
+            payload = snapshot(current);
+        }
+        if (gzip && payload.length() > COMPRESS_THRESHOLD) {
+            payload = Json.createObjectBuilder()
+                    .add("type", "gzip")
+                    .add("data", Base64.getEncoder().encodeToString(gzip(payload)))
+                    .build().toString();
+        }
+        return new Message(current.number(), snapshot, payload);
+    }
+
+    private String snapshot(Version version) {
+        JsonArrayBuilder segments = Json.createArrayBuilder();
+        for (Segment segment : version.segments()) {
+            segments.add(segment.html());
+        }
+        return Json.createObjectBuilder()
+                .add("type", "snapshot")
+                .add("version", version.number())
+                .add("segments", segments)
+                .build().toString();
+    }
+
+    /**
+     * @return the delta or null if sending the new segments costs about as much as a snapshot
+     */
+    private String delta(Version base, Version target) {
+        JsonArrayBuilder ops = Json.createArrayBuilder();
+        List<Segment> baseSegments = base.segments();
+        int runStart = -1;
+        int runCount = 0;
+        int runShift = 0;
+        long literalLength = 0;
+
+        for (Segment segment : target.segments()) {
+            int next = runStart + runCount;
+            if (runCount > 0 && next < baseSegments.size()) {
+                // Segments without line numbers can be copied with any shift
+                Integer nextShift = baseSegments.get(next).shiftTo(segment);
+                if (Objects.nonNull(nextShift) && (nextShift == runShift || segment.lines().length == 0)) {
+                    runCount++;
+                    continue;
+                }
+            }
+
+            Integer baseIndex = base.index().get(segment.key());
+            Integer shift = Objects.nonNull(baseIndex) ? baseSegments.get(baseIndex).shiftTo(segment) : null;
+            if (runCount > 0) {
+                ops.add(Json.createArrayBuilder().add(runStart).add(runCount).add(runShift));
+                runCount = 0;
+            }
+            if (Objects.nonNull(shift)) {
+                runStart = baseIndex;
+                runCount = 1;
+                runShift = shift;
+            } else {
+                ops.add(segment.html());
+                literalLength += segment.html().length();
+            }
+        }
+        if (runCount > 0) {
+            ops.add(Json.createArrayBuilder().add(runStart).add(runCount).add(runShift));
+        }
+
+        if (literalLength > target.html().length() / 2) {
+            return null;
+        }
+        return Json.createObjectBuilder()
+                .add("type", "delta")
+                .add("base", base.number())
+                .add("version", target.number())
+                .add("ops", ops)
+                .build().toString();
+    }
+
+    private static byte[] gzip(String payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length() / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Characters sent to the viewers
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * Characters which full pages would have taken
+     */
+    public long getFullBytes() {
+        return fullBytes.get();
+    }
+}
@@ -1,9 +1,19 @@
 package com.kodedu.helper;
 
 import org.asciidoctor.SafeMode;
+import org.asciidoctor.ast.Cursor;
+import org.asciidoctor.ast.Document;
+import org.asciidoctor.ast.Section;
+import org.asciidoctor.ast.StructuralNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Objects;
+
+import static com.kodedu.other.Constants.DOC_FILE_ATTR;
+import static com.kodedu.other.Constants.PREFIX_LINES_ATTR;
+
 public class AsciidoctorHelper {
 
     private static final Logger logger = LoggerFactory.getLogger(AsciidoctorHelper.class);
@@ -19,4 +29,56 @@ public class AsciidoctorHelper {
             return SafeMode.SAFE;
         }
     }
+
+    /**
+     * Maps a source line of the converted text to the editor line,
+     * lines of included files are not affected by the prepended text
+     */
+    public static int editorLine(Document document, String file, int lineNumber) {
+        Object prefixLines = document.getAttribute(PREFIX_LINES_ATTR);
+        if (Objects.isNull(prefixLines)) {
+            return lineNumber;
+        }
+        Object docfile = document.getAttribute(DOC_FILE_ATTR);
+        if (Objects.nonNull(file) && !Objects.equals(file, docfile)) {
+            return lineNumber;
+        }
+        try {
+            return lineNumber - Integer.parseInt(String.valueOf(prefixLines));
+        } catch (NumberFormatException e) {
+            return lineNumber;
+        }
+    }
+
+    /**
+     * Whether every section of the document maps to a line of the editor. Extensions of the preview
+     * converters may rewrite the source, then the lines of the converted document are off or negative.
+     *
+     * @param lineCount lines of the editor text, the prepended text excluded
+     */
+    public static boolean hasEditorLines(Document document, int lineCount) {
+        return hasEditorLines(document, document.getBlocks(), lineCount);
+    }
+
+    private static boolean hasEditorLines(Document document, List<StructuralNode> blocks, int lineCount) {
+        Object docfile = document.getAttribute(DOC_FILE_ATTR);
+        for (StructuralNode node : blocks) {
+            if (node instanceof Section section) {
+                Cursor location = section.getSourceLocation();
+                if (Objects.isNull(location)) {
+                    return false;
+                }
+                String file = location.getFile();
+                int lineNumber = editorLine(document, file, location.getLineNumber());
+                boolean inDocument = Objects.isNull(file) || Objects.equals(file, docfile);
+                if (lineNumber < 1 || (inDocument && lineNumber > lineCount)) {
+                    return false;
+                }
+                if (!hasEditorLines(document, section.getBlocks(), lineCount)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
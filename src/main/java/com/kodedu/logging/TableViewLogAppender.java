@@ -74,11 +74,14 @@ public class TableViewLogAppender extends UnsynchronizedAppenderBase<ILoggingEve
         }
 
         final String finalMessage = message;
-        threadService.buff("logMessager").schedule(() -> {
-            threadService.runActionLater(() -> {
-                logShortMessage.setText(finalMessage);
-            });
-        }, 1, TimeUnit.SECONDS);
+        threadService.debouncer("logMessager")
+                .delay(1, TimeUnit.SECONDS)
+                .maxWait(1, TimeUnit.SECONDS)
+                .call(() -> {
+                    threadService.runActionLater(() -> {
+                        logShortMessage.setText(finalMessage);
+                    });
+                });
 
 
         IThrowableProxy tp = event.getThrowableProxy();
@@ -92,17 +95,20 @@ public class TableViewLogAppender extends UnsynchronizedAppenderBase<ILoggingEve
             buffer.add(myLog);
         }
 
-        threadService.buff("logAppender").schedule(() -> {
-            final List<MyLog> cloneBufferList = new LinkedList<>(buffer);
-            final List<MyLog> cloneLogList = new LinkedList<>(logList);
-            cloneLogList.addAll(cloneBufferList);
-            final List<MyLog> reducedLogList = new LinkedList<>();
-            reduceRepeatedLogs(cloneLogList, reducedLogList);
-            buffer.clear();
-            threadService.runActionLater(() -> {
-                logList.setAll(reducedLogList);
-            });
-        }, 2, TimeUnit.SECONDS);
+        threadService.debouncer("logAppender")
+                .delay(2, TimeUnit.SECONDS)
+                .maxWait(2, TimeUnit.SECONDS)
+                .call(() -> {
+                    final List<MyLog> cloneBufferList = new LinkedList<>(buffer);
+                    final List<MyLog> cloneLogList = new LinkedList<>(logList);
+                    cloneLogList.addAll(cloneBufferList);
+                    final List<MyLog> reducedLogList = new LinkedList<>();
+                    reduceRepeatedLogs(cloneLogList, reducedLogList);
+                    buffer.clear();
+                    threadService.runActionLater(() -> {
+                        logList.setAll(reducedLogList);
+                    });
+                });
     }
 
     private void reduceRepeatedLogs(List<MyLog> cloneLogList, List<MyLog> newList) {
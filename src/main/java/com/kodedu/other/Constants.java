@@ -12,4 +12,6 @@ public class Constants {
 
     public static final String ASCIIDOC_EXTENSIONS = ".*?\\.(asc|adoc|jam|ad|asciidoc)";
     public static final String DOC_FILE_ATTR = "docfile";
+    // Number of lines prepended to the editor content, e.g. by .asciidoctorconfig files
+    public static final String PREFIX_LINES_ATTR = "afx-prefix-lines";
 }
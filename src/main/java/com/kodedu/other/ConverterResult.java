@@ -18,6 +18,9 @@ public class ConverterResult {
 
     private Document document;
 
+    // Changed preview fragments as JSON, see IncrementalPreviewRenderer
+    private String fragments;
+
     public ConverterResult(String taskId, String rendered, String backend) {
         this.taskId = taskId;
         this.rendered = rendered;
@@ -67,6 +70,14 @@ public class ConverterResult {
         this.taskId = taskId;
     }
 
+    public String getFragments() {
+        return fragments;
+    }
+
+    public void setFragments(String fragments) {
+        this.fragments = fragments;
+    }
+
     public LocalDateTime getDateTime() {
         return dateTime;
     }
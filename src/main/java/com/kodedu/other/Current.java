@@ -27,7 +27,7 @@ public class Current {
     private final ApplicationController controller;
     private final ThreadService threadService;
 
-    private Map<String, Integer> cache;
+    private Map<String, String> cache;
     private Path currentEpubPath;
 
     @Autowired
@@ -60,13 +60,16 @@ public class Current {
         return currentWebView().getEngine();
     }
 
-    public Map<String, Integer> getCache() {
+    /**
+     * {@link com.kodedu.service.DiagramCache} keys of the images generated in this session, by image target
+     */
+    public Map<String, String> getCache() {
         if (Objects.isNull(cache))
-            cache = new ConcurrentHashMap<String, Integer>();
+            cache = new ConcurrentHashMap<String, String>();
         return cache;
     }
 
-    public void setCache(Map<String, Integer> cache) {
+    public void setCache(Map<String, String> cache) {
         this.cache = cache;
     }
 
@@ -0,0 +1,122 @@
+package com.kodedu.other;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Start offsets of the lines of a text, for mapping character offsets to line numbers by binary search.
+ * <p>
+ * Lines are terminated by <code>\n</code>, <code>\r\n</code> or <code>\r</code>, line numbers start from 1.
+ * {@link #of(String)} reuses the index of recently indexed texts, so that the same text
+ * is indexed only once while it is processed by several steps of a render.
+ */
+public final class LineIndex {
+
+    private static final int RECENT_SIZE = 4;
+
+    private record Recent(WeakReference<String> text, LineIndex index) {
+    }
+
+    private static final Recent[] recent = new Recent[RECENT_SIZE];
+    private static int next;
+
+    private final int[] starts;
+    private final int lineCount;
+    private final int length;
+
+    private LineIndex(CharSequence text) {
+        int length = text.length();
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        this.starts = starts;
+        this.lineCount = count;
+        this.length = length;
+    }
+
+    /**
+     * Indexes the text, or returns the index of the same text instance if it was indexed recently
+     */
+    public static LineIndex of(String text) {
+        Objects.requireNonNull(text);
+        synchronized (recent) {
+            for (Recent r : recent) {
+                if (Objects.nonNull(r) && r.text().get() == text) {
+                    return r.index();
+                }
+            }
+        }
+        LineIndex index = new LineIndex(text);
+        synchronized (recent) {
+            recent[next] = new Recent(new WeakReference<>(text), index);
+            next = (next + 1) % RECENT_SIZE;
+        }
+        return index;
+    }
+
+    /**
+     * Indexes the text without caching
+     */
+    public static LineIndex build(CharSequence text) {
+        return new LineIndex(Objects.requireNonNull(text));
+    }
+
+    /**
+     * @param offset character offset in the text
+     * @return 1-based number of the line containing the offset
+     */
+    public int lineNumber(int offset) {
+        if (offset <= 0) {
+            return 1;
+        }
+        int found = Arrays.binarySearch(starts, 0, lineCount, offset);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @param lineNumber 1-based line number
+     * @return offset of the first character of the line
+     */
+    public int lineStart(int lineNumber) {
+        return starts[lineNumber - 1];
+    }
+
+    /**
+     * @param lineNumber 1-based line number
+     * @return offset after the last character of the line, excluding the line terminator
+     */
+    public int lineEnd(int lineNumber, CharSequence text) {
+        if (lineNumber == lineCount) {
+            return length;
+        }
+        int end = starts[lineNumber] - 1;
+        if (end > starts[lineNumber - 1] && text.charAt(end) == '\n' && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @param lineNumber 1-based line number
+     * @return content of the line without the line terminator
+     */
+    public String line(String text, int lineNumber) {
+        return text.substring(lineStart(lineNumber), lineEnd(lineNumber, text));
+    }
+}
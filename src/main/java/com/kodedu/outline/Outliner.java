@@ -10,24 +10,26 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import static com.kodedu.helper.AsciidoctorHelper.editorLine;
+
 @Component
 public class Outliner {
 
     public List<Section> getOutlineSections(Document asciiDoc) {
         List<StructuralNode> blocks = asciiDoc.getBlocks();
         List<Section> outlineList = new ArrayList<>();
-        fillSections(blocks, outlineList, null);
+        fillSections(asciiDoc, blocks, outlineList, null);
         return outlineList;
     }
 
-    private void fillSections(List<StructuralNode> blocks, List<Section> outlineList, Section parent) {
+    private void fillSections(Document asciiDoc, List<StructuralNode> blocks, List<Section> outlineList, Section parent) {
         for (StructuralNode node : blocks) {
             if (node instanceof org.asciidoctor.ast.Section section) {
                 int level = section.getLevel();
                 String title = section.getTitle(); // TODO: Get title returns <></> for html titles
-                int lineNumber = section.getSourceLocation().getLineNumber();
                 String id = section.getId();
                 String file = section.getSourceLocation().getFile();
+                int lineNumber = editorLine(asciiDoc, file, section.getSourceLocation().getLineNumber());
                 Path path = null;
                 if (Objects.nonNull(file)) {
                     path = Paths.get(file);
@@ -39,7 +41,7 @@ public class Outliner {
                 } else {
                     parent.getSubsections().add(subSection);
                 }
-                fillSections(section.getBlocks(), outlineList, subSection);
+                fillSections(asciiDoc, section.getBlocks(), outlineList, subSection);
             }
         }
     }
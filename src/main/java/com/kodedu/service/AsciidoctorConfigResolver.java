@@ -0,0 +1,122 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.kodedu.helper.IOHelper.containsPath;
+
+/**
+ * Resolves the chain of <code>.asciidoctorconfig(.adoc)</code> files from a directory up to the working directory.
+ * <p>
+ * The assembled prefix is cached per directory with the state of every config file of the chain, present or not.
+ * An entry is validated by a stat of those files, so that config files changed while they weren't watched are seen.
+ */
+@Component
+public class AsciidoctorConfigResolver {
+
+    private final Logger logger = LoggerFactory.getLogger(AsciidoctorConfigResolver.class);
+
+    private static final List<String> CONFIG_FILES = List.of(".asciidoctorconfig", ".asciidoctorconfig.adoc");
+
+    /**
+     * @param text      text to be prepended to the document
+     * @param lineCount number of lines the document is shifted by the prefix
+     */
+    public record ConfigPrefix(String text, int lineCount) {
+        public static final ConfigPrefix EMPTY = new ConfigPrefix("", 0);
+    }
+
+    /**
+     * @param states state of the config files which may take part in the chain, see {@link IncludeGraph#fileState(Path)}
+     */
+    private record Entry(Path workingDirectory, ConfigPrefix prefix, Map<Path, String> states) {
+
+        boolean isCurrent(Path workingDirectory) {
+            return Objects.equals(this.workingDirectory, workingDirectory) && states.entrySet().stream()
+                    .allMatch(entry -> entry.getValue().equals(IncludeGraph.fileState(entry.getKey())));
+        }
+    }
+
+    private final Map<Path, Entry> cache = new ConcurrentHashMap<>();
+
+    public ConfigPrefix resolve(Path directory, Path workingDirectory) {
+        if (Objects.isNull(directory) || Objects.isNull(workingDirectory)) {
+            return ConfigPrefix.EMPTY;
+        }
+        Entry entry = cache.get(directory);
+        if (Objects.nonNull(entry) && entry.isCurrent(workingDirectory)) {
+            return entry.prefix();
+        }
+        entry = assemble(directory, workingDirectory);
+        cache.put(directory, entry);
+        return entry.prefix();
+    }
+
+    private Entry assemble(Path directory, Path workingDirectory) {
+        // nearest config first
+        List<Path> configPaths = new ArrayList<>();
+        Map<Path, String> states = new LinkedHashMap<>();
+        Path parent = directory;
+        while (containsPath(workingDirectory, parent)) {
+            boolean found = false;
+            for (String configFile : CONFIG_FILES) {
+                Path configPath = parent.resolve(configFile);
+                states.put(configPath, IncludeGraph.fileState(configPath));
+                if (!found && Files.isRegularFile(configPath)) {
+                    configPaths.add(configPath);
+                    found = true;
+                }
+            }
+            parent = parent.getParent();
+        }
+
+        if (configPaths.isEmpty()) {
+            return new Entry(workingDirectory, ConfigPrefix.EMPTY, states);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Asciidoctor Configuration Directory\n");
+        builder.append(String.format(":asciidoctorconfigdir: %s\n", configPaths.get(0).getParent()));
+        for (int i = configPaths.size() - 1; i >= 0; i--) {
+            Path configPath = configPaths.get(i);
+            builder.append(String.format("\n// Configuration > %s\n", configPath));
+            try {
+                builder.append(IOHelper.readFile(configPath));
+            } catch (Exception e) {
+                logger.warn("Couldn't read {}", configPath);
+            }
+            builder.append("\n");
+        }
+        builder.append("\n");
+
+        String text = builder.toString();
+        return new Entry(workingDirectory, new ConfigPrefix(text, (int) text.chars().filter(c -> c == '\n').count()), states);
+    }
+
+    public static boolean isConfigFile(Path path) {
+        return Objects.nonNull(path) && Objects.nonNull(path.getFileName())
+                && CONFIG_FILES.contains(path.getFileName().toString());
+    }
+
+    /**
+     * Drops the cached prefixes of the directory and its subdirectories
+     */
+    public void invalidate(Path directory) {
+        cache.keySet().removeIf(path -> containsPath(directory, path));
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+}
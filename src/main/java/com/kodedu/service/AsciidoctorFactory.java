@@ -1,6 +1,7 @@
 package com.kodedu.service;
 
-import com.kodedu.helper.IOHelper;
+import com.kodedu.boot.StartupTrace;
+import jakarta.annotation.PreDestroy;
 import org.asciidoctor.Asciidoctor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.event.ContextRefreshedEvent;
@@ -8,34 +9,39 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static org.springframework.core.Ordered.HIGHEST_PRECEDENCE;
 
 @Component
 public class AsciidoctorFactory {
-    private static CountDownLatch plainDoctorReady = new CountDownLatch(1);
-    private static CountDownLatch revealDoctorReady = new CountDownLatch(1);
-    private static CountDownLatch htmlDoctorReady = new CountDownLatch(1);
-    private static CountDownLatch nonHtmlDoctorReady = new CountDownLatch(1);
-    private static Asciidoctor plainDoctor;
-    private static Asciidoctor revealDoctor;
-    private static Asciidoctor htmlDoctor;
-    private static Asciidoctor nonHtmlDoctor;
-    private static DirectoryService directoryService;
+    private static final int DEFAULT_POOL_SIZE = 2;
+    private static final Map<DoctorType, CountDownLatch> readyLatches = new EnumMap<>(DoctorType.class);
+    private static final Map<DoctorType, AsciidoctorPool> pools = new ConcurrentHashMap<>();
+    private static volatile int poolSize = DEFAULT_POOL_SIZE;
+    private static volatile boolean initialized;
+    private static UserExtensionRegistry extensionRegistry;
     private static Map<Asciidoctor, UserExtension> userExtensionMap = new ConcurrentHashMap<>();
 
-    private static BlockingQueue<Asciidoctor> blockingQueue = new LinkedBlockingQueue<>(4);
+    // Prewarmed runtimes of the first instance of each pool
+    private static BlockingQueue<Asciidoctor> blockingQueue = new LinkedBlockingQueue<>(DoctorType.values().length);
+    private static AtomicInteger prewarmed = new AtomicInteger(DoctorType.values().length);
+
+    static {
+        for (DoctorType type : DoctorType.values()) {
+            readyLatches.put(type, new CountDownLatch(1));
+        }
+    }
 
     @EventListener
     @Order(HIGHEST_PRECEDENCE)
@@ -44,75 +50,80 @@ public class AsciidoctorFactory {
         Thread.startVirtualThread(() -> {
             initializeDoctors();
             Thread.startVirtualThread(() -> {
-                directoryService = context.getBean(DirectoryService.class);
+                extensionRegistry = context.getBean(UserExtensionRegistry.class);
             });
-            plainDoctor = context.getBean("plainDoctor", Asciidoctor.class);
-            plainDoctorReady.countDown();
-            htmlDoctor = context.getBean("htmlDoctor", Asciidoctor.class);
-            htmlDoctorReady.countDown();
-            nonHtmlDoctor = context.getBean("nonHtmlDoctor", Asciidoctor.class);
-            nonHtmlDoctorReady.countDown();
-            revealDoctor = context.getBean("revealDoctor", Asciidoctor.class);
-            revealDoctorReady.countDown();
+            for (DoctorType type : DoctorType.values()) {
+                AsciidoctorPool pool = new AsciidoctorPool(type,
+                        () -> context.getBean(type.getBeanName(), Asciidoctor.class),
+                        AsciidoctorFactory::checkUserExtensions,
+                        userExtensionMap::remove,
+                        poolSize);
+                pool.seed(context.getBean(type.getBeanName(), Asciidoctor.class));
+                pools.put(type, pool);
+                readyLatches.get(type).countDown();
+                StartupTrace.mark("doctor." + type.name().toLowerCase() + ".ready");
+            }
+            initialized = true;
         });
     }
 
     private static void checkUserExtensions(Asciidoctor doctor) {
-        if (Objects.isNull(directoryService)) {
+        if (Objects.isNull(extensionRegistry)) {
             return;
         }
-        Path workingDir = directoryService.workingDirectory();
-        Path libDir = workingDir.resolve(".asciidoctor/lib");
-        if (Files.notExists(libDir)) {
-            UserExtension userExtension = userExtensionMap.get(doctor);
-            if (Objects.nonNull(userExtension)) {
-                userExtension.registerExtensions(doctor, new ArrayList<>());
+        UserExtensionRegistry.Snapshot snapshot = extensionRegistry.snapshot();
+        UserExtension userExtension = userExtensionMap.get(doctor);
+        if (Objects.isNull(userExtension)) {
+            if (snapshot.extensions().isEmpty()) {
+                return;
             }
-            return;
+            userExtension = userExtensionMap.computeIfAbsent(doctor, adoc -> {
+                UserExtension extension = new UserExtension(extensionRegistry);
+                extension.setExtensionGroup(adoc.createGroup());
+                return extension;
+            });
         }
+        userExtension.registerExtensions(doctor, snapshot);
+    }
 
-        List<Path> extensions = IOHelper.walk(libDir, 2)
-                .filter(p -> p.toString().endsWith(".rb") || p.toString().endsWith(".jar"))
-                .sorted().toList();
-
-        UserExtension userExtension = userExtensionMap.compute(doctor, (adoc, uEx) -> {
-            if (Objects.nonNull(uEx)) {
-                return uEx;
-            }
-            UserExtension extension = new UserExtension();
-            extension.setExtensionGroup(adoc.createGroup());
-            return extension;
-        });
-        userExtension.registerExtensions(doctor, extensions);
+    /**
+     * Leases a runtime of the given type, waits if all runtimes of the type are in use
+     */
+    public static DoctorLease lease(DoctorType type) {
+        waitLatch(readyLatches.get(type));
+        return pools.get(type).lease();
     }
 
-    public static Asciidoctor getHtmlDoctor() {
-        waitLatch(htmlDoctorReady);
-        checkUserExtensions(htmlDoctor);
-        return htmlDoctor;
+    /**
+     * Leases an idle runtime of the given type, never waits for a busy runtime nor creates a new one
+     */
+    public static Optional<DoctorLease> tryLease(DoctorType type) {
+        waitLatch(readyLatches.get(type));
+        return pools.get(type).tryLease();
     }
 
-    public static Asciidoctor getNonHtmlDoctor() {
-        waitLatch(nonHtmlDoctorReady);
-        checkUserExtensions(nonHtmlDoctor);
-        return nonHtmlDoctor;
+    /**
+     * @return true once the first runtime of each type is created
+     */
+    public static boolean isInitialized() {
+        return initialized;
     }
 
-    public static Asciidoctor getPlainDoctor() {
-        waitLatch(plainDoctorReady);
-        checkUserExtensions(plainDoctor);
-        return plainDoctor;
+    /**
+     * Sets the max number of runtimes per type
+     */
+    public static void setPoolSize(int size) {
+        poolSize = Math.max(1, size);
+        pools.values().forEach(pool -> pool.setMaxSize(poolSize));
     }
 
-    public static Asciidoctor getRevealDoctor() {
-        waitLatch(revealDoctorReady);
-        checkUserExtensions(revealDoctor);
-        return revealDoctor;
+    public static Map<DoctorType, AsciidoctorPool> getPools() {
+        return Collections.unmodifiableMap(pools);
     }
 
     public void initializeDoctors() {
         Thread.startVirtualThread(() -> {
-            IntStream.rangeClosed(1, 4)
+            IntStream.rangeClosed(1, DoctorType.values().length)
                     .forEach(i -> {
                         Asciidoctor asciidoctor = Asciidoctor.Factory.create();
                         blockingQueue.add(asciidoctor);
@@ -121,6 +132,9 @@ public class AsciidoctorFactory {
     }
 
     public static Asciidoctor getAsciidoctor() {
+        if (prewarmed.getAndDecrement() <= 0) {
+            return Asciidoctor.Factory.create();
+        }
         Asciidoctor doctor;
         try {
             doctor = blockingQueue.take();
@@ -130,6 +144,11 @@ public class AsciidoctorFactory {
         return doctor;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(AsciidoctorPool::close);
+    }
+
     private static void waitLatch(CountDownLatch countDownLatch) {
         try {
             countDownLatch.await();
@@ -0,0 +1,275 @@
+package com.kodedu.service;
+
+import org.asciidoctor.Asciidoctor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pool of Asciidoctor runtimes of one {@link DoctorType}.
+ * <p>
+ * Runtimes are leased exclusively, see {@link #lease()}. The pool grows lazily up to its max size,
+ * idle runtimes are reused most recently used first so that the hot ones stay warm.
+ * Runtimes which were idle for a long time or whose last lease failed are health checked before reuse.
+ */
+public class AsciidoctorPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsciidoctorPool.class);
+
+    private static final long HEALTH_CHECK_IDLE_MS = 60_000;
+
+    private record Idle(Asciidoctor asciidoctor, long since, boolean suspect) {
+    }
+
+    private final DoctorType type;
+    private final Supplier<Asciidoctor> factory;
+    private final Consumer<Asciidoctor> onLease;
+    private final Consumer<Asciidoctor> onDiscard;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private int size;
+    private int maxSize;
+    private boolean closed;
+
+    /**
+     * @param factory creates a new configured runtime
+     * @param onLease applied to the runtime on every lease
+     * @param onDiscard applied to the runtime before it is shut down
+     */
+    public AsciidoctorPool(DoctorType type, Supplier<Asciidoctor> factory, Consumer<Asciidoctor> onLease,
+                           Consumer<Asciidoctor> onDiscard, int maxSize) {
+        this.type = type;
+        this.factory = factory;
+        this.onLease = onLease;
+        this.onDiscard = onDiscard;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * Adds an already created runtime to the pool
+     */
+    public void seed(Asciidoctor asciidoctor) {
+        lock.lock();
+        try {
+            size++;
+            idle.push(new Idle(asciidoctor, System.currentTimeMillis(), false));
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a runtime is available, the lease must be closed after use
+     *
+     * @throws CancellationException if the thread is interrupted while waiting, its interrupt flag is kept
+     */
+    public DoctorLease lease() {
+        return newLease(acquire());
+    }
+
+    /**
+     * Leases an idle runtime without waiting and without creating a new one
+     *
+     * @return empty if no runtime is idle
+     */
+    public Optional<DoctorLease> tryLease() {
+        Asciidoctor asciidoctor = acquireIdle();
+        return Objects.isNull(asciidoctor) ? Optional.empty() : Optional.of(newLease(asciidoctor));
+    }
+
+    private DoctorLease newLease(Asciidoctor asciidoctor) {
+        try {
+            onLease.accept(asciidoctor);
+        } catch (RuntimeException e) {
+            release(asciidoctor, true);
+            throw e;
+        }
+        return new DoctorLease(this, asciidoctor);
+    }
+
+    private Asciidoctor acquireIdle() {
+        while (true) {
+            Idle candidate;
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException(type + " pool is closed");
+                }
+                candidate = idle.poll();
+            } finally {
+                lock.unlock();
+            }
+
+            if (Objects.isNull(candidate)) {
+                return null;
+            }
+
+            if (needsHealthCheck(candidate) && !isHealthy(candidate.asciidoctor())) {
+                logger.warn("Discarding unhealthy {} runtime", type);
+                discard(candidate.asciidoctor());
+                continue;
+            }
+            return candidate.asciidoctor();
+        }
+    }
+
+    private Asciidoctor acquire() {
+        while (true) {
+            Idle candidate;
+            lock.lock();
+            try {
+                while (idle.isEmpty() && size >= maxSize && !closed) {
+                    available.await();
+                }
+                if (closed) {
+                    throw new IllegalStateException(type + " pool is closed");
+                }
+                candidate = idle.poll();
+                if (Objects.isNull(candidate)) {
+                    size++;
+                }
+            } catch (InterruptedException e) {
+                // Superseded renders are cancelled by interrupting them
+                Thread.currentThread().interrupt();
+                CancellationException cancellation = new CancellationException("Interrupted while waiting for a " + type + " runtime");
+                cancellation.initCause(e);
+                throw cancellation;
+            } finally {
+                lock.unlock();
+            }
+
+            if (Objects.isNull(candidate)) {
+                return create();
+            }
+
+            if (needsHealthCheck(candidate) && !isHealthy(candidate.asciidoctor())) {
+                logger.warn("Discarding unhealthy {} runtime", type);
+                discard(candidate.asciidoctor());
+                continue;
+            }
+            return candidate.asciidoctor();
+        }
+    }
+
+    private Asciidoctor create() {
+        try {
+            logger.debug("Creating new {} runtime", type);
+            return factory.get();
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                size--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    void release(Asciidoctor asciidoctor, boolean suspect) {
+        lock.lock();
+        try {
+            if (closed || size > maxSize) {
+                discard(asciidoctor);
+                return;
+            }
+            idle.push(new Idle(asciidoctor, System.currentTimeMillis(), suspect));
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean needsHealthCheck(Idle candidate) {
+        return candidate.suspect() || System.currentTimeMillis() - candidate.since() > HEALTH_CHECK_IDLE_MS;
+    }
+
+    private boolean isHealthy(Asciidoctor asciidoctor) {
+        try {
+            return Objects.nonNull(asciidoctor.asciidoctorVersion());
+        } catch (Exception e) {
+            logger.debug("Health check of {} runtime has failed", type, e);
+            return false;
+        }
+    }
+
+    private void discard(Asciidoctor asciidoctor) {
+        lock.lock();
+        try {
+            size--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        Thread.startVirtualThread(() -> {
+            try {
+                onDiscard.accept(asciidoctor);
+                asciidoctor.shutdown();
+            } catch (Exception e) {
+                logger.debug("Problem occured while shutting down {} runtime", type, e);
+            }
+        });
+    }
+
+    public void setMaxSize(int maxSize) {
+        List<Asciidoctor> trimmed = new ArrayList<>();
+        lock.lock();
+        try {
+            this.maxSize = Math.max(1, maxSize);
+            while (size - trimmed.size() > this.maxSize && !idle.isEmpty()) {
+                trimmed.add(idle.removeLast().asciidoctor());
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        trimmed.forEach(this::discard);
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdle() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        List<Asciidoctor> idleDoctors = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            idle.forEach(i -> idleDoctors.add(i.asciidoctor()));
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        idleDoctors.forEach(this::discard);
+    }
+}
@@ -0,0 +1,178 @@
+package com.kodedu.service;
+
+import com.kodedu.boot.AppStarter;
+import com.kodedu.helper.IOHelper;
+import org.asciidoctor.Options;
+import org.asciidoctor.SafeMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.kodedu.service.AsciidoctorFactory.tryLease;
+
+/**
+ * Converts a built-in sample through each runtime right after startup, so that JRuby class loading,
+ * JIT and extension registration are not paid by the first preview of the session.
+ * <p>
+ * Backends are set by <code>application.warmup.backends</code>, an empty value disables the warm-up.
+ * Only idle runtimes are used and each backend is a lease of its own, so a preview started meanwhile
+ * waits for one backend at most and never creates a cold runtime because of the warm-up.
+ * Durations are logged and recorded as <code>startup.warmup.*</code> timers.
+ */
+@Component
+public class AsciidoctorWarmUp {
+
+    private final Logger logger = LoggerFactory.getLogger(AsciidoctorWarmUp.class);
+
+    private static final String SAMPLE = """
+            = Warm-up Sample
+            :toc:
+            :icons: font
+
+            == Section
+
+            A paragraph with *bold*, _italic_, `monospace` text and a https://asciidoctor.org[link].
+
+            * Item
+            ** Nested item
+            . Ordered item
+
+            NOTE: An admonition.
+
+            [source,java]
+            ----
+            System.out.println("Hello");
+            ----
+
+            [cols="1,1",options="header"]
+            |===
+            |Name |Value
+            |a |1
+            |===
+
+            == Another Section
+
+            [quote]
+            ____
+            A quote.
+            ____
+            """;
+
+    private final RenderMetrics renderMetrics;
+    private final String[] backends;
+
+    @Autowired
+    public AsciidoctorWarmUp(RenderMetrics renderMetrics,
+                             @Value("${application.warmup.backends:}") String[] backends) {
+        this.renderMetrics = renderMetrics;
+        this.backends = backends;
+    }
+
+    @EventListener
+    public void handleContextRefreshEvent(ContextRefreshedEvent event) {
+        if (backends.length == 0 || (Objects.nonNull(AppStarter.config) && AppStarter.config.isCmdStart())) {
+            return;
+        }
+
+        // Backends of the same runtime are converted one after another, so that pools don't grow for the warm-up
+        Map<DoctorType, List<String>> backendMap = new EnumMap<>(DoctorType.class);
+        backendMap.put(DoctorType.PLAIN, List.of());
+        for (String backend : backends) {
+            String name = backend.trim();
+            if (!name.isEmpty()) {
+                backendMap.computeIfAbsent(doctorType(name), type -> new ArrayList<>()).add(name);
+            }
+        }
+
+        long start = System.nanoTime();
+        CountDownLatch latch = new CountDownLatch(backendMap.size());
+        backendMap.forEach((type, backendList) -> Thread.startVirtualThread(() -> {
+            try {
+                warmUp(type, backendList);
+            } finally {
+                latch.countDown();
+            }
+        }));
+
+        Thread.startVirtualThread(() -> {
+            try {
+                latch.await();
+                long duration = System.nanoTime() - start;
+                renderMetrics.record("startup.warmup", duration, TimeUnit.NANOSECONDS);
+                logger.info("Asciidoctor warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(duration));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void warmUp(DoctorType type, List<String> backendList) {
+        if (backendList.isEmpty()) {
+            warmUp(type, "load", lease -> lease.load(SAMPLE, Options.builder().safe(SafeMode.UNSAFE).build()));
+        }
+        for (String backend : backendList) {
+            warmUp(type, backend, lease -> convert(lease, backend));
+        }
+    }
+
+    private void warmUp(DoctorType type, String name, Consumer<DoctorLease> action) {
+        Optional<DoctorLease> idleLease = tryLease(type);
+        if (idleLease.isEmpty()) {
+            // a busy runtime is warmed by the conversion using it
+            logger.debug("Skipping {} warm-up of {}, no runtime is idle", name, type);
+            return;
+        }
+        try (DoctorLease lease = idleLease.get();
+             RenderMetrics.Stage stage = renderMetrics.stage("startup.warmup." + name)) {
+            action.accept(lease);
+        } catch (Exception e) {
+            logger.warn("Asciidoctor warm-up of {} with {} failed", type, name, e);
+        }
+    }
+
+    private void convert(DoctorLease lease, String backend) {
+        if (DoctorType.NON_HTML != doctorType(backend)) {
+            lease.convert(SAMPLE, Options.builder()
+                    .backend(backend)
+                    .safe(SafeMode.UNSAFE)
+                    .headerFooter(true)
+                    .toFile(false)
+                    .build());
+            return;
+        }
+
+        // pdf and epub3 converters write binary output, it is discarded
+        Path tempFile = IOHelper.createTempFile("." + backend);
+        if (Objects.isNull(tempFile)) {
+            return;
+        }
+        try {
+            lease.convert(SAMPLE, Options.builder()
+                    .backend(backend)
+                    .safe(SafeMode.UNSAFE)
+                    .baseDir(tempFile.getParent().toFile())
+                    .toFile(tempFile.toFile())
+                    .build());
+        } finally {
+            IOHelper.deleteIfExists(tempFile);
+        }
+    }
+
+    private static DoctorType doctorType(String backend) {
+        return switch (backend) {
+            case "html", "html5", "xhtml", "xhtml5", "docbook", "docbook5" -> DoctorType.HTML;
+            case "revealjs" -> DoctorType.REVEAL;
+            default -> DoctorType.NON_HTML;
+        };
+    }
+}
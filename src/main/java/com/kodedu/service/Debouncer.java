@@ -0,0 +1,207 @@
+package com.kodedu.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyed debouncer/throttler, see {@link ThreadService#debouncer(String)}.
+ * <p>
+ * Calls are coalesced, only the last submitted runnable is executed. The runnable can be executed on the
+ * leading edge (immediately, when the debouncer is idle) and/or on the trailing edge (after <code>delay</code>
+ * without a new call, but not later than <code>maxWait</code> after the first pending call).
+ * Runnables of the same debouncer never run concurrently, calls made while running are executed once it is finished.
+ * <p>
+ * In adaptive mode the delay follows the latencies reported with {@link #record(long, TimeUnit)}:
+ * the delay is the p50 latency, the max wait is twice the p95 latency and the leading edge is
+ * only used while the p95 latency is low enough to be rendered instantly.
+ */
+public class Debouncer {
+
+    private static final Logger logger = LoggerFactory.getLogger(Debouncer.class);
+
+    private static final int SAMPLE_SIZE = 32;
+    private static final long INSTANT_MS = 100;
+
+    private final String id;
+    private final ThreadService threadService;
+
+    private long delay;
+    private long maxWait = -1;
+    private boolean leading;
+    private boolean trailing = true;
+
+    private boolean adaptive;
+    private long minDelay;
+    private long maxDelay;
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private int sampleCount;
+
+    private Runnable pending;
+    private long firstPendingAt;
+    private long generation;
+    private boolean scheduled;
+    private boolean running;
+
+    public Debouncer(String id, ThreadService threadService) {
+        this.id = id;
+        this.threadService = threadService;
+    }
+
+    public synchronized Debouncer delay(long delay, TimeUnit timeUnit) {
+        this.delay = timeUnit.toMillis(delay);
+        return this;
+    }
+
+    /**
+     * @param maxWait upper bound of the trailing delay while calls keep coming, negative for no bound
+     */
+    public synchronized Debouncer maxWait(long maxWait, TimeUnit timeUnit) {
+        this.maxWait = maxWait < 0 ? -1 : timeUnit.toMillis(maxWait);
+        return this;
+    }
+
+    public synchronized Debouncer leading(boolean leading) {
+        this.leading = leading;
+        return this;
+    }
+
+    public synchronized Debouncer trailing(boolean trailing) {
+        this.trailing = trailing;
+        return this;
+    }
+
+    /**
+     * Derives the delay and the max wait from the recorded latencies, bounded by the given delays
+     */
+    public synchronized Debouncer adaptive(long minDelay, long maxDelay, TimeUnit timeUnit) {
+        this.adaptive = true;
+        this.minDelay = timeUnit.toMillis(minDelay);
+        this.maxDelay = timeUnit.toMillis(maxDelay);
+        return this;
+    }
+
+    public synchronized void record(long latency, TimeUnit timeUnit) {
+        samples[sampleCount % SAMPLE_SIZE] = timeUnit.toMillis(latency);
+        sampleCount++;
+    }
+
+    /**
+     * @param percentile 0-100
+     * @return latency in ms or -1 if nothing is recorded yet
+     */
+    public synchronized long latency(int percentile) {
+        if (sampleCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, Math.min(sampleCount, SAMPLE_SIZE));
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public synchronized void call(Runnable runnable) {
+        long now = System.currentTimeMillis();
+
+        if (running || scheduled) {
+            if (trailing) {
+                pend(runnable, now);
+                if (scheduled) {
+                    schedule(now);
+                }
+            }
+            return;
+        }
+
+        if (isLeading()) {
+            execute(runnable);
+            return;
+        }
+
+        if (trailing) {
+            pend(runnable, now);
+            schedule(now);
+        }
+    }
+
+    private void pend(Runnable runnable, long now) {
+        if (Objects.isNull(pending)) {
+            firstPendingAt = now;
+        }
+        pending = runnable;
+    }
+
+    private void schedule(long now) {
+        long wait = currentDelay();
+        long maxWait = currentMaxWait();
+        if (maxWait >= 0) {
+            wait = Math.min(wait, Math.max(0, firstPendingAt + maxWait - now));
+        }
+        long scheduledGeneration = ++generation;
+        scheduled = true;
+        threadService.schedule(() -> fire(scheduledGeneration), wait, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void fire(long firedGeneration) {
+        if (firedGeneration != generation || running) {
+            return;
+        }
+        scheduled = false;
+        Runnable runnable = pending;
+        pending = null;
+        if (Objects.nonNull(runnable)) {
+            execute(runnable);
+        }
+    }
+
+    private void execute(Runnable runnable) {
+        running = true;
+        threadService.executor().execute(() -> {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                logger.error("Problem occured while running debounced task {}", id, e);
+            } finally {
+                finished();
+            }
+        });
+    }
+
+    private synchronized void finished() {
+        running = false;
+        if (Objects.nonNull(pending)) {
+            schedule(System.currentTimeMillis());
+        }
+    }
+
+    private boolean isLeading() {
+        if (!leading) {
+            return false;
+        }
+        if (!adaptive || sampleCount == 0) {
+            return true;
+        }
+        return latency(95) <= INSTANT_MS;
+    }
+
+    private long currentDelay() {
+        if (!adaptive || sampleCount == 0) {
+            return delay;
+        }
+        return clamp(latency(50), minDelay, maxDelay);
+    }
+
+    private long currentMaxWait() {
+        if (!adaptive || sampleCount == 0) {
+            return maxWait;
+        }
+        return clamp(latency(95) * 2, currentDelay(), maxDelay * 4);
+    }
+
+    private long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
@@ -0,0 +1,233 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import com.kodedu.service.cache.BinaryCacheService;
+import jakarta.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Disk backed, content addressed cache of the images generated by the diagram, chart, tree and formula extensions.
+ * <p>
+ * An image is keyed by the SHA-256 of its renderer, the application version and the inputs which change the output
+ * (source, options, DPI, zoom...), not by its target, so it survives restarts and is shared by identical blocks.
+ * The cache lives in the <code>diagram-cache</code> folder of the config folder, it is a {@link DiskLruStore}
+ * bounded in size, least recently used entries are evicted first. Hits and misses are counted in {@link RenderMetrics}.
+ * <p>
+ * Images written to their target in this session are remembered by file, or by target for <code>/afx/cache</code>,
+ * so that restoring an image whose file is unchanged since doesn't read it again.
+ */
+@Component
+public class DiagramCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagramCache.class);
+
+    private static final String CACHE_FOLDER = "diagram-cache";
+    private static final long DEFAULT_MAX_BYTES = 256 * 1024 * 1024;
+
+    /**
+     * @param renderer extension which generated the image
+     * @param created  epoch millis when the image was generated
+     */
+    record Entry(String renderer, long size, long created) {
+    }
+
+    /**
+     * @param state state of the written file, see {@link IncludeGraph#fileState(Path)}
+     */
+    private record Written(String key, String state) {
+    }
+
+    private final Map<String, Written> written = new ConcurrentHashMap<>();
+
+    private final DiskLruStore<Entry> store;
+    private final BinaryCacheService binaryCacheService;
+    private final RenderMetrics renderMetrics;
+    private final String version;
+
+    @Autowired
+    public DiagramCache(BinaryCacheService binaryCacheService, RenderMetrics renderMetrics,
+                        @Value("${application.config.folder}") String configFolder,
+                        @Value("${application.version}") String version) {
+        this(IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder).resolve(CACHE_FOLDER),
+                DEFAULT_MAX_BYTES, version, binaryCacheService, renderMetrics);
+    }
+
+    public DiagramCache(Path directory, long maxBytes, String version,
+                        BinaryCacheService binaryCacheService, RenderMetrics renderMetrics) {
+        this.store = new DiskLruStore<>(directory, ".img", maxBytes,
+                entry -> Json.createObjectBuilder()
+                        .add("renderer", entry.renderer())
+                        .add("size", entry.size())
+                        .add("created", entry.created())
+                        .build(),
+                object -> new Entry(object.getString("renderer"),
+                        object.getJsonNumber("size").longValue(),
+                        object.getJsonNumber("created").longValue()),
+                Entry::size);
+        this.version = version;
+        this.binaryCacheService = binaryCacheService;
+        this.renderMetrics = renderMetrics;
+    }
+
+    /**
+     * Key of an image, the application version is part of it since it bundles the renderers
+     *
+     * @param inputs everything which changes the generated image
+     */
+    public String key(String renderer, Object... inputs) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, renderer);
+        update(digest, version);
+        for (Object input : inputs) {
+            update(digest, String.valueOf(input));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Writes the cached image to its target, a file which has the same content already is left untouched
+     *
+     * @param imagePath file of the image, unused for <code>/afx/cache</code> targets
+     * @return false if the image isn't cached, it has to be generated
+     */
+    public boolean restore(String key, String imageTarget, Path imagePath) {
+        boolean cached = store.contains(key);
+        Written last = written.get(location(imageTarget, imagePath));
+        if (cached && Objects.nonNull(last) && last.key().equals(key)
+                && last.state().equals(state(imageTarget, imagePath))) {
+            return true;
+        }
+        if (!cached) {
+            renderMetrics.increment("diagramCache.miss");
+            return false;
+        }
+        Path imageFile = store.dataFile(key);
+        try {
+            if (isCachedResource(imageTarget)) {
+                binaryCacheService.putBinary(imageTarget, Files.readAllBytes(imageFile));
+            } else if (!sameContent(imageFile, imagePath)) {
+                Path parent = imagePath.getParent();
+                if (Objects.nonNull(parent)) {
+                    IOHelper.createDirectories(parent);
+                }
+                Files.copy(imageFile, imagePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.debug("Couldn't restore {} from diagram cache", imageTarget, e);
+            if (Files.notExists(imageFile)) {
+                store.remove(key);
+            }
+            renderMetrics.increment("diagramCache.miss");
+            return false;
+        }
+        store.touch(key);
+        written(key, imageTarget, imagePath);
+        renderMetrics.increment("diagramCache.hit");
+        return true;
+    }
+
+    /**
+     * Writes the generated image to its target and caches it
+     *
+     * @param imagePath file of the image, unused for <code>/afx/cache</code> targets
+     */
+    public void save(String key, String renderer, String imageTarget, Path imagePath, byte[] bytes) {
+        if (isCachedResource(imageTarget)) {
+            binaryCacheService.putBinary(imageTarget, bytes);
+        } else {
+            Path parent = imagePath.getParent();
+            if (Objects.nonNull(parent)) {
+                IOHelper.createDirectories(parent);
+            }
+            IOHelper.writeToFile(imagePath, bytes, CREATE, WRITE, TRUNCATE_EXISTING);
+        }
+        written(key, imageTarget, imagePath);
+        if (!store.put(key, new Entry(renderer, bytes.length, System.currentTimeMillis()), bytes)) {
+            logger.debug("{} image {} isn't kept in diagram cache", renderer, key);
+        }
+    }
+
+    /**
+     * Encodes the image as png, then saves it like {@link #save(String, String, String, Path, byte[])}
+     */
+    public void save(String key, String renderer, String imageTarget, Path imagePath, BufferedImage image) {
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", outputStream);
+            save(key, renderer, imageTarget, imagePath, outputStream.toByteArray());
+        } catch (IOException e) {
+            logger.error("Problem occured while writing {}", imageTarget, e);
+        }
+    }
+
+    private boolean isCachedResource(String imageTarget) {
+        return imageTarget.contains("/afx/cache");
+    }
+
+    private void written(String key, String imageTarget, Path imagePath) {
+        written.put(location(imageTarget, imagePath), new Written(key, state(imageTarget, imagePath)));
+    }
+
+    private String location(String imageTarget, Path imagePath) {
+        if (isCachedResource(imageTarget) || Objects.isNull(imagePath)) {
+            return imageTarget;
+        }
+        return imagePath.toAbsolutePath().normalize().toString();
+    }
+
+    private String state(String imageTarget, Path imagePath) {
+        if (isCachedResource(imageTarget) || Objects.isNull(imagePath)) {
+            return binaryCacheService.hasCache(imageTarget) ? "cached" : "missing";
+        }
+        return IncludeGraph.fileState(imagePath);
+    }
+
+    private boolean sameContent(Path imageFile, Path imagePath) throws IOException {
+        return Files.exists(imagePath)
+                && Files.size(imagePath) == Files.size(imageFile)
+                && Files.mismatch(imageFile, imagePath) == -1;
+    }
+
+    public long getBytes() {
+        return store.getBytes();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public void clear() {
+        written.clear();
+        store.clear();
+    }
+}
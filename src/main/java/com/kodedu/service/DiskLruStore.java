@@ -0,0 +1,236 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Bounded disk store of binary entries with their metadata, shared by {@link DiagramCache} and {@link HttpResourceCache}.
+ * <p>
+ * Each entry is a data file and a JSON metadata file named after its key. Data files are written to a temp file
+ * and moved in place, so a crash never leaves a partial entry. The access time is kept as the modification time
+ * of the data file, so that it outlives the session, and least recently used entries are evicted first
+ * when the total size of the data exceeds the max size.
+ *
+ * @param <E> metadata of an entry
+ */
+public class DiskLruStore<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskLruStore.class);
+
+    private final Map<String, E> index = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final String dataSuffix;
+    private final long maxBytes;
+    private final Function<E, JsonObject> writer;
+    private final Function<JsonObject, E> reader;
+    private final ToLongFunction<E> sizer;
+    private volatile boolean loaded;
+
+    /**
+     * @param dataSuffix file suffix of the data files
+     * @param writer     metadata to JSON
+     * @param reader     JSON to metadata, may throw if the JSON is invalid
+     * @param sizer      size of the data of an entry
+     */
+    public DiskLruStore(Path directory, String dataSuffix, long maxBytes,
+                        Function<E, JsonObject> writer, Function<JsonObject, E> reader, ToLongFunction<E> sizer) {
+        this.directory = directory;
+        this.dataSuffix = dataSuffix;
+        this.maxBytes = maxBytes;
+        this.writer = writer;
+        this.reader = reader;
+        this.sizer = sizer;
+    }
+
+    public E get(String key) {
+        load();
+        return index.get(key);
+    }
+
+    public boolean contains(String key) {
+        load();
+        return index.containsKey(key);
+    }
+
+    public Path dataFile(String key) {
+        return directory().resolve(key + dataSuffix);
+    }
+
+    /**
+     * @return the data of the entry, or null if it isn't stored
+     */
+    public byte[] read(String key) {
+        try {
+            return Files.readAllBytes(dataFile(key));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the data and metadata of an entry, then evicts the least recently used entries if needed
+     *
+     * @return false if the data is larger than the store or couldn't be written
+     */
+    public boolean put(String key, E entry, byte[] data) {
+        load();
+        if (data.length > maxBytes) {
+            remove(key);
+            return false;
+        }
+        try {
+            Path temp = Files.createTempFile(directory(), key, ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, dataFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Couldn't store {} in {}", key, directory);
+            return false;
+        }
+        putEntry(key, entry);
+        lastAccess.put(key, System.currentTimeMillis());
+        evict();
+        return true;
+    }
+
+    /**
+     * Replaces the metadata of an entry, its data is left untouched
+     */
+    public void putEntry(String key, E entry) {
+        IOHelper.writeToFile(entryPath(key), writer.apply(entry).toString());
+        index.put(key, entry);
+    }
+
+    /**
+     * Marks the entry as recently used
+     */
+    public void touch(String key) {
+        long now = System.currentTimeMillis();
+        lastAccess.put(key, now);
+        try {
+            Files.setLastModifiedTime(dataFile(key), FileTime.fromMillis(now));
+        } catch (IOException e) {
+            logger.debug("Couldn't touch {} in {}", key, directory);
+        }
+    }
+
+    public void remove(String key) {
+        index.remove(key);
+        lastAccess.remove(key);
+        IOHelper.deleteIfExists(dataFile(key));
+        IOHelper.deleteIfExists(entryPath(key));
+    }
+
+    private Path entryPath(String key) {
+        return directory().resolve(key + ".json");
+    }
+
+    private E readEntry(Path path) {
+        try (Reader fileReader = IOHelper.fileReader(path);
+             JsonReader jsonReader = Json.createReader(fileReader)) {
+            return reader.apply(jsonReader.readObject());
+        } catch (Exception e) {
+            logger.debug("Couldn't read entry {}", path);
+            return null;
+        }
+    }
+
+    private synchronized void evict() {
+        long total = getBytes();
+        if (total <= maxBytes) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(index.keySet());
+        keys.sort(Comparator.comparingLong(k -> lastAccess.getOrDefault(k, 0L)));
+        for (String key : keys) {
+            if (total <= maxBytes) {
+                break;
+            }
+            E entry = index.get(key);
+            if (Objects.nonNull(entry)) {
+                total -= sizer.applyAsLong(entry);
+                logger.debug("Evicting {} from {}", key, directory);
+                remove(key);
+            }
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            try (Stream<Path> stream = Files.list(directory())) {
+                stream.forEach(path -> {
+                    String fileName = path.getFileName().toString();
+                    if (fileName.endsWith(".tmp")) {
+                        IOHelper.deleteIfExists(path);
+                        return;
+                    }
+                    if (!fileName.endsWith(".json")) {
+                        return;
+                    }
+                    String key = fileName.substring(0, fileName.length() - ".json".length());
+                    E entry = readEntry(path);
+                    Path dataFile = dataFile(key);
+                    if (Objects.isNull(entry) || Files.notExists(dataFile)) {
+                        IOHelper.deleteIfExists(path);
+                        IOHelper.deleteIfExists(dataFile);
+                        return;
+                    }
+                    index.put(key, entry);
+                    FileTime modified = IOHelper.getLastModifiedTime(dataFile);
+                    lastAccess.put(key, Objects.nonNull(modified) ? modified.toMillis() : 0L);
+                });
+            } catch (IOException e) {
+                logger.warn("Couldn't load {}", directory);
+            }
+            loaded = true;
+        }
+        evict();
+    }
+
+    private Path directory() {
+        IOHelper.createDirectories(directory);
+        return directory;
+    }
+
+    public long getBytes() {
+        load();
+        return index.values().stream().mapToLong(sizer).sum();
+    }
+
+    public int size() {
+        load();
+        return index.size();
+    }
+
+    public void clear() {
+        load();
+        new ArrayList<>(index.keySet()).forEach(this::remove);
+    }
+}
@@ -0,0 +1,88 @@
+package com.kodedu.service;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Options;
+import org.asciidoctor.ast.Document;
+import org.asciidoctor.extension.ExtensionGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Exclusive use of a pooled Asciidoctor runtime, see {@link AsciidoctorFactory#lease(DoctorType)}
+ * <pre>
+ * try (DoctorLease lease = AsciidoctorFactory.lease(DoctorType.HTML)) {
+ *     lease.convert(content, options);
+ * }
+ * </pre>
+ */
+public class DoctorLease implements AutoCloseable {
+
+    private final AsciidoctorPool pool;
+    private final Asciidoctor asciidoctor;
+    private final List<ExtensionGroup> extensionGroups = new ArrayList<>();
+    private boolean failed;
+    private boolean closed;
+
+    DoctorLease(AsciidoctorPool pool, Asciidoctor asciidoctor) {
+        this.pool = pool;
+        this.asciidoctor = asciidoctor;
+    }
+
+    public Asciidoctor asciidoctor() {
+        return asciidoctor;
+    }
+
+    public String convert(String content, Options options) {
+        try {
+            return asciidoctor.convert(content, options);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    public Document load(String content, Options options) {
+        try {
+            return asciidoctor.load(content, options);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Registers extensions only for the duration of this lease
+     */
+    public DoctorLease extensions(Consumer<ExtensionGroup> consumer) {
+        ExtensionGroup extensionGroup = asciidoctor.createGroup();
+        consumer.accept(extensionGroup);
+        extensionGroup.register();
+        extensionGroups.add(extensionGroup);
+        return this;
+    }
+
+    /**
+     * Marks the runtime to be health checked before it is leased again
+     */
+    public void failed() {
+        this.failed = true;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            extensionGroups.forEach(ExtensionGroup::unregister);
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            pool.release(asciidoctor, failed);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.kodedu.service;
+
+/**
+ * Kinds of Asciidoctor runtimes, each kind has its own pool in {@link AsciidoctorFactory}
+ */
+public enum DoctorType {
+
+    /**
+     * Used for plain load of a document, to read attributes, outline etc.
+     */
+    PLAIN("plainDoctor"),
+    /**
+     * Used for standard html5 and docbook backends
+     */
+    HTML("htmlDoctor"),
+    /**
+     * Used for non-html5 backends like pdf, epub3 etc.
+     */
+    NON_HTML("nonHtmlDoctor"),
+    /**
+     * Used for reveal.js backend
+     */
+    REVEAL("revealDoctor");
+
+    private final String beanName;
+
+    DoctorType(String beanName) {
+        this.beanName = beanName;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+}
@@ -0,0 +1,269 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import jakarta.annotation.PostConstruct;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import javafx.scene.text.Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Registers the fonts bundled in <code>conf/fonts</code> and answers font lookups of the configuration forms.
+ * <p>
+ * Each font file is loaded once, in parallel. What was registered is kept in a small manifest, so that
+ * files providing a font already provided by another file (e.g. variable and static cuts of the same face)
+ * are skipped on the next launches, and the costly detection of monospaced system fonts is only redone
+ * when the installed system fonts change.
+ */
+@Component
+public class FontRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(FontRegistry.class);
+
+    private static final String MANIFEST = "font-manifest.json";
+    private static final int VERSION = 1;
+    private static final long LOAD_TIMEOUT_SECONDS = 10;
+
+    /**
+     * @param file   path relative to the fonts folder
+     * @param family registered family, null if the file couldn't be loaded
+     * @param name   full font name, files with the same name provide the same font
+     */
+    record FontEntry(String file, long size, long modified, String family, String name) {
+    }
+
+    private final Map<String, FontEntry> fonts = new ConcurrentSkipListMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    private Map<String, FontEntry> previousFonts = Map.of();
+    // hash of the installed system font families the monospaced families were detected for
+    private String systemFontsKey;
+    private List<String> cachedMonospacedFamilies = List.of();
+    private volatile List<String> monospacedFamilies;
+
+    @Value("${application.config.folder}")
+    private String configFolder;
+
+    @PostConstruct
+    public void initialize() {
+        readManifest();
+        Thread.startVirtualThread(() -> {
+            try {
+                loadBundledFonts(IOHelper.getInstallationPath().resolve("conf/fonts"));
+            } catch (Exception e) {
+                logger.warn("Couldn't load fonts", e);
+            } finally {
+                loaded.countDown();
+            }
+        });
+    }
+
+    private void loadBundledFonts(Path fontsDir) throws Exception {
+        long start = System.currentTimeMillis();
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(fontsDir)) {
+            files = stream.filter(f -> f.toString().endsWith(".ttf")).sorted().toList();
+        }
+
+        // the first file of each font name wins, static cuts sort before variable fonts
+        Set<String> knownNames = new HashSet<>();
+        int skipped = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path file : files) {
+                String relative = fontsDir.relativize(file).toString().replace('\\', '/');
+                long size = Files.size(file);
+                long modified = Files.getLastModifiedTime(file).toMillis();
+
+                FontEntry previous = previousFonts.get(relative);
+                if (Objects.nonNull(previous) && previous.size() == size && previous.modified() == modified
+                        && Objects.nonNull(previous.name()) && !knownNames.add(previous.name())) {
+                    fonts.put(relative, previous);
+                    skipped++;
+                    continue;
+                }
+
+                executor.submit(() -> {
+                    Font font = null;
+                    try (InputStream in = Files.newInputStream(file)) {
+                        font = Font.loadFont(in, 12);
+                    } catch (Exception e) {
+                        logger.error("Error when loading font {}", file, e);
+                    }
+                    fonts.put(relative, new FontEntry(relative, size, modified,
+                            Objects.nonNull(font) ? font.getFamily() : null,
+                            Objects.nonNull(font) ? font.getName() : null));
+                });
+            }
+        }
+
+        logger.debug("Registered {} of {} font files in {} ms", files.size() - skipped, files.size(),
+                System.currentTimeMillis() - start);
+        writeManifest();
+    }
+
+    /**
+     * Waits until the bundled fonts are registered, the first lookups may come before
+     */
+    public void awaitLoaded() {
+        try {
+            loaded.await(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * All font families usable by the user interface, bundled ones included
+     */
+    public List<String> getFamilies() {
+        awaitLoaded();
+        return Font.getFamilies();
+    }
+
+    /**
+     * Families registered from <code>conf/fonts</code>
+     */
+    public Set<String> getBundledFamilies() {
+        awaitLoaded();
+        return fonts.values().stream()
+                .map(FontEntry::family)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    public boolean isAvailable(String family) {
+        return getBundledFamilies().contains(family) || getFamilies().contains(family);
+    }
+
+    /**
+     * System font families whose <code>i</code> and <code>m</code> have the same width
+     */
+    public List<String> getMonospacedFamilies() {
+        if (Objects.isNull(monospacedFamilies)) {
+            awaitLoaded();
+            synchronized (this) {
+                if (Objects.isNull(monospacedFamilies)) {
+                    GraphicsEnvironment environment = GraphicsEnvironment.getLocalGraphicsEnvironment();
+                    String key = DigestUtils.md5DigestAsHex(String.join("\n", environment.getAvailableFontFamilyNames())
+                            .getBytes(StandardCharsets.UTF_8));
+                    if (Objects.equals(key, systemFontsKey)) {
+                        monospacedFamilies = cachedMonospacedFamilies;
+                    } else {
+                        monospacedFamilies = detectMonospacedFamilies(environment);
+                        systemFontsKey = key;
+                        writeManifest();
+                    }
+                }
+            }
+        }
+        return monospacedFamilies;
+    }
+
+    private List<String> detectMonospacedFamilies(GraphicsEnvironment environment) {
+        FontRenderContext frc = new FontRenderContext(null, RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT, RenderingHints.VALUE_FRACTIONALMETRICS_DEFAULT);
+        List<String> detectedFonts = new ArrayList<>();
+        for (java.awt.Font font : environment.getAllFonts()) {
+            Rectangle2D iBounds = font.getStringBounds("i", frc);
+            Rectangle2D mBounds = font.getStringBounds("m", frc);
+            if (iBounds.getWidth() == mBounds.getWidth()) {
+                detectedFonts.add(font.getFamily());
+            }
+        }
+        return detectedFonts.stream().distinct().toList();
+    }
+
+    private Path manifestPath() {
+        return IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder).resolve(MANIFEST);
+    }
+
+    private void readManifest() {
+        Path path = manifestPath();
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Reader reader = IOHelper.fileReader(path);
+             JsonReader jsonReader = Json.createReader(reader)) {
+            JsonObject manifest = jsonReader.readObject();
+            if (manifest.getInt("version", 0) != VERSION) {
+                return;
+            }
+            Map<String, FontEntry> entries = new HashMap<>();
+            for (JsonValue value : manifest.getJsonArray("fonts")) {
+                JsonObject font = value.asJsonObject();
+                FontEntry entry = new FontEntry(font.getString("file"),
+                        font.getJsonNumber("size").longValue(),
+                        font.getJsonNumber("modified").longValue(),
+                        font.getString("family", null),
+                        font.getString("name", null));
+                entries.put(entry.file(), entry);
+            }
+            previousFonts = entries;
+            if (manifest.containsKey("systemFontsKey")) {
+                systemFontsKey = manifest.getString("systemFontsKey");
+                cachedMonospacedFamilies = manifest.getJsonArray("monospaced").getValuesAs(JsonString.class)
+                        .stream().map(JsonString::getString).toList();
+            }
+        } catch (Exception e) {
+            logger.warn("Couldn't read font manifest {}", path, e);
+        }
+    }
+
+    private synchronized void writeManifest() {
+        JsonArrayBuilder fontArray = Json.createArrayBuilder();
+        for (FontEntry entry : fonts.values()) {
+            JsonObjectBuilder builder = Json.createObjectBuilder()
+                    .add("file", entry.file())
+                    .add("size", entry.size())
+                    .add("modified", entry.modified());
+            Optional.ofNullable(entry.family()).ifPresent(family -> builder.add("family", family));
+            Optional.ofNullable(entry.name()).ifPresent(name -> builder.add("name", name));
+            fontArray.add(builder);
+        }
+
+        JsonObjectBuilder manifest = Json.createObjectBuilder()
+                .add("version", VERSION)
+                .add("fonts", fontArray);
+        List<String> monospaced = Objects.nonNull(monospacedFamilies) ? monospacedFamilies : cachedMonospacedFamilies;
+        if (Objects.nonNull(systemFontsKey)) {
+            manifest.add("systemFontsKey", systemFontsKey)
+                    .add("monospaced", Json.createArrayBuilder(monospaced));
+        }
+
+        Path path = manifestPath();
+        IOHelper.createDirectories(path.getParent());
+        IOHelper.writeToFile(path, manifest.build().toString(), CREATE, WRITE, TRUNCATE_EXISTING);
+    }
+}
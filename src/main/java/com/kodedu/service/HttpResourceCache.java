@@ -0,0 +1,311 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Disk backed cache of remote resources, such as remote includes and images.
+ * <p>
+ * Responses are stored with their validators (<code>ETag</code>, <code>Last-Modified</code>) and freshness
+ * (<code>Cache-Control: max-age</code>, <code>Expires</code> or a heuristic based on <code>Last-Modified</code>).
+ * Fresh entries are served from disk, stale entries are served from disk too while they are revalidated in background.
+ * <code>no-cache</code> entries are revalidated before use, <code>no-store</code> responses are never written.
+ * When the network is not reachable the stored copy is served regardless of its freshness.
+ * The cache is a {@link DiskLruStore} bounded in size, least recently used entries are evicted first.
+ */
+@Component
+public class HttpResourceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpResourceCache.class);
+
+    private static final String CACHE_FOLDER = "http-cache";
+    private static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+    private static final long HEURISTIC_MAX_MS = Duration.ofDays(1).toMillis();
+
+    private static final Pattern MAX_AGE_RX = Pattern.compile("(?:^|,)\\s*max-age\\s*=\\s*\"?(\\d+)\"?");
+    private static final Pattern CHARSET_RX = Pattern.compile("charset\\s*=\\s*\"?([^\\s;\"]+)\"?", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * @param freshUntil epoch millis until the entry can be served without revalidation
+     * @param noCache    the entry must be revalidated before each use
+     */
+    record Entry(String url, String etag, String lastModified, String contentType, long freshUntil, boolean noCache, long size) {
+    }
+
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.ALWAYS)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final DiskLruStore<Entry> store;
+    private final Executor executor;
+
+    @Autowired
+    public HttpResourceCache(ThreadService threadService, @Value("${application.config.folder}") String configFolder) {
+        this(IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder).resolve(CACHE_FOLDER),
+                DEFAULT_MAX_BYTES, threadService.executor());
+    }
+
+    public HttpResourceCache(Path directory, long maxBytes, Executor executor) {
+        this.store = new DiskLruStore<>(directory, ".body", maxBytes, this::writeEntry, this::readEntry, Entry::size);
+        this.executor = executor;
+    }
+
+    /**
+     * Reads the resource from cache or network
+     *
+     * @throws IOException if the resource is neither cached nor reachable
+     */
+    public byte[] get(URI uri) throws IOException {
+        return fetch(uri).body();
+    }
+
+    /**
+     * Reads the resource as text, decoded with the charset of its content type or UTF-8
+     *
+     * @throws IOException if the resource is neither cached nor reachable
+     */
+    public String getString(URI uri) throws IOException {
+        Resource resource = fetch(uri);
+        return new String(resource.body(), charset(resource.contentType()));
+    }
+
+    private record Resource(byte[] body, String contentType) {
+    }
+
+    private Resource fetch(URI uri) throws IOException {
+        String key = key(uri);
+        Entry entry = store.get(key);
+        byte[] cached = Objects.nonNull(entry) ? store.read(key) : null;
+
+        if (Objects.isNull(cached)) {
+            return download(uri, key, null);
+        }
+
+        store.touch(key);
+
+        if (entry.noCache()) {
+            try {
+                return download(uri, key, entry);
+            } catch (IOException e) {
+                logger.debug("Serving {} from cache, revalidation has failed", uri, e);
+                return new Resource(cached, entry.contentType());
+            }
+        }
+
+        if (System.currentTimeMillis() >= entry.freshUntil()) {
+            revalidateLater(uri, key, entry);
+        }
+        return new Resource(cached, entry.contentType());
+    }
+
+    private void revalidateLater(URI uri, String key, Entry entry) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    download(uri, key, entry);
+                } catch (Exception e) {
+                    logger.debug("Revalidation of {} has failed", uri, e);
+                } finally {
+                    revalidating.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            revalidating.remove(key);
+            logger.debug("Couldn't schedule revalidation of {}", uri, e);
+        }
+    }
+
+    /**
+     * Downloads the resource, conditionally if a stored entry is given
+     */
+    private Resource download(URI uri, String key, Entry entry) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(Duration.ofSeconds(30))
+                .GET();
+        if (Objects.nonNull(entry)) {
+            if (Objects.nonNull(entry.etag())) {
+                builder.header("If-None-Match", entry.etag());
+            }
+            if (Objects.nonNull(entry.lastModified())) {
+                builder.header("If-Modified-Since", entry.lastModified());
+            }
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+
+        int status = response.statusCode();
+        HttpHeaders headers = response.headers();
+        long now = System.currentTimeMillis();
+
+        if (status == 304 && Objects.nonNull(entry)) {
+            byte[] body = store.read(key);
+            if (Objects.isNull(body)) {
+                return download(uri, key, null);
+            }
+            Entry refreshed = new Entry(entry.url(),
+                    headers.firstValue("ETag").orElse(entry.etag()),
+                    headers.firstValue("Last-Modified").orElse(entry.lastModified()),
+                    entry.contentType(),
+                    freshUntil(headers, now, entry.lastModified()),
+                    cacheControl(headers).contains("no-cache"),
+                    entry.size());
+            store.putEntry(key, refreshed);
+            return new Resource(body, entry.contentType());
+        }
+
+        if (status < 200 || status >= 300) {
+            throw new IOException(String.format("%s responded %d", uri, status));
+        }
+
+        byte[] body = response.body();
+        String contentType = headers.firstValue("Content-Type").orElse(null);
+        String cacheControl = cacheControl(headers);
+
+        if (cacheControl.contains("no-store")) {
+            store.remove(key);
+        } else {
+            String lastModified = headers.firstValue("Last-Modified").orElse(null);
+            Entry stored = new Entry(uri.toString(),
+                    headers.firstValue("ETag").orElse(null),
+                    lastModified,
+                    contentType,
+                    freshUntil(headers, now, lastModified),
+                    cacheControl.contains("no-cache"),
+                    body.length);
+            if (!store.put(key, stored, body)) {
+                logger.debug("{} isn't kept in http cache", uri);
+            }
+        }
+        return new Resource(body, contentType);
+    }
+
+    private String cacheControl(HttpHeaders headers) {
+        return String.join(",", headers.allValues("Cache-Control")).toLowerCase(Locale.ROOT);
+    }
+
+    private long freshUntil(HttpHeaders headers, long now, String lastModified) {
+        Matcher matcher = MAX_AGE_RX.matcher(cacheControl(headers));
+        if (matcher.find()) {
+            return now + Long.parseLong(matcher.group(1)) * 1000;
+        }
+        Optional<Long> expires = headers.firstValue("Expires").map(this::parseDate);
+        if (expires.isPresent()) {
+            long date = headers.firstValue("Date").map(this::parseDate).orElse(now);
+            return now + expires.get() - date;
+        }
+        // Heuristic freshness, a tenth of the age of the resource
+        Long modified = Objects.nonNull(lastModified) ? parseDate(lastModified) : null;
+        if (Objects.nonNull(modified)) {
+            return now + Math.min(HEURISTIC_MAX_MS, Math.max(0, now - modified) / 10);
+        }
+        return now;
+    }
+
+    private Long parseDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            // Invalid dates like "0" mean already expired
+            return 0L;
+        }
+    }
+
+    private Charset charset(String contentType) {
+        if (Objects.nonNull(contentType)) {
+            Matcher matcher = CHARSET_RX.matcher(contentType);
+            if (matcher.find()) {
+                try {
+                    return Charset.forName(matcher.group(1));
+                } catch (Exception e) {
+                    logger.debug("Unknown charset {}", matcher.group(1));
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private String key(URI uri) {
+        return DigestUtils.md5DigestAsHex(uri.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private JsonObject writeEntry(Entry entry) {
+        var builder = Json.createObjectBuilder()
+                .add("url", entry.url())
+                .add("freshUntil", entry.freshUntil())
+                .add("noCache", entry.noCache())
+                .add("size", entry.size());
+        if (Objects.nonNull(entry.etag())) {
+            builder.add("etag", entry.etag());
+        }
+        if (Objects.nonNull(entry.lastModified())) {
+            builder.add("lastModified", entry.lastModified());
+        }
+        if (Objects.nonNull(entry.contentType())) {
+            builder.add("contentType", entry.contentType());
+        }
+        return builder.build();
+    }
+
+    private Entry readEntry(JsonObject object) {
+        return new Entry(object.getString("url"),
+                object.getString("etag", null),
+                object.getString("lastModified", null),
+                object.getString("contentType", null),
+                object.getJsonNumber("freshUntil").longValue(),
+                object.getBoolean("noCache", false),
+                object.getJsonNumber("size").longValue());
+    }
+
+    public long getBytes() {
+        return store.getBytes();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public void clear() {
+        store.clear();
+    }
+}
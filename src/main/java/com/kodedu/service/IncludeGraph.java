@@ -0,0 +1,154 @@
+package com.kodedu.service;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Include graph of the converted documents, parent document to included children with the filters used.
+ * <p>
+ * Edges are recorded by {@link com.kodedu.service.extension.processor.XrefIncludeProcessor} during conversion.
+ * Edges of the converted documents accumulate, so that chunked and cached conversions don't lose them,
+ * edges of an included file are dropped when it changes and recorded again by the next conversion.
+ * The graph answers which documents depend on a changed file.
+ */
+@Component
+public class IncludeGraph {
+
+    /**
+     * @param child   included file
+     * @param lines   <code>lines</code> filter of the include, if any
+     * @param tag     <code>tag</code> filter of the include, if any
+     * @param tags    <code>tags</code> filter of the include, if any
+     */
+    public record Edge(Path child, String lines, String tag, String tags) {
+    }
+
+    private final Map<Path, Set<Edge>> children = new ConcurrentHashMap<>();
+    private final Map<Path, Set<Path>> parents = new ConcurrentHashMap<>();
+
+    /**
+     * Records an include
+     *
+     * @param parent including file
+     */
+    public synchronized void record(Path parent, Edge edge) {
+        if (Objects.isNull(parent) || Objects.isNull(edge) || Objects.isNull(edge.child())) {
+            return;
+        }
+        parent = normalize(parent);
+        edge = new Edge(normalize(edge.child()), edge.lines(), edge.tag(), edge.tags());
+        children.computeIfAbsent(parent, p -> ConcurrentHashMap.newKeySet()).add(edge);
+        parents.computeIfAbsent(edge.child(), c -> ConcurrentHashMap.newKeySet()).add(parent);
+    }
+
+    /**
+     * Documents to be converted again because the given file has changed.
+     * The includes of a changed included file are forgotten, they are recorded again
+     * when one of its dependents is converted.
+     */
+    public synchronized Set<Path> changed(Path path) {
+        Set<Path> dependents = dependents(path);
+        if (!dependents.isEmpty()) {
+            removeChildren(normalize(path));
+        }
+        return dependents;
+    }
+
+    private void removeChildren(Path parent) {
+        Set<Edge> edges = children.remove(parent);
+        if (Objects.isNull(edges)) {
+            return;
+        }
+        for (Edge edge : edges) {
+            Set<Path> childParents = parents.get(edge.child());
+            if (Objects.nonNull(childParents)) {
+                childParents.remove(parent);
+                if (childParents.isEmpty()) {
+                    parents.remove(edge.child());
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the includes of a deleted document
+     */
+    public synchronized void remove(Path path) {
+        removeChildren(normalize(path));
+    }
+
+    public Set<Edge> getChildren(Path parent) {
+        return Collections.unmodifiableSet(children.getOrDefault(normalize(parent), Set.of()));
+    }
+
+    /**
+     * Documents including the given file directly or transitively
+     */
+    public Set<Path> dependents(Path path) {
+        Set<Path> result = new LinkedHashSet<>();
+        Deque<Path> queue = new ArrayDeque<>();
+        queue.add(normalize(path));
+        while (!queue.isEmpty()) {
+            for (Path parent : parents.getOrDefault(queue.poll(), Set.of())) {
+                if (result.add(parent)) {
+                    queue.add(parent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Files included by the given document directly or transitively, with the include filters
+     */
+    public List<Edge> subtree(Path root) {
+        List<Edge> result = new ArrayList<>();
+        Set<Path> visited = new HashSet<>();
+        Deque<Path> queue = new ArrayDeque<>();
+        queue.add(normalize(root));
+        visited.add(normalize(root));
+        while (!queue.isEmpty()) {
+            for (Edge edge : children.getOrDefault(queue.poll(), Set.of())) {
+                result.add(edge);
+                if (visited.add(edge.child())) {
+                    queue.add(edge.child());
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isKnown(Path root) {
+        return children.containsKey(normalize(root));
+    }
+
+    /**
+     * Size and modification time of a file, or <code>missing</code>
+     */
+    public static String fileState(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+        } catch (Exception e) {
+            return "missing";
+        }
+    }
+
+    private Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+}
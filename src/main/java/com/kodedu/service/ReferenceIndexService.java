@@ -0,0 +1,508 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import com.kodedu.other.RefProps;
+import com.kodedu.service.extension.processor.XrefHelper;
+import jakarta.annotation.PostConstruct;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Index of the anchors, section ids and cross references of all AsciiDoc files in the working directory.
+ * <p>
+ * Files are scanned textually with {@link XrefHelper}, nothing is converted. The index is built in parallel
+ * on virtual threads when the working directory changes, files whose size and modification time are unchanged
+ * since the last scan are not scanned again. It is kept up to date with {@link FileWatchService} events and
+ * persisted per working directory, so that reopening a large repository doesn't scan everything again.
+ * <p>
+ * Directories may stop being watched, so before a query the indexed files and directories are checked with a stat
+ * at most every {@value #REFRESH_INTERVAL_MS} ms, and the changed ones are scanned again.
+ */
+@Component
+public class ReferenceIndexService {
+
+    private final Logger logger = LoggerFactory.getLogger(ReferenceIndexService.class);
+
+    private static final String INDEX_FOLDER = "reference_index";
+    private static final int INDEX_VERSION = 1;
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of("node_modules", "target", "build");
+    private static final long REFRESH_INTERVAL_MS = 2000;
+
+    /**
+     * Scanned state of one file
+     */
+    public record FileRefs(long lastModified, long size, List<RefProps> anchors, List<RefProps> xrefs) {
+    }
+
+    private final FileWatchService fileWatchService;
+    private final PathResolverService pathResolver;
+    private final ThreadService threadService;
+    private final EventService eventService;
+
+    @Value("${application.config.folder}")
+    private String userHomeConfigFolder;
+
+    private final Map<Path, FileRefs> files = new ConcurrentHashMap<>();
+    private final Set<Path> pendingPaths = ConcurrentHashMap.newKeySet();
+    // Added or removed entries change the modification time of a directory
+    private final Map<Path, String> directoryStates = new ConcurrentHashMap<>();
+    private volatile long lastRefresh;
+    private final long refreshInterval;
+    private Path indexFolder;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Path root;
+    private volatile boolean ready;
+
+    @Autowired
+    public ReferenceIndexService(FileWatchService fileWatchService, PathResolverService pathResolver,
+                                 ThreadService threadService, EventService eventService) {
+        this.fileWatchService = fileWatchService;
+        this.pathResolver = pathResolver;
+        this.threadService = threadService;
+        this.eventService = eventService;
+        this.refreshInterval = REFRESH_INTERVAL_MS;
+    }
+
+    public ReferenceIndexService(Path indexFolder, long refreshInterval, FileWatchService fileWatchService,
+                                 PathResolverService pathResolver, ThreadService threadService, EventService eventService) {
+        this.indexFolder = indexFolder;
+        this.refreshInterval = refreshInterval;
+        this.fileWatchService = fileWatchService;
+        this.pathResolver = pathResolver;
+        this.threadService = threadService;
+        this.eventService = eventService;
+    }
+
+    @PostConstruct
+    public void install_listeners() {
+        eventService.subscribe(DirectoryService.WORKING_DIRECTORY_UPDATE_EVENT, event -> {
+            if (event.getData() instanceof Path path) {
+                threadService.runTaskLater(() -> build(path));
+            }
+        });
+    }
+
+    /**
+     * Indexes the directory, files unchanged since the last scan are taken from the persisted index
+     */
+    public void build(Path directory) {
+        if (Objects.isNull(directory) || !Files.isDirectory(directory)) {
+            return;
+        }
+        long current = generation.incrementAndGet();
+        long start = System.currentTimeMillis();
+
+        if (!Objects.equals(root, directory)) {
+            ready = false;
+            files.clear();
+            directoryStates.clear();
+            root = directory;
+            load(directory);
+        }
+
+        List<Path> asciidocFiles = new ArrayList<>();
+        Set<Path> directories = new HashSet<>();
+        collect(directory, asciidocFiles, directories);
+
+        Set<Path> existing = new HashSet<>(asciidocFiles);
+        files.keySet().removeIf(path -> !existing.contains(path));
+
+        int scanned = scan(asciidocFiles, current);
+        if (generation.get() != current) {
+            return;
+        }
+        directories.forEach(fileWatchService::registerPathWatcher);
+        ready = true;
+        lastRefresh = System.currentTimeMillis();
+
+        logger.debug("Reference index of {} is ready, {} files ({} scanned) in {} ms",
+                directory, asciidocFiles.size(), scanned, System.currentTimeMillis() - start);
+        if (scanned > 0) {
+            save();
+        }
+    }
+
+    private void collect(Path directory, List<Path> asciidocFiles, Set<Path> directories) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    String name = Objects.toString(dir.getFileName(), "");
+                    if (!dir.equals(directory) && (name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    directoryStates.put(dir, IncludeGraph.fileState(dir));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && pathResolver.isAsciidoc(file)) {
+                        asciidocFiles.add(file);
+                        directories.add(file.getParent());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Problem occured while indexing {}", directory, e);
+        }
+    }
+
+    /**
+     * Scans the changed files in parallel
+     *
+     * @return number of scanned files
+     */
+    private int scan(Collection<Path> paths, long current) {
+        List<Path> changed = paths.stream().filter(this::isChanged).toList();
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path path : changed) {
+                executor.submit(() -> {
+                    if (generation.get() == current) {
+                        scanFile(path);
+                    }
+                });
+            }
+        }
+        return changed.size();
+    }
+
+    private boolean isChanged(Path path) {
+        FileRefs refs = files.get(path);
+        if (Objects.isNull(refs)) {
+            return true;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() != refs.lastModified() || attributes.size() != refs.size();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private void scanFile(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            String content = IOHelper.readFile(path);
+            String file = path.toString();
+            if (!path.startsWith(root)) {
+                return;
+            }
+            files.put(path, new FileRefs(attributes.lastModifiedTime().toMillis(), attributes.size(),
+                    List.copyOf(XrefHelper.scanAnchors(file, content)), List.copyOf(XrefHelper.scanXrefs(file, content))));
+        } catch (Exception e) {
+            files.remove(path);
+            logger.debug("Couldn't index {}", path, e);
+        }
+    }
+
+    /**
+     * Updates the index for a file event, changes are collected and applied after a short delay
+     *
+     * @param directory watched directory of the event
+     */
+    public void onFileEvent(Path directory, WatchEvent<?> event) {
+        Path indexRoot = root;
+        if (Objects.isNull(indexRoot) || Objects.isNull(directory) || !directory.startsWith(indexRoot)) {
+            return;
+        }
+        if (event.kind() == OVERFLOW) {
+            pendingPaths.add(directory);
+        } else if (event.context() instanceof Path context) {
+            Path path = directory.resolve(context);
+            if (event.kind() == ENTRY_DELETE) {
+                files.keySet().removeIf(p -> p.startsWith(path));
+                return;
+            }
+            if (!Files.isDirectory(path) && !pathResolver.isAsciidoc(path)) {
+                return;
+            }
+            pendingPaths.add(path);
+        } else {
+            return;
+        }
+        threadService.debouncer("referenceIndex")
+                .delay(500, TimeUnit.MILLISECONDS)
+                .maxWait(3, TimeUnit.SECONDS)
+                .call(this::applyPending);
+    }
+
+    private void applyPending() {
+        List<Path> paths = new ArrayList<>(pendingPaths);
+        pendingPaths.removeAll(paths);
+        update(paths);
+    }
+
+    /**
+     * Scans the changed files again and the changed directories for added files, without waiting for file events
+     */
+    private void refresh() {
+        long now = System.currentTimeMillis();
+        if (!ready || now - lastRefresh < refreshInterval) {
+            return;
+        }
+        lastRefresh = now;
+        List<Path> paths = new ArrayList<>(files.keySet());
+        directoryStates.forEach((directory, state) -> {
+            if (!state.equals(IncludeGraph.fileState(directory))) {
+                directoryStates.remove(directory);
+                paths.add(directory);
+            }
+        });
+        update(paths);
+    }
+
+    private void update(List<Path> paths) {
+        List<Path> asciidocFiles = new ArrayList<>();
+        Set<Path> directories = new HashSet<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                collect(path, asciidocFiles, directories);
+            } else if (Files.isRegularFile(path)) {
+                asciidocFiles.add(path);
+            } else {
+                files.remove(path);
+            }
+        }
+        directories.forEach(fileWatchService::registerPathWatcher);
+        if (scan(asciidocFiles, generation.get()) > 0) {
+            save();
+        }
+    }
+
+    /**
+     * Anchors and section ids with the given id, for go to definition
+     */
+    public List<RefProps> definitions(String refId) {
+        if (Objects.isNull(refId)) {
+            return List.of();
+        }
+        refresh();
+        return files.values().stream()
+                .flatMap(f -> f.anchors().stream())
+                .filter(a -> refId.equals(a.refId()))
+                .toList();
+    }
+
+    /**
+     * Definition of the id, preferring the given file if it is defined in more than one file
+     */
+    public Optional<RefProps> findDefinition(String refId, String file) {
+        List<RefProps> definitions = definitions(refId);
+        if (Objects.nonNull(file)) {
+            Optional<RefProps> inFile = definitions.stream()
+                    .filter(d -> d.file().equals(file) || d.file().endsWith(file))
+                    .findFirst();
+            if (inFile.isPresent()) {
+                return inFile;
+            }
+        }
+        return definitions.stream().findFirst();
+    }
+
+    /**
+     * Cross references pointing to the given id, for find usages
+     */
+    public List<RefProps> usages(String refId) {
+        if (Objects.isNull(refId)) {
+            return List.of();
+        }
+        refresh();
+        return files.values().stream()
+                .flatMap(f -> f.xrefs().stream())
+                .filter(x -> refId.equals(x.origRefId()))
+                .toList();
+    }
+
+    /**
+     * Cross references whose target id or document is not found in the working directory
+     */
+    public List<RefProps> brokenXrefs() {
+        refresh();
+        Set<String> ids = files.values().stream()
+                .flatMap(f -> f.anchors().stream())
+                .map(RefProps::refId)
+                .collect(Collectors.toSet());
+
+        return files.values().stream()
+                .flatMap(f -> f.xrefs().stream())
+                .filter(x -> isBroken(x, ids))
+                .toList();
+    }
+
+    private boolean isBroken(RefProps xref, Set<String> ids) {
+        String refId = xref.refId();
+        if (Objects.isNull(refId) || refId.isBlank() || refId.contains("{")) {
+            // attribute references can't be resolved without converting
+            return false;
+        }
+        // document#id, document# and #id, a trailing # points to the top of the document
+        int hash = refId.indexOf('#');
+        String target = hash < 0 ? null : refId.substring(0, hash);
+        String id = hash < 0 ? refId : refId.substring(hash + 1);
+        if (hash < 0 && isDocumentPath(refId)) {
+            target = refId;
+            id = "";
+        }
+        if (Objects.isNull(target) || target.isEmpty()) {
+            return !id.isEmpty() && !ids.contains(id);
+        }
+
+        Path document = resolveDocument(Path.of(xref.file()).getParent(), target);
+        if (Objects.isNull(document) || Files.notExists(document)) {
+            return true;
+        }
+        if (id.isEmpty()) {
+            return false;
+        }
+        String documentId = id;
+        FileRefs refs = files.get(document);
+        return Objects.nonNull(refs) && refs.anchors().stream().noneMatch(a -> documentId.equals(a.refId()));
+    }
+
+    private boolean isDocumentPath(String refId) {
+        try {
+            return pathResolver.isAsciidoc(Path.of(refId));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private Path resolveDocument(Path directory, String target) {
+        try {
+            Path document = directory.resolve(target);
+            if (!pathResolver.isAsciidoc(document)) {
+                document = directory.resolve(target + ".adoc");
+            }
+            return document.normalize();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public FileRefs getFileRefs(Path path) {
+        return files.get(path);
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private Path indexPath(Path directory) {
+        if (Objects.isNull(indexFolder)) {
+            indexFolder = IOHelper.getPath(System.getProperty("user.home")).resolve(userHomeConfigFolder).resolve(INDEX_FOLDER);
+        }
+        IOHelper.createDirectories(indexFolder);
+        String name = DigestUtils.md5DigestAsHex(directory.toString().getBytes(StandardCharsets.UTF_8));
+        return indexFolder.resolve(name + ".json");
+    }
+
+    private void load(Path directory) {
+        Path indexPath = indexPath(directory);
+        if (Files.notExists(indexPath)) {
+            return;
+        }
+        try (Reader reader = IOHelper.fileReader(indexPath);
+             JsonReader jsonReader = Json.createReader(reader)) {
+            JsonObject index = jsonReader.readObject();
+            if (index.getInt("version", 0) != INDEX_VERSION || !directory.toString().equals(index.getString("root", null))) {
+                return;
+            }
+            index.getJsonObject("files").forEach((file, value) -> {
+                JsonObject object = value.asJsonObject();
+                files.put(Path.of(file), new FileRefs(object.getJsonNumber("modified").longValue(),
+                        object.getJsonNumber("size").longValue(),
+                        readRefs(file, object.getJsonArray("anchors"), false),
+                        readRefs(file, object.getJsonArray("xrefs"), true)));
+            });
+            logger.debug("Loaded reference index of {} with {} files", directory, files.size());
+        } catch (Exception e) {
+            files.clear();
+            logger.warn("Couldn't read reference index {}", indexPath);
+        }
+    }
+
+    private List<RefProps> readRefs(String file, JsonArray array, boolean isCross) {
+        List<RefProps> refs = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            JsonArray ref = array.getJsonArray(i);
+            refs.add(new RefProps(file, ref.getInt(1), ref.getString(0), isCross));
+        }
+        return List.copyOf(refs);
+    }
+
+    private synchronized void save() {
+        Path directory = root;
+        if (Objects.isNull(directory)) {
+            return;
+        }
+        JsonObjectBuilder filesBuilder = Json.createObjectBuilder();
+        files.forEach((path, refs) -> filesBuilder.add(path.toString(), Json.createObjectBuilder()
+                .add("modified", refs.lastModified())
+                .add("size", refs.size())
+                .add("anchors", writeRefs(refs.anchors()))
+                .add("xrefs", writeRefs(refs.xrefs()))));
+        JsonObject index = Json.createObjectBuilder()
+                .add("version", INDEX_VERSION)
+                .add("root", directory.toString())
+                .add("files", filesBuilder)
+                .build();
+        IOHelper.writeToFile(indexPath(directory), index.toString());
+    }
+
+    private JsonArrayBuilder writeRefs(List<RefProps> refs) {
+        JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+        refs.forEach(r -> arrayBuilder.add(Json.createArrayBuilder().add(r.refId()).add(r.lineNumber())));
+        return arrayBuilder;
+    }
+}
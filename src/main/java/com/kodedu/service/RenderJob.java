@@ -0,0 +1,91 @@
+package com.kodedu.service;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A cancellable preview render.
+ * <p>
+ * The job is bound to the thread running the conversion, so extension processors can
+ * wait for their futures with {@link #await(Future, long, TimeUnit)}. Once the job is
+ * cancelled the pending futures are cancelled too and the conversion is not blocked
+ * by images which will be discarded anyway.
+ */
+public class RenderJob {
+
+    private static final ThreadLocal<RenderJob> current = new ThreadLocal<>();
+
+    private final long id;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final Set<Future<?>> pendingFutures = ConcurrentHashMap.newKeySet();
+
+    public RenderJob(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return true if the job was running and is cancelled by this call
+     */
+    public boolean cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        for (Future<?> future : pendingFutures) {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    void bind() {
+        current.set(this);
+    }
+
+    void unbind() {
+        current.remove();
+    }
+
+    public static Optional<RenderJob> current() {
+        return Optional.ofNullable(current.get());
+    }
+
+    public static boolean isCurrentCancelled() {
+        return current().map(RenderJob::isCancelled).orElse(false);
+    }
+
+    /**
+     * Waits like {@link Future#get(long, TimeUnit)}, but gives up as soon as the render job of the current thread is cancelled
+     *
+     * @throws java.util.concurrent.CancellationException if the render job is cancelled
+     */
+    public static <T> T await(Future<T> future, long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        RenderJob job = current.get();
+        if (Objects.isNull(job)) {
+            return future.get(timeout, timeUnit);
+        }
+
+        job.pendingFutures.add(future);
+        try {
+            if (job.isCancelled()) {
+                future.cancel(true);
+            }
+            return future.get(timeout, timeUnit);
+        } finally {
+            job.pendingFutures.remove(future);
+        }
+    }
+}
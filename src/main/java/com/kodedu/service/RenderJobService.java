@@ -0,0 +1,70 @@
+package com.kodedu.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps track of the running preview render, a newer render preempts the running one
+ */
+@Component
+public class RenderJobService {
+
+    private final Logger logger = LoggerFactory.getLogger(RenderJobService.class);
+
+    private final AtomicReference<RenderJob> running = new AtomicReference<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * Starts a job bound to the calling thread, cancels the running one if there is any
+     */
+    public RenderJob start() {
+        RenderJob job = new RenderJob(started.incrementAndGet());
+        RenderJob previous = running.getAndSet(job);
+        if (Objects.nonNull(previous)) {
+            cancel(previous);
+        }
+        job.bind();
+        return job;
+    }
+
+    public void cancelRunning() {
+        RenderJob job = running.get();
+        if (Objects.nonNull(job)) {
+            cancel(job);
+        }
+    }
+
+    public void finish(RenderJob job) {
+        job.unbind();
+        running.compareAndSet(job, null);
+        if (!job.isCancelled()) {
+            completed.incrementAndGet();
+        }
+    }
+
+    private void cancel(RenderJob job) {
+        if (job.cancel()) {
+            cancelled.incrementAndGet();
+            logger.debug("Render #{} is cancelled by a newer change", job.getId());
+        }
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+}
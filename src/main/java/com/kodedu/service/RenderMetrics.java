@@ -0,0 +1,194 @@
+package com.kodedu.service;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named timers, counters and gauges of the render pipeline, served as JSON on <code>/afx/metrics</code>.
+ * <p>
+ * Timers keep a fixed bucket histogram, so recording is allocation free and percentiles
+ * are estimated by the upper bound of the bucket they fall in.
+ */
+@Component
+public class RenderMetrics {
+
+    private final Logger logger = LoggerFactory.getLogger(RenderMetrics.class);
+
+    /**
+     * Upper bounds of the histogram buckets in microseconds, the last bucket is unbounded
+     */
+    private static final long[] BUCKETS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000,
+            250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 30_000_000};
+
+    private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentSkipListMap<>();
+
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * Starts timing a stage, the duration is recorded when the stage is closed
+     */
+    public Stage stage(String name) {
+        return new Stage(timer(name), System.nanoTime());
+    }
+
+    public void record(String name, long duration, TimeUnit timeUnit) {
+        timer(name).record(timeUnit.toMicros(duration));
+    }
+
+    public void increment(String name) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).increment();
+    }
+
+    /**
+     * Registers a value which is read when the metrics are requested
+     */
+    public void gauge(String name, Supplier<? extends Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, n -> new Timer());
+    }
+
+    public long count(String name) {
+        LongAdder counter = counters.get(name);
+        return Objects.nonNull(counter) ? counter.sum() : 0;
+    }
+
+    public void reset() {
+        timers.clear();
+        counters.clear();
+    }
+
+    public JsonObject toJson() {
+        JsonObjectBuilder timersBuilder = Json.createObjectBuilder();
+        timers.forEach((name, timer) -> timersBuilder.add(name, timer.toJson()));
+
+        JsonObjectBuilder countersBuilder = Json.createObjectBuilder();
+        counters.forEach((name, counter) -> countersBuilder.add(name, counter.sum()));
+
+        JsonObjectBuilder gaugesBuilder = Json.createObjectBuilder();
+        gauges.forEach((name, supplier) -> {
+            try {
+                Number value = supplier.get();
+                if (value instanceof Double || value instanceof Float) {
+                    gaugesBuilder.add(name, value.doubleValue());
+                } else if (Objects.nonNull(value)) {
+                    gaugesBuilder.add(name, value.longValue());
+                }
+            } catch (Exception e) {
+                logger.debug("Could not read gauge {}", name, e);
+            }
+        });
+
+        return Json.createObjectBuilder()
+                .add("startTime", startTime)
+                .add("uptimeMs", System.currentTimeMillis() - startTime)
+                .add("timers", timersBuilder)
+                .add("counters", countersBuilder)
+                .add("gauges", gaugesBuilder)
+                .build();
+    }
+
+    public static final class Stage implements AutoCloseable {
+
+        private final Timer timer;
+        private final long start;
+
+        private Stage(Timer timer, long start) {
+            this.timer = timer;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            timer.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    public static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS.length + 1);
+
+        void record(long micros) {
+            micros = Math.max(0, micros);
+            count.increment();
+            total.add(micros);
+            min.accumulateAndGet(micros, Math::min);
+            max.accumulateAndGet(micros, Math::max);
+            buckets.incrementAndGet(bucket(micros));
+        }
+
+        private static int bucket(long micros) {
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (micros <= BUCKETS[i]) {
+                    return i;
+                }
+            }
+            return BUCKETS.length;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @param percentile 0-100
+         * @return estimated duration in microseconds, -1 if nothing is recorded yet
+         */
+        public long percentile(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return -1;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i < BUCKETS.length ? Math.min(BUCKETS[i], max.get()) : max.get();
+                }
+            }
+            return max.get();
+        }
+
+        JsonObject toJson() {
+            long count = getCount();
+            JsonObjectBuilder histogram = Json.createObjectBuilder();
+            for (int i = 0; i < buckets.length(); i++) {
+                String bound = i < BUCKETS.length ? String.valueOf(BUCKETS[i] / 1000.0) : "+Inf";
+                histogram.add(bound, buckets.get(i));
+            }
+            return Json.createObjectBuilder()
+                    .add("count", count)
+                    .add("totalMs", total.sum() / 1000.0)
+                    .add("meanMs", count == 0 ? 0 : total.sum() / 1000.0 / count)
+                    .add("minMs", count == 0 ? 0 : min.get() / 1000.0)
+                    .add("maxMs", max.get() / 1000.0)
+                    .add("p50Ms", Math.max(0, percentile(50)) / 1000.0)
+                    .add("p95Ms", Math.max(0, percentile(95)) / 1000.0)
+                    .add("p99Ms", Math.max(0, percentile(99)) / 1000.0)
+                    .add("histogramMs", histogram)
+                    .build();
+        }
+    }
+}
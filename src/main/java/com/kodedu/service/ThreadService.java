@@ -53,7 +53,12 @@ public interface ThreadService {
         }
     }
 
-    public Buff buff(String id);
+    /**
+     * Returns the debouncer of the given key, it is created on first use
+     * @param id
+     * @return
+     */
+    public Debouncer debouncer(String id);
 
     public <T> T supply(Supplier<T> supplier);
 
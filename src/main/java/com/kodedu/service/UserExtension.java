@@ -2,7 +2,6 @@ package com.kodedu.service;
 
 import com.kodedu.helper.IOHelper;
 import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ScanResult;
 import org.asciidoctor.Asciidoctor;
 import org.asciidoctor.extension.BlockMacroProcessor;
 import org.asciidoctor.extension.BlockProcessor;
@@ -37,13 +36,18 @@ public class UserExtension {
     private Logger logger = LoggerFactory.getLogger(UserExtension.class);
 
     private List<Path> extensions = new ArrayList<>();
+    private String fingerprint = "";
     private ExtensionGroup extensionGroup;
 
     private List<Class> extensionClasses = List.of(BlockMacroProcessor.class, BlockProcessor.class, DocinfoProcessor.class, IncludeProcessor.class,
             InlineMacroProcessor.class, Postprocessor.class, Preprocessor.class, Treeprocessor.class);
     private List<String> extensionSuperclasses = extensionClasses.stream().map(e -> "Asciidoctor::Extensions::" + e.getSimpleName()).toList();
 
-    private ExecutorService executorService;
+    private final UserExtensionRegistry registry;
+
+    public UserExtension(UserExtensionRegistry registry) {
+        this.registry = registry;
+    }
 
     public void setExtensionGroup(ExtensionGroup extensionGroup) {
         this.extensionGroup = extensionGroup;
@@ -57,14 +61,19 @@ public class UserExtension {
         return extensions;
     }
 
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
     static {
         ClassGraph.CIRCUMVENT_ENCAPSULATION = ClassGraph.CircumventEncapsulationMethod.JVM_DRIVER;
     }
 
-    public void registerExtensions(Asciidoctor adoc, List<Path> extensions) {
-        if (extensions.equals(this.extensions)) {
+    public void registerExtensions(Asciidoctor adoc, UserExtensionRegistry.Snapshot snapshot) {
+        if (Objects.equals(snapshot.fingerprint(), this.fingerprint)) {
             return;
         }
+        List<Path> extensions = snapshot.extensions();
         extensionGroup.unregister();
         if (!extensions.isEmpty()) {
             try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();) {
@@ -74,58 +83,48 @@ public class UserExtension {
             extensionGroup.register();
         }
         this.extensions = extensions;
+        this.fingerprint = snapshot.fingerprint();
     }
 
     private void registerJavaExtensions(Asciidoctor adoc, List<Path> extensions) {
-        URL[] urls = extensions.stream()
+        List<Path> jars = extensions.stream()
                 .filter(p -> p.toString().endsWith(".jar"))
+                .toList();
+        if (jars.isEmpty()) {
+            return;
+        }
+        URL[] urls = jars.stream()
                 .map(p -> IOHelper.toURL(p))
                 .filter(Objects::nonNull)
                 .toArray(size -> new URL[size]);
-        try (ScanResult scanResult = new ClassGraph()
-                .addClassLoader(new URLClassLoader(urls))
-                .enableClassInfo()
-                .scan(getExecutorService(), 8)) {
-            extensionClasses.stream()
-                    .map(c -> scanResult.getSubclasses(c))
-                    .flatMap(c -> c.stream())
-                    .filter(c -> !c.getPackageInfo().getName().startsWith("com.kodedu"))
-                    .filter(c -> c.getSubclasses().isEmpty())
-                    .forEach(classInfo -> {
-                        try {
-                            Class<?> extensionClass = classInfo.loadClass();
-                            logger.info("Loading {} extension", classInfo.getSimpleName());
-                            if (BlockMacroProcessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.blockMacro((Class<? extends BlockMacroProcessor>) extensionClass);
-                            } else if (BlockProcessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.block((Class<? extends BlockProcessor>) extensionClass);
-                            } else if (DocinfoProcessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.docinfoProcessor((Class<? extends DocinfoProcessor>) extensionClass);
-                            } else if (IncludeProcessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.includeProcessor((Class<? extends IncludeProcessor>) extensionClass);
-                            } else if (InlineMacroProcessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.inlineMacro((Class<? extends InlineMacroProcessor>) extensionClass);
-                            } else if (Postprocessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.postprocessor((Class<? extends Postprocessor>) extensionClass);
-                            } else if (Preprocessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.preprocessor((Class<? extends Preprocessor>) extensionClass);
-                            } else if (Treeprocessor.class.isAssignableFrom(extensionClass)) {
-                                extensionGroup.treeprocessor((Class<? extends Treeprocessor>) extensionClass);
-                            } else {
-                                logger.warn("Extension type not found: {}", classInfo.getSimpleName());
-                            }
-                        } catch (Exception e) {
-                            logger.error("Loading {} extension has failed", classInfo.getSimpleName(), e);
-                        }
-                    });
-        }
-    }
-
-    private ExecutorService getExecutorService() {
-        if (Objects.isNull(executorService)) {
-            this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        URLClassLoader classLoader = new URLClassLoader(urls);
+        for (String className : registry.javaExtensionClasses(jars)) {
+            try {
+                Class<?> extensionClass = classLoader.loadClass(className);
+                logger.info("Loading {} extension", extensionClass.getSimpleName());
+                if (BlockMacroProcessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.blockMacro((Class<? extends BlockMacroProcessor>) extensionClass);
+                } else if (BlockProcessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.block((Class<? extends BlockProcessor>) extensionClass);
+                } else if (DocinfoProcessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.docinfoProcessor((Class<? extends DocinfoProcessor>) extensionClass);
+                } else if (IncludeProcessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.includeProcessor((Class<? extends IncludeProcessor>) extensionClass);
+                } else if (InlineMacroProcessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.inlineMacro((Class<? extends InlineMacroProcessor>) extensionClass);
+                } else if (Postprocessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.postprocessor((Class<? extends Postprocessor>) extensionClass);
+                } else if (Preprocessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.preprocessor((Class<? extends Preprocessor>) extensionClass);
+                } else if (Treeprocessor.class.isAssignableFrom(extensionClass)) {
+                    extensionGroup.treeprocessor((Class<? extends Treeprocessor>) extensionClass);
+                } else {
+                    logger.warn("Extension type not found: {}", className);
+                }
+            } catch (Exception e) {
+                logger.error("Loading {} extension has failed", className, e);
+            }
         }
-        return executorService;
     }
 
     private void registerRubyExtensions(Asciidoctor adoc, List<Path> extensions) {
@@ -0,0 +1,285 @@
+package com.kodedu.service;
+
+import com.kodedu.helper.IOHelper;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ScanResult;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import org.asciidoctor.extension.BlockMacroProcessor;
+import org.asciidoctor.extension.BlockProcessor;
+import org.asciidoctor.extension.DocinfoProcessor;
+import org.asciidoctor.extension.IncludeProcessor;
+import org.asciidoctor.extension.InlineMacroProcessor;
+import org.asciidoctor.extension.Postprocessor;
+import org.asciidoctor.extension.Preprocessor;
+import org.asciidoctor.extension.Treeprocessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * User extensions of the working directory, located in <code>.asciidoctor/lib</code>.
+ * <p>
+ * The lib directory is fingerprinted by path, size and modification time of the extensions. A snapshot keeps
+ * the state of the extensions and of the directories containing them, it is reused as long as a stat of those
+ * shows no change, so that checking the extensions of a runtime is cheap. Java extension classes found by
+ * ClassGraph are cached per set of jar hashes, also across restarts.
+ */
+@Component
+public class UserExtensionRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(UserExtensionRegistry.class);
+
+    private static final String SCAN_CACHE_FILE = "extension_scan_cache.json";
+
+    private static final List<Class<?>> EXTENSION_CLASSES = List.of(BlockMacroProcessor.class, BlockProcessor.class, DocinfoProcessor.class, IncludeProcessor.class,
+            InlineMacroProcessor.class, Postprocessor.class, Preprocessor.class, Treeprocessor.class);
+
+    /**
+     * @param states state of the extensions and of the directories which may contain them,
+     *               see {@link IncludeGraph#fileState(Path)}
+     */
+    public record Snapshot(Path workingDirectory, List<Path> extensions, String fingerprint, Map<Path, String> states) {
+
+        boolean isCurrent(Path workingDirectory) {
+            return Objects.equals(this.workingDirectory, workingDirectory) && states.entrySet().stream()
+                    .allMatch(entry -> entry.getValue().equals(IncludeGraph.fileState(entry.getKey())));
+        }
+    }
+
+    private record JarKey(long size, long lastModified, String hash) {
+    }
+
+    private final DirectoryService directoryService;
+
+    @Value("${application.config.folder}")
+    private String userHomeConfigFolder;
+
+    private volatile Snapshot snapshot;
+
+    private final Map<Path, JarKey> jarKeys = new ConcurrentHashMap<>();
+    private Map<String, List<String>> scanCache;
+    private ExecutorService executorService;
+
+    @Autowired
+    public UserExtensionRegistry(DirectoryService directoryService) {
+        this.directoryService = directoryService;
+    }
+
+    public Snapshot snapshot() {
+        Path workingDirectory = directoryService.workingDirectory();
+        Snapshot current = snapshot;
+        if (Objects.nonNull(current) && current.isCurrent(workingDirectory)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (Objects.nonNull(current) && current.isCurrent(workingDirectory)) {
+                return current;
+            }
+            current = fingerprint(workingDirectory);
+            snapshot = current;
+            return current;
+        }
+    }
+
+    private Snapshot fingerprint(Path workingDirectory) {
+        Path asciidoctorDir = workingDirectory.resolve(".asciidoctor");
+        Path libDir = asciidoctorDir.resolve("lib");
+
+        // Creation of .asciidoctor/lib must be noticed too
+        Map<Path, String> states = new LinkedHashMap<>();
+        states.put(asciidoctorDir, IncludeGraph.fileState(asciidoctorDir));
+        states.put(libDir, IncludeGraph.fileState(libDir));
+
+        if (Files.notExists(libDir)) {
+            return new Snapshot(workingDirectory, List.of(), "", states);
+        }
+
+        // Added and removed extensions change the modification time of their directory
+        IOHelper.walk(libDir, 1)
+                .filter(Files::isDirectory)
+                .forEach(directory -> states.put(directory, IncludeGraph.fileState(directory)));
+
+        List<Path> extensions = IOHelper.walk(libDir, 2)
+                .filter(p -> p.toString().endsWith(".rb") || p.toString().endsWith(".jar"))
+                .sorted().toList();
+
+        StringBuilder builder = new StringBuilder();
+        for (Path extension : extensions) {
+            String state = IncludeGraph.fileState(extension);
+            states.put(extension, state);
+            builder.append(extension).append('|').append(state).append('\n');
+        }
+        String fingerprint = DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8));
+        logger.debug("User extensions fingerprint {} for {}", fingerprint, libDir);
+        return new Snapshot(workingDirectory, extensions, fingerprint, states);
+    }
+
+    /**
+     * Finds the leaf Java extension classes in the given jars, a set of jars scanned before is not scanned again.
+     * The result depends on the whole set, since an extension may extend a class of another jar.
+     */
+    public synchronized List<String> javaExtensionClasses(List<Path> jars) {
+        Map<String, List<String>> cache = scanCache();
+
+        List<String> jarHashes = new ArrayList<>();
+        List<Path> readable = new ArrayList<>();
+        for (Path jar : jars) {
+            String hash = jarHash(jar);
+            if (Objects.nonNull(hash)) {
+                jarHashes.add(hash);
+                readable.add(jar);
+            }
+        }
+        if (readable.isEmpty()) {
+            return List.of();
+        }
+
+        String setKey = DigestUtils.md5DigestAsHex(String.join("|", jarHashes.stream().sorted().toList())
+                .getBytes(StandardCharsets.UTF_8));
+        List<String> classNames = cache.get(setKey);
+        if (Objects.isNull(classNames)) {
+            classNames = scan(readable);
+            cache.put(setKey, classNames);
+            saveScanCache(cache);
+        }
+        return classNames;
+    }
+
+    /**
+     * The jars are scanned with the application class path, so that extensions extending classes of AsciidoctorJ
+     * or of other libraries are found, and only the classes of the jars are kept
+     */
+    private List<String> scan(List<Path> jars) {
+        logger.debug("Scanning {} for extensions", jars);
+        Set<Path> jarPaths = jars.stream().map(jar -> jar.toAbsolutePath().normalize()).collect(Collectors.toSet());
+        URL[] urls = jars.stream()
+                .map(IOHelper::toURL)
+                .filter(Objects::nonNull)
+                .toArray(URL[]::new);
+
+        List<String> classNames = new ArrayList<>();
+        try (URLClassLoader classLoader = new URLClassLoader(urls);
+             ScanResult scanResult = new ClassGraph()
+                .addClassLoader(classLoader)
+                .enableClassInfo()
+                .scan(getExecutorService(), 8)) {
+            EXTENSION_CLASSES.stream()
+                    .map(c -> scanResult.getSubclasses(c))
+                    .flatMap(c -> c.stream())
+                    .filter(c -> !c.getPackageInfo().getName().startsWith("com.kodedu"))
+                    .filter(c -> c.getSubclasses().isEmpty())
+                    .filter(c -> jarPaths.contains(classpathElement(c)))
+                    .map(ClassInfo::getName)
+                    .filter(name -> !classNames.contains(name))
+                    .forEach(classNames::add);
+        } catch (IOException e) {
+            logger.debug("Couldn't close the class loader of {}", jars, e);
+        }
+        return List.copyOf(classNames);
+    }
+
+    private Path classpathElement(ClassInfo classInfo) {
+        try {
+            return classInfo.getClasspathElementFile().toPath().toAbsolutePath().normalize();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String jarHash(Path jar) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            JarKey jarKey = jarKeys.get(jar);
+            if (Objects.nonNull(jarKey) && jarKey.size() == size && jarKey.lastModified() == lastModified) {
+                return jarKey.hash();
+            }
+            String hash;
+            try (InputStream inputStream = Files.newInputStream(jar)) {
+                hash = DigestUtils.md5DigestAsHex(inputStream);
+            }
+            jarKeys.put(jar, new JarKey(size, lastModified, hash));
+            return hash;
+        } catch (Exception e) {
+            logger.warn("Couldn't read extension {}", jar);
+            return null;
+        }
+    }
+
+    private Map<String, List<String>> scanCache() {
+        if (Objects.nonNull(scanCache)) {
+            return scanCache;
+        }
+        scanCache = new ConcurrentHashMap<>();
+        Path cachePath = scanCachePath();
+        if (Files.exists(cachePath)) {
+            try (Reader reader = IOHelper.fileReader(cachePath);
+                 JsonReader jsonReader = Json.createReader(reader)) {
+                JsonObject jsonObject = jsonReader.readObject();
+                jsonObject.forEach((hash, value) -> {
+                    if (value instanceof JsonArray classes) {
+                        scanCache.put(hash, classes.getValuesAs(JsonString.class).stream().map(JsonString::getString).toList());
+                    }
+                });
+            } catch (Exception e) {
+                logger.warn("Couldn't read extension scan cache {}", cachePath);
+            }
+        }
+        return scanCache;
+    }
+
+    private void saveScanCache(Map<String, List<String>> cache) {
+        JsonObjectBuilder objectBuilder = Json.createObjectBuilder();
+        cache.forEach((hash, classes) -> {
+            JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+            classes.forEach(arrayBuilder::add);
+            objectBuilder.add(hash, arrayBuilder);
+        });
+        IOHelper.writeToFile(scanCachePath(), objectBuilder.build().toString());
+    }
+
+    private Path scanCachePath() {
+        Path configRoot = IOHelper.getPath(System.getProperty("user.home")).resolve(userHomeConfigFolder);
+        IOHelper.createDirectories(configRoot);
+        return configRoot.resolve(SCAN_CACHE_FILE);
+    }
+
+    private ExecutorService getExecutorService() {
+        if (Objects.isNull(executorService)) {
+            this.executorService = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return executorService;
+    }
+}
@@ -1,23 +1,33 @@
 package com.kodedu.service.cache;
 
 import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Created by usta on 12.06.2016.
+ * <p>
+ * Cached content is immutable and reads keep no state, so an entry can be served to concurrent requests.
  */
 public interface CacheData {
 
     long length();
 
-    void seek(long pos) throws IOException;
-
     byte[] readBytes();
 
+    /**
+     * Epoch millis
+     */
     long lastModified();
 
-    int read(byte[] buffer) throws IOException;
+    /**
+     * Quoted entity tag computed from the content, the same content has the same tag in both tiers
+     */
+    String etag();
 
-    void closeStream() throws IOException;
+    /**
+     * Writes the given range of the content to the target
+     */
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
 
     boolean inMemory();
 
@@ -2,22 +2,31 @@ package com.kodedu.service.cache;
 
 import com.kodedu.helper.IOHelper;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
-import java.util.Objects;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Created by usta on 12.06.2016.
+ * <p>
+ * The file is written once, its length and validators are kept so that serving it doesn't stat it.
  */
 public class InDiskData implements CacheData {
     private final Path path;
     private final String key;
-    private RandomAccessFile randomAccessFile;
+    private final long length;
+    private final long lastModified;
+    private final String etag;
 
-    public InDiskData(String key, Path path) {
+    public InDiskData(String key, Path path, long length, long lastModified, String etag) {
         this.key = key;
         this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.etag = etag;
     }
 
     @Override
@@ -27,48 +36,38 @@ public class InDiskData implements CacheData {
 
     @Override
     public long length() {
-        return path.toFile().length();
-    }
-
-    @Override
-    public void seek(long pos) throws IOException {
-        if (Objects.isNull(randomAccessFile)) {
-            this.randomAccessFile = new RandomAccessFile(path.toFile(), "r");
-        }
-
-        randomAccessFile.seek(pos);
-
+        return length;
     }
 
     @Override
     public long lastModified() {
-        return path.toFile().lastModified();
+        return lastModified;
     }
 
     @Override
-    public int read(byte[] buffer) throws IOException {
-        if (Objects.isNull(randomAccessFile)) {
-            this.randomAccessFile = new RandomAccessFile(path.toFile(), "r");
-        }
-        return randomAccessFile.read(buffer);
+    public String etag() {
+        return etag;
     }
 
+    /**
+     * Each transfer opens its own channel and reads at absolute positions
+     */
     @Override
-    public void closeStream() throws IOException {
-        RandomAccessFile currentRandomAccessFile = randomAccessFile;
-        if (Objects.nonNull(currentRandomAccessFile)) {
-            this.randomAccessFile = null;
-            currentRandomAccessFile.close();
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (count > 0) {
+                long transferred = channel.transferTo(position, count, target);
+                if (transferred <= 0) {
+                    throw new EOFException(String.format("%s ended at %d", path, position));
+                }
+                position += transferred;
+                count -= transferred;
+            }
         }
     }
 
     @Override
     public void removeFromDisk() {
-        try {
-            closeStream();
-        } catch (IOException e) {
-//            e.printStackTrace();
-        }
         IOHelper.deleteIfExists(path);
     }
 
@@ -1,8 +1,10 @@
 package com.kodedu.service.cache;
 
-import java.io.ByteArrayInputStream;
+import org.springframework.util.DigestUtils;
+
 import java.io.IOException;
-import java.time.ZonedDateTime;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
 
 /**
@@ -11,14 +13,25 @@ import java.util.Objects;
 public class InMemoryDAta implements CacheData {
 
     private final byte[] bytes;
-    private final ZonedDateTime lastModified;
+    // Read only, each transfer writes an independent slice of it
+    private final ByteBuffer buffer;
+    private final long lastModified;
     private final String key;
-    private ByteArrayInputStream byteArrayStream;
+    private volatile String etag;
 
     public InMemoryDAta(String key, byte[] bytes) {
+        this(key, bytes, System.currentTimeMillis(), null);
+    }
+
+    /**
+     * For content coming back from disk, which keeps its validators
+     */
+    public InMemoryDAta(String key, byte[] bytes, long lastModified, String etag) {
         this.key = key;
         this.bytes = bytes;
-        this.lastModified = ZonedDateTime.now();
+        this.buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        this.lastModified = lastModified;
+        this.etag = etag;
     }
 
     @Override
@@ -31,35 +44,26 @@ public class InMemoryDAta implements CacheData {
         return bytes.length;
     }
 
-    @Override
-    public void seek(long pos) throws IOException {
-        if (Objects.isNull(byteArrayStream)) {
-            this.byteArrayStream = new ByteArrayInputStream(bytes);
-        }
-        // 2 lines equal to seek
-        byteArrayStream.reset();
-        byteArrayStream.skip(pos);
-    }
-
     @Override
     public long lastModified() {
-        return lastModified.toEpochSecond();
+        return lastModified;
     }
 
     @Override
-    public int read(byte[] buffer) throws IOException {
-        if (Objects.isNull(byteArrayStream)) {
-            this.byteArrayStream = new ByteArrayInputStream(bytes);
+    public String etag() {
+        String current = etag;
+        if (Objects.isNull(current)) {
+            current = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+            etag = current;
         }
-        return byteArrayStream.read(buffer);
+        return current;
     }
 
     @Override
-    public void closeStream() throws IOException {
-        ByteArrayInputStream currentByteArrayStream = byteArrayStream;
-        if (Objects.nonNull(currentByteArrayStream)) {
-            byteArrayStream = null;
-            currentByteArrayStream.close();
+    public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer slice = buffer.slice(Math.toIntExact(position), Math.toIntExact(count));
+        while (slice.hasRemaining()) {
+            target.write(slice);
         }
     }
 
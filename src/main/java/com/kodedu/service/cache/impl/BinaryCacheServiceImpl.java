@@ -1,17 +1,19 @@
 package com.kodedu.service.cache.impl;
 
 import com.kodedu.helper.IOHelper;
-import com.kodedu.other.Current;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.cache.CacheData;
 import com.kodedu.service.cache.InDiskData;
 import com.kodedu.service.cache.InMemoryDAta;
 
+import jakarta.annotation.PostConstruct;
 import javafx.application.Platform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
@@ -20,147 +22,263 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.Collection;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
- * Created by usta on 12.06.2016.
+ * Two tier cache of the generated images served under <code>/afx/cache</code>.
+ * <p>
+ * The memory tier is bounded by bytes and evicts the least recently used entries, which are demoted
+ * to the disk tier in background. Entries larger than an eighth of the memory tier aren't admitted and go to disk directly.
+ * Disk hits are promoted back to memory in background. The disk tier lives in the <code>binary-cache</code>
+ * folder of the config folder, it is bounded by bytes too and emptied at startup.
+ * <p>
+ * An entry is in memory, being demoted or in disk. A promoted entry keeps its file until it is evicted
+ * from disk or replaced, so demoting it again needs no write.
+ * Entries keep their validators when they move between tiers.
+ * Hits, misses, demotions, promotions and evictions are counted in {@link RenderMetrics}.
  */
 @Component(BinaryCacheService.label)
 public class BinaryCacheServiceImpl implements BinaryCacheService {
 
-    private final long maximumSize = 50 * 1024 * 1024;
-    private final AtomicLong totalSize = new AtomicLong(0);
-    private final ConcurrentHashMap<String, CacheData> cache = new ConcurrentHashMap<>();
-    private final Current current;
-    @Autowired
-    private ThreadService threadService;
+    private static final String CACHE_FOLDER = "binary-cache";
+    private static final long DEFAULT_MEMORY_BYTES = 50 * 1024 * 1024;
+    private static final long DEFAULT_DISK_BYTES = 512 * 1024 * 1024;
+
+    private record DiskEntry(InDiskData data, long size) {
+    }
+
+    private final Map<String, InMemoryDAta> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, InMemoryDAta> demoting = new HashMap<>();
+    private final Map<String, DiskEntry> disk = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private long demotingBytes;
+    private long diskBytes;
+
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final RenderMetrics renderMetrics;
+    private Executor executor;
+    private Path directory;
+    private String configFolder;
 
     private Logger logger = LoggerFactory.getLogger(BinaryCacheService.class);
 
     @Autowired
-    public BinaryCacheServiceImpl(Current current) {
-        this.current = current;
+    public BinaryCacheServiceImpl(ThreadService threadService, RenderMetrics renderMetrics,
+                                  @Value("${application.config.folder}") String configFolder) {
+        this.executor = threadService.executor();
+        this.renderMetrics = renderMetrics;
+        this.configFolder = configFolder;
+        this.maxMemoryBytes = DEFAULT_MEMORY_BYTES;
+        this.maxDiskBytes = DEFAULT_DISK_BYTES;
+    }
+
+    public BinaryCacheServiceImpl(Path directory, long maxMemoryBytes, long maxDiskBytes,
+                                  Executor executor, RenderMetrics renderMetrics) {
+        this.directory = directory;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.executor = executor;
+        this.renderMetrics = renderMetrics;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        renderMetrics.gauge("binaryCache.entries", this::size);
+        renderMetrics.gauge("binaryCache.memoryBytes", this::getMemoryBytes);
+        renderMetrics.gauge("binaryCache.diskBytes", this::getDiskBytes);
+
+        // Files of the previous sessions aren't indexed
+        long startedAt = System.currentTimeMillis();
+        executor.execute(() -> {
+            try (Stream<Path> files = IOHelper.list(directory())) {
+                files.filter(file -> {
+                    FileTime modified = IOHelper.getLastModifiedTime(file);
+                    return Objects.nonNull(modified) && modified.toMillis() < startedAt;
+                }).forEach(IOHelper::deleteIfExists);
+            }
+        });
     }
 
     @Override
     public String putBinary(String key, byte[] bytes) {
-        key = alignHttpKey(key);
+        String alignedKey = alignHttpKey(key);
         if (Platform.isFxApplicationThread()) {
-            String finalKey = key;
-            threadService.runTaskLater(() -> {
-                putBinary(finalKey, bytes);
-            });
-            return key;
+            executor.execute(() -> put(alignedKey, bytes));
+        } else {
+            put(alignedKey, bytes);
         }
+        return alignedKey;
+    }
 
-        synchronized (this) {
+    @Override
+    public void putBinary(String key, BufferedImage trimmed) {
+        if (Platform.isFxApplicationThread()) {
+            executor.execute(() -> putBinary(key, trimmed));
+            return;
+        }
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            ImageIO.write(trimmed, "png", outputStream);
+            put(alignHttpKey(key), outputStream.toByteArray());
+        } catch (IOException e) {
+            logger.error("Problem occured while caching {}", key, e);
+        }
+    }
 
-            if (hasCacheFor(bytes)) {
-                saveInMemory(key, bytes);
-            } else {
-                saveInDisk(key, bytes);
-            }
+    private synchronized void put(String key, byte[] bytes) {
+        removeEntry(key);
 
-            return key;
+        InMemoryDAta data = new InMemoryDAta(key, bytes);
+        if (bytes.length > maxMemoryBytes / 8) {
+            demote(key, data);
+            return;
         }
+        memory.put(key, data);
+        memoryBytes += bytes.length;
+        evictMemory();
     }
 
-    private void enLargeCache() {
-        threadService.runTaskLater(() -> {
-            Collection<CacheData> values = cache.values();
-            logger.debug("Enlarge cache: {}", values.size());
-            values
-                    .stream()
-                    .filter(e -> e.inDisk())
-                    .sorted((o1, o2) -> {
-                        Long l1 = o1.lastModified();
-                        Long l2 = o2.lastModified();
-                        return l1.compareTo(l2);
-                    }).limit(5)
-                    .forEach(cacheData -> {
-                        logger.debug("Larged: {}", cacheData.key());
-                        saveInMemory(cacheData.key(), cacheData.readBytes());
-                    });
-        });
+    @Override
+    public CacheData getCacheData(String key) {
+        key = alignHttpKey(key);
+        CacheData cacheData;
+        synchronized (this) {
+            cacheData = memory.get(key);
+            if (Objects.isNull(cacheData)) {
+                cacheData = demoting.get(key);
+            }
+            if (Objects.isNull(cacheData)) {
+                DiskEntry entry = disk.get(key);
+                if (Objects.nonNull(entry)) {
+                    cacheData = entry.data();
+                    renderMetrics.increment("binaryCache.hit.disk");
+                    promote(key, entry);
+                }
+            }
+        }
+        renderMetrics.increment(Objects.nonNull(cacheData) ? "binaryCache.hit" : "binaryCache.miss");
+        return cacheData;
     }
 
-    private void shrinkCache() {
-        threadService.runTaskLater(() -> {
-            Collection<CacheData> values = cache.values();
-            logger.debug("Shrinking cache, total entries: {}", values.size());
-            values
-                    .stream()
-                    .filter(e -> e.inMemory())
-                    .sorted((o1, o2) -> {
-                        Long l1 = o1.lastModified();
-                        Long l2 = o2.lastModified();
-                        return l2.compareTo(l1);
-                    }).limit(5)
-                    .forEach(cacheData -> {
-                        logger.debug("Shrunk cache entry: {}", cacheData.key());
-                        byte[] bytes = cacheData.readBytes();
-                        saveInDisk(cacheData.key(), bytes);
-                        totalSize.addAndGet(-bytes.length);
-                    });
-        });
+    @Override
+    public synchronized boolean hasCache(String key) {
+        key = alignHttpKey(key);
+        return memory.containsKey(key) || demoting.containsKey(key) || disk.containsKey(key);
     }
 
-    private void saveInDisk(String key, byte[] bytes) {
-        threadService.runActionLater(() -> {
-            Path tempFile = IOHelper.createTempFile(current.currentPath().get().getParent(), ".png");
-
-//            System.out.println(tempFile.getParent());
-            IOHelper.writeToFile(tempFile, bytes, StandardOpenOption.CREATE);
-
-            Optional.ofNullable(cache.get(key))
-                    .ifPresent(CacheData::removeFromDisk);
-
-            cache.put(key, new InDiskData(key, tempFile));
-        });
+    /**
+     * Drops the entry from all tiers, its file is deleted
+     */
+    private void removeEntry(String key) {
+        InMemoryDAta inMemory = memory.remove(key);
+        if (Objects.nonNull(inMemory)) {
+            memoryBytes -= inMemory.length();
+        }
+        InMemoryDAta inDemotion = demoting.remove(key);
+        if (Objects.nonNull(inDemotion)) {
+            demotingBytes -= inDemotion.length();
+        }
+        removeFromDisk(key);
     }
 
-    private void saveInMemory(String key, byte[] bytes) {
-
-        Optional.ofNullable(cache.get(key))
-                .ifPresent(CacheData::removeFromDisk);
-
-        Optional.ofNullable(cache.get(key))
-                .filter(e -> e.inMemory())
-                .map(e -> e.length())
-                .ifPresent(aLong -> totalSize.addAndGet(-aLong));
+    private void removeFromDisk(String key) {
+        DiskEntry entry = disk.remove(key);
+        if (Objects.nonNull(entry)) {
+            diskBytes -= entry.size();
+            executor.execute(entry.data()::removeFromDisk);
+        }
+    }
 
-        cache.put(key, new InMemoryDAta(key, bytes));
-        totalSize.addAndGet(bytes.length);
+    private void evictMemory() {
+        Iterator<Map.Entry<String, InMemoryDAta>> iterator = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            Map.Entry<String, InMemoryDAta> eldest = iterator.next();
+            iterator.remove();
+            memoryBytes -= eldest.getValue().length();
+            renderMetrics.increment("binaryCache.demotion");
+            logger.debug("Demoting cache entry: {}", eldest.getKey());
+            if (!disk.containsKey(eldest.getKey())) {
+                demote(eldest.getKey(), eldest.getValue());
+            }
+        }
     }
 
-    private boolean hasCacheFor(byte[] bytes) {
-        return maximumSize > (getTotalSize() + bytes.length);
+    private void demote(String key, InMemoryDAta data) {
+        demoting.put(key, data);
+        demotingBytes += data.length();
+        executor.execute(() -> {
+            Path file = IOHelper.createTempFile(directory(), ".bin");
+            if (Objects.nonNull(file)) {
+                IOHelper.writeToFile(file, data.readBytes(), StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            String etag = data.etag();
+            synchronized (this) {
+                // The entry may have been replaced meanwhile
+                if (demoting.get(key) != data) {
+                    if (Objects.nonNull(file)) {
+                        IOHelper.deleteIfExists(file);
+                    }
+                    return;
+                }
+                demoting.remove(key);
+                demotingBytes -= data.length();
+                if (Objects.nonNull(file)) {
+                    InDiskData inDisk = new InDiskData(key, file, data.length(), data.lastModified(), etag);
+                    disk.put(key, new DiskEntry(inDisk, data.length()));
+                    diskBytes += data.length();
+                    evictDisk();
+                }
+            }
+        });
     }
 
-    private long getTotalSize() {
-        return totalSize.get();
+    private void promote(String key, DiskEntry entry) {
+        if (entry.size() > maxMemoryBytes / 8) {
+            return;
+        }
+        executor.execute(() -> {
+            InDiskData inDisk = entry.data();
+            byte[] bytes = inDisk.readBytes();
+            synchronized (this) {
+                if (Objects.isNull(bytes) || disk.get(key) != entry || memory.containsKey(key)) {
+                    return;
+                }
+                renderMetrics.increment("binaryCache.promotion");
+                memory.put(key, new InMemoryDAta(key, bytes, inDisk.lastModified(), inDisk.etag()));
+                memoryBytes += bytes.length;
+                evictMemory();
+            }
+        });
     }
 
-    @Override
-    public CacheData getCacheData(String key) {
-        key = alignHttpKey(key);
-        return cache.get(key);
+    private void evictDisk() {
+        Iterator<Map.Entry<String, DiskEntry>> iterator = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+            Map.Entry<String, DiskEntry> eldest = iterator.next();
+            iterator.remove();
+            diskBytes -= eldest.getValue().size();
+            executor.execute(eldest.getValue().data()::removeFromDisk);
+            // A promoted entry stays in memory, it is written again when demoted
+            if (!memory.containsKey(eldest.getKey())) {
+                renderMetrics.increment("binaryCache.eviction");
+                logger.debug("Evicting cache entry: {}", eldest.getKey());
+            }
+        }
     }
 
-    @Override
-    public void putBinary(String key, BufferedImage trimmed) {
-        key = alignHttpKey(key);
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();) {
-            ImageIO.write(trimmed, "png", outputStream);
-            byte[] bytes = outputStream.toByteArray();
-            putBinary(key, bytes);
-        } catch (IOException e) {
-            e.printStackTrace();
+    private Path directory() {
+        if (Objects.isNull(directory)) {
+            directory = IOHelper.getPath(System.getProperty("user.home")).resolve(configFolder).resolve(CACHE_FOLDER);
         }
+        IOHelper.createDirectories(directory);
+        return directory;
     }
 
     private String alignHttpKey(String key) {
@@ -171,8 +289,18 @@ public class BinaryCacheServiceImpl implements BinaryCacheService {
         return key;
     }
 
-    @Override
-    public boolean hasCache(String key) {
-        return cache.containsKey(key);
+    public synchronized int size() {
+        return memory.size() + demoting.size() + (int) disk.keySet().stream().filter(key -> !memory.containsKey(key)).count();
+    }
+
+    /**
+     * Bytes in memory, entries being demoted included
+     */
+    public synchronized long getMemoryBytes() {
+        return memoryBytes + demotingBytes;
+    }
+
+    public synchronized long getDiskBytes() {
+        return diskBytes;
     }
 }
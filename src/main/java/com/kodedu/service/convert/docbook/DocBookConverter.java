@@ -8,6 +8,9 @@ import com.kodedu.other.Current;
 import com.kodedu.other.ExtensionFilters;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
 import com.kodedu.service.extension.processor.ExtensionPreprocessor;
@@ -24,7 +27,7 @@ import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
-import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.lease;
 
 /**
  * Created by usta on 19.07.2014.
@@ -42,12 +45,14 @@ public class DocBookConverter implements DocbookTraversable, DocumentConverter<R
     private final IndikatorService indikatorService;
     private final DirectoryService directoryService;
     private final ApplicationController applicationController;
+    private final RenderMetrics renderMetrics;
 
     @Autowired
     public DocBookConverter(Current current, AsciidocConverterProvider converterProvider,
                             DocbookValidator docbookValidator, DocbookConfigBean docbookConfigBean,
                             ThreadService threadService,
-                            IndikatorService indikatorService, DirectoryService directoryService, ApplicationController applicationController) {
+                            IndikatorService indikatorService, DirectoryService directoryService, ApplicationController applicationController,
+                            RenderMetrics renderMetrics) {
         this.current = current;
         this.converterProvider = converterProvider;
         this.docbookValidator = docbookValidator;
@@ -56,6 +61,7 @@ public class DocBookConverter implements DocbookTraversable, DocumentConverter<R
         this.indikatorService = indikatorService;
         this.directoryService = directoryService;
         this.applicationController = applicationController;
+        this.renderMetrics = renderMetrics;
     }
 
 
@@ -89,7 +95,10 @@ public class DocBookConverter implements DocbookTraversable, DocumentConverter<R
                         .build();
 
                 String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
-                getHtmlDoctor().convert(content, options);
+                try (RenderMetrics.Stage stage = renderMetrics.stage("export.docbook");
+                     DoctorLease lease = lease(DoctorType.HTML)) {
+                    lease.convert(content, options);
+                }
                 String rendered = IOHelper.readFile(docbookPath);
                 docbookValidator.validateDocbook(rendered);
                 logger.debug("Docbook5 conversion ended");
@@ -7,7 +7,10 @@ import com.kodedu.other.Current;
 import com.kodedu.other.ExtensionFilters;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
 import com.kodedu.service.PathResolverService;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
 import com.kodedu.service.convert.docbook.DocBookConverter;
@@ -32,7 +35,7 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.kodedu.service.AsciidoctorFactory.getNonHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.lease;
 
 /**
  * Created by usta on 30.08.2014.
@@ -50,11 +53,12 @@ public class EpubConverter implements DocumentConverter<RenderResult> {
     private final DocBookConverter docBookConverter;
     private final PathResolverService pathResolverService;
     private final Epub3ConfigBean epub3ConfigBean;
+    private final RenderMetrics renderMetrics;
 
     @Autowired
     public EpubConverter(final ApplicationController asciiDocController, final Current current, final ThreadService threadService,
                          final DirectoryService directoryService, final IndikatorService indikatorService, final DocBookConverter docBookConverter, PathResolverService pathResolverService,
-                         Epub3ConfigBean epub3ConfigBean) {
+                         Epub3ConfigBean epub3ConfigBean, RenderMetrics renderMetrics) {
         this.asciiDocController = asciiDocController;
         this.current = current;
         this.threadService = threadService;
@@ -63,6 +67,7 @@ public class EpubConverter implements DocumentConverter<RenderResult> {
         this.docBookConverter = docBookConverter;
         this.pathResolverService = pathResolverService;
         this.epub3ConfigBean = epub3ConfigBean;
+        this.renderMetrics = renderMetrics;
     }
 
     @Override
@@ -92,7 +97,10 @@ public class EpubConverter implements DocumentConverter<RenderResult> {
 
                 String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
 
-                getNonHtmlDoctor().convert(content, options);
+                try (RenderMetrics.Stage stage = renderMetrics.stage("export.epub");
+                     DoctorLease lease = lease(DoctorType.NON_HTML)) {
+                    lease.convert(content, options);
+                }
 
                 indikatorService.stopProgressBar();
                 logger.debug("Epub conversion ended");
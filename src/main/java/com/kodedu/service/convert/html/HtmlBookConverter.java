@@ -7,6 +7,9 @@ import com.kodedu.other.Current;
 import com.kodedu.other.ExtensionFilters;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
 import com.kodedu.service.convert.Traversable;
@@ -24,7 +27,7 @@ import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
-import static com.kodedu.service.AsciidoctorFactory.getHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.lease;
 
 /**
  * Created by usta on 30.08.2014.
@@ -41,12 +44,13 @@ public class HtmlBookConverter implements Traversable, DocumentConverter<RenderR
     private final IndikatorService indikatorService;
     private final HtmlConfigBean htmlConfigBean;
     private final AsciidocConverterProvider converterProvider;
+    private final RenderMetrics renderMetrics;
 
     @Autowired
     public HtmlBookConverter(final ApplicationController controller, final ThreadService threadService,
                              final DirectoryService directoryService, final Current current,
                              IndikatorService indikatorService, HtmlConfigBean htmlConfigBean,
-                             AsciidocConverterProvider converterProvider) {
+                             AsciidocConverterProvider converterProvider, RenderMetrics renderMetrics) {
         this.controller = controller;
         this.threadService = threadService;
         this.directoryService = directoryService;
@@ -54,6 +58,7 @@ public class HtmlBookConverter implements Traversable, DocumentConverter<RenderR
         this.indikatorService = indikatorService;
         this.htmlConfigBean = htmlConfigBean;
         this.converterProvider = converterProvider;
+        this.renderMetrics = renderMetrics;
     }
 
     @Override
@@ -84,7 +89,10 @@ public class HtmlBookConverter implements Traversable, DocumentConverter<RenderR
 
             String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
 
-            getHtmlDoctor().convert(content, options);
+            try (RenderMetrics.Stage stage = renderMetrics.stage("export.html");
+                 DoctorLease lease = lease(DoctorType.HTML)) {
+                lease.convert(content, options);
+            }
 
             controller.addRemoveRecentList(htmlBookPath);
 
@@ -6,6 +6,9 @@ import com.kodedu.other.Current;
 import com.kodedu.other.ExtensionFilters;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
+import com.kodedu.service.DoctorLease;
+import com.kodedu.service.DoctorType;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
 import com.kodedu.service.extension.processor.ExtensionPreprocessor;
@@ -23,7 +26,7 @@ import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import static com.kodedu.helper.AsciidoctorHelper.convertSafe;
-import static com.kodedu.service.AsciidoctorFactory.getNonHtmlDoctor;
+import static com.kodedu.service.AsciidoctorFactory.lease;
 
 /**
  * Created by usta on 09.04.2015.
@@ -39,18 +42,20 @@ public class AsciidoctorPdfBookConverter implements DocumentConverter<RenderResu
     private final DirectoryService directoryService;
     private final Current current;
 	private final PdfConfigBean pdfConfigBean;
+    private final RenderMetrics renderMetrics;
 
     @Autowired
     public AsciidoctorPdfBookConverter(final ApplicationController asciiDocController,
                             final IndikatorService indikatorService, final PdfConfigBean pdfConfigBean,
                             final ThreadService threadService, final DirectoryService directoryService,
-                            final Current current) {
+                            final Current current, final RenderMetrics renderMetrics) {
         this.asciiDocController = asciiDocController;
         this.indikatorService = indikatorService;
         this.threadService = threadService;
         this.directoryService = directoryService;
         this.current = current;
         this.pdfConfigBean = pdfConfigBean;
+        this.renderMetrics = renderMetrics;
     }
 
 
@@ -83,7 +88,10 @@ public class AsciidoctorPdfBookConverter implements DocumentConverter<RenderResu
 						.attributes(attributes)
 						.build();
 				String content = ExtensionPreprocessor.correctExtensionBlocks(asciidoc);
-				getNonHtmlDoctor().convert(content, options);
+				try (RenderMetrics.Stage stage = renderMetrics.stage("export.pdf");
+					 DoctorLease lease = lease(DoctorType.NON_HTML)) {
+					lease.convert(content, options);
+				}
 				asciiDocController.addRemoveRecentList(pdfPath);
 				onSuccessfulConversation(nextStep, destFile);
 			} catch (Exception e) {
@@ -11,6 +11,7 @@ import com.kodedu.other.ExtensionFilters;
 import com.kodedu.other.RenderResult;
 import com.kodedu.service.DirectoryService;
 import com.kodedu.service.PathResolverService;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.convert.DocumentConverter;
 import com.kodedu.service.convert.docbook.DocBookConverter;
@@ -56,12 +57,14 @@ public class FopPdfBookConverter implements DocumentConverter<RenderResult> {
     private final DirectoryService directoryService;
     private final Current current;
     private final PathResolverService pathResolverService;
+    private final RenderMetrics renderMetrics;
     private FopFactory fopFactory;
 
     @Autowired
     public FopPdfBookConverter(final ApplicationController asciiDocController, final DocBookConverter docBookConverter,
                             final IndikatorService indikatorService,
-                            final ThreadService threadService, final DirectoryService directoryService, final Current current, PathResolverService pathResolverService) {
+                            final ThreadService threadService, final DirectoryService directoryService, final Current current, PathResolverService pathResolverService,
+                            RenderMetrics renderMetrics) {
         this.asciiDocController = asciiDocController;
         this.docBookConverter = docBookConverter;
         this.indikatorService = indikatorService;
@@ -69,6 +72,7 @@ public class FopPdfBookConverter implements DocumentConverter<RenderResult> {
         this.directoryService = directoryService;
         this.current = current;
         this.pathResolverService = pathResolverService;
+        this.renderMetrics = renderMetrics;
     }
 
 
@@ -91,7 +95,8 @@ public class FopPdfBookConverter implements DocumentConverter<RenderResult> {
                 final Path docbookTempfile = IOHelper.createTempFile(currentTabPathDir, ".xml");
                 IOHelper.writeToFile(docbookTempfile, docbook.getContent(), CREATE, WRITE, TRUNCATE_EXISTING);
 
-                try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(pdfPath.toFile()));) {
+                try (RenderMetrics.Stage stage = renderMetrics.stage("export.fop");
+                     OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(pdfPath.toFile()));) {
                     // Setup XSLT
                     TransformerFactory factory = TransformerFactory.newInstance();
                     Transformer transformer = factory.newTransformer(new StreamSource(configPath.resolve("docbook-config/fo-pdf.xsl").toFile()));
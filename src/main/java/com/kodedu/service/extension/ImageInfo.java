@@ -1,4 +1,15 @@
 package com.kodedu.service.extension;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
 public record ImageInfo(String imagesDir, String imageTarget, String imagePath) {
+
+    /**
+     * File of the image, null for the images served under <code>/afx/cache</code>
+     */
+    public Path path() {
+        return Objects.nonNull(imagePath) ? Paths.get(imagePath) : null;
+    }
 }
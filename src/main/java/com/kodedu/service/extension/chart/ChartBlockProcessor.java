@@ -4,6 +4,8 @@ import static java.util.Objects.nonNull;
 import static org.asciidoctor.extension.Contexts.*;
 import static org.asciidoctor.extension.Contexts.PARAGRAPH;
 
+import com.kodedu.service.RenderJob;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 
 import com.kodedu.service.extension.base.CustomBlockProcessor;
@@ -37,32 +39,49 @@ public class ChartBlockProcessor extends CustomBlockProcessor implements CustomP
 
     private final ChartProvider chartProvider;
 	private final ThreadService threadService;
+	private final RenderMetrics renderMetrics;
     
-    public ChartBlockProcessor(Environment environment, ChartProvider chartProvider, ThreadService threadService) {
+    public ChartBlockProcessor(Environment environment, ChartProvider chartProvider, ThreadService threadService,
+							   RenderMetrics renderMetrics) {
 		super(environment);
 		this.chartProvider = chartProvider;
     	this.threadService = threadService;
+		this.renderMetrics = renderMetrics;
 	}
 
 	@Override
 	public Object process(ContentNode parent, Reader reader, Map<String, Object> attributes, ImageInfo imageInfo, String content) {
 		String chartType = String.valueOf(attributes.get("2"));
 
+		if (RenderJob.isCurrentCancelled()) {
+			return createBlockImage((StructuralNode) parent, attributes, imageInfo);
+		}
+
 		var optMap = parseChartOptions((String) attributes.get("opt"));
+		ChartBuilderService chartBuilder = chartProvider.getProvider(chartType);
+
+		// Cached charts are restored here, without waiting for the FX thread
+		if (chartBuilder.restore(content, imageInfo, optMap)) {
+			return createBlockImage((StructuralNode) parent, attributes, imageInfo);
+		}
 
+		RenderMetrics.Stage stage = renderMetrics.stage("extension.chart");
 		CompletableFuture completableFuture = new CompletableFuture();
 
 		completableFuture.runAsync(()->{
 			threadService.runActionLater(() -> {
-				chartProvider.getProvider(chartType)
-						.chartBuild(content, imageInfo, optMap, completableFuture);
+				chartBuilder.chartBuild(content, imageInfo, optMap, completableFuture);
 			});
 		}, threadService.executor());
 
 		try {
-			completableFuture.get(10, TimeUnit.SECONDS);
+			RenderJob.await(completableFuture, 10, TimeUnit.SECONDS);
+		} catch (CancellationException e) {
+			logger.debug("FX chart generation is cancelled. {}", content);
 		} catch (Exception e) {
 			logger.error("Could not create FX chart. {}", content, e);
+		} finally {
+			stage.close();
 		}
 
 		// Not sure why, but it seems that it only works if target is set afterwards
@@ -11,6 +11,13 @@ import java.util.concurrent.CompletableFuture;
  */
 public interface ChartBuilderService {
 
+    /**
+     * Restores the chart image from the {@link com.kodedu.service.DiagramCache}, called off the FX thread
+     *
+     * @return false if the chart has to be built
+     */
+    public boolean restore(String chartContent, ImageInfo imageInfo, Map<String, String> optMap);
+
     public boolean chartBuild(String chartContent, ImageInfo imageInfo, Map<String,
             String> optMap, CompletableFuture completableFuture);
 
@@ -3,8 +3,8 @@ package com.kodedu.service.extension.chart.impl;
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.other.Current;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import javafx.scene.chart.AreaChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
@@ -17,8 +17,8 @@ import org.springframework.stereotype.Component;
 public class AreaChartBuilderServiceImpl extends XYChartBuilderServiceImpl {
 
     public AreaChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller,
-                                       ExtensionConfigBean extensionConfigBean, BinaryCacheService binaryCacheService) {
-        super(threadService, current, controller, extensionConfigBean, binaryCacheService);
+                                       ExtensionConfigBean extensionConfigBean, DiagramCache diagramCache) {
+        super(threadService, current, controller, extensionConfigBean, diagramCache);
     }
 
     @Override
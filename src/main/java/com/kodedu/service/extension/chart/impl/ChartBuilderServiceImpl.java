@@ -1,17 +1,19 @@
 package com.kodedu.service.extension.chart.impl;
 
+import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.other.Current;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.chart.ChartBuilderService;
 
 import javafx.scene.chart.*;
 
+import java.awt.image.BufferedImage;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Map;
-import java.util.Objects;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -22,36 +24,61 @@ public abstract class ChartBuilderServiceImpl implements ChartBuilderService {
     private final ThreadService threadService;
     private final Current current;
     private final ApplicationController controller;
+    private final ExtensionConfigBean extensionConfigBean;
+    private final DiagramCache diagramCache;
     protected Path currentRoot;
 
-    public ChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller) {
+    public ChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller,
+                                   ExtensionConfigBean extensionConfigBean, DiagramCache diagramCache) {
         this.threadService = threadService;
         this.current = current;
         this.controller = controller;
+        this.extensionConfigBean = extensionConfigBean;
+        this.diagramCache = diagramCache;
     }
 
     @Override
-    public boolean chartBuild(String chartContent, ImageInfo imageInfo, Map<String, String> optMap, CompletableFuture completableFuture) {
-
+    public boolean restore(String chartContent, ImageInfo imageInfo, Map<String, String> optMap) {
         if (!imageInfo.imageTarget().contains(".png")) {
             return false;
         }
+        String key = imageKey(chartContent, optMap);
+        if (diagramCache.restore(key, imageInfo.imageTarget(), imageInfo.path())) {
+            current.getCache().put(imageInfo.imageTarget(), key);
+            return true;
+        }
+        return false;
+    }
 
-        Integer cacheHit = current.getCache().get(imageInfo.imageTarget());
-        int hashCode = (imageInfo.imageTarget() + imageInfo.imagePath() + imageInfo.imagesDir() + chartContent).hashCode() + optMap.hashCode();
+    /**
+     * @return false if the chart isn't built, it is restored by {@link #restore(String, ImageInfo, Map)} beforehand
+     */
+    @Override
+    public boolean chartBuild(String chartContent, ImageInfo imageInfo, Map<String, String> optMap, CompletableFuture completableFuture) {
 
-        if (Objects.nonNull(cacheHit))
-            if (hashCode == cacheHit) {
-                return false;
-            }
+        if (!imageInfo.imageTarget().contains(".png")) {
+            return false;
+        }
 
-        current.getCache().put(imageInfo.imageTarget(), hashCode);
+        current.getCache().put(imageInfo.imageTarget(), imageKey(chartContent, optMap));
 
         currentRoot = current.currentTab().getParentOrWorkdir();
 
         return true;
     }
 
+    /**
+     * Writes the chart image to its target and keeps it in the {@link DiagramCache}
+     */
+    protected void saveImage(String chartContent, ImageInfo imageInfo, Map<String, String> optMap, BufferedImage image) {
+        diagramCache.save(imageKey(chartContent, optMap), "chart", imageInfo.imageTarget(), imageInfo.path(), image);
+    }
+
+    private String imageKey(String chartContent, Map<String, String> optMap) {
+        return diagramCache.key("chart", getClass().getName(), chartContent, new TreeMap<>(optMap),
+                extensionConfigBean.getDefaultImageScale());
+    }
+
     protected XYChart<String, Number> createLineChart() {
         final CategoryAxis xAxis = new CategoryAxis();
         final NumberAxis yAxis = new NumberAxis();
@@ -3,8 +3,8 @@ package com.kodedu.service.extension.chart.impl;
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.other.Current;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
@@ -18,8 +18,8 @@ import org.springframework.stereotype.Component;
 public class LineChartBuilderServiceImpl extends XYChartBuilderServiceImpl {
 
     public LineChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller,
-                                       ExtensionConfigBean extensionConfigBean, BinaryCacheService binaryCacheService) {
-        super(threadService, current, controller, extensionConfigBean, binaryCacheService);
+                                       ExtensionConfigBean extensionConfigBean, DiagramCache diagramCache) {
+        super(threadService, current, controller, extensionConfigBean, diagramCache);
     }
 
     @Override
@@ -2,10 +2,9 @@ package com.kodedu.service.extension.chart.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.chart.ChartBuilderService;
 import javafx.collections.FXCollections;
@@ -22,8 +21,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.awt.image.BufferedImage;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -37,19 +34,17 @@ public class PieChartBuilderServiceImpl extends ChartBuilderServiceImpl {
     private final Current current;
     private final ApplicationController controller;
     private final ExtensionConfigBean extensionConfigBean;
-    private final BinaryCacheService binaryCacheService;
 
     private final Logger logger = LoggerFactory.getLogger(PieChartBuilderServiceImpl.class);
 
     @Autowired
     public PieChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller,
-                                      ExtensionConfigBean extensionConfigBean, BinaryCacheService binaryCacheService) {
-        super(threadService, current, controller);
+                                      ExtensionConfigBean extensionConfigBean, DiagramCache diagramCache) {
+        super(threadService, current, controller, extensionConfigBean, diagramCache);
         this.threadService = threadService;
         this.current = current;
         this.controller = controller;
         this.extensionConfigBean = extensionConfigBean;
-        this.binaryCacheService = binaryCacheService;
     }
 
     @Override
@@ -63,7 +58,6 @@ public class PieChartBuilderServiceImpl extends ChartBuilderServiceImpl {
         }
 
         String imageTargetStr = imageInfo.imageTarget();
-        boolean cachedResource = imageTargetStr.contains("/afx/cache");
 
         String[] split = chartContent.split("\\r?\\n");
         List<String> lines = Arrays.asList(split);
@@ -146,12 +140,7 @@ public class PieChartBuilderServiceImpl extends ChartBuilderServiceImpl {
             controller.getRootAnchor().getChildren().remove(pieChart);
             BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-            if (!cachedResource) {
-                Path imagePath = Paths.get(imageInfo.imagePath());
-                IOHelper.imageWrite(bufferedImage, "png", imagePath.toFile());
-            } else {
-                binaryCacheService.putBinary(imageTargetStr, bufferedImage);
-            }
+            saveImage(chartContent, imageInfo, optMap, bufferedImage);
             logger.debug("Chart extension is ended for {}", imageTargetStr);
             completableFuture.complete(null);
 
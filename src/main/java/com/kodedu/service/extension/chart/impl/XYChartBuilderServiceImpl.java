@@ -2,10 +2,9 @@ package com.kodedu.service.extension.chart.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.chart.ChartBuilderService;
 
@@ -22,8 +21,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
@@ -36,17 +33,15 @@ public abstract class XYChartBuilderServiceImpl extends ChartBuilderServiceImpl
     private final Current current;
     private final ApplicationController controller;
     private final ExtensionConfigBean extensionConfigBean;
-    private final BinaryCacheService binaryCacheService;
     private final Logger logger = LoggerFactory.getLogger(ChartBuilderService.class);
 
     public XYChartBuilderServiceImpl(ThreadService threadService, Current current, ApplicationController controller,
-                                     ExtensionConfigBean extensionConfigBean, BinaryCacheService binaryCacheService) {
-        super(threadService, current, controller);
+                                     ExtensionConfigBean extensionConfigBean, DiagramCache diagramCache) {
+        super(threadService, current, controller, extensionConfigBean, diagramCache);
         this.threadService = threadService;
         this.current = current;
         this.controller = controller;
         this.extensionConfigBean = extensionConfigBean;
-        this.binaryCacheService = binaryCacheService;
     }
 
     @Override
@@ -60,7 +55,6 @@ public abstract class XYChartBuilderServiceImpl extends ChartBuilderServiceImpl
         }
 
         String imageTargetStr = imageInfo.imageTarget();
-        boolean cachedResource = imageTargetStr.contains("/afx/cache");
 
         logger.debug("Chart extension is started for {}", imageTargetStr);
 
@@ -226,12 +220,7 @@ public abstract class XYChartBuilderServiceImpl extends ChartBuilderServiceImpl
         controller.getRootAnchor().getChildren().remove(xyChart);
         BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-        if (!cachedResource) {
-            Path imagePath = Paths.get(imageInfo.imagePath());
-            IOHelper.imageWrite(bufferedImage, "png", imagePath.toFile());
-        } else {
-            binaryCacheService.putBinary(imageTargetStr, bufferedImage);
-        }
+        saveImage(chartContent, imageInfo, optMap, bufferedImage);
         logger.debug("Chart extension is ended for {}", imageTargetStr);
         completableFuture.complete(null);
 
@@ -3,11 +3,10 @@ package com.kodedu.service.extension.impl;
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.ClipboardHelper;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.other.TrimWhite;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.MathJaxService;
 
@@ -26,7 +25,6 @@ import org.springframework.stereotype.Component;
 
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 
@@ -44,7 +42,7 @@ public class MathJaxServiceImpl implements MathJaxService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private DiagramCache diagramCache;
 
     private WebView webView;
     private boolean initialized;
@@ -88,7 +86,10 @@ public class MathJaxServiceImpl implements MathJaxService {
 
     @Override
     public void reload() {
-        this.load();
+        // The MathJax page is loaded with the first formula
+        if (Objects.nonNull(webView)) {
+            this.load();
+        }
     }
 
     private WebEngine webEngine() {
@@ -98,6 +99,17 @@ public class MathJaxServiceImpl implements MathJaxService {
     @Override
     public void processFormula(String formula, ImageInfo imageInfo, CompletableFuture completableFuture) {
 
+        // Formulas generated in a previous session are restored without loading MathJax
+        String imageTargetStr = imageInfo.imageTarget();
+        if (imageTargetStr.contains(".png") || imageTargetStr.contains("/afx/cache")) {
+            String key = key(formula);
+            if (diagramCache.restore(key, imageTargetStr, imageInfo.path())) {
+                current.getCache().put(imageTargetStr, key);
+                completeSnapShot(completableFuture);
+                return;
+            }
+        }
+
         threadService.runActionLater(() -> {
 
             if (initialized) {
@@ -149,43 +161,30 @@ public class MathJaxServiceImpl implements MathJaxService {
                 return;
             }
 
-            Integer cacheHit = current.getCache().get(imageTargetStr);
-
-            String imagePathStr = imageInfo.imagePath();
-            int hashCode = (imageTargetStr + imagePathStr + imageInfo.imagesDir() + formula).hashCode();
+            String key = key(formula);
 
-            if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
+            WritableImage writableImage = getWebView().snapshot(new SnapshotParameters(), null);
+            BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-                WritableImage writableImage = getWebView().snapshot(new SnapshotParameters(), null);
-                BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
+            Path imagePath = imageInfo.path();
 
-                Path path = current.currentTab().getParentOrWorkdir();
+            threadService.runTaskLater(() -> {
+                try {
+                    TrimWhite trimWhite = new TrimWhite();
+                    BufferedImage trimmed = trimWhite.trim(bufferedImage);
+                    diagramCache.save(key, "mathjax", imageTargetStr, imagePath, trimmed);
 
-                threadService.runTaskLater(() -> {
-                    try {
-                        TrimWhite trimWhite = new TrimWhite();
-                        BufferedImage trimmed = trimWhite.trim(bufferedImage);
-                        if (!cachedResource) {
-                            Path imagePath = Paths.get(imagePathStr);
-                            IOHelper.imageWrite(trimmed, "png", imagePath.toFile());
-                        } else {
-                            binaryCacheService.putBinary(imageTargetStr, trimmed);
-                        }
+                    completeSnapShot(completableFuture);
 
-                        completeSnapShot(completableFuture);
+                    current.getCache().put(imageTargetStr, key);
+                    logger.debug("MathJax extension is ended for {}", imageTargetStr);
 
-                        current.getCache().put(imageTargetStr, hashCode);
-                        logger.debug("MathJax extension is ended for {}", imageTargetStr);
-
-                    } catch (Exception e) {
-                        logger.error("Problem occured while generating MathJax png", e);
-                        completeSnapShot(completableFuture, e);
-                        throw new RuntimeException(e);
-                    }
-                });
-            }else{
-                completeSnapShot(completableFuture);
-            }
+                } catch (Exception e) {
+                    logger.error("Problem occured while generating MathJax png", e);
+                    completeSnapShot(completableFuture, e);
+                    throw new RuntimeException(e);
+                }
+            });
         } catch (Exception e) {
             logger.error("Problem occured while generating MathJax png", e);
             completeSnapShot(completableFuture, e);
@@ -195,6 +194,10 @@ public class MathJaxServiceImpl implements MathJaxService {
 
     }
 
+    private String key(String formula) {
+        return diagramCache.key("mathjax", formula, extensionConfigBean.getDefaultImageZoom());
+    }
+
     private void completeSnapShot(CompletableFuture completableFuture, Exception e) {
         if(Objects.nonNull(completableFuture)){
             completableFuture.completeExceptionally(e);
@@ -2,11 +2,11 @@ package com.kodedu.service.extension.impl;
 
 import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
-import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
 import com.kodedu.other.TrimWhite;
+import com.kodedu.service.DiagramCache;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.extension.MermaidService;
 
 import javafx.embed.swing.SwingFXUtils;
@@ -27,6 +27,7 @@ import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component(MermaidService.label)
 public class MermaidServiceImpl implements MermaidService {
@@ -39,7 +40,9 @@ public class MermaidServiceImpl implements MermaidService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private DiagramCache diagramCache;
+    @Autowired
+    private RenderMetrics renderMetrics;
 
     @Value("${application.mermaid.url}")
     private String mermaidUrl;
@@ -72,12 +75,18 @@ public class MermaidServiceImpl implements MermaidService {
             return;
         }
 
-        Integer cacheHit = current.getCache().get(imageTarget);
+        String key = diagramCache.key("mermaid", type, mermaidContent);
 
-        int hashCode = Objects.hash(imageTarget, imagesDir, type, mermaidContent);
-        if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
+        Path path = current.currentTab().getParentOrWorkdir();
+        Path imagePath = path.resolve(imageTarget);
 
-            Path path = current.currentTab().getParentOrWorkdir();
+        threadService.runTaskLater(() -> {
+            if (diagramCache.restore(key, imageTarget, imagePath)) {
+                current.getCache().put(imageTarget, key);
+                return;
+            }
+
+            long start = System.nanoTime();
 
             threadService.runActionLater(() -> {
                 WebView webView = new WebView();
@@ -117,15 +126,10 @@ public class MermaidServiceImpl implements MermaidService {
                                 return;
                             }
 
-                            if (!cachedResource) {
-                                Path treePath = path.resolve(imageTarget);
-                                IOHelper.createDirectories(path.resolve(imagesDir));
-                                IOHelper.imageWrite(trimmed, "png", treePath.toFile());
-                            } else {
-                                binaryCacheService.putBinary(imageTarget, trimmed);
-                            }
+                            diagramCache.save(key, "mermaid", imageTarget, imagePath, trimmed);
 
-                            current.getCache().put(imageTarget, hashCode);
+                            current.getCache().put(imageTarget, key);
+                            renderMetrics.record("extension.mermaid", System.nanoTime() - start, TimeUnit.NANOSECONDS);
                         });
 
                     } else {
@@ -133,10 +137,7 @@ public class MermaidServiceImpl implements MermaidService {
                     }
                 });
             });
-
-        }
-
-
+        });
     }
 
     private boolean isImageEmpty(BufferedImage bufferedImage) {
@@ -4,14 +4,15 @@ import com.kodedu.config.ExtensionConfigBean;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.Current;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.extension.PlantUmlService;
 
 import net.sourceforge.plantuml.FileFormat;
 import net.sourceforge.plantuml.FileFormatOption;
 import net.sourceforge.plantuml.SourceStringReader;
 import net.sourceforge.plantuml.security.SFile;
+import net.sourceforge.plantuml.version.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +23,6 @@ import java.nio.file.Path;
 import java.util.Objects;
 
 import static java.lang.String.format;
-import static java.nio.file.StandardOpenOption.*;
 import static java.util.Objects.nonNull;
 
 /**
@@ -39,7 +39,7 @@ public class PlantUmlServiceImpl implements PlantUmlService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private DiagramCache diagramCache;
 
     @Autowired
     public PlantUmlServiceImpl(final Current current, final ApplicationController controller, ExtensionConfigBean extensionConfigBean) {
@@ -94,21 +94,22 @@ public class PlantUmlServiceImpl implements PlantUmlService {
             uml = uml.replaceFirst("@startditaa", format("@startditaa(%s)", options));
         }
 
-        Integer cacheHit = current.getCache().get(imageTarget);
-
-        int hashCode = (imageTarget + imagesDir + type + uml + nodename + options).hashCode();
-
-        if (nonNull(cacheHit))
-            if (hashCode == cacheHit)
-                return;
-
-        logger.debug("UML extension is started for {}", imageTarget);
+        String fileFormat = imageTarget.endsWith(".svg") ? "svg" : "png";
+        String key = diagramCache.key("plantuml", Version.versionString(), fileFormat, type, nodename, uml, options,
+                extensionConfigBean.getDefaultImageDpi());
 
         try {
 
             Path path = current.currentTab().getParentOrWorkdir();
             Path umlPath = path.resolve(imageTarget);
 
+            if (diagramCache.restore(key, imageTarget, umlPath)) {
+                current.getCache().put(imageTarget, key);
+                return;
+            }
+
+            logger.debug("UML extension is started for {}", imageTarget);
+
             SourceStringReader reader = new SourceStringReader(uml, SFile.fromFile(path.toAbsolutePath().toFile()));
 
             FileFormat fileType = imageTarget.endsWith(".svg") ? FileFormat.SVG : FileFormat.PNG;
@@ -119,14 +120,7 @@ public class PlantUmlServiceImpl implements PlantUmlService {
 
                 reader.outputImage(os, new FileFormatOption(fileType));
 
-                if (!cachedResource) {
-                    IOHelper.createDirectories(path.resolve(imagesDir));
-                    IOHelper.writeToFile(umlPath, os.toByteArray(), CREATE, WRITE, TRUNCATE_EXISTING, SYNC);
-                } else {
-                    binaryCacheService.putBinary(imageTarget, os.toByteArray());
-                }
-
-                IOHelper.close(os);
+                diagramCache.save(key, "plantuml", imageTarget, umlPath, os.toByteArray());
 
                 logger.debug("UML extension is ended for {}", imageTarget);
             } catch (Exception e) {
@@ -135,7 +129,7 @@ public class PlantUmlServiceImpl implements PlantUmlService {
                 IOHelper.close(os);
             }
 
-            current.getCache().put(imageTarget, hashCode);
+            current.getCache().put(imageTarget, key);
 
         } catch (Exception e) {
             logger.error("Problem occured while generating UML diagram", e);
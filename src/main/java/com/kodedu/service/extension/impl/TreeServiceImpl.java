@@ -7,8 +7,8 @@ import com.kodedu.helper.FxHelper;
 import com.kodedu.other.Current;
 import com.kodedu.other.TrimWhite;
 import com.kodedu.other.Tuple;
+import com.kodedu.service.DiagramCache;
 import com.kodedu.service.ThreadService;
-import com.kodedu.service.cache.BinaryCacheService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.TreeService;
 import com.kodedu.service.ui.AwesomeService;
@@ -32,7 +32,6 @@ import org.springframework.util.StringUtils;
 
 import java.awt.image.BufferedImage;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
@@ -52,7 +51,7 @@ public class TreeServiceImpl implements TreeService {
     @Autowired
     private ThreadService threadService;
     @Autowired
-    private BinaryCacheService binaryCacheService;
+    private DiagramCache diagramCache;
     @Autowired
     private AwesomeService awesomeService;
 
@@ -82,11 +81,8 @@ public class TreeServiceImpl implements TreeService {
             return;
         }
 
-        Integer cacheHit = current.getCache().get(imageTargetStr);
-
-        String imagePathStr = imageInfo.imagePath();
-        int hashCode = (imageTargetStr + imageInfo.imagesDir() + imagePathStr + type + tree).hashCode();
-        if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
+        String key = diagramCache.key("tree", type, tree);
+        if (!diagramCache.restore(key, imageTargetStr, imageInfo.path())) {
 
             logger.debug("Tree extension is started for {}", imageTargetStr);
 
@@ -222,13 +218,7 @@ public class TreeServiceImpl implements TreeService {
                     WritableImage writableImage = fileView.snapshot(new SnapshotParameters(), null);
                     BufferedImage bufferedImage = SwingFXUtils.fromFXImage(writableImage, null);
 
-                    if (!cachedResource) {
-                        Path imagePath = Paths.get(imagePathStr);
-                        IOHelper.imageWrite(bufferedImage, "png", imagePath.toFile());
-
-                    } else {
-                        binaryCacheService.putBinary(imageTargetStr, bufferedImage);
-                    }
+                    diagramCache.save(key, "tree", imageTargetStr, imageInfo.path(), bufferedImage);
 
                     logger.debug("Tree extension is ended for {}", imageTargetStr);
 
@@ -245,7 +235,7 @@ public class TreeServiceImpl implements TreeService {
             completed.complete(null);
         }
 
-        current.getCache().put(imageTargetStr, hashCode);
+        current.getCache().put(imageTargetStr, key);
     }
 
     private void applyFolderIcon(TreeItem<Tuple<Integer, String>> lastItem) {
@@ -273,14 +263,9 @@ public class TreeServiceImpl implements TreeService {
             return;
         }
 
-        Integer cacheHit = current.getCache().get(imageTargetStr);
-
-        String imagePathStr = imageInfo.imagePath();
-        String imagesDirStr = imageInfo.imagesDir();
-        int hashCode = (imagePathStr + imagesDirStr + imagePathStr + type + tree).hashCode();
-        if (Objects.isNull(cacheHit) || hashCode != cacheHit) {
-
-            Path path = current.currentTab().getParentOrWorkdir();
+        int zoom = extensionConfigBean.getDefaultImageZoom();
+        String key = diagramCache.key("tree.highlight", type, tree, zoom);
+        if (!diagramCache.restore(key, imageTargetStr, imageInfo.path())) {
 
             threadService.runActionLater(() -> {
 
@@ -289,8 +274,6 @@ public class TreeServiceImpl implements TreeService {
                 treeview.setLayoutY(-21000);
                 treeview.setMinSize(0, 0);
 
-                int zoom = extensionConfigBean.getDefaultImageZoom();
-
                 treeview.setPrefSize(300, 600);
                 treeview.setZoom(zoom);
 
@@ -316,12 +299,7 @@ public class TreeServiceImpl implements TreeService {
                             TrimWhite trimWhite = new TrimWhite();
                             BufferedImage trimmed = trimWhite.trim(bufferedImage);
 
-                            if (!cachedResource) {
-                                Path imagePath = Paths.get(imagePathStr);
-                                IOHelper.imageWrite(trimmed, "png", imagePath.toFile());
-                            } else {
-                                binaryCacheService.putBinary(imageTargetStr, trimmed);
-                            }
+                            diagramCache.save(key, "tree.highlight", imageTargetStr, imageInfo.path(), trimmed);
                             completed.complete(null);
 
                             threadService.runActionLater(() -> {
@@ -337,6 +315,6 @@ public class TreeServiceImpl implements TreeService {
             completed.complete(null);
         }
 
-        current.getCache().put(imageTargetStr, hashCode);
+        current.getCache().put(imageTargetStr, key);
     }
 }
@@ -1,5 +1,7 @@
 package com.kodedu.service.extension.math;
 
+import com.kodedu.service.RenderJob;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.MathJaxService;
@@ -8,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -19,22 +22,30 @@ public class MathProcessor {
 
     private final MathJaxService mathJaxService;
     private final ThreadService threadService;
+    private final RenderMetrics renderMetrics;
 
-    public MathProcessor(MathJaxService mathJaxService, ThreadService threadService) {
+    public MathProcessor(MathJaxService mathJaxService, ThreadService threadService, RenderMetrics renderMetrics) {
         this.mathJaxService = mathJaxService;
         this.threadService = threadService;
+        this.renderMetrics = renderMetrics;
     }
 
     public void process(ImageInfo imageInfo, String content) {
 
-        CompletableFuture completableFuture = new CompletableFuture();
+        if (RenderJob.isCurrentCancelled()) {
+            return;
+        }
+
+        try (RenderMetrics.Stage stage = renderMetrics.stage("extension.mathjax")) {
+            CompletableFuture completableFuture = new CompletableFuture();
 
-        completableFuture.runAsync(() -> {
-            mathJaxService.processFormula(content, imageInfo, completableFuture);
-        }, threadService.executor());
+            completableFuture.runAsync(() -> {
+                mathJaxService.processFormula(content, imageInfo, completableFuture);
+            }, threadService.executor());
 
-        try {
-            completableFuture.get(10, TimeUnit.SECONDS);
+            RenderJob.await(completableFuture, 10, TimeUnit.SECONDS);
+        } catch (CancellationException e) {
+            logger.debug("Formula generation is cancelled. {}", content);
         } catch (Exception e) {
             logger.error("Error occured during tree generation. {}", content, e);
         }
@@ -11,6 +11,8 @@ import org.asciidoctor.extension.Treeprocessor;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import static com.kodedu.helper.AsciidoctorHelper.editorLine;
+
 @Component
 @Scope("prototype")
 public class DataLineProcessor extends Treeprocessor {
@@ -56,8 +58,10 @@ public class DataLineProcessor extends Treeprocessor {
 				}
 			}
 
-			int lineNo = sourceLocation.getLineNumber();
-			node.addRole("data-line-" + lineNo);
+			int lineNo = editorLine(document, sourceLocation.getFile(), sourceLocation.getLineNumber());
+			if (lineNo > 0) {
+				node.addRole("data-line-" + lineNo);
+			}
 			List<StructuralNode> blocks = node.getBlocks();
 			for (StructuralNode block : blocks) {
 				addDataLineInformation(document, block);
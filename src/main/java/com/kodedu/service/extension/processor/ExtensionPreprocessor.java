@@ -3,11 +3,16 @@ package com.kodedu.service.extension.processor;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
+/**
+ * Rewrites AsciidocFX specific extension syntax to the one of the registered extensions,
+ * e.g. <code>[uml]</code> to <code>[plantuml]</code> or <code>stem:[..]</code> to <code>stem_:[..]</code>.
+ * <p>
+ * The text is scanned once, only lines which have a trigger character at a relevant place are
+ * examined further. Lines are rewritten in place, the text is returned as is if nothing is rewritten.
+ */
 @Component
 @Scope("prototype")
 public class ExtensionPreprocessor {
@@ -17,46 +22,124 @@ public class ExtensionPreprocessor {
 
     private static final List<String> mathExtensions = List.of("stem", "asciimath", "latexmath", "mathml", "tex");
 
+    private static final List<String> blockTargetPrefixes = blockExtensions.stream().map(e -> "[" + e + ",").toList();
+    private static final List<String> blockMathPrefixes = mathExtensions.stream().map(e -> "[" + e).toList();
+    private static final List<String> blockMathReplacements = mathExtensions.stream().map(e -> "[" + e + "_").toList();
+    private static final List<String> inlineMathPrefixes = mathExtensions.stream().map(e -> e + ":").toList();
+    private static final List<String> inlineMathInMiddle = mathExtensions.stream().map(e -> " " + e + ":").toList();
+    private static final List<String> inlineMathReplacements = mathExtensions.stream().map(e -> e + "_:").toList();
+
+    private static final String FILE_ATTRIBUTE = "file=\"";
+
     public static String correctExtensionBlocks(String content) {
 
         if (Objects.isNull(content)) {
             return null;
         }
 
-        String[] lines = content.split("\\R");
-        return Arrays.stream(lines)
-                .map(ExtensionPreprocessor::correctUmlBlocks)
-                .map(ExtensionPreprocessor::correctTargetInBlocks)
-                .map(ExtensionPreprocessor::correctInlineMathExtensions)
-                .map(ExtensionPreprocessor::correctBlockMathExtensions)
-                .collect(Collectors.joining("\n"));
+        if (content.indexOf('[') < 0 && content.indexOf(':') < 0) {
+            return content;
+        }
+
+        int length = content.length();
+        StringBuilder builder = null;
+        int copied = 0;
+        int start = 0;
+
+        while (start < length) {
+            int end = start;
+            while (end < length && content.charAt(end) != '\n' && content.charAt(end) != '\r') {
+                end++;
+            }
+
+            if (needsCorrection(content, start, end)) {
+                String line = content.substring(start, end);
+                String corrected = correctLine(line);
+                if (!corrected.equals(line)) {
+                    if (Objects.isNull(builder)) {
+                        builder = new StringBuilder(length + 64);
+                    }
+                    builder.append(content, copied, start).append(corrected);
+                    copied = end;
+                }
+            }
+
+            start = end + 1;
+            if (end + 1 < length && content.charAt(end) == '\r' && content.charAt(end + 1) == '\n') {
+                start++;
+            }
+        }
 
+        if (Objects.isNull(builder)) {
+            return content;
+        }
+        return builder.append(content, copied, length).toString();
+    }
+
+    /**
+     * Cheap check whether one of the corrections may apply to the line, false positives are allowed
+     */
+    private static boolean needsCorrection(String content, int start, int end) {
+        if (start < end && content.charAt(start) == '[') {
+            if (content.indexOf(FILE_ATTRIBUTE, start, end) >= 0) {
+                return true;
+            }
+            for (String prefix : blockMathPrefixes) {
+                if (content.startsWith(prefix, start)) {
+                    return true;
+                }
+            }
+        }
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == '[' && i + 4 < end && content.startsWith("uml", i + 1)
+                    && (content.charAt(i + 4) == ',' || content.charAt(i + 4) == ']')) {
+                return true;
+            }
+            if (c == ':') {
+                for (String mathExtension : mathExtensions) {
+                    int from = i - mathExtension.length();
+                    if (from >= start && content.startsWith(mathExtension, from)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String correctLine(String line) {
+        line = correctUmlBlocks(line);
+        line = correctTargetInBlocks(line);
+        line = correctInlineMathExtensions(line);
+        line = correctBlockMathExtensions(line);
+        return line;
     }
 
     private static String correctBlockMathExtensions(String line) {
-        for (String mathExtension : mathExtensions) {
-            if (line.startsWith("[" + mathExtension)) {
-                line = line.replace("[" + mathExtension, "[" + mathExtension + "_");
+        for (int i = 0; i < blockMathPrefixes.size(); i++) {
+            String prefix = blockMathPrefixes.get(i);
+            if (line.startsWith(prefix)) {
+                line = line.replace(prefix, blockMathReplacements.get(i));
             }
         }
         return line;
     }
 
     private static String correctInlineMathExtensions(String line) {
-        for (String mathExtension : mathExtensions) {
-            String textStart = mathExtension + ":";
-            String textInMiddle = " " + mathExtension + ":";
-            if (line.startsWith(textStart) || line.contains(textInMiddle)) {
-                line = line.replace(textStart, mathExtension + "_:");
+        for (int i = 0; i < inlineMathPrefixes.size(); i++) {
+            String textStart = inlineMathPrefixes.get(i);
+            if (line.startsWith(textStart) || line.contains(inlineMathInMiddle.get(i))) {
+                line = line.replace(textStart, inlineMathReplacements.get(i));
             }
         }
         return line;
     }
 
     private static String correctTargetInBlocks(String line) {
-        for (String extension : blockExtensions) {
-            if (line.startsWith("[" + extension + ",") && line.contains("file=\"")) {
-                line = line.replace("file=\"", "target=\"");
+        for (String prefix : blockTargetPrefixes) {
+            if (line.startsWith(prefix) && line.contains(FILE_ATTRIBUTE)) {
+                line = line.replace(FILE_ATTRIBUTE, "target=\"");
                 break;
             }
         }
@@ -64,8 +147,8 @@ public class ExtensionPreprocessor {
     }
 
     private static String correctUmlBlocks(String line) {
-        line = line.replaceAll("\\[uml,", "[plantuml,");
-        line = line.replaceAll("\\[uml]", "[plantuml]");
+        line = line.replace("[uml,", "[plantuml,");
+        line = line.replace("[uml]", "[plantuml]");
         return line;
     }
 }
@@ -0,0 +1,111 @@
+package com.kodedu.service.extension.processor;
+
+import com.kodedu.other.RefProps;
+import com.kodedu.service.FileWatchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Processed include files of {@link XrefIncludeProcessor}.
+ * <p>
+ * Entries are keyed by the resolved path, modification time, size and the filter attributes of the include,
+ * the cache is bounded by the size of the content and evicts the least recently used entries.
+ * Entries of changed files are dropped by {@link com.kodedu.service.FileWatchService}.
+ */
+@Component
+public class IncludeContentCache {
+
+    private static final long MAX_BYTES = 32 * 1024 * 1024;
+
+    public record IncludeKey(Path path, long lastModified, long size, String lines, String tag, String tags) {
+    }
+
+    /**
+     * @param content         content to be pushed, filtered and corrected
+     * @param startLineNumber line number of the first line of the content in the file
+     * @param xrefs           cross references of the whole file
+     */
+    public record IncludeEntry(String content, int startLineNumber, Map<String, List<RefProps>> xrefs) {
+
+        long bytes() {
+            return content.length() * 2L + 256;
+        }
+    }
+
+    private final Map<IncludeKey, IncludeEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final FileWatchService fileWatchService;
+
+    @Autowired
+    public IncludeContentCache(FileWatchService fileWatchService) {
+        this.fileWatchService = fileWatchService;
+    }
+
+    public synchronized IncludeEntry get(IncludeKey key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(IncludeKey key, IncludeEntry entry) {
+        if (entry.bytes() > MAX_BYTES) {
+            return;
+        }
+        // Older versions of the file are never hit again
+        removeIf(k -> k.path().equals(key.path()) && (k.lastModified() != key.lastModified() || k.size() != key.size()));
+        if (!entries.containsKey(key)) {
+            fileWatchService.registerPathWatcher(key.path());
+        }
+        IncludeEntry previous = entries.put(key, entry);
+        if (Objects.nonNull(previous)) {
+            bytes -= previous.bytes();
+        }
+        bytes += entry.bytes();
+        Iterator<IncludeEntry> iterator = entries.values().iterator();
+        while (bytes > MAX_BYTES && iterator.hasNext()) {
+            bytes -= iterator.next().bytes();
+            iterator.remove();
+        }
+    }
+
+    private void removeIf(Predicate<IncludeKey> predicate) {
+        Iterator<Map.Entry<IncludeKey, IncludeEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<IncludeKey, IncludeEntry> entry = iterator.next();
+            if (predicate.test(entry.getKey())) {
+                bytes -= entry.getValue().bytes();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of the given file or of the files under the given directory
+     */
+    public synchronized void invalidate(Path path) {
+        if (Objects.isNull(path)) {
+            return;
+        }
+        removeIf(key -> key.path().startsWith(path));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -2,14 +2,25 @@ package com.kodedu.service.extension.processor;
 
 import com.kodedu.other.RefProps;
 
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ProcessorThreadLocal {
     private static final ThreadLocal<Map> xref = ThreadLocal.withInitial(() -> new LinkedHashMap());
+    private static final ThreadLocal<Set<Path>> includes = ThreadLocal.withInitial(LinkedHashSet::new);
 
     public static Map<String, List<RefProps>> getXref() {
         return xref.get();
     }
+
+    /**
+     * Local files included by the conversions of the current thread, cleared by the caller
+     */
+    public static Set<Path> getIncludes() {
+        return includes.get();
+    }
 }
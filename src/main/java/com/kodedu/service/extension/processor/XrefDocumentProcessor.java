@@ -7,6 +7,9 @@ import org.asciidoctor.ast.StructuralNode;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.kodedu.helper.AsciidoctorHelper.editorLine;
 
 
 @Component
@@ -22,6 +25,9 @@ public class XrefDocumentProcessor {
         }
 
         Map<String, List<RefProps>> xrefMap = XrefHelper.parseXrefs(docfile, content);
+        xrefMap.computeIfPresent(docfile, (file, refList) -> refList.stream()
+                .map(r -> new RefProps(r.file(), editorLine(document, file, r.lineNumber()), r.refId(), r.isCross()))
+                .collect(Collectors.toList()));
         Map<String, List<RefProps>> xref = ProcessorThreadLocal.getXref();
         xref.putAll(xrefMap);
 
@@ -36,8 +42,8 @@ public class XrefDocumentProcessor {
             Object value = entry.getValue();
             if (value instanceof StructuralNode node) {
                 Cursor location = node.getSourceLocation();
-                int lineNumber = location.getLineNumber();
                 String file = location.getFile();
+                int lineNumber = editorLine(document, file, location.getLineNumber());
                 result.putIfAbsent(file, new ArrayList<>());
                 result.get(file).add(new RefProps(file, lineNumber, key, false));
             }
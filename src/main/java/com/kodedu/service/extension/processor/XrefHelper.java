@@ -1,8 +1,11 @@
 package com.kodedu.service.extension.processor;
 
+import com.kodedu.other.LineIndex;
 import com.kodedu.other.RefProps;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -14,29 +17,24 @@ public class XrefHelper {
     private static final String xRefRegex = "<<(.*?)(?:,(.*?))?>>|xref::?([^\\[\\]]+)\\[(.*?)\\]";
     private static final Pattern xRefPattern = Pattern.compile(xRefRegex);
 
+    private static final String ID = "([\\p{Alpha}_:][\\w:.\\-]*)";
+    private static final Pattern inlineAnchorPattern = Pattern.compile("\\[\\[\\[?" + ID + "(?:,[^\\]\\n]*)?]]|anchor:" + ID + "\\[");
+    private static final Pattern blockIdPattern = Pattern.compile("^\\[[\\w\\-]*#([\\p{Alpha}_:][\\w:\\-]*)[^\\]\\n]*]\\s*$|^\\[[^\\]\\n]*\\bid=\"?" + ID, Pattern.MULTILINE);
+    private static final Pattern sectionPattern = Pattern.compile("^(={2,6}|#{2,6})[ \\t]+(\\S.*?)[ \\t]*$", Pattern.MULTILINE);
+    private static final Pattern invalidIdChars = Pattern.compile("<[^>]+>|&(?:[a-z][a-z]+\\d{0,2}|#\\d{2,5}|#x[\\da-f]{2,4});|[^ \\p{L}\\p{N}_\\-.]+");
+
     public static Matcher matcher(String content) {
         return xRefPattern.matcher(content);
     }
 
     public static int getLineNumber(String input, int index) {
-        String[] lines = input.split("\\r?\\n");
-        int lineNumber = 1;
-        int currentIndex = 0;
-
-        for (String line : lines) {
-            currentIndex += line.length() + 1; // +1 to account for newline character
-            if (currentIndex > index) {
-                break;
-            }
-            lineNumber++;
-        }
-
-        return lineNumber;
+        return LineIndex.of(input).lineNumber(index);
     }
 
     public static Map<String, List<RefProps>> parseXrefs(String docfile, String content) {
 
         Matcher matcher = XrefHelper.matcher(content);
+        LineIndex lineIndex = LineIndex.of(content);
 
         /*
         <<notice>>                                  1 > notice
@@ -52,11 +50,71 @@ public class XrefHelper {
 
             String xRefId = Objects.requireNonNullElse(firstTerm, xrefLabel);
 
-            int startIndex = matcher.start();
-            int lineNumber = getLineNumber(content, startIndex);
+            int lineNumber = lineIndex.lineNumber(m.start());
 
             return new RefProps(docfile, lineNumber, xRefId, true);
         }).distinct().collect(Collectors.groupingBy(x -> x.file()));
         return xrefMap;
     }
+
+    /**
+     * Finds every cross reference of the text, also repeated ones
+     */
+    public static List<RefProps> scanXrefs(String docfile, String content) {
+        LineIndex lineIndex = LineIndex.of(content);
+        return XrefHelper.matcher(content).results()
+                .map(m -> new RefProps(docfile, lineIndex.lineNumber(m.start()), Objects.requireNonNullElse(m.group(1), m.group(3)).trim(), true))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the anchors of the text without converting it: inline and block anchors, and section ids.
+     * Ids of sections without an explicit id are generated the way Asciidoctor does with the default
+     * <code>idprefix</code> and <code>idseparator</code>.
+     */
+    public static List<RefProps> scanAnchors(String docfile, String content) {
+        LineIndex lineIndex = LineIndex.of(content);
+        List<RefProps> anchors = new ArrayList<>();
+
+        Matcher inline = inlineAnchorPattern.matcher(content);
+        while (inline.find()) {
+            String id = Objects.requireNonNullElse(inline.group(1), inline.group(2));
+            anchors.add(new RefProps(docfile, lineIndex.lineNumber(inline.start()), id, false));
+        }
+
+        Matcher block = blockIdPattern.matcher(content);
+        while (block.find()) {
+            String id = Objects.requireNonNullElse(block.group(1), block.group(2));
+            anchors.add(new RefProps(docfile, lineIndex.lineNumber(block.start()), id, false));
+        }
+
+        Matcher section = sectionPattern.matcher(content);
+        while (section.find()) {
+            int lineNumber = lineIndex.lineNumber(section.start());
+            if (hasExplicitId(anchors, lineNumber)) {
+                continue;
+            }
+            String title = section.group(2);
+            if (title.endsWith("]]")) {
+                // == Title [[id]]
+                continue;
+            }
+            anchors.add(new RefProps(docfile, lineNumber, sectionId(title), false));
+        }
+
+        return anchors;
+    }
+
+    private static boolean hasExplicitId(List<RefProps> anchors, int sectionLine) {
+        return anchors.stream().anyMatch(a -> a.lineNumber() == sectionLine - 1);
+    }
+
+    public static String sectionId(String title) {
+        String id = invalidIdChars.matcher(title.toLowerCase(Locale.ROOT)).replaceAll("");
+        id = id.replaceAll("[ .\\-]+", "_");
+        if (id.endsWith("_")) {
+            id = id.substring(0, id.length() - 1);
+        }
+        return "_" + id;
+    }
 }
@@ -2,6 +2,10 @@ package com.kodedu.service.extension.processor;
 
 import com.kodedu.helper.IOHelper;
 import com.kodedu.other.RefProps;
+import com.kodedu.service.HttpResourceCache;
+import com.kodedu.service.IncludeGraph;
+import com.kodedu.service.extension.processor.IncludeContentCache.IncludeEntry;
+import com.kodedu.service.extension.processor.IncludeContentCache.IncludeKey;
 import org.asciidoctor.ast.Document;
 import org.asciidoctor.extension.IncludeProcessor;
 import org.asciidoctor.extension.PreprocessorReader;
@@ -10,14 +14,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.nio.file.Files;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -35,9 +36,15 @@ public class XrefIncludeProcessor extends IncludeProcessor {
 
     record FilterContent(String content, Integer lineNo){}
 
-    private HttpClient httpClient = HttpClient.newBuilder()
-            .followRedirects(HttpClient.Redirect.ALWAYS)
-            .build();
+    private final IncludeContentCache includeCache;
+    private final HttpResourceCache httpResourceCache;
+    private final IncludeGraph includeGraph;
+
+    public XrefIncludeProcessor(IncludeContentCache includeCache, HttpResourceCache httpResourceCache, IncludeGraph includeGraph) {
+        this.includeCache = includeCache;
+        this.httpResourceCache = httpResourceCache;
+        this.includeGraph = includeGraph;
+    }
 
     @Override
     public boolean handles(String target) {
@@ -49,6 +56,7 @@ public class XrefIncludeProcessor extends IncludeProcessor {
         Path targetPath = null;
         String targetString = null;
         String content = null;
+        IncludeKey includeKey = null;
 
         boolean isOptional = attributes.containsKey("optional-option");
         if (isUri(target)) {
@@ -63,6 +71,15 @@ public class XrefIncludeProcessor extends IncludeProcessor {
             } else {
                 targetPath = resolveTargetPath(document, Paths.get(dir), target);
                 targetString = targetPath.toString();
+                recordInclude(document, reader, targetPath, attributes);
+                ProcessorThreadLocal.getIncludes().add(targetPath.toAbsolutePath().normalize());
+                includeKey = includeKey(targetPath, attributes);
+                IncludeEntry entry = Objects.nonNull(includeKey) ? includeCache.get(includeKey) : null;
+                if (Objects.nonNull(entry)) {
+                    ProcessorThreadLocal.getXref().putAll(entry.xrefs());
+                    reader.pushInclude(entry.content(), target, targetString, entry.startLineNumber(), attributes);
+                    return;
+                }
                 if (isOptional && !Files.exists(targetPath)) {
                     content = "";
                 } else {
@@ -94,20 +111,43 @@ public class XrefIncludeProcessor extends IncludeProcessor {
 
         content = ExtensionPreprocessor.correctExtensionBlocks(content);
 
+        if (Objects.nonNull(includeKey)) {
+            includeCache.put(includeKey, new IncludeEntry(content, startLineNumber, Map.copyOf(xrefMap)));
+        }
+
         reader.pushInclude(content, target, targetString, startLineNumber, attributes);
     }
 
+    private void recordInclude(Document document, PreprocessorReader reader, Path targetPath, Map<String, Object> attributes) {
+        String parent = Objects.nonNull(reader.getFile()) ? reader.getFile() : (String) document.getAttribute("docfile");
+        if (Objects.isNull(parent) || isUri(parent)) {
+            return;
+        }
+        includeGraph.record(Paths.get(parent), new IncludeGraph.Edge(targetPath,
+                (String) attributes.get("lines"), (String) attributes.get("tag"), (String) attributes.get("tags")));
+    }
+
+    private IncludeKey includeKey(Path targetPath, Map<String, Object> attributes) {
+        try {
+            BasicFileAttributes fileAttributes = Files.readAttributes(targetPath, BasicFileAttributes.class);
+            if (!fileAttributes.isRegularFile()) {
+                return null;
+            }
+            return new IncludeKey(targetPath.toAbsolutePath().normalize(),
+                    fileAttributes.lastModifiedTime().toMillis(), fileAttributes.size(),
+                    (String) attributes.get("lines"), (String) attributes.get("tag"), (String) attributes.get("tags"));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     private boolean isUri(String target) {
         return Objects.nonNull(target) && isHttpOrHttps(target);
     }
 
     private String readUri(URI uri, boolean optional) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(uri)
-                .GET()
-                .build();
         try {
-            return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            return httpResourceCache.getString(uri);
         } catch (Exception e) {
             if (optional) {
                 return "";
@@ -1,5 +1,7 @@
 package com.kodedu.service.extension.tree;
 
+import com.kodedu.service.RenderJob;
+import com.kodedu.service.RenderMetrics;
 import com.kodedu.service.ThreadService;
 import com.kodedu.service.extension.ImageInfo;
 import com.kodedu.service.extension.impl.TreeServiceImpl;
@@ -12,6 +14,7 @@ import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -24,16 +27,24 @@ public class FileTreeProcessor {
     private final Environment environment;
     private final TreeServiceImpl treeService;
     private final ThreadService threadService;
+    private final RenderMetrics renderMetrics;
 
-    public FileTreeProcessor(Environment environment, TreeServiceImpl treeService, ThreadService threadService) {
+    public FileTreeProcessor(Environment environment, TreeServiceImpl treeService, ThreadService threadService,
+                             RenderMetrics renderMetrics) {
         this.environment = environment;
         this.treeService = treeService;
         this.threadService = threadService;
+        this.renderMetrics = renderMetrics;
     }
 
     public void process(ContentNode parent, Reader reader, Map<String, Object> attributes, ImageInfo imageInfo, String content, String name) {
+        if (RenderJob.isCurrentCancelled()) {
+            return;
+        }
+
         String type = (String) attributes.get("type");
 
+        RenderMetrics.Stage stage = renderMetrics.stage("extension.tree");
         CompletableFuture completableFuture = new CompletableFuture();
         completableFuture.runAsync(() -> {
             threadService.runActionLater(() -> {
@@ -51,9 +62,13 @@ public class FileTreeProcessor {
 
 
         try {
-            completableFuture.get(10, TimeUnit.SECONDS);
+            RenderJob.await(completableFuture, 10, TimeUnit.SECONDS);
+        } catch (CancellationException e) {
+            logger.debug("Tree generation is cancelled. {}", content);
         } catch (Exception e) {
             logger.error("Error occured during tree generation. {}", content, e);
+        } finally {
+            stage.close();
         }
 
     }
@@ -3,9 +3,13 @@ package com.kodedu.service.impl;
 import com.kodedu.component.MyTab;
 import com.kodedu.controller.ApplicationController;
 import com.kodedu.helper.IOHelper;
+import com.kodedu.service.AsciidoctorConfigResolver;
 import com.kodedu.service.FileWatchService;
+import com.kodedu.service.IncludeGraph;
 import com.kodedu.service.PathMapper;
+import com.kodedu.service.ReferenceIndexService;
 import com.kodedu.service.ThreadService;
+import com.kodedu.service.extension.processor.IncludeContentCache;
 import com.kodedu.service.ui.FileBrowseService;
 import com.kodedu.service.ui.TabService;
 import jakarta.annotation.PostConstruct;
@@ -21,6 +25,7 @@ import java.nio.file.*;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static java.nio.file.StandardWatchEventKinds.*;
@@ -43,6 +48,18 @@ public class FileWatchServiceImpl implements FileWatchService {
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Autowired
+    private AsciidoctorConfigResolver asciidoctorConfigResolver;
+
+    @Autowired
+    private IncludeContentCache includeContentCache;
+
+    @Autowired
+    private ReferenceIndexService referenceIndexService;
+
+    @Autowired
+    private IncludeGraph includeGraph;
+
     private Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
     private final PathMapper pathMapper;
 
@@ -121,6 +138,7 @@ public class FileWatchServiceImpl implements FileWatchService {
             boolean updateFsView = false;
             for (WatchEvent<?> event : watchEvents) {
                 WatchEvent.Kind<?> kind = event.kind();
+                invalidateCaches(path, event);
                 if (kind == ENTRY_MODIFY && event.count() == 1) {
                     @SuppressWarnings("unchecked")
                     WatchEvent<Path> ev = (WatchEvent<Path>) event;
@@ -165,6 +183,38 @@ public class FileWatchServiceImpl implements FileWatchService {
 
     }
 
+    private void invalidateCaches(Path path, WatchEvent<?> event) {
+        referenceIndexService.onFileEvent(path, event);
+        if (event.kind() == OVERFLOW) {
+            asciidoctorConfigResolver.invalidateAll();
+            includeContentCache.invalidate(path);
+        } else if (event.context() instanceof Path context) {
+            includeContentCache.invalidate(path.resolve(context));
+            if (AsciidoctorConfigResolver.isConfigFile(context)) {
+                asciidoctorConfigResolver.invalidate(path);
+            }
+            rerenderDependents(path.resolve(context));
+        }
+    }
+
+    /**
+     * Re-renders the current document if it includes the changed file
+     */
+    private void rerenderDependents(Path changedPath) {
+        Set<Path> dependents = includeGraph.changed(changedPath);
+        if (dependents.isEmpty()) {
+            return;
+        }
+        threadService.runActionLater(() -> {
+            Tab selectedTab = controller.getTabPane().getSelectionModel().getSelectedItem();
+            if (selectedTab instanceof MyTab myTab && Objects.nonNull(myTab.getPath())
+                    && dependents.contains(myTab.getPath().toAbsolutePath().normalize())) {
+                logger.debug("Re-rendering {} for the change of {}", myTab.getPath(), changedPath);
+                myTab.getEditorPane().rerender();
+            }
+        });
+    }
+
     @Override
     public void registerPathWatcher(final Path path) {
 
@@ -6,7 +6,7 @@ import javafx.event.ActionEvent;
 
 import org.springframework.stereotype.Component;
 
-import com.kodedu.service.Buff;
+import com.kodedu.service.Debouncer;
 import com.kodedu.service.ThreadService;
 
 import java.util.Objects;
@@ -21,7 +21,7 @@ import java.util.function.Supplier;
 public class ThreadServiceImpl implements ThreadService {
     private final ExecutorService threadPollWorker;
     private final ScheduledExecutorService scheduledWorker;
-    private final ConcurrentHashMap<String, Buff> buffMap;
+    private final ConcurrentHashMap<String, Debouncer> debouncerMap;
     private final Semaphore uiSemaphore;
     private final ExecutorService singleExecutor;
 
@@ -31,7 +31,7 @@ public class ThreadServiceImpl implements ThreadService {
         threadPollWorker = Executors.newVirtualThreadPerTaskExecutor();
         singleExecutor = Executors.newSingleThreadExecutor(threadFactory);
         uiSemaphore = new Semaphore(1);
-        buffMap = new ConcurrentHashMap<>();
+        debouncerMap = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -123,9 +123,8 @@ public class ThreadServiceImpl implements ThreadService {
     }
 
     @Override
-    public Buff buff(String id) {
-        buffMap.putIfAbsent(id, new Buff(this));
-        return buffMap.get(id);
+    public Debouncer debouncer(String id) {
+        return debouncerMap.computeIfAbsent(id, key -> new Debouncer(key, this));
     }
 
     @Override
@@ -0,0 +1,72 @@
+package com.kodedu.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.asciidoctor.Asciidoctor;
+import org.asciidoctor.Options;
+import org.asciidoctor.SafeMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kodedu.service.extension.processor.ExtensionPreprocessor;
+
+/**
+ * Full html5 conversion of the corpus documents from 10 KB to 10 MB, the way a preview converts them:
+ * extension blocks are corrected first, then the document is converted with header and footer.
+ * No extensions are registered, not even the ones found on the class path, so diagrams are rendered as listings.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=AsciidoctorConvertBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AsciidoctorConvertBenchmark {
+
+    /**
+     * Size of the document in KB
+     */
+    @Param({"10", "100", "1024", "10240"})
+    public int size;
+
+    private Asciidoctor asciidoctor;
+    private String document;
+    private Options options;
+
+    @Setup
+    public void prepare() {
+        asciidoctor = Asciidoctor.Factory.create();
+        asciidoctor.unregisterAllExtensions();
+        document = Corpus.document(size);
+        options = Options.builder()
+                .backend("html5")
+                .safe(SafeMode.UNSAFE)
+                .sourcemap(true)
+                .headerFooter(true)
+                .toFile(false)
+                .build();
+    }
+
+    @TearDown
+    public void close() {
+        asciidoctor.shutdown();
+    }
+
+    @Benchmark
+    public String convert() {
+        return asciidoctor.convert(ExtensionPreprocessor.correctExtensionBlocks(document), options);
+    }
+}
@@ -0,0 +1,144 @@
+package com.kodedu.benchmark;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+
+/**
+ * Fixed inputs of the benchmarks, so that results are comparable across releases.
+ * <p>
+ * Documents are built by repeating <code>benchmark/chapter.adoc</code> with numbered anchors,
+ * images are drawn from a fixed seed. Bump {@link #VERSION} whenever the corpus changes,
+ * results of different corpus versions are not comparable.
+ */
+public final class Corpus {
+
+    public static final int VERSION = 1;
+
+    private static final String HEADER = """
+            = Benchmark Corpus
+            :toc:
+            :sectanchors:
+            :stem:
+
+            """;
+
+    private static final Pattern WORD = Pattern.compile("\\p{L}+");
+
+    private static String chapter;
+
+    private Corpus() {
+    }
+
+    public static synchronized String chapter() {
+        if (Objects.isNull(chapter)) {
+            try (InputStream stream = Corpus.class.getResourceAsStream("/benchmark/chapter.adoc")) {
+                chapter = new String(Objects.requireNonNull(stream, "benchmark/chapter.adoc").readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return chapter;
+    }
+
+    /**
+     * AsciiDoc document of at least the given size, made of whole chapters
+     *
+     * @param kilobytes size in KB
+     */
+    public static String document(int kilobytes) {
+        long length = kilobytes * 1024L;
+        String chapter = chapter();
+        StringBuilder builder = new StringBuilder((int) length + chapter.length() * 2);
+        builder.append(HEADER);
+        int n = 0;
+        while (builder.length() < length) {
+            builder.append(chapter.replace("{n}", String.valueOf(++n)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Diagram like image, shapes and text on a white background with a margin of a tenth of the size on every side
+     */
+    public static BufferedImage diagram(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+
+            Random random = new Random(42);
+            int marginX = width / 10;
+            int marginY = height / 10;
+            int innerWidth = width - 2 * marginX;
+            int innerHeight = height - 2 * marginY;
+
+            graphics.setStroke(new BasicStroke(2));
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, Math.max(10, height / 60)));
+            for (int i = 0; i < 40; i++) {
+                int w = Math.max(10, random.nextInt(Math.max(1, innerWidth / 4)));
+                int h = Math.max(10, random.nextInt(Math.max(1, innerHeight / 6)));
+                int x = marginX + random.nextInt(Math.max(1, innerWidth - w));
+                int y = marginY + random.nextInt(Math.max(1, innerHeight - h));
+                graphics.setColor(new Color(random.nextInt(200), random.nextInt(200), random.nextInt(200)));
+                graphics.drawRect(x, y, w, h);
+                graphics.drawString("Node " + i, x + 4, y + h / 2);
+                graphics.drawLine(x + w, y + h / 2,
+                        marginX + random.nextInt(Math.max(1, innerWidth)), marginY + random.nextInt(Math.max(1, innerHeight)));
+            }
+            // frame the drawing area, so that its bounds are the same whatever is drawn inside
+            graphics.setColor(Color.DARK_GRAY);
+            graphics.drawRect(marginX, marginY, innerWidth - 1, innerHeight - 1);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    public static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        Graphics2D graphics = copy.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return copy;
+    }
+
+    /**
+     * Editor tokens of the given text in the JSON format sent by the Ace editor to the spell checker,
+     * words of heading lines are <code>markup.heading</code>, the other ones <code>text</code>
+     */
+    public static String tokens(String text) {
+        JsonArrayBuilder tokens = Json.createArrayBuilder();
+        String[] lines = text.split("\n");
+        for (int row = 0; row < lines.length; row++) {
+            String line = lines[row];
+            String type = line.startsWith("=") ? "markup.heading" : "text";
+            Matcher matcher = WORD.matcher(line);
+            while (matcher.find()) {
+                tokens.add(Json.createObjectBuilder()
+                        .add("row", row)
+                        .add("start", matcher.start())
+                        .add("end", matcher.end())
+                        .add("value", matcher.group())
+                        .add("type", type));
+            }
+        }
+        return tokens.build().toString();
+    }
+}
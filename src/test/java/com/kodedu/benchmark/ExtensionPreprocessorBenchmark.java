@@ -0,0 +1,133 @@
+package com.kodedu.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kodedu.service.extension.processor.ExtensionPreprocessor;
+
+/**
+ * Extension block correction of large books, the former line mapping passes compared to the single pass scanner.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=ExtensionPreprocessorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExtensionPreprocessorBenchmark {
+
+    /**
+     * Size of the book in MB
+     */
+    @Param({"1", "5"})
+    public int size;
+
+    private String book;
+
+    @Setup
+    public void generate() {
+        int length = size * 1024 * 1024;
+        StringBuilder builder = new StringBuilder(length + 1024);
+        builder.append("= Book\n:doctype: book\n\n");
+        int chapter = 0;
+        while (builder.length() < length) {
+            builder.append("== Chapter ").append(++chapter).append("\n\n");
+            for (int i = 0; i < 40; i++) {
+                builder.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, see <<chapter-").append(chapter).append(">>.\n");
+            }
+            builder.append("\nNote: the formula is stem:[sqrt(4) = 2] in the middle of a sentence.\n\n");
+            if (chapter % 4 == 0) {
+                builder.append("[uml,file=\"diagram-").append(chapter).append(".png\"]\n----\nAlice -> Bob\n----\n\n");
+            }
+            if (chapter % 5 == 0) {
+                builder.append("[latexmath]\n++++\n\\sum_{i=0}^n i\n++++\n\n");
+            }
+            builder.append("[source,java]\n----\nSystem.out.println(\"Hello\");\n----\n\n");
+        }
+        book = builder.toString();
+    }
+
+    @Benchmark
+    public String linePasses() {
+        return LegacyPreprocessor.correctExtensionBlocks(book);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return ExtensionPreprocessor.correctExtensionBlocks(book);
+    }
+
+    /**
+     * Former <code>ExtensionPreprocessor</code>
+     */
+    static class LegacyPreprocessor {
+
+        private static final List<String> blockExtensions = List.of("stem", "asciimath", "latexmath", "mathml", "math", "plantuml",
+                "uml", "ditaa", "graphviz", "tree", "mermaid", "chart");
+
+        private static final List<String> mathExtensions = List.of("stem", "asciimath", "latexmath", "mathml", "tex");
+
+        static String correctExtensionBlocks(String content) {
+            String[] lines = content.split("\\R");
+            return Arrays.stream(lines)
+                    .map(LegacyPreprocessor::correctUmlBlocks)
+                    .map(LegacyPreprocessor::correctTargetInBlocks)
+                    .map(LegacyPreprocessor::correctInlineMathExtensions)
+                    .map(LegacyPreprocessor::correctBlockMathExtensions)
+                    .collect(Collectors.joining("\n"));
+        }
+
+        private static String correctBlockMathExtensions(String line) {
+            for (String mathExtension : mathExtensions) {
+                if (line.startsWith("[" + mathExtension)) {
+                    line = line.replace("[" + mathExtension, "[" + mathExtension + "_");
+                }
+            }
+            return line;
+        }
+
+        private static String correctInlineMathExtensions(String line) {
+            for (String mathExtension : mathExtensions) {
+                String textStart = mathExtension + ":";
+                String textInMiddle = " " + mathExtension + ":";
+                if (line.startsWith(textStart) || line.contains(textInMiddle)) {
+                    line = line.replace(textStart, mathExtension + "_:");
+                }
+            }
+            return line;
+        }
+
+        private static String correctTargetInBlocks(String line) {
+            for (String extension : blockExtensions) {
+                if (line.startsWith("[" + extension + ",") && line.contains("file=\"")) {
+                    line = line.replace("file=\"", "target=\"");
+                    break;
+                }
+            }
+            return line;
+        }
+
+        private static String correctUmlBlocks(String line) {
+            line = line.replaceAll("\\[uml,", "[plantuml,");
+            line = line.replaceAll("\\[uml]", "[plantuml]");
+            return line;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.kodedu.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kodedu.helper.IOHelper;
+import com.kodedu.other.AutoCrop;
+import com.kodedu.other.TrimWhite;
+
+/**
+ * Pixel loops of the diagram pipeline on square snapshots, e.g. the 3000x3000 Mermaid snapshot.
+ * <code>isSameImage</code> compares two equal images, which is its worst case.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=ImageBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ImageBenchmark {
+
+    @Param({"600", "3000"})
+    public int size;
+
+    private BufferedImage image;
+    private BufferedImage copy;
+    private final TrimWhite trimWhite = new TrimWhite();
+
+    @Setup
+    public void draw() {
+        image = Corpus.diagram(size, size);
+        copy = Corpus.copy(image);
+    }
+
+    @Benchmark
+    public BufferedImage autoCrop() {
+        return AutoCrop.autoCrop(image, 5);
+    }
+
+    @Benchmark
+    public BufferedImage trimWhite() {
+        return trimWhite.trim(image);
+    }
+
+    @Benchmark
+    public boolean isSameImage() {
+        return IOHelper.isSameImage(image, copy);
+    }
+}
@@ -0,0 +1,61 @@
+package com.kodedu.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kodedu.helper.IOHelper;
+
+/**
+ * Reading a 1 MB document with charset detection, for files which are and which aren't UTF-8.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=ReadFileBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReadFileBenchmark {
+
+    @Param({"UTF-8", "UTF-16LE", "ISO-8859-9", "windows-1252"})
+    public String charset;
+
+    private Path directory;
+    private Path file;
+
+    @Setup
+    public void write() throws IOException {
+        directory = Files.createTempDirectory("afx-benchmark");
+        file = directory.resolve("document.adoc");
+        Files.writeString(file, Corpus.document(1024), Charset.forName(charset));
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public String readFile() {
+        return IOHelper.readFile(file);
+    }
+}
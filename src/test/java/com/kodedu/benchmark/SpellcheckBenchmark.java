@@ -0,0 +1,71 @@
+package com.kodedu.benchmark;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kodedu.component.EditorPane;
+import com.kodedu.config.SpellcheckConfigBean;
+import com.kodedu.service.ThreadService;
+import com.kodedu.spell.dictionary.DictionaryService;
+import com.kodedu.spell.filter.AsciidocSpellFilter;
+import com.kodedu.spell.filter.SpellFilterProvider;
+
+/**
+ * Spell checking the editor tokens of a document with the English dictionary in <code>conf/spellcheck</code>.
+ * The editor and the FX thread are mocked, typos are collected but not shown.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=SpellcheckBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SpellcheckBenchmark {
+
+    /**
+     * Size of the document in KB
+     */
+    @Param({"10", "100"})
+    public int size;
+
+    private DictionaryService dictionaryService;
+    private EditorPane editorPane;
+    private String tokens;
+
+    @Setup
+    public void prepare() {
+        editorPane = mock(EditorPane.class);
+        when(editorPane.getSpellLanguage()).thenReturn(Path.of("conf/spellcheck/en/English.dict"));
+
+        SpellFilterProvider spellFilterProvider = mock(SpellFilterProvider.class);
+        when(spellFilterProvider.filterByMode("asciidoc")).thenReturn(new AsciidocSpellFilter());
+
+        dictionaryService = new DictionaryService(null, spellFilterProvider, mock(ThreadService.class),
+                mock(SpellcheckConfigBean.class));
+        tokens = Corpus.tokens(Corpus.document(size));
+    }
+
+    @Benchmark
+    public int processTokens() {
+        dictionaryService.processTokens(editorPane, tokens, "asciidoc");
+        return dictionaryService.getSuggestionMap().size();
+    }
+}
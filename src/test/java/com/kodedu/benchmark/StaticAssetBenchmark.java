@@ -0,0 +1,95 @@
+package com.kodedu.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.kodedu.controller.FileService;
+import com.kodedu.controller.PublicAssets;
+
+/**
+ * Requests per second of a 100 KB stylesheet asked with gzip. A <code>user</code> file is outside of
+ * <code>conf/public</code>, it is compressed on each request as all files were before,
+ * a <code>public</code> file is a bundled asset served from its precompressed variant.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=StaticAssetBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StaticAssetBenchmark {
+
+    @Param({"user", "public"})
+    public String location;
+
+    private Path directory;
+    private Path file;
+    private FileService fileService;
+    private String etag;
+
+    @Setup
+    public void write() throws IOException {
+        directory = Files.createTempDirectory("afx-benchmark");
+        Path publicDir = directory.resolve("public");
+        Files.createDirectories(publicDir);
+        file = directory.resolve(location).resolve("style.css");
+        Files.createDirectories(file.getParent());
+
+        StringBuilder css = new StringBuilder();
+        for (int i = 0; css.length() < 100 * 1024; i++) {
+            css.append(".sect").append(i).append(" > .title { color: #ba3925; margin: 0 0 ")
+                    .append(i % 16).append("px; font-weight: 400; }\n");
+        }
+        Files.writeString(file, css);
+
+        fileService = new FileService(new PublicAssets(publicDir));
+        etag = get().getHeader("ETag");
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.getParent());
+        Files.deleteIfExists(directory.resolve("public"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse get() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/afx/resource/style.css");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileService.processFile(request, response, file);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse revalidate() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/afx/resource/style.css");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileService.processFile(request, response, file);
+        return response;
+    }
+}
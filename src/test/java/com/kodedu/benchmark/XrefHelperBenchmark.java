@@ -0,0 +1,116 @@
+package com.kodedu.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.kodedu.other.LineIndex;
+import com.kodedu.other.RefProps;
+import com.kodedu.service.extension.processor.XrefHelper;
+
+/**
+ * Cross reference scanning of a 5 MB document, line lookup by splitting the text per match
+ * compared to the line offset index.
+ * <pre>
+ * mvn -Pbenchmark verify -Dbenchmark=XrefHelperBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class XrefHelperBenchmark {
+
+    private static final int DOCUMENT_SIZE = 5 * 1024 * 1024;
+
+    @Param({"100", "1000"})
+    public int refs;
+
+    private char[] document;
+
+    /**
+     * A fresh instance for every invocation, so that the line index is not reused across invocations
+     */
+    private String content;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        StringBuilder builder = new StringBuilder(DOCUMENT_SIZE + 1024);
+        int refEvery = DOCUMENT_SIZE / refs;
+        int nextRef = refEvery;
+        int section = 0;
+        while (builder.length() < DOCUMENT_SIZE) {
+            if (builder.length() >= nextRef) {
+                builder.append("See <<section-").append(section).append(",Section ").append(section).append(">> and ")
+                        .append("xref:chapter-").append(section % 50).append(".adoc#intro[Intro].\n");
+                nextRef += refEvery;
+            }
+            if (builder.length() % 4096 < 80) {
+                builder.append("\n[[section-").append(++section).append("]]\n== Section ").append(section).append("\n\n");
+            }
+            builder.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\n");
+        }
+        document = builder.toString().toCharArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        content = new String(document);
+    }
+
+    @Benchmark
+    public Map<String, List<RefProps>> splitPerMatch() {
+        Matcher matcher = XrefHelper.matcher(content);
+        return matcher.results().map(m -> {
+            String xRefId = Objects.requireNonNullElse(m.group(1), m.group(3));
+            return new RefProps("doc.adoc", legacyLineNumber(content, m.start()), xRefId, true);
+        }).distinct().collect(Collectors.groupingBy(x -> x.file()));
+    }
+
+    @Benchmark
+    public Map<String, List<RefProps>> lineIndex() {
+        return XrefHelper.parseXrefs("doc.adoc", content);
+    }
+
+    @Benchmark
+    public LineIndex buildIndex() {
+        return LineIndex.build(content);
+    }
+
+    /**
+     * Former <code>XrefHelper.getLineNumber</code>
+     */
+    private static int legacyLineNumber(String input, int index) {
+        String[] lines = input.split("\\r?\\n");
+        int lineNumber = 1;
+        int currentIndex = 0;
+
+        for (String line : lines) {
+            currentIndex += line.length() + 1;
+            if (currentIndex > index) {
+                break;
+            }
+            lineNumber++;
+        }
+
+        return lineNumber;
+    }
+}
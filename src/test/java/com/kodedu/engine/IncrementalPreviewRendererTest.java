@@ -0,0 +1,81 @@
+package com.kodedu.engine;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.kodedu.engine.PreviewFragments.Chunk;
+import com.kodedu.outline.Section;
+
+public class IncrementalPreviewRendererTest {
+
+    private static final String DOCUMENT = """
+            = Document
+
+            intro
+
+            == One
+
+            a
+
+            [[two]]
+            == Two
+
+            b
+            c
+
+            == Three
+
+            d
+            """;
+
+    private final List<Chunk> chunks = PreviewFragments.split(DOCUMENT).orElseThrow().chunks();
+
+    @Test
+    void focusIsTheChunkContainingTheLine() {
+        Assertions.assertEquals(List.of(2, 5, 9, 15), chunks.stream().map(Chunk::startLine).toList());
+
+        Assertions.assertEquals(0, IncrementalPreviewRenderer.focusChunk(chunks, 1));
+        Assertions.assertEquals(0, IncrementalPreviewRenderer.focusChunk(chunks, 4));
+        Assertions.assertEquals(1, IncrementalPreviewRenderer.focusChunk(chunks, 5));
+        Assertions.assertEquals(1, IncrementalPreviewRenderer.focusChunk(chunks, 8));
+        Assertions.assertEquals(2, IncrementalPreviewRenderer.focusChunk(chunks, 10));
+        Assertions.assertEquals(3, IncrementalPreviewRenderer.focusChunk(chunks, 100));
+        Assertions.assertEquals(0, IncrementalPreviewRenderer.focusChunk(List.of(), 10));
+    }
+
+    @Test
+    void pendingSectionsKeepTheOutline() {
+        Assertions.assertTrue(IncrementalPreviewRenderer.pendingSection(chunks.get(0), 0).isEmpty());
+
+        Optional<Section> two = IncrementalPreviewRenderer.pendingSection(chunks.get(2), 0);
+        Assertions.assertTrue(two.isPresent());
+        Assertions.assertEquals("Two", two.get().getTitle());
+        Assertions.assertEquals(1, two.get().getLevel());
+        Assertions.assertEquals(10, two.get().getLineno());
+        Assertions.assertEquals("two", two.get().getId());
+        Assertions.assertEquals("_three", IncrementalPreviewRenderer.pendingSection(chunks.get(3), 0).orElseThrow().getId());
+
+        // Lines of a prepended .asciidoctorconfig aren't in the editor
+        Assertions.assertEquals(7, IncrementalPreviewRenderer.pendingSection(chunks.get(2), 3).orElseThrow().getLineno());
+    }
+
+    @Test
+    void pendingHeightFollowsTheLineCount() {
+        Assertions.assertEquals(2, IncrementalPreviewRenderer.pendingHeight(new Chunk(1, "== Short")));
+        Assertions.assertEquals(31, IncrementalPreviewRenderer.pendingHeight(new Chunk(1, "== Long\n" + "x\n".repeat(20))));
+    }
+
+    @Test
+    void onlyNewPendingFragmentsAreRequested() {
+        IncrementalPreviewRenderer renderer = new IncrementalPreviewRenderer(null, null, null, null, null, null);
+
+        Assertions.assertTrue(renderer.requestFragments("[\"pending-a\", \"b\", \"pending-a\"]"));
+        Assertions.assertFalse(renderer.requestFragments("[\"pending-a\"]"));
+        Assertions.assertFalse(renderer.requestFragments("[\"b\", 1]"));
+        Assertions.assertFalse(renderer.requestFragments("not json"));
+        Assertions.assertTrue(renderer.requestFragments("[\"pending-c\"]"));
+    }
+}
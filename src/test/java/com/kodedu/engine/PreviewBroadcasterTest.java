@@ -0,0 +1,222 @@
+package com.kodedu.engine;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+import com.kodedu.service.RenderMetrics;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+/**
+ * Runs 50 local viewers against the broadcaster, one of them stops reading for a while.
+ * Those viewers don't say hello, so they get uncompressed messages after the hello timeout.
+ */
+@SpringBootTest(classes = PreviewBroadcasterTest.WebSocketConfig.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class PreviewBroadcasterTest {
+
+    private static final int VIEWERS = 50;
+    private static final int VERSIONS = 40;
+    private static final int PARAGRAPHS = 200;
+
+    @Configuration
+    @EnableWebSocket
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebSocketServletAutoConfiguration.class})
+    @Import({PreviewVersions.class, PreviewBroadcaster.class, RenderMetrics.class})
+    static class WebSocketConfig implements WebSocketConfigurer {
+
+        @Autowired
+        private PreviewBroadcaster previewBroadcaster;
+
+        @Override
+        public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+            registry.addHandler(previewBroadcaster, "/ws");
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PreviewBroadcaster previewBroadcaster;
+
+    @Test
+    void slowViewerDoesNotDelayTheOthers() throws Exception {
+        previewBroadcaster.broadcast(page(0));
+
+        HttpClient httpClient = HttpClient.newHttpClient();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        List<Viewer> viewers = new ArrayList<>();
+        for (int i = 0; i < VIEWERS; i++) {
+            Viewer viewer = new Viewer(i == 0 ? release : null);
+            httpClient.newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + port + "/ws"), viewer)
+                    .get(10, TimeUnit.SECONDS);
+            viewers.add(viewer);
+        }
+        awaitPage(viewers.subList(1, VIEWERS), page(0));
+        Assertions.assertEquals(VIEWERS, previewBroadcaster.getViewerCount());
+
+        for (int version = 1; version <= VERSIONS; version++) {
+            previewBroadcaster.broadcast(page(version));
+        }
+        String last = page(VERSIONS);
+        awaitPage(viewers.subList(1, VIEWERS), last);
+
+        release.complete(null);
+        awaitPage(viewers.subList(0, 1), last);
+
+        Assertions.assertEquals(VIEWERS, previewBroadcaster.viewerStats().size());
+        Assertions.assertEquals(0, previewBroadcaster.getMaxVersionsBehind());
+    }
+
+    @Test
+    void firstSnapshotIsSentAfterTheHello() throws Exception {
+        previewBroadcaster.broadcast(page(0));
+
+        CompletableFuture<String> firstType = new CompletableFuture<>();
+        HttpClient.newHttpClient().newWebSocketBuilder()
+                .buildAsync(URI.create("ws://localhost:" + port + "/ws"), new WebSocket.Listener() {
+
+                    private final StringBuilder buffer = new StringBuilder();
+
+                    @Override
+                    public void onOpen(WebSocket webSocket) {
+                        webSocket.request(1);
+                        // Said a bit after the connection, as index.js does once the socket is open
+                        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() ->
+                                webSocket.sendText("{\"type\":\"hello\",\"compression\":\"gzip\"}", true));
+                    }
+
+                    @Override
+                    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+                        buffer.append(data);
+                        if (last) {
+                            firstType.complete(Viewer.read(buffer.toString()).getString("type"));
+                            buffer.setLength(0);
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                })
+                .get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals("gzip", firstType.get(10, TimeUnit.SECONDS));
+    }
+
+    private static void awaitPage(List<Viewer> viewers, String page) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        for (Viewer viewer : viewers) {
+            while (!Objects.equals(viewer.page, page)) {
+                Assertions.assertTrue(System.currentTimeMillis() < deadline, "viewer didn't get the page in time");
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /**
+     * Every version changes one paragraph and adds a line before it
+     */
+    private static String page(int version) {
+        StringBuilder builder = new StringBuilder("<html><head><title>Test</title></head><body><div id=\"content\">");
+        int changed = version % PARAGRAPHS;
+        int line = 3;
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            if (i == changed) {
+                line += version;
+            }
+            builder.append("<div class=\"paragraph data-line-").append(line).append("\"><p>Paragraph ").append(i)
+                    .append(i == changed ? " edited in version " + version : "").append(" with some text</p></div>");
+            line += 2;
+        }
+        return builder.append("</div></body></html>").toString();
+    }
+
+    /**
+     * Applies the preview messages the same way <code>index.js</code> does
+     */
+    private static class Viewer implements WebSocket.Listener {
+
+        private final CompletableFuture<Void> release;
+        private final StringBuilder buffer = new StringBuilder();
+        private List<String> segments = List.of();
+        private long version = -1;
+        private volatile String page;
+
+        Viewer(CompletableFuture<Void> release) {
+            this.release = release;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                apply(read(buffer.toString()));
+                buffer.setLength(0);
+            }
+            if (Objects.nonNull(release) && Objects.nonNull(page)) {
+                release.thenRun(() -> webSocket.request(1));
+            } else {
+                webSocket.request(1);
+            }
+            return null;
+        }
+
+        private void apply(JsonObject message) {
+            if ("snapshot".equals(message.getString("type"))) {
+                segments = message.getJsonArray("segments").getValuesAs(JsonString.class)
+                        .stream().map(JsonString::getString).toList();
+            } else {
+                Assertions.assertEquals(version, message.getJsonNumber("base").longValue());
+                List<String> applied = new ArrayList<>();
+                for (JsonValue op : message.getJsonArray("ops")) {
+                    if (op instanceof JsonString html) {
+                        applied.add(html.getString());
+                        continue;
+                    }
+                    JsonArray copy = op.asJsonArray();
+                    for (int i = copy.getInt(0); i < copy.getInt(0) + copy.getInt(1); i++) {
+                        applied.add(PreviewSegments.shift(segments.get(i), copy.getInt(2)));
+                    }
+                }
+                segments = applied;
+            }
+            version = message.getJsonNumber("version").longValue();
+            page = String.join("", segments);
+        }
+
+        private static JsonObject read(String json) {
+            try (JsonReader reader = Json.createReader(new StringReader(json))) {
+                return reader.readObject();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.kodedu.engine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kodedu.engine.PreviewFragmentCache.Fragment;
+
+public class PreviewFragmentCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final PreviewFragmentCache cache = new PreviewFragmentCache();
+
+    @Test
+    void fragmentsIncludingChangedFilesAreDropped() throws IOException {
+        Path child = directory.resolve("child.adoc");
+        Files.writeString(child, "== Child\n");
+
+        String attributesKey = cache.attributesKey("= Master", Map.of("preview", true));
+        String including = cache.fragmentKey(attributesKey, "include::child.adoc[]\n");
+        String plain = cache.fragmentKey(attributesKey, "== Plain\n");
+        cache.put(including, new Fragment("<h2>Child</h2>", List.of(), Map.of(), Fragment.includeStates(List.of(child))));
+        cache.put(plain, new Fragment("<h2>Plain</h2>", List.of(), Map.of(), Map.of()));
+
+        Assertions.assertNotNull(cache.get(including));
+
+        Files.writeString(child, "== Child changed\n");
+        Files.setLastModifiedTime(child, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Assertions.assertNull(cache.get(including));
+        Assertions.assertNotNull(cache.get(plain));
+
+        cache.put(including, new Fragment("<h2>Child changed</h2>", List.of(), Map.of(), Fragment.includeStates(List.of(child))));
+        Files.delete(child);
+        Assertions.assertNull(cache.get(including));
+    }
+}
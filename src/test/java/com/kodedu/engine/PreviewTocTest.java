@@ -0,0 +1,101 @@
+package com.kodedu.engine;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.kodedu.engine.PreviewFragments.Chunk;
+import com.kodedu.engine.PreviewToc.Placement;
+import com.kodedu.outline.Section;
+
+public class PreviewTocTest {
+
+    @Test
+    void placementFollowsTheTocAttributes() {
+        Placement header = Placement.of(Map.of("toc", "")).orElseThrow();
+        Assertions.assertEquals("toc", header.tocClass());
+        Assertions.assertEquals("", header.bodyClasses());
+        Assertions.assertEquals("Table of Contents", header.title());
+        Assertions.assertEquals(2, header.levels());
+
+        Placement left = Placement.of(Map.of("toc", "left", "toclevels", "3", "toc-title", "Contents")).orElseThrow();
+        Assertions.assertEquals("toc2", left.tocClass());
+        Assertions.assertEquals("toc2 toc-left", left.bodyClasses());
+        Assertions.assertEquals("Contents", left.title());
+        Assertions.assertEquals(3, left.levels());
+
+        Placement resolved = Placement.of(Map.of("toc", "", "toc-position", "right", "toc-placement", "auto")).orElseThrow();
+        Assertions.assertEquals("toc2 toc-right", resolved.bodyClasses());
+
+        Assertions.assertTrue(Placement.of(Map.of("toc", "preamble")).isEmpty());
+        Assertions.assertTrue(Placement.of(Map.of("toc", "", "toc-placement", "macro")).isEmpty());
+    }
+
+    @Test
+    void specialSectionsAreNotNumbered() {
+        Assertions.assertTrue(PreviewToc.isNumbered(new Chunk(1, "[[intro]]\n== Intro\n\ntext\n")));
+        Assertions.assertFalse(PreviewToc.isNumbered(new Chunk(1, "[appendix]\n== Extra\n")));
+        Assertions.assertFalse(PreviewToc.isNumbered(new Chunk(1, "preamble only\n")));
+    }
+
+    @Test
+    void fragmentsAreRenumbered() {
+        String html = """
+                <div class="sect1 data-line-3">
+                <h2 id="_one"><a class="anchor" href="#_one"></a>1. One</h2>
+                <div class="sectionbody">
+                <div class="sect2">
+                <h3 id="_sub">1.2. Sub</h3>
+                <p>1. not a heading</p>
+                </div>
+                </div>
+                </div>
+                """;
+        String renumbered = PreviewToc.renumber(html, 4);
+        Assertions.assertTrue(renumbered.contains("<h2 id=\"_one\"><a class=\"anchor\" href=\"#_one\"></a>4. One</h2>"));
+        Assertions.assertTrue(renumbered.contains("<h3 id=\"_sub\">4.2. Sub</h3>"));
+        Assertions.assertTrue(renumbered.contains("<p>1. not a heading</p>"));
+        Assertions.assertSame(html, PreviewToc.renumber(html, 1));
+    }
+
+    @Test
+    void pendingIdsFollowAsciidoctor() {
+        Assertions.assertEquals("_getting_started", PreviewToc.sectionId("== Getting Started", 0, "Getting Started"));
+        Assertions.assertEquals("_whats_new_in_2_0", PreviewToc.sectionId("", 0, "What's new in 2.0?"));
+        Assertions.assertEquals("start", PreviewToc.sectionId("[[start,Start]]\n== Getting Started", 16, "Getting Started"));
+        Assertions.assertEquals("extra", PreviewToc.sectionId("[appendix#extra.role]\n== Extra", 22, "Extra"));
+    }
+
+    @Test
+    void tocIsBuiltFromTheSectionsAndPutInTheHeader() {
+        Section one = new Section(1, "One", 3, "_one", null, null);
+        one.getSubsections().add(new Section(2, "Sub", 5, "_sub", null, one));
+        one.getSubsections().add(new Section(2, "Other", 9, "_other", null, one));
+        Section deep = new Section(3, "Deep", 10, "_deep", null, one);
+        one.getSubsections().first().getSubsections().add(deep);
+
+        StringBuilder outline = new StringBuilder();
+        PreviewToc.appendOutline(outline, one, "2.", 2, 3);
+        PreviewToc.appendOutline(outline, new Section(1, "Extra", 20, "_extra", null, null), null, 2, 3);
+        Assertions.assertEquals("""
+                <li><a href="#_one">2. One</a>
+                <ul class="sectlevel2">
+                <li><a href="#_sub">2.1. Sub</a></li>
+                <li><a href="#_other">2.2. Other</a></li>
+                </ul>
+                </li>
+                <li><a href="#_extra">Extra</a></li>
+                """, outline.toString());
+
+        Placement left = Placement.of(Map.of("toc", "left")).orElseThrow();
+        String toc = PreviewToc.toc(left, outline.toString());
+        String shell = "<body class=\"article\">\n<div id=\"header\">\n<h1>Book</h1>\n</div>\n<div id=\"content\">\n</div>\n</body>";
+        String page = PreviewToc.insert(shell, left, toc);
+        Assertions.assertEquals("<body class=\"article toc2 toc-left\">\n<div id=\"header\">\n<h1>Book</h1>\n"
+                + toc + "\n</div>\n<div id=\"content\">\n</div>\n</body>", page);
+
+        String noHeader = "<body class=\"article\">\n<div id=\"content\">\n</div>\n</body>";
+        Assertions.assertSame(noHeader, PreviewToc.insert(noHeader, left, toc));
+    }
+}
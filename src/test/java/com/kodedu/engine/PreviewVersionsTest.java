@@ -0,0 +1,84 @@
+package com.kodedu.engine;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+public class PreviewVersionsTest {
+
+    private final PreviewVersions versions = new PreviewVersions();
+
+    @Test
+    void deltaShiftsBlocksMovedByAddedLines() {
+        String before = page(List.of("First", "Second", "Third"));
+        String after = page(List.of("Inserted", "First", "Second", "Third"));
+
+        versions.publish(before);
+        JsonObject snapshot = read(versions.message(null, false).orElseThrow().payload());
+        Assertions.assertEquals("snapshot", snapshot.getString("type"));
+        List<String> segments = snapshot.getJsonArray("segments").getValuesAs(JsonString.class)
+                .stream().map(JsonString::getString).toList();
+        Assertions.assertEquals(before, String.join("", segments));
+
+        versions.publish(after);
+        PreviewVersions.Message message = versions.message(snapshot.getJsonNumber("version").longValue(), false).orElseThrow();
+        JsonObject delta = read(message.payload());
+        Assertions.assertEquals("delta", delta.getString("type"));
+        Assertions.assertEquals(after, String.join("", apply(segments, delta.getJsonArray("ops"))));
+        Assertions.assertTrue(message.payload().length() < after.length());
+
+        Assertions.assertTrue(versions.message(message.version(), false).isEmpty());
+    }
+
+    @Test
+    void unknownVersionGetsSnapshot() {
+        versions.publish(page(List.of("First")));
+        versions.publish(page(List.of("First", "Second")));
+
+        PreviewVersions.Message message = versions.message(-1L, false).orElseThrow();
+        Assertions.assertTrue(message.snapshot());
+        Assertions.assertEquals(versions.currentVersion(), message.version());
+    }
+
+    private static String page(List<String> paragraphs) {
+        StringBuilder builder = new StringBuilder("<html><head><title>Test</title></head><body><div id=\"content\">");
+        int line = 3;
+        for (String paragraph : paragraphs) {
+            builder.append("<div class=\"paragraph data-line-").append(line).append("\"><p>")
+                    .append(paragraph).append(" paragraph with some text</p></div>");
+            line += 2;
+        }
+        return builder.append("</div></body></html>").toString();
+    }
+
+    private static List<String> apply(List<String> base, JsonArray ops) {
+        List<String> segments = new ArrayList<>();
+        for (JsonValue op : ops) {
+            if (op instanceof JsonString html) {
+                segments.add(html.getString());
+                continue;
+            }
+            JsonArray copy = op.asJsonArray();
+            for (int i = copy.getInt(0); i < copy.getInt(0) + copy.getInt(1); i++) {
+                segments.add(PreviewSegments.shift(base.get(i), copy.getInt(2)));
+            }
+        }
+        return segments;
+    }
+
+    private static JsonObject read(String json) {
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+}
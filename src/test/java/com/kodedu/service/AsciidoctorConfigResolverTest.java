@@ -0,0 +1,59 @@
+package com.kodedu.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kodedu.service.AsciidoctorConfigResolver.ConfigPrefix;
+
+public class AsciidoctorConfigResolverTest {
+
+    @TempDir
+    Path workingDirectory;
+
+    private final AsciidoctorConfigResolver resolver = new AsciidoctorConfigResolver();
+
+    @Test
+    void chainIsOrderedFromWorkingDirectory() throws IOException {
+        Path chapter = Files.createDirectories(workingDirectory.resolve("book/chapter"));
+        Files.writeString(workingDirectory.resolve(".asciidoctorconfig"), ":root: 1");
+        Files.writeString(chapter.resolve(".asciidoctorconfig.adoc"), ":chapter: 1");
+
+        ConfigPrefix prefix = resolver.resolve(chapter, workingDirectory);
+
+        String text = prefix.text();
+        Assertions.assertTrue(text.contains(":asciidoctorconfigdir: " + chapter));
+        Assertions.assertTrue(text.indexOf(":root: 1") < text.indexOf(":chapter: 1"));
+        Assertions.assertEquals(text.lines().count(), prefix.lineCount());
+        Assertions.assertSame(prefix, resolver.resolve(chapter, workingDirectory));
+    }
+
+    @Test
+    void changesWithoutEventsAreSeen() throws IOException {
+        Path chapter = Files.createDirectories(workingDirectory.resolve("book/chapter"));
+        Path root = workingDirectory.resolve(".asciidoctorconfig");
+        Files.writeString(root, ":root: 1");
+        Assertions.assertTrue(resolver.resolve(chapter, workingDirectory).text().contains(":root: 1"));
+
+        Files.writeString(root, ":root: 2");
+        Files.setLastModifiedTime(root, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Assertions.assertTrue(resolver.resolve(chapter, workingDirectory).text().contains(":root: 2"));
+
+        Files.writeString(workingDirectory.resolve("book/.asciidoctorconfig"), ":book: 1");
+        Assertions.assertTrue(resolver.resolve(chapter, workingDirectory).text().contains(":book: 1"));
+
+        Files.delete(root);
+        Assertions.assertFalse(resolver.resolve(chapter, workingDirectory).text().contains(":root:"));
+    }
+
+    @Test
+    void directoriesWithoutConfigResolveEmpty() {
+        Assertions.assertSame(ConfigPrefix.EMPTY, resolver.resolve(workingDirectory, workingDirectory));
+        Assertions.assertSame(ConfigPrefix.EMPTY, resolver.resolve(null, workingDirectory));
+    }
+}
@@ -0,0 +1,139 @@
+package com.kodedu.service;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.asciidoctor.Asciidoctor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class AsciidoctorPoolTest {
+
+    private int created;
+
+    private Asciidoctor newDoctor() {
+        created++;
+        Asciidoctor asciidoctor = Mockito.mock(Asciidoctor.class);
+        Mockito.when(asciidoctor.asciidoctorVersion()).thenReturn("2.0.0");
+        return asciidoctor;
+    }
+
+    private AsciidoctorPool pool(int maxSize) {
+        return new AsciidoctorPool(DoctorType.HTML, this::newDoctor, doctor -> {
+        }, doctor -> {
+        }, maxSize);
+    }
+
+    @Test
+    void tryLeaseOnlyUsesIdleRuntimes() {
+        AsciidoctorPool pool = pool(2);
+        Asciidoctor seeded = newDoctor();
+        pool.seed(seeded);
+
+        Optional<DoctorLease> first = pool.tryLease();
+        Assertions.assertTrue(first.isPresent());
+        Assertions.assertSame(seeded, first.get().asciidoctor());
+
+        Assertions.assertTrue(pool.tryLease().isEmpty());
+        Assertions.assertEquals(1, pool.getSize());
+
+        first.get().close();
+        Assertions.assertEquals(1, pool.getIdle());
+        try (DoctorLease again = pool.tryLease().orElseThrow()) {
+            Assertions.assertSame(seeded, again.asciidoctor());
+        }
+        Assertions.assertEquals(1, created);
+    }
+
+    @Test
+    void poolGrowsLazilyAndReusesMostRecentlyUsed() {
+        AsciidoctorPool pool = pool(2);
+        DoctorLease first = pool.lease();
+        DoctorLease second = pool.lease();
+        Assertions.assertEquals(2, created);
+        Assertions.assertNotSame(first.asciidoctor(), second.asciidoctor());
+
+        first.close();
+        second.close();
+        try (DoctorLease again = pool.lease()) {
+            Assertions.assertSame(second.asciidoctor(), again.asciidoctor());
+        }
+        Assertions.assertEquals(2, created);
+        Assertions.assertEquals(2, pool.getIdle());
+    }
+
+    @Test
+    void leaseWaitsForAReleasedRuntime() throws Exception {
+        AsciidoctorPool pool = pool(1);
+        DoctorLease lease = pool.lease();
+
+        CompletableFuture<Asciidoctor> waiting = CompletableFuture.supplyAsync(() -> {
+            try (DoctorLease next = pool.lease()) {
+                return next.asciidoctor();
+            }
+        });
+        Thread.sleep(100);
+        Assertions.assertFalse(waiting.isDone());
+
+        lease.close();
+        Assertions.assertSame(lease.asciidoctor(), waiting.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, created);
+    }
+
+    @Test
+    void interruptedWaitIsCancelledAndKeepsTheFlag() throws Exception {
+        AsciidoctorPool pool = pool(1);
+        DoctorLease lease = pool.lease();
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiter = Thread.startVirtualThread(() -> {
+            try {
+                pool.lease().close();
+            } catch (Exception e) {
+                failure.set(e);
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        Thread.sleep(100);
+        waiter.interrupt();
+        waiter.join(5000);
+
+        Assertions.assertInstanceOf(CancellationException.class, failure.get());
+        Assertions.assertTrue(interrupted.get());
+        lease.close();
+        Assertions.assertEquals(1, pool.getIdle());
+    }
+
+    @Test
+    void unhealthyRuntimesAreReplaced() {
+        AsciidoctorPool pool = pool(1);
+        DoctorLease lease = pool.lease();
+        Asciidoctor broken = lease.asciidoctor();
+        Mockito.when(broken.asciidoctorVersion()).thenThrow(new IllegalStateException("broken"));
+        lease.failed();
+        lease.close();
+
+        try (DoctorLease next = pool.lease()) {
+            Assertions.assertNotSame(broken, next.asciidoctor());
+        }
+        Assertions.assertEquals(2, created);
+        Assertions.assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    void closedPoolRefusesLeases() {
+        AsciidoctorPool pool = pool(1);
+        pool.seed(newDoctor());
+        pool.close();
+
+        Assertions.assertEquals(0, pool.getSize());
+        Assertions.assertThrows(IllegalStateException.class, pool::lease);
+        Assertions.assertThrows(IllegalStateException.class, pool::tryLease);
+    }
+}
@@ -0,0 +1,125 @@
+package com.kodedu.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class DebouncerTest {
+
+    private record Scheduled(Runnable runnable, long delay) {
+    }
+
+    private final List<Scheduled> scheduled = new ArrayList<>();
+    private final List<Runnable> submitted = new ArrayList<>();
+    private final List<String> runs = new ArrayList<>();
+
+    private ThreadService threadService;
+    private boolean deferExecution;
+
+    @BeforeEach
+    void createThreadService() {
+        threadService = Mockito.mock(ThreadService.class);
+        Mockito.when(threadService.schedule(Mockito.any(), Mockito.anyLong(), Mockito.any())).thenAnswer(invocation -> {
+            TimeUnit timeUnit = invocation.getArgument(2);
+            scheduled.add(new Scheduled(invocation.getArgument(0), timeUnit.toMillis(invocation.getArgument(1))));
+            return null;
+        });
+        Executor executor = runnable -> {
+            if (deferExecution) {
+                submitted.add(runnable);
+            } else {
+                runnable.run();
+            }
+        };
+        Mockito.when(threadService.executor()).thenReturn(executor);
+    }
+
+    private Runnable run(String name) {
+        return () -> runs.add(name);
+    }
+
+    private void fireAll() {
+        List<Scheduled> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        tasks.forEach(task -> task.runnable().run());
+    }
+
+    @Test
+    void trailingCallsAreCoalesced() {
+        Debouncer debouncer = new Debouncer("test", threadService).delay(100, TimeUnit.MILLISECONDS);
+        debouncer.call(run("a"));
+        debouncer.call(run("b"));
+        debouncer.call(run("c"));
+
+        Assertions.assertTrue(runs.isEmpty());
+        Assertions.assertTrue(scheduled.stream().allMatch(task -> task.delay() == 100));
+
+        fireAll();
+        Assertions.assertEquals(List.of("c"), runs);
+    }
+
+    @Test
+    void maxWaitBoundsTheDelay() throws InterruptedException {
+        Debouncer debouncer = new Debouncer("test", threadService)
+                .delay(100, TimeUnit.MILLISECONDS)
+                .maxWait(150, TimeUnit.MILLISECONDS);
+        debouncer.call(run("a"));
+        Thread.sleep(80);
+        debouncer.call(run("b"));
+
+        Assertions.assertEquals(100, scheduled.get(0).delay());
+        Assertions.assertTrue(scheduled.get(1).delay() < 100, "delay " + scheduled.get(1).delay());
+    }
+
+    @Test
+    void callsWhileRunningAreExecutedOnceFinished() {
+        deferExecution = true;
+        Debouncer debouncer = new Debouncer("test", threadService)
+                .delay(100, TimeUnit.MILLISECONDS)
+                .leading(true);
+        debouncer.call(run("a"));
+        Assertions.assertEquals(1, submitted.size());
+        Assertions.assertTrue(scheduled.isEmpty());
+
+        debouncer.call(run("b"));
+        debouncer.call(run("c"));
+        Assertions.assertEquals(1, submitted.size());
+
+        submitted.remove(0).run();
+        Assertions.assertEquals(1, scheduled.size());
+        fireAll();
+        submitted.remove(0).run();
+        Assertions.assertEquals(List.of("a", "c"), runs);
+    }
+
+    @Test
+    void adaptiveDelayFollowsLatencies() {
+        Debouncer debouncer = new Debouncer("test", threadService)
+                .leading(true)
+                .adaptive(50, 1000, TimeUnit.MILLISECONDS);
+
+        Assertions.assertEquals(-1, debouncer.latency(50));
+        debouncer.call(run("instant"));
+        Assertions.assertEquals(List.of("instant"), runs);
+
+        for (int i = 1; i <= 10; i++) {
+            debouncer.record(i * 40, TimeUnit.MILLISECONDS);
+        }
+        Assertions.assertEquals(200, debouncer.latency(50));
+        Assertions.assertEquals(400, debouncer.latency(95));
+
+        // Too slow to be rendered on the leading edge
+        debouncer.call(run("slow"));
+        Assertions.assertEquals(List.of("instant"), runs);
+        Assertions.assertEquals(200, scheduled.get(0).delay());
+
+        fireAll();
+        Assertions.assertEquals(List.of("instant", "slow"), runs);
+    }
+}
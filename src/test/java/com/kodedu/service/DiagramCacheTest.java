@@ -0,0 +1,114 @@
+package com.kodedu.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kodedu.service.cache.impl.BinaryCacheServiceImpl;
+
+public class DiagramCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @TempDir
+    Path docDir;
+
+    private final RenderMetrics metrics = new RenderMetrics();
+
+    private BinaryCacheServiceImpl binaryCache;
+
+    @BeforeEach
+    void createBinaryCache() {
+        binaryCache = new BinaryCacheServiceImpl(docDir.resolve("binary-cache"), 1000, 1000, Runnable::run, metrics);
+    }
+
+    private DiagramCache diagramCache(long maxBytes) {
+        return new DiagramCache(cacheDir, maxBytes, "1.0", binaryCache, metrics);
+    }
+
+    @Test
+    void imagesSurviveRestart() throws IOException {
+        DiagramCache cache = diagramCache(1000);
+        String key = cache.key("plantuml", "@startuml\nA -> B\n@enduml", 300);
+        Path image = docDir.resolve("images/diagram.png");
+
+        Assertions.assertFalse(cache.restore(key, "images/diagram.png", image));
+        cache.save(key, "plantuml", "images/diagram.png", image, bytes(1, 100));
+        Assertions.assertArrayEquals(bytes(1, 100), Files.readAllBytes(image));
+
+        // Another session, the image was deleted meanwhile
+        Files.delete(image);
+        DiagramCache restarted = diagramCache(1000);
+        Assertions.assertEquals(key, restarted.key("plantuml", "@startuml\nA -> B\n@enduml", 300));
+        Assertions.assertTrue(restarted.restore(key, "images/diagram.png", image));
+        Assertions.assertArrayEquals(bytes(1, 100), Files.readAllBytes(image));
+        Assertions.assertTrue(restarted.restore(key, "/afx/cache/diagram.png", null));
+        Assertions.assertArrayEquals(bytes(1, 100), binaryCache.getCacheData("/afx/cache/diagram.png").readBytes());
+
+        Assertions.assertEquals(2, metrics.count("diagramCache.hit"));
+        Assertions.assertEquals(1, metrics.count("diagramCache.miss"));
+    }
+
+    @Test
+    void keysDependOnInputsAndVersion() {
+        DiagramCache cache = diagramCache(1000);
+        String key = cache.key("mermaid", "graph TD; A-->B", 2);
+
+        Assertions.assertNotEquals(key, cache.key("mermaid", "graph TD; A-->C", 2));
+        Assertions.assertNotEquals(key, cache.key("mermaid", "graph TD; A-->B", 1));
+        Assertions.assertNotEquals(key, cache.key("plantuml", "graph TD; A-->B", 2));
+        Assertions.assertNotEquals(key, new DiagramCache(cacheDir, 1000, "2.0", binaryCache, metrics)
+                .key("mermaid", "graph TD; A-->B", 2));
+    }
+
+    @Test
+    void leastRecentlyUsedImagesAreEvicted() throws Exception {
+        DiagramCache cache = diagramCache(250);
+        String[] keys = new String[3];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = cache.key("chart", i);
+            cache.save(keys[i], "chart", "/afx/cache/" + i + ".png", null, bytes(i, 100));
+            Thread.sleep(5);
+        }
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(200, cache.getBytes());
+        Assertions.assertFalse(cache.restore(keys[0], "/afx/cache/0.png", null));
+        Assertions.assertTrue(cache.restore(keys[1], "/afx/cache/1.png", null));
+        Assertions.assertEquals(2, diagramCache(250).size());
+    }
+
+    @Test
+    void imagesAreRestoredByFileNotTarget() throws IOException {
+        DiagramCache cache = diagramCache(1000);
+        String key = cache.key("chart", "line", 1);
+        Path first = docDir.resolve("first/images/chart.png");
+        Path second = docDir.resolve("second/images/chart.png");
+
+        cache.save(key, "chart", "images/chart.png", first, bytes(1, 100));
+        Assertions.assertTrue(cache.restore(key, "images/chart.png", second));
+        Assertions.assertArrayEquals(bytes(1, 100), Files.readAllBytes(second));
+
+        // Changed on disk after it was written in this session
+        Files.write(first, bytes(2, 50));
+        Assertions.assertTrue(cache.restore(key, "images/chart.png", first));
+        Assertions.assertArrayEquals(bytes(1, 100), Files.readAllBytes(first));
+
+        Files.delete(second);
+        Assertions.assertTrue(cache.restore(key, "images/chart.png", second));
+        Assertions.assertTrue(Files.exists(second));
+    }
+
+    private static byte[] bytes(int value, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
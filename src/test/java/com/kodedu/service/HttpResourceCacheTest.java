@@ -0,0 +1,172 @@
+package com.kodedu.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpResourceCacheTest {
+
+    /**
+     * Stand-in for a remote server
+     */
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicReference<String> body = new AtomicReference<>("v1");
+    private final AtomicReference<String> cacheControl = new AtomicReference<>("max-age=3600");
+
+    @TempDir
+    Path cacheDir;
+
+    /**
+     * Runs revalidations in the calling thread, so that they are observable right after a read
+     */
+    private final Executor direct = Runnable::run;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/resource", this::handle);
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String etag = "\"" + body.get() + "\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Cache-Control", cacheControl.get());
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=UTF-8");
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    void should_download_on_miss_and_serve_fresh_hits_from_disk() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+
+        Assertions.assertEquals("v1", cache.getString(uri("/resource")));
+        Assertions.assertEquals(1, requests.get());
+
+        Assertions.assertEquals("v1", cache.getString(uri("/resource")));
+        Assertions.assertEquals(1, requests.get());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void should_survive_restart() throws IOException {
+        new HttpResourceCache(cacheDir, 1024 * 1024, direct).getString(uri("/resource"));
+
+        HttpResourceCache restarted = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+        Assertions.assertEquals("v1", restarted.getString(uri("/resource")));
+        Assertions.assertEquals(1, requests.get());
+    }
+
+    @Test
+    void should_serve_stale_and_revalidate_with_etag() throws IOException {
+        cacheControl.set("max-age=0");
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+        cache.getString(uri("/resource"));
+
+        // Unchanged resource is revalidated with 304
+        Assertions.assertEquals("v1", cache.getString(uri("/resource")));
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(1, notModified.get());
+
+        // Changed resource is served stale once, then the revalidated content is served
+        body.set("v2");
+        Assertions.assertEquals("v1", cache.getString(uri("/resource")));
+        Assertions.assertEquals("v2", cache.getString(uri("/resource")));
+        Assertions.assertEquals(4, requests.get());
+    }
+
+    @Test
+    void should_revalidate_no_cache_before_use() throws IOException {
+        cacheControl.set("no-cache");
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+        cache.getString(uri("/resource"));
+
+        body.set("v2");
+        Assertions.assertEquals("v2", cache.getString(uri("/resource")));
+        Assertions.assertEquals(2, requests.get());
+    }
+
+    @Test
+    void should_not_store_no_store_responses() throws IOException {
+        cacheControl.set("no-store");
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+        cache.getString(uri("/resource"));
+        cache.getString(uri("/resource"));
+
+        Assertions.assertEquals(2, requests.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void should_serve_stored_copy_when_offline() throws IOException {
+        cacheControl.set("no-cache");
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+        URI uri = uri("/resource");
+        cache.getString(uri);
+
+        server.stop(0);
+        server = null;
+        Assertions.assertEquals("v1", cache.getString(uri));
+    }
+
+    @Test
+    void should_fail_on_error_status_without_stored_copy() {
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 1024 * 1024, direct);
+        Assertions.assertThrows(IOException.class, () -> cache.get(uri("/missing")));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void should_evict_least_recently_used_entries() throws IOException {
+        HttpResourceCache cache = new HttpResourceCache(cacheDir, 3, direct);
+        cache.get(uri("/resource?a"));
+        cache.get(uri("/resource?b"));
+
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertTrue(cache.getBytes() <= 3);
+    }
+}
@@ -0,0 +1,83 @@
+package com.kodedu.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kodedu.service.IncludeGraph.Edge;
+
+public class IncludeGraphTest {
+
+    @TempDir
+    Path directory;
+
+    private final IncludeGraph graph = new IncludeGraph();
+
+    private Path book;
+    private Path chapter;
+    private Path snippet;
+
+    @BeforeEach
+    void record() {
+        book = directory.resolve("book.adoc");
+        chapter = directory.resolve("chapter.adoc");
+        snippet = directory.resolve("snippets/code.adoc");
+
+        graph.record(book, new Edge(chapter, null, null, null));
+        graph.record(chapter, new Edge(snippet, null, "main", null));
+        graph.record(directory.resolve("snippets/../chapter.adoc"), new Edge(snippet, "1..5", null, null));
+    }
+
+    @Test
+    void dependentsAreTransitive() {
+        Assertions.assertEquals(Set.of(chapter, book), graph.dependents(snippet));
+        Assertions.assertEquals(Set.of(book), graph.dependents(chapter));
+        Assertions.assertTrue(graph.dependents(book).isEmpty());
+    }
+
+    @Test
+    void subtreeKeepsTheFilters() {
+        List<Edge> subtree = graph.subtree(book);
+        Assertions.assertEquals(3, subtree.size());
+        Assertions.assertTrue(subtree.contains(new Edge(snippet, null, "main", null)));
+        Assertions.assertTrue(subtree.contains(new Edge(snippet, "1..5", null, null)));
+        Assertions.assertEquals(2, graph.getChildren(chapter).size());
+        Assertions.assertTrue(graph.isKnown(book));
+        Assertions.assertFalse(graph.isKnown(snippet));
+    }
+
+    @Test
+    void changedFilesForgetTheirIncludes() {
+        Assertions.assertEquals(Set.of(book), graph.changed(chapter));
+        Assertions.assertTrue(graph.getChildren(chapter).isEmpty());
+        Assertions.assertTrue(graph.dependents(snippet).isEmpty());
+        Assertions.assertEquals(Set.of(chapter), graph.getChildren(book).stream().map(Edge::child).collect(Collectors.toSet()));
+
+        // Files nobody includes keep their includes
+        Assertions.assertTrue(graph.changed(book).isEmpty());
+        Assertions.assertTrue(graph.isKnown(book));
+
+        graph.remove(book);
+        Assertions.assertFalse(graph.isKnown(book));
+    }
+
+    @Test
+    void fileStateFollowsSizeAndModificationTime() throws IOException {
+        Assertions.assertEquals("missing", IncludeGraph.fileState(chapter));
+        Files.writeString(chapter, "== Chapter\n");
+        String state = IncludeGraph.fileState(chapter);
+        Assertions.assertEquals(state, IncludeGraph.fileState(chapter));
+
+        Files.setLastModifiedTime(chapter, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Assertions.assertNotEquals(state, IncludeGraph.fileState(chapter));
+    }
+}
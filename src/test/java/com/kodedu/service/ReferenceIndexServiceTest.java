@@ -0,0 +1,104 @@
+package com.kodedu.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import com.kodedu.other.RefProps;
+import com.kodedu.service.impl.PathResolverServiceImpl;
+
+public class ReferenceIndexServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path indexFolder;
+
+    private ReferenceIndexService service;
+
+    @BeforeEach
+    void create() {
+        service = new ReferenceIndexService(indexFolder, 0, Mockito.mock(FileWatchService.class), new PathResolverServiceImpl(),
+                Mockito.mock(ThreadService.class), Mockito.mock(EventService.class));
+    }
+
+    @Test
+    void anchorsAndSectionsAreDefinitions() throws IOException {
+        Files.writeString(directory.resolve("a.adoc"), """
+                = A
+
+                [[intro]]
+                == Introduction
+
+                == Getting Started
+
+                [#setup]
+                Set up anchor:install[] first.
+                """);
+        service.build(directory);
+
+        Assertions.assertTrue(service.isReady());
+        Assertions.assertEquals(1, service.definitions("intro").size());
+        Assertions.assertEquals(1, service.definitions("_getting_started").size());
+        Assertions.assertEquals(1, service.definitions("setup").size());
+        Assertions.assertEquals(1, service.definitions("install").size());
+        Assertions.assertTrue(service.definitions("_introduction").isEmpty());
+    }
+
+    @Test
+    void brokenXrefs() throws IOException {
+        Path chapters = Files.createDirectories(directory.resolve("chapters"));
+        Files.writeString(chapters.resolve("b.adoc"), """
+                = B
+
+                [[details]]
+                == Details
+                """);
+        Files.writeString(directory.resolve("a.adoc"), """
+                = A
+
+                [[intro]]
+                == Introduction
+
+                <<intro>> <<#intro>> <<intro,Intro>>
+                <<chapters/b.adoc#details,Details>> xref:chapters/b.adoc#details[] <<chapters/b#details>>
+                <<chapters/b.adoc#>> xref:chapters/b.adoc#[] <<chapters/b.adoc>> <<#>>
+                <<unknown>> <<#missing-id>>
+                <<chapters/b.adoc#missing>> <<nope.adoc#intro>> <<nope.adoc#>> xref:nope.adoc[]
+                <<{attribute}#intro>>
+                """);
+        service.build(directory);
+
+        List<String> broken = service.brokenXrefs().stream().map(RefProps::refId).sorted().toList();
+        Assertions.assertEquals(List.of("#missing-id", "chapters/b.adoc#missing", "nope.adoc", "nope.adoc#", "nope.adoc#intro", "unknown"), broken);
+
+        Assertions.assertEquals(3, service.usages("details").size());
+        Assertions.assertEquals(5, service.usages("intro").size());
+    }
+
+    @Test
+    void changesWithoutEventsAreSeen() throws IOException {
+        Path a = directory.resolve("a.adoc");
+        Files.writeString(a, "<<b.adoc#details>>\n");
+        service.build(directory);
+        Assertions.assertEquals(1, service.brokenXrefs().size());
+
+        Files.writeString(directory.resolve("b.adoc"), "[[details]]\n== Details\n");
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Assertions.assertTrue(service.brokenXrefs().isEmpty());
+        Assertions.assertEquals(2, service.size());
+
+        Files.writeString(a, "<<b.adoc#other>>\n");
+        Files.setLastModifiedTime(a, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Assertions.assertEquals(List.of("b.adoc#other"), service.brokenXrefs().stream().map(RefProps::refId).toList());
+    }
+}
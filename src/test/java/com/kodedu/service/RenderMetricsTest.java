@@ -0,0 +1,62 @@
+package com.kodedu.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import jakarta.json.JsonObject;
+
+public class RenderMetricsTest {
+
+    private final RenderMetrics metrics = new RenderMetrics();
+
+    @Test
+    void percentilesAreBucketUpperBounds() {
+        for (int i = 0; i < 90; i++) {
+            metrics.record("render.convert", 3, TimeUnit.MILLISECONDS);
+        }
+        for (int i = 0; i < 10; i++) {
+            metrics.record("render.convert", 400, TimeUnit.MILLISECONDS);
+        }
+
+        RenderMetrics.Timer timer = metrics.timer("render.convert");
+        Assertions.assertEquals(100, timer.getCount());
+        Assertions.assertEquals(5_000, timer.percentile(50));
+        Assertions.assertEquals(5_000, timer.percentile(90));
+        Assertions.assertEquals(400_000, timer.percentile(95));
+        Assertions.assertEquals(-1, metrics.timer("render.load").percentile(50));
+    }
+
+    @Test
+    void stageRecordsOnClose() throws InterruptedException {
+        try (RenderMetrics.Stage stage = metrics.stage("render.load")) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(1, metrics.timer("render.load").getCount());
+        Assertions.assertTrue(metrics.timer("render.load").percentile(100) >= 5_000);
+    }
+
+    @Test
+    void json() {
+        metrics.record("render.total", 12, TimeUnit.MILLISECONDS);
+        metrics.increment("binaryCache.hit");
+        metrics.increment("binaryCache.hit");
+        metrics.gauge("httpCache.entries", () -> 7);
+        metrics.gauge("broken", () -> {
+            throw new IllegalStateException();
+        });
+
+        JsonObject json = metrics.toJson();
+        JsonObject total = json.getJsonObject("timers").getJsonObject("render.total");
+        Assertions.assertEquals(1, total.getInt("count"));
+        Assertions.assertEquals(12.0, total.getJsonNumber("maxMs").doubleValue());
+        Assertions.assertEquals(1, total.getJsonObject("histogramMs").getInt("25.0"));
+        Assertions.assertEquals(2, json.getJsonObject("counters").getInt("binaryCache.hit"));
+        Assertions.assertEquals(7, json.getJsonObject("gauges").getInt("httpCache.entries"));
+        Assertions.assertFalse(json.getJsonObject("gauges").containsKey("broken"));
+
+        metrics.reset();
+        Assertions.assertTrue(metrics.toJson().getJsonObject("timers").isEmpty());
+    }
+}
@@ -0,0 +1,159 @@
+package com.kodedu.service.cache.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kodedu.service.RenderMetrics;
+import com.kodedu.service.cache.CacheData;
+
+public class BinaryCacheServiceImplTest {
+
+    @TempDir
+    Path cacheDir;
+
+    /**
+     * Runs demotions and promotions in the calling thread, so that they are observable right after a call
+     */
+    private final Executor direct = Runnable::run;
+
+    private final RenderMetrics metrics = new RenderMetrics();
+
+    private BinaryCacheServiceImpl cache;
+
+    @BeforeEach
+    void createCache() {
+        cache = new BinaryCacheServiceImpl(cacheDir, 1000, 300, direct, metrics);
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreDemotedToDisk() {
+        for (int i = 0; i < 5; i++) {
+            cache.putBinary("/afx/cache/" + i + ".png", bytes(i, 120));
+        }
+        Assertions.assertEquals(600, cache.getMemoryBytes());
+        Assertions.assertEquals(0, cache.getDiskBytes());
+
+        // 0 is the least recently used after 1 is read
+        cache.getCacheData("/afx/cache/1.png");
+        for (int i = 5; i < 9; i++) {
+            cache.putBinary("/afx/cache/" + i + ".png", bytes(i, 120));
+        }
+        Assertions.assertEquals(960, cache.getMemoryBytes());
+        Assertions.assertEquals(120, cache.getDiskBytes());
+
+        CacheData demoted = cache.getCacheData("http://localhost:8080/afx/cache/0.png");
+        Assertions.assertTrue(demoted.inDisk());
+        Assertions.assertArrayEquals(bytes(0, 120), demoted.readBytes());
+        Assertions.assertTrue(cache.getCacheData("/afx/cache/1.png").inMemory());
+
+        // the disk hit was promoted, the promoted entry keeps its file
+        Assertions.assertTrue(cache.getCacheData("/afx/cache/0.png").inMemory());
+        Assertions.assertEquals(960, cache.getMemoryBytes());
+        Assertions.assertEquals(240, cache.getDiskBytes());
+        Assertions.assertEquals(1, metrics.count("binaryCache.promotion"));
+        Assertions.assertEquals(9, cache.size());
+    }
+
+    @Test
+    void diskTierIsBoundedAndReplacedEntriesAreDropped() throws IOException {
+        // larger than an eighth of the memory tier
+        cache.putBinary("/afx/cache/large.png", bytes(1, 200));
+        Assertions.assertEquals(0, cache.getMemoryBytes());
+        Assertions.assertEquals(200, cache.getDiskBytes());
+        Assertions.assertTrue(cache.getCacheData("/afx/cache/large.png").inDisk());
+
+        cache.putBinary("/afx/cache/large.png", bytes(2, 100));
+        Assertions.assertEquals(100, cache.getMemoryBytes());
+        Assertions.assertEquals(0, cache.getDiskBytes());
+
+        for (int i = 0; i < 10; i++) {
+            cache.putBinary("/afx/cache/" + i + ".png", bytes(i, 120));
+        }
+        Assertions.assertEquals(960, cache.getMemoryBytes());
+        Assertions.assertEquals(240, cache.getDiskBytes());
+        Assertions.assertEquals(1, metrics.count("binaryCache.eviction"));
+        Assertions.assertNull(cache.getCacheData("/afx/cache/large.png"));
+        Assertions.assertEquals(1, metrics.count("binaryCache.miss"));
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            Assertions.assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void concurrentRangeReadsOfBothTiers() throws Exception {
+        byte[] content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        cache.putBinary("/afx/cache/memory.png", content);
+        // larger than an eighth of the memory tier, so it is written to disk
+        cache.putBinary("/afx/cache/disk.png", Arrays.copyOf(content, 200));
+
+        CacheData inMemory = cache.getCacheData("/afx/cache/memory.png");
+        CacheData inDisk = cache.getCacheData("/afx/cache/disk.png");
+        Assertions.assertTrue(inMemory.inMemory());
+        Assertions.assertTrue(inDisk.inDisk());
+        Assertions.assertEquals(200, inDisk.length());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> reads = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int start = i % 50;
+                CacheData data = i % 2 == 0 ? inMemory : inDisk;
+                reads.add(executorService.submit(() -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    data.transferTo(start, 40, Channels.newChannel(output));
+                    Assertions.assertArrayEquals(Arrays.copyOfRange(content, start, start + 40), output.toByteArray());
+                    return null;
+                }));
+            }
+            for (Future<?> read : reads) {
+                read.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void validatorsAreKeptAcrossTiers() {
+        cache.putBinary("/afx/cache/0.png", bytes(0, 120));
+        CacheData inMemory = cache.getCacheData("/afx/cache/0.png");
+        for (int i = 1; i < 9; i++) {
+            cache.putBinary("/afx/cache/" + i + ".png", bytes(i, 120));
+        }
+
+        CacheData inDisk = cache.getCacheData("/afx/cache/0.png");
+        Assertions.assertTrue(inDisk.inDisk());
+        Assertions.assertEquals(inMemory.etag(), inDisk.etag());
+        Assertions.assertEquals(inMemory.lastModified(), inDisk.lastModified());
+
+        CacheData promoted = cache.getCacheData("/afx/cache/0.png");
+        Assertions.assertTrue(promoted.inMemory());
+        Assertions.assertEquals(inMemory.etag(), promoted.etag());
+        Assertions.assertNotEquals(inMemory.etag(), cache.getCacheData("/afx/cache/1.png").etag());
+    }
+
+    private static byte[] bytes(int value, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
@@ -0,0 +1,108 @@
+package com.kodedu.service.extension.processor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ExtensionPreprocessorTest {
+
+    private static final List<String> LINES = List.of(
+            "= Document",
+            "",
+            "A paragraph with stem:[x^2] and latexmath:[\\sqrt{2}] inline.",
+            "stem:[a + b] at the start",
+            "asciimath:[sum_(i=1)^n i]",
+            "a word like system:[x] or item:[y] is left alone",
+            "[stem]",
+            "[latexmath,file=\"formula.png\"]",
+            "[asciimath]",
+            "[uml,file=\"diagram.png\"]",
+            "[uml]",
+            "[plantuml,file=\"sequence.png\"]",
+            "[mermaid,file=\"flow.png\",format=png]",
+            "[source,java]",
+            "[chart,line,file=\"chart.png\"]",
+            "[tree,file=\"tree.png\"]",
+            "text with [uml, in the middle and [uml] too",
+            "[[anchor]]",
+            "NOTE: an admonition",
+            "xref:other.adoc#id[Other]",
+            "  [stem] indented block attribute",
+            "[texmath]",
+            "mathml:[<math></math>] tex:[x]",
+            "----",
+            "http://example.com[link]");
+
+    /**
+     * The algorithm before the single pass, every line is rewritten and the lines are joined with <code>\n</code>
+     */
+    private static String baseline(String content) {
+        List<String> blockExtensions = List.of("stem", "asciimath", "latexmath", "mathml", "math", "plantuml",
+                "uml", "ditaa", "graphviz", "tree", "mermaid", "chart");
+        List<String> mathExtensions = List.of("stem", "asciimath", "latexmath", "mathml", "tex");
+        return Arrays.stream(content.split("\\R"))
+                .map(line -> line.replaceAll("\\[uml,", "[plantuml,").replaceAll("\\[uml]", "[plantuml]"))
+                .map(line -> {
+                    for (String extension : blockExtensions) {
+                        if (line.startsWith("[" + extension + ",") && line.contains("file=\"")) {
+                            return line.replace("file=\"", "target=\"");
+                        }
+                    }
+                    return line;
+                })
+                .map(line -> {
+                    for (String mathExtension : mathExtensions) {
+                        if (line.startsWith(mathExtension + ":") || line.contains(" " + mathExtension + ":")) {
+                            line = line.replace(mathExtension + ":", mathExtension + "_:");
+                        }
+                    }
+                    return line;
+                })
+                .map(line -> {
+                    for (String mathExtension : mathExtensions) {
+                        if (line.startsWith("[" + mathExtension)) {
+                            line = line.replace("[" + mathExtension, "[" + mathExtension + "_");
+                        }
+                    }
+                    return line;
+                })
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Test
+    void linesAreCorrectedLikeBaseline() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            String separator = List.of("\n", "\r\n", "\r").get(random.nextInt(3));
+            String content = random.ints(1 + random.nextInt(12), 0, LINES.size())
+                    .mapToObj(LINES::get)
+                    .collect(Collectors.joining(separator));
+
+            String corrected = ExtensionPreprocessor.correctExtensionBlocks(content);
+            Assertions.assertEquals(baseline(content), String.join("\n", corrected.split("\\R")), content);
+        }
+    }
+
+    @Test
+    void lineEndingsAreKept() {
+        String content = "[uml]\r\n----\r\nA -> B\r\n----\r\nstem:[x]\r\n";
+        Assertions.assertEquals("[plantuml]\r\n----\r\nA -> B\r\n----\r\nstem_:[x]\r\n",
+                ExtensionPreprocessor.correctExtensionBlocks(content));
+
+        Assertions.assertEquals("[stem_]\n++++\nx\n++++\n\n\n",
+                ExtensionPreprocessor.correctExtensionBlocks("[stem]\n++++\nx\n++++\n\n\n"));
+        Assertions.assertEquals("\r\n[plantuml]", ExtensionPreprocessor.correctExtensionBlocks("\r\n[uml]"));
+    }
+
+    @Test
+    void unchangedTextIsReturnedAsIs() {
+        String content = "= Document\r\n\r\nNo extension here: [source,java] and [[anchor]].\n";
+        Assertions.assertSame(content, ExtensionPreprocessor.correctExtensionBlocks(content));
+        Assertions.assertSame("", ExtensionPreprocessor.correctExtensionBlocks(""));
+        Assertions.assertNull(ExtensionPreprocessor.correctExtensionBlocks(null));
+    }
+}
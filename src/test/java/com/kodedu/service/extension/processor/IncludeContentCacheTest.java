@@ -0,0 +1,94 @@
+package com.kodedu.service.extension.processor;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.kodedu.service.FileWatchService;
+import com.kodedu.service.extension.processor.IncludeContentCache.IncludeEntry;
+import com.kodedu.service.extension.processor.IncludeContentCache.IncludeKey;
+
+/**
+ * Checks the cache keys, the byte bound and the file watchers of the include cache, without Asciidoctor
+ */
+public class IncludeContentCacheTest {
+
+    private final FileWatchService fileWatchService = Mockito.mock(FileWatchService.class);
+    private final IncludeContentCache cache = new IncludeContentCache(fileWatchService);
+
+    private static IncludeKey key(String path, long lastModified, String tag) {
+        return new IncludeKey(Path.of("/docs").resolve(path), lastModified, 100, null, tag, null);
+    }
+
+    private static IncludeEntry entry(String content) {
+        return new IncludeEntry(content, 1, Map.of());
+    }
+
+    @Test
+    void entriesAreKeyedByFileStateAndFilters() {
+        cache.put(key("chapter.adoc", 1, null), entry("whole"));
+        cache.put(key("chapter.adoc", 1, "intro"), entry("intro"));
+
+        Assertions.assertEquals("whole", cache.get(key("chapter.adoc", 1, null)).content());
+        Assertions.assertEquals("intro", cache.get(key("chapter.adoc", 1, "intro")).content());
+        Assertions.assertNull(cache.get(key("chapter.adoc", 2, null)));
+        Mockito.verify(fileWatchService, Mockito.times(2)).registerPathWatcher(Path.of("/docs/chapter.adoc"));
+
+        cache.put(key("chapter.adoc", 1, null), entry("whole again"));
+        Mockito.verify(fileWatchService, Mockito.times(2)).registerPathWatcher(Path.of("/docs/chapter.adoc"));
+        Assertions.assertEquals(entry("whole again").bytes() + entry("intro").bytes(), cache.getBytes());
+
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.getBytes());
+        Assertions.assertNull(cache.get(key("chapter.adoc", 1, null)));
+    }
+
+    @Test
+    void olderVersionsAreDropped() {
+        cache.put(key("chapter.adoc", 1, null), entry("v1"));
+        cache.put(key("chapter.adoc", 1, "intro"), entry("v1 intro"));
+        cache.put(key("other.adoc", 1, null), entry("other"));
+
+        cache.put(key("chapter.adoc", 2, null), entry("v2"));
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNull(cache.get(key("chapter.adoc", 1, "intro")));
+        Assertions.assertNotNull(cache.get(key("other.adoc", 1, null)));
+        Assertions.assertEquals(entry("v2").bytes() + entry("other").bytes(), cache.getBytes());
+    }
+
+    @Test
+    void invalidateDropsFilesUnderThePath() {
+        cache.put(key("part/one.adoc", 1, null), entry("one"));
+        cache.put(key("part/two.adoc", 1, null), entry("two"));
+        cache.put(key("three.adoc", 1, null), entry("three"));
+
+        cache.invalidate(Path.of("/docs/part"));
+        Assertions.assertEquals(1, cache.size());
+        cache.invalidate(Path.of("/docs/three.adoc"));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() {
+        // 12 MB each, the cache holds 32 MB
+        String content = "x".repeat(6 * 1024 * 1024);
+        cache.put(key("a.adoc", 1, null), entry(content));
+        cache.put(key("b.adoc", 1, null), entry(content));
+        cache.get(key("a.adoc", 1, null));
+        cache.put(key("c.adoc", 1, null), entry(content));
+
+        Assertions.assertNotNull(cache.get(key("a.adoc", 1, null)));
+        Assertions.assertNull(cache.get(key("b.adoc", 1, null)));
+        Assertions.assertNotNull(cache.get(key("c.adoc", 1, null)));
+
+        cache.put(key("huge.adoc", 1, null), entry("x".repeat(17 * 1024 * 1024)));
+        Assertions.assertNull(cache.get(key("huge.adoc", 1, null)));
+        Assertions.assertEquals(2, cache.size());
+    }
+}